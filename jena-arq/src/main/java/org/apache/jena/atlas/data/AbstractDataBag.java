@@ -47,6 +47,8 @@ public abstract class AbstractDataBag<E> implements DataBag<E>
     protected Collection<E> memory = new ArrayList<>();
 
     private final List<WeakReference<Closeable>> closeableIterators = new ArrayList<>();
+    private static final int MinPruneIterators = 16;
+    private int pruneIterators = MinPruneIterators;
 
     // Total size, including tuples on disk.
     protected long size = 0;
@@ -112,6 +114,12 @@ public abstract class AbstractDataBag<E> implements DataBag<E>
      * @param c the Closeable iterator to register
      */
     protected void registerCloseableIterator(IteratorCloseable<? > c) {
+        if ( closeableIterators.size() >= pruneIterators ) {
+            // Drop the references to iterators that have gone, so a bag that is
+            // iterated many times does not accumulate them.
+            closeableIterators.removeIf(ref -> ref.get() == null);
+            pruneIterators = Math.max(MinPruneIterators, 2 * closeableIterators.size());
+        }
         closeableIterators.add(new WeakReference<>(c));
     }
 
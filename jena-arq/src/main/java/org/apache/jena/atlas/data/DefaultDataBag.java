@@ -131,7 +131,7 @@ public class DefaultDataBag<E> extends AbstractDataBag<E> {
 
     @Override
     public void flush() {
-        if ( policy.isThresholdExceeded() && (null != serializer) ) {
+        if ( spilled && (null != serializer) ) {
             serializer.flush();
         }
     }
@@ -146,7 +146,7 @@ public class DefaultDataBag<E> extends AbstractDataBag<E> {
         closeWriter();
 
         // Create a new reader
-        if ( policy.isThresholdExceeded() ) {
+        if ( spilled ) {
             File spillFile = getSpillFiles().get(0);
 
             InputStream in;
@@ -168,7 +168,7 @@ public class DefaultDataBag<E> extends AbstractDataBag<E> {
 
     protected void closeWriter() {
         if ( !finishedAdding ) {
-            if ( policy.isThresholdExceeded() ) {
+            if ( spilled ) {
                 // It is possible for "serializer" and "out" to be null even if the
                 // policy is exceeded.
                 // This can happen if nothing was ever added (i.e. a zero count
@@ -65,11 +65,19 @@ public class ThresholdPolicyFactory
      * default.
      */
     public static <E> ThresholdPolicy<E> policyFromContext(Context context) {
-        long threshold = context.getLong(ARQ.spillToDiskThreshold, defaultThreshold);
+        long threshold = thresholdFromContext(context);
         if ( threshold >= 0 ) {
             return count(threshold);
         } else {
             return never();
         }
     }
+
+    /**
+     * The {@link org.apache.jena.query.ARQ#spillToDiskThreshold} in the given
+     * Context, as used by {@link #policyFromContext}, or -1 if it is not set.
+     */
+    public static long thresholdFromContext(Context context) {
+        return context.getLong(ARQ.spillToDiskThreshold, defaultThreshold);
+    }
 }
@@ -314,6 +314,26 @@ public class ARQ
     // Hash table: GROUP BY, MINUS, SERVICE, VALUES, and hash joins <br>
     public static final Symbol spillToDiskThreshold = SystemARQ.allocSymbol("spillToDiskThreshold") ;
 
+    /**
+     * Context key for a {@link org.apache.jena.sparql.modify.ChangeSetSink} that receives the quads
+     * added and deleted by SPARQL Update operations as they are applied.
+     * If not set, changes are collected in memory and returned as the {@code List<UpdateResult>}
+     * of the update execution.
+     * <p>
+     * The sink holds per-execution state: set it in the context of one update execution,
+     * not in the global context.
+     */
+    public static final Symbol updateChangeSetSink = SystemARQ.allocSymbol("updateChangeSetSink") ;
+
+    /**
+     * Whether operations that empty a graph (DROP, CLEAR, COPY, MOVE) report each
+     * deleted quad as well as the tombstone for the graph
+     * ({@link org.apache.jena.sparql.modify.ChangeSetSink#clear}).
+     * Default true. Set false when the consumers of change-sets invalidate by graph,
+     * to avoid reading the contents of large graphs before removing them.
+     */
+    public static final Symbol updateChangeSetClearQuads = SystemARQ.allocSymbol("updateChangeSetClearQuads") ;
+
     // Optimizer controls.
 
     /**
@@ -530,6 +550,41 @@ public class ARQ
      */
     public static final Symbol generateToList = SystemARQ.allocSymbol("generateToList") ;
 
+    /**
+     * Context key for the maximum number of rows in a batch when filter, extend,
+     * project and slice are executed a batch of rows at a time.
+     * <p>By default (unset or 0), execution is a row at a time.
+     */
+    public static final Symbol executionBatchSize = SystemARQ.allocSymbol("executionBatchSize") ;
+
+    /**
+     * Context key for the number of branches of a UNION that may be evaluated at the
+     * same time, each on its own thread.
+     * <p>By default (unset, 0 or 1), branches are evaluated one after another.
+     * A branch is only evaluated on another thread if it does not access the dataset
+     * (for example, it is a SERVICE call) or the dataset is not in a transaction.
+     */
+    public static final Symbol parallelUnion = SystemARQ.allocSymbol("parallelUnion") ;
+
+    /**
+     * Context key controlling whether the independent side of a (non-index) join is
+     * evaluated on another thread while the other side is evaluated.
+     * The same restrictions as {@link #parallelUnion} apply.
+     * <p>By default, this is not done.
+     */
+    public static final Symbol parallelJoin = SystemARQ.allocSymbol("parallelJoin") ;
+
+    /**
+     * Context key for the number of threads used to evaluate a basic graph pattern.
+     * The rows of the first triple pattern are split into blocks and the rest of the
+     * pattern is evaluated for each block on one of the threads.
+     * The order of results is then not the same as for evaluation on one thread.
+     * <p>By default (unset, 0 or 1), a basic graph pattern is evaluated on the calling thread.
+     * Datasets in a transaction are only evaluated in parallel for read transactions
+     * of datasets that support it (TIM and TDB2).
+     */
+    public static final Symbol parallelBGP = SystemARQ.allocSymbol("parallelBGP") ;
+
     /** Set strict mode, including expression evaluation */
     public static void setStrictMode() { setStrictMode(ARQ.getContext()) ; }
 
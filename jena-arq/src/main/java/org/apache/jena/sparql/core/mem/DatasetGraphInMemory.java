@@ -154,6 +154,25 @@ public class DatasetGraphInMemory extends DatasetGraphTriplesQuads implements Tr
         _begin(txnType, TxnType.initial(txnType));
     }
 
+    /** The version of the data seen by the transaction of this thread. */
+    public long dataVersion() {
+        return version.get();
+    }
+
+    /**
+     * Begin a READ transaction on this thread that sees data version
+     * {@code dataVersion}, as seen by a transaction on another thread (see
+     * {@link #dataVersion()}). Returns false, without starting a transaction, if
+     * there has been a commit since.
+     */
+    public boolean beginReadShared(long dataVersion) {
+        begin(TxnType.READ);
+        if ( version.get() == dataVersion )
+            return true;
+        end();
+        return false;
+    }
+
     private void _begin(TxnType txnType, ReadWrite readWrite) {
         // Takes transactionLock
         startTransaction(txnType, readWrite);
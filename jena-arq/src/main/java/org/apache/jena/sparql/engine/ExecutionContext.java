@@ -63,6 +63,15 @@ public class ExecutionContext implements FunctionEnv
         this.activeGraph = activeGraph;
     }
 
+    /** Clone, with separate iterator tracking, for evaluation on another thread. */
+    public static ExecutionContext copyWithSeparateTracking(ExecutionContext other) {
+        ExecutionContext execCxt = new ExecutionContext(other);
+        execCxt.openIterators = new ArrayList<>();
+        if ( TrackAllIterators )
+            execCxt.allIterators = new ArrayList<>();
+        return execCxt;
+    }
+
     /** Setup with defaults of global settings */
     public ExecutionContext(DatasetGraph dataset) {
         this(dataset, QC.getFactory(ARQ.getContext()));
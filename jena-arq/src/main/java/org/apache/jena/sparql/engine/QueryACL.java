@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Set ;
+import java.util.concurrent.ConcurrentHashMap ;
+import java.util.function.Function ;
+
+import org.apache.jena.acl.DatasetACL ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.sparql.SystemARQ ;
+import org.apache.jena.sparql.util.Context ;
+import org.apache.jena.sparql.util.Symbol ;
+
+/**
+ * Query-time view of the {@link DatasetACL} for one user.
+ * <p>
+ * The ACL handler and user are resolved from the context once per execution and
+ * each graph decision is made once; later checks are a map lookup. Storage layers
+ * can key decisions by their own graph identifier (e.g. a NodeId) so that the graph
+ * node does not have to be decoded for every tuple. Cached decisions are dropped
+ * when the {@link DatasetACL#getVersion() ACL version} changes.
+ */
+public class QueryACL {
+    public static final Symbol symACL  = Symbol.create(DatasetACL.ACL_HANDLER_NAME) ;
+    public static final Symbol symUser = Symbol.create(DatasetACL.ACL_USER_NAME) ;
+    private static final Symbol symQueryACL = SystemARQ.allocSymbol("queryACL") ;
+
+    /**
+     * Largest number of permitted graphs for which storage scans each graph
+     * separately instead of scanning all graphs and filtering.
+     */
+    public static final Symbol symGraphScanLimit = SystemARQ.allocSymbol("aclGraphScanLimit") ;
+    public static final int DefaultGraphScanLimit = 64 ;
+
+    private final DatasetACL acl ;
+    private final String user ;
+    private final DatasetACL.aclId op ;
+    private final long version ;
+    private final Map<Object, Boolean> decisions = new ConcurrentHashMap<>() ;
+    private final Map<Object, List<?>> permittedKeys = new ConcurrentHashMap<>() ;
+    private final int graphScanLimit ;
+    private volatile Boolean defaultGraph = null ;
+    private volatile List<Node> permittedGraphs = null ;
+    private volatile boolean permittedResolved = false ;
+
+    private QueryACL(DatasetACL acl, String user, DatasetACL.aclId op, int graphScanLimit) {
+        this.acl = acl ;
+        this.user = user ;
+        this.op = op ;
+        this.version = acl.getVersion() ;
+        this.graphScanLimit = graphScanLimit ;
+    }
+
+    /** The query ACL for this execution, or null if there is no access control. */
+    public static QueryACL get(ExecutionContext execCxt) {
+        return get(execCxt.getContext()) ;
+    }
+
+    /** The query ACL recorded in the context, or null if there is no access control. */
+    public static QueryACL get(Context context) {
+        if ( context == null )
+            return null ;
+        DatasetACL acl = context.get(symACL) ;
+        String user = context.get(symUser) ;
+        if ( acl == null || user == null )
+            return null ;
+        QueryACL queryACL = context.get(symQueryACL) ;
+        // Rebuild if the handler, user or permissions changed since the decisions were cached.
+        if ( queryACL == null || queryACL.acl != acl || !queryACL.user.equals(user) || queryACL.version != acl.getVersion() ) {
+            int limit = context.getInt(symGraphScanLimit, DefaultGraphScanLimit) ;
+            queryACL = new QueryACL(acl, user, DatasetACL.aclId.aiQuery, limit) ;
+            context.set(symQueryACL, queryACL) ;
+        }
+        return queryACL ;
+    }
+
+    public String getUser() {
+        return user ;
+    }
+
+    /** Access to the default graph. */
+    public boolean permitsDefaultGraph() {
+        Boolean b = defaultGraph ;
+        if ( b == null ) {
+            b = acl.checkGraphBase(op, DatasetACL.DEF_GRAPH_NAME, user) ;
+            defaultGraph = b ;
+        }
+        return b ;
+    }
+
+    /** Access to a graph, by name; null means the default graph. */
+    public boolean permits(Node graphName) {
+        if ( graphName == null )
+            return permitsDefaultGraph() ;
+        return decide(graphName, graphName) ;
+    }
+
+    /**
+     * Access to a graph given by a storage-specific key. The key is decoded to the
+     * graph name only the first time it is seen in this execution.
+     */
+    public <K> boolean permits(K key, Function<K, Node> decoder) {
+        Boolean b = decisions.get(key) ;
+        if ( b != null )
+            return b ;
+        return decide(key, decoder.apply(key)) ;
+    }
+
+    /**
+     * The named graphs the user may read, or null if the ACL can not enumerate
+     * them or allows every graph.
+     */
+    public List<Node> permittedGraphs() {
+        if ( !permittedResolved ) {
+            permittedGraphs = resolvePermitted() ;
+            permittedResolved = true ;
+        }
+        return permittedGraphs ;
+    }
+
+    private List<Node> resolvePermitted() {
+        Set<String> names = acl.permittedGraphs(op, user) ;
+        if ( names == null || names.contains(DatasetACL.ACL_GRAPH_NAME_ALL) )
+            return null ;
+        List<Node> graphs = new ArrayList<>(names.size()) ;
+        for ( String name : names ) {
+            if ( name.equals(DatasetACL.DEF_GRAPH_NAME) || name.equals(DatasetACL.ACL_GRAPH_NAME_DEFAULT) )
+                continue ;
+            graphs.add(NodeFactory.createURI(name)) ;
+        }
+        return Collections.unmodifiableList(graphs) ;
+    }
+
+    /**
+     * Storage keys for the permitted named graphs, for scanning each graph
+     * separately rather than post-filtering a scan of all graphs. Returns null when
+     * post-filtering is the better choice: the permitted set is unknown,
+     * unrestricted, or larger than the graph scan limit. Graphs the encoder does
+     * not know (it returns null) are left out. The result is computed once per
+     * storage for this execution.
+     */
+    @SuppressWarnings("unchecked")
+    public <K> List<K> permittedGraphKeys(Object storage, Function<Node, K> encoder) {
+        List<Node> graphs = permittedGraphs() ;
+        if ( graphs == null || graphs.size() > graphScanLimit )
+            return null ;
+        return (List<K>)permittedKeys.computeIfAbsent(storage, s -> {
+            List<K> keys = new ArrayList<>(graphs.size()) ;
+            for ( Node g : graphs ) {
+                K key = encoder.apply(g) ;
+                if ( key == null )
+                    continue ;
+                keys.add(key) ;
+                decisions.put(key, Boolean.TRUE) ;
+            }
+            return Collections.unmodifiableList(keys) ;
+        }) ;
+    }
+
+    private boolean decide(Object key, Node graphName) {
+        return decisions.computeIfAbsent(key, k -> acl.checkGraphBase(op, graphName.toString(), user)) ;
+    }
+}
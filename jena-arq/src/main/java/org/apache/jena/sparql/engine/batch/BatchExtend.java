@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.core.VarExprList;
+import org.apache.jena.sparql.engine.ExecutionContext;
+
+/**
+ * Extend each row of a batch by (var, expression), as "let*": later expressions see
+ * the earlier assignments. A row where a variable is already bound to a different
+ * value is removed.
+ * @see org.apache.jena.sparql.engine.iterator.QueryIterAssign
+ */
+public class BatchExtend extends BatchIterator1 {
+    private final VarExprList exprs;
+    private final ExecutionContext execCxt;
+
+    public BatchExtend(BatchIterator input, VarExprList exprs, ExecutionContext execCxt) {
+        super(input);
+        this.exprs = exprs;
+        this.execCxt = execCxt;
+    }
+
+    @Override
+    protected BindingBatch process(BindingBatch batch) {
+        boolean[] rejected = null;
+        for ( Var v : exprs.getVars() ) {
+            Node[] column = batch.copyColumn(v);
+            for ( int row = 0 ; row < batch.size() ; row++ ) {
+                if ( rejected != null && rejected[row] )
+                    continue;
+                Node n = exprs.get(v, batch.binding(row), execCxt);
+                if ( n == null )
+                    // Expression failed to evaluate - no assignment
+                    continue;
+                Node n2 = column[row];
+                if ( n2 == null ) {
+                    column[row] = n;
+                    continue;
+                }
+                // Already has a value; if so, must be sameValueAs
+                if ( ! n2.sameValueAs(n) ) {
+                    if ( rejected == null )
+                        rejected = new boolean[batch.size()];
+                    rejected[row] = true;
+                }
+            }
+            batch = batch.withColumn(v, column);
+        }
+        if ( rejected == null )
+            return batch;
+        int[] selected = new int[batch.size()];
+        int n = 0;
+        for ( int row = 0 ; row < batch.size() ; row++ ) {
+            if ( ! rejected[row] )
+                selected[n++] = row;
+        }
+        return batch.select(selected, n);
+    }
+}
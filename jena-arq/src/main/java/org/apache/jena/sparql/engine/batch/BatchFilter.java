@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprException;
+import org.apache.jena.sparql.expr.ExprList;
+
+/**
+ * Filter a batch by a list of expressions, all of which must be true.
+ * @see org.apache.jena.sparql.engine.iterator.QueryIterFilterExpr
+ */
+public class BatchFilter extends BatchIterator1 {
+    private final ExprList exprs;
+    private final ExecutionContext execCxt;
+
+    public BatchFilter(BatchIterator input, ExprList exprs, ExecutionContext execCxt) {
+        super(input);
+        this.exprs = exprs;
+        this.execCxt = execCxt;
+    }
+
+    @Override
+    protected BindingBatch process(BindingBatch batch) {
+        int[] selected = new int[batch.size()];
+        int n = 0;
+        for ( int row = 0 ; row < batch.size() ; row++ ) {
+            if ( accept(batch.binding(row)) )
+                selected[n++] = row;
+        }
+        return batch.select(selected, n);
+    }
+
+    private boolean accept(Binding binding) {
+        for ( Expr expr : exprs ) {
+            try {
+                if ( ! expr.isSatisfied(binding, execCxt) )
+                    return false;
+            } catch (ExprException ex) {
+                // Some evaluation exception
+                Log.warn(this, "Expression Exception in "+expr, ex);
+                return false;
+            } catch (Exception ex) {
+                Log.warn(this, "General exception in "+expr, ex);
+                return false;
+            }
+        }
+        return true;
+    }
+}
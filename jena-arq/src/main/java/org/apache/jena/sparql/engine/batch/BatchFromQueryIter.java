@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import org.apache.jena.sparql.engine.QueryIterator;
+
+/**
+ * Batches from a {@link QueryIterator}.
+ * <p>
+ * Batches start small and double in size up to the maximum, so that a LIMIT
+ * downstream does not cause much more of the input to be calculated than is needed.
+ */
+public class BatchFromQueryIter implements BatchIterator {
+    private static final int InitialBatchSize = 16;
+
+    private final QueryIterator input;
+    private final int maxBatchSize;
+    private int batchSize;
+
+    public BatchFromQueryIter(QueryIterator input, int maxBatchSize) {
+        if ( maxBatchSize <= 0 )
+            throw new IllegalArgumentException("Batch size must be positive: "+maxBatchSize);
+        this.input = input;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = Math.min(InitialBatchSize, maxBatchSize);
+    }
+
+    @Override
+    public BindingBatch nextBatch() {
+        if ( ! input.hasNext() )
+            return null;
+        BindingBatch.Builder builder = BindingBatch.builder(batchSize);
+        while ( ! builder.isFull() && input.hasNext() )
+            builder.add(input.next());
+        batchSize = Math.min(2 * batchSize, maxBatchSize);
+        return builder.build();
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
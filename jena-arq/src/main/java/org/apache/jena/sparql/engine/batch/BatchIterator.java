@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import org.apache.jena.atlas.lib.Closeable;
+
+/**
+ * An iterator of {@link BindingBatch BindingBatches}, the batch form of a
+ * {@link org.apache.jena.sparql.engine.QueryIterator}.
+ *
+ * @see QueryIterBatch
+ */
+public interface BatchIterator extends Closeable {
+    /** The next batch, which is never empty, or null when there are no more rows. */
+    public BindingBatch nextBatch();
+
+    /** Close this iterator, and its input. Closing more than once is allowed. */
+    @Override
+    public void close();
+}
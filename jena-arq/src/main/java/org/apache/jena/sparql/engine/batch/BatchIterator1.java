@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+/** A {@link BatchIterator} stage with one input. */
+public abstract class BatchIterator1 implements BatchIterator {
+    private final BatchIterator input;
+    private boolean finished = false;
+
+    protected BatchIterator1(BatchIterator input) {
+        this.input = input;
+    }
+
+    @Override
+    public final BindingBatch nextBatch() {
+        while ( ! finished ) {
+            BindingBatch batch = input.nextBatch();
+            if ( batch == null ) {
+                finished = true;
+                return null;
+            }
+            BindingBatch result = process(batch);
+            if ( result != null && ! result.isEmpty() )
+                return result;
+        }
+        return null;
+    }
+
+    /**
+     * Process one input batch. Return null or an empty batch if no rows result; the
+     * next input batch is then processed.
+     */
+    protected abstract BindingBatch process(BindingBatch batch);
+
+    /** Stop taking input; {@link #nextBatch} will return null. */
+    protected void finish() {
+        finished = true;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        input.close();
+    }
+}
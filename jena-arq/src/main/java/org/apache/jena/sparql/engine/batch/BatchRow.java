@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.BindingBase;
+
+/** A row of a {@link BindingBatch} as a binding. */
+class BatchRow extends BindingBase {
+    private final BindingBatch batch;
+    private final int row;
+
+    BatchRow(BindingBatch batch, int row) {
+        super(null);
+        this.batch = batch;
+        this.row = row;
+    }
+
+    @Override
+    protected Iterator<Var> vars1() {
+        return new Iterator<Var>() {
+            private int col = advance(0);
+
+            private int advance(int c) {
+                while ( c < batch.width() && batch.get(row, c) == null )
+                    c++;
+                return c;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return col < batch.width();
+            }
+
+            @Override
+            public Var next() {
+                if ( ! hasNext() )
+                    throw new NoSuchElementException();
+                Var v = batch.var(col);
+                col = advance(col+1);
+                return v;
+            }
+        };
+    }
+
+    @Override
+    protected int size1() {
+        int n = 0;
+        for ( int c = 0 ; c < batch.width() ; c++ ) {
+            if ( batch.get(row, c) != null )
+                n++;
+        }
+        return n;
+    }
+
+    @Override
+    protected boolean isEmpty1() {
+        return size1() == 0;
+    }
+
+    @Override
+    protected boolean contains1(Var var) {
+        return batch.get(row, var) != null;
+    }
+
+    @Override
+    protected Node get1(Var var) {
+        return batch.get(row, var);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecException;
+
+/**
+ * OFFSET and LIMIT over batches. No more input is read once the limit is reached.
+ * @see org.apache.jena.sparql.engine.iterator.QueryIterSlice
+ */
+public class BatchSlice extends BatchIterator1 {
+    private long skip;
+    private long remaining;
+
+    public BatchSlice(BatchIterator input, long offset, long limit) {
+        super(input);
+        if ( offset == Query.NOLIMIT )
+            offset = 0;
+        if ( limit == Query.NOLIMIT )
+            limit = Long.MAX_VALUE;
+        if ( limit < 0 )
+            throw new QueryExecException("Negative LIMIT: "+limit);
+        if ( offset < 0 )
+            throw new QueryExecException("Negative OFFSET: "+offset);
+        this.skip = offset;
+        this.remaining = limit;
+        if ( limit == 0 )
+            finish();
+    }
+
+    @Override
+    protected BindingBatch process(BindingBatch batch) {
+        int size = batch.size();
+        if ( skip >= size ) {
+            skip -= size;
+            return null;
+        }
+        int from = (int)skip;
+        skip = 0;
+        int to = (int)Math.min(size, from + Math.min(remaining, size));
+        remaining -= (to - from);
+        if ( remaining == 0 )
+            finish();
+        return batch.slice(from, to);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+
+/**
+ * A block of solutions, held as one array of {@link Node Nodes} per variable. A null
+ * entry is an unbound variable in that row.
+ * <p>
+ * Batches are immutable; operations that change the variables (project, extend)
+ * share the column arrays of the batch they start from.
+ */
+public final class BindingBatch {
+    private final Var[] vars;
+    private final Node[][] columns;
+    private final int size;
+
+    public BindingBatch(Var[] vars, Node[][] columns, int size) {
+        if ( vars.length != columns.length )
+            throw new IllegalArgumentException("Variables and columns differ in length");
+        this.vars = vars;
+        this.columns = columns;
+        this.size = size;
+    }
+
+    /** Number of rows. */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Number of columns. */
+    public int width() {
+        return vars.length;
+    }
+
+    public Var var(int col) {
+        return vars[col];
+    }
+
+    /** The column index of a variable, or -1. */
+    public int column(Var var) {
+        for ( int i = 0 ; i < vars.length ; i++ ) {
+            if ( vars[i].equals(var) )
+                return i;
+        }
+        return -1;
+    }
+
+    public Node get(int row, int col) {
+        return columns[col][row];
+    }
+
+    /** The value of a variable in a row, or null if unbound. */
+    public Node get(int row, Var var) {
+        int col = column(var);
+        return col < 0 ? null : columns[col][row];
+    }
+
+    /** A row as a {@link Binding}. This is a view; it does not copy the row. */
+    public Binding binding(int row) {
+        if ( row < 0 || row >= size )
+            throw new IndexOutOfBoundsException("Row "+row+" : size "+size);
+        return new BatchRow(this, row);
+    }
+
+    /** The batch of the first {@code n} rows listed in {@code rows}, in that order. */
+    public BindingBatch select(int[] rows, int n) {
+        if ( n == size )
+            return this;
+        Node[][] x = new Node[columns.length][];
+        for ( int c = 0 ; c < columns.length ; c++ ) {
+            Node[] src = columns[c];
+            Node[] dst = new Node[n];
+            for ( int i = 0 ; i < n ; i++ )
+                dst[i] = src[rows[i]];
+            x[c] = dst;
+        }
+        return new BindingBatch(vars, x, n);
+    }
+
+    /** The rows from {@code from} (inclusive) to {@code to} (exclusive). */
+    public BindingBatch slice(int from, int to) {
+        if ( from == 0 && to == size )
+            return this;
+        Node[][] x = new Node[columns.length][];
+        for ( int c = 0 ; c < columns.length ; c++ )
+            x[c] = Arrays.copyOfRange(columns[c], from, to);
+        return new BindingBatch(vars, x, to - from);
+    }
+
+    /** Keep only the given variables. Variables not in the batch are unbound and are not added. */
+    public BindingBatch project(List<Var> projectVars) {
+        List<Var> v = new ArrayList<>(projectVars.size());
+        List<Node[]> c = new ArrayList<>(projectVars.size());
+        for ( Var var : projectVars ) {
+            int idx = column(var);
+            if ( idx < 0 || v.contains(var) )
+                continue;
+            v.add(var);
+            c.add(columns[idx]);
+        }
+        return new BindingBatch(v.toArray(new Var[0]), c.toArray(new Node[0][]), size);
+    }
+
+    /** The batch with a column for the variable, replacing any existing column. */
+    public BindingBatch withColumn(Var var, Node[] values) {
+        if ( values.length < size )
+            throw new IllegalArgumentException("Column too short: "+values.length+" < "+size);
+        int idx = column(var);
+        if ( idx >= 0 ) {
+            Node[][] x = columns.clone();
+            x[idx] = values;
+            return new BindingBatch(vars, x, size);
+        }
+        Var[] v = Arrays.copyOf(vars, vars.length+1);
+        Node[][] x = Arrays.copyOf(columns, columns.length+1);
+        v[vars.length] = var;
+        x[columns.length] = values;
+        return new BindingBatch(v, x, size);
+    }
+
+    /** A copy of a column, or a column of nulls if the variable is not in this batch. */
+    /*package*/ Node[] copyColumn(Var var) {
+        int idx = column(var);
+        if ( idx < 0 )
+            return new Node[size];
+        return Arrays.copyOf(columns[idx], size);
+    }
+
+    @Override
+    public String toString() {
+        return "BindingBatch"+Arrays.asList(vars)+"["+size+"]";
+    }
+
+    public static Builder builder(int capacity) {
+        return new Builder(capacity);
+    }
+
+    /** Accumulate {@link Binding Bindings} into a batch of at most {@code capacity} rows. */
+    public static class Builder {
+        private final int capacity;
+        private final Map<Var, Integer> index = new HashMap<>();
+        private final List<Var> vars = new ArrayList<>();
+        private final List<Node[]> columns = new ArrayList<>();
+        private int size = 0;
+
+        private Builder(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public Builder add(Binding binding) {
+            if ( size >= capacity )
+                throw new IllegalStateException("Batch is full");
+            int row = size;
+            binding.forEach((var, node) -> column(var)[row] = node);
+            size++;
+            return this;
+        }
+
+        private Node[] column(Var var) {
+            Integer idx = index.get(var);
+            if ( idx != null )
+                return columns.get(idx);
+            Node[] col = new Node[capacity];
+            index.put(var, columns.size());
+            vars.add(var);
+            columns.add(col);
+            return col;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isFull() {
+            return size >= capacity;
+        }
+
+        public BindingBatch build() {
+            return new BindingBatch(vars.toArray(new Var[0]), columns.toArray(new Node[0][]), size);
+        }
+    }
+}
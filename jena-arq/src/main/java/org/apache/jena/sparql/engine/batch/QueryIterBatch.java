@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIter1;
+import org.apache.jena.sparql.serializer.SerializationContext;
+
+/**
+ * A {@link QueryIterator} of the rows of a {@link BatchIterator}.
+ * <p>
+ * Use {@link #batches} to get the batches of a {@code QueryIterator}; if it is a
+ * {@code QueryIterBatch} that has not been used, its batches are taken directly so
+ * adjacent batch stages are not separated by row-at-a-time conversions.
+ */
+public class QueryIterBatch extends QueryIter1 {
+    private BatchIterator batches;
+    private BindingBatch current = null;
+    private int row = 0;
+    private boolean started = false;
+
+    /**
+     * Create a {@code QueryIterator} for a pipeline of batch stages.
+     * @param batches The batches
+     * @param input   The {@code QueryIterator} the batches come from; it is closed, and cancelled, with this iterator.
+     */
+    public QueryIterBatch(BatchIterator batches, QueryIterator input, ExecutionContext execCxt) {
+        super(input, execCxt);
+        this.batches = batches;
+    }
+
+    /** The batches of a {@code QueryIterator}. */
+    public static BatchIterator batches(QueryIterator qIter, int maxBatchSize) {
+        if ( qIter instanceof QueryIterBatch ) {
+            QueryIterBatch qIterBatch = (QueryIterBatch)qIter;
+            if ( ! qIterBatch.started ) {
+                qIterBatch.started = true;
+                return qIterBatch.batches;
+            }
+        }
+        return new BatchFromQueryIter(qIter, maxBatchSize);
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        started = true;
+        while ( current == null || row >= current.size() ) {
+            current = batches.nextBatch();
+            row = 0;
+            if ( current == null )
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        return current.binding(row++);
+    }
+
+    @Override
+    protected void requestSubCancel() {}
+
+    @Override
+    protected void closeSubIterator() {
+        current = null;
+        batches.close();
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext sCxt) {
+        out.println(Lib.className(this));
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorCloseable;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QueryExecException;
+
+/**
+ * Apply a stage to an input iterator using several threads.
+ * <p>
+ * The input is read, on the calling thread, in blocks ("morsels") and each morsel is
+ * passed through the stage by a worker thread, or by the calling thread if no worker
+ * is ready. Worker threads come from the pool of {@link QueryIterParallelConcat}.
+ * The calling thread always takes part so the iterator completes even if no worker
+ * thread is available.
+ * <p>
+ * The order of the results is not the order of the input.
+ * <p>
+ * {@link #abort} may be called from any thread; the iterator then throws
+ * {@link QueryCancelledException} when next touched. {@link #close} closes the input,
+ * stops the workers and waits until they have finished, so that no worker is still
+ * reading the data, or holding a transaction, after close returns.
+ */
+public class ParallelMorsels<T, R> implements IteratorCloseable<R>, Abortable {
+
+    /**
+     * Setup and teardown for a worker thread, for example, a transaction that sees the
+     * same data as the calling thread.
+     */
+    public interface WorkerScope {
+        /** Prepare this thread. Return false if this thread can not be used. */
+        public boolean start();
+        /** Called on the thread after a successful {@link #start}. */
+        public void finish();
+    }
+
+    /** Scope for when worker threads need no setup. */
+    public static final WorkerScope noScope = new WorkerScope() {
+        @Override public boolean start()  { return true; }
+        @Override public void finish()    {}
+    };
+
+    private static final int MorselSize = 256;
+    private static final int QueueSize = 1000;
+    private static final long PollMillis = 100;
+
+    // Marker for the end of the results of a morsel.
+    private static final Object MORSEL_DONE = new Object();
+
+    private static class Failure {
+        final Throwable throwable;
+        Failure(Throwable th) { this.throwable = th; }
+    }
+
+    private final Iterator<T> input;
+    private final Function<Iterator<T>, Iterator<R>> stage;
+    private final WorkerScope scope;
+    private final int threads;
+    private final BlockingQueue<List<T>> morsels;
+    private final BlockingQueue<Object> results = new ArrayBlockingQueue<>(QueueSize);
+    private volatile boolean inputDone = false;
+    private volatile boolean stopped = false;
+    private volatile boolean aborted = false;
+    // Worker threads that have not finished, for close to wait for.
+    private final Object activeLock = new Object();
+    private int active = 0;
+
+    // Consumer state.
+    private boolean started = false;
+    private boolean closed = false;
+    private long dispatched = 0;
+    private long completed = 0;
+    private Iterator<R> current = null;
+    private R slot = null;
+
+    /**
+     * @param input     Input, read on the calling thread.
+     * @param stage     Function from a morsel to its results; called on any thread.
+     * @param scope     Setup for worker threads.
+     * @param threads   Number of worker threads to use, in addition to the calling thread.
+     */
+    public ParallelMorsels(Iterator<T> input, Function<Iterator<T>, Iterator<R>> stage, WorkerScope scope, int threads) {
+        this.input = input;
+        this.stage = stage;
+        this.scope = scope;
+        this.threads = threads;
+        this.morsels = new ArrayBlockingQueue<>(Math.max(2, 2 * threads));
+    }
+
+    private void startWorkers() {
+        started = true;
+        for ( int i = 0 ; i < threads ; i++ ) {
+            synchronized(activeLock) { active++; }
+            try {
+                QueryIterParallelConcat.executor.execute(this::work);
+            } catch (RejectedExecutionException ex) {
+                // No free thread.
+                finished();
+                return;
+            }
+        }
+    }
+
+    private void finished() {
+        synchronized(activeLock) {
+            active--;
+            activeLock.notifyAll();
+        }
+    }
+
+    // Wait for the worker threads to finish. They have been told to stop.
+    private void awaitFinished() {
+        synchronized(activeLock) {
+            try {
+                while ( active > 0 )
+                    activeLock.wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void work() {
+        boolean inScope = false;
+        try {
+            inScope = scope.start();
+            if ( ! inScope )
+                return;
+            while ( ! stopped ) {
+                List<T> morsel = morsels.poll(PollMillis, TimeUnit.MILLISECONDS);
+                if ( morsel == null ) {
+                    if ( inputDone )
+                        return;
+                    continue;
+                }
+                Iterator<R> iter = null;
+                try {
+                    iter = stage.apply(morsel.iterator());
+                    while ( ! stopped && iter.hasNext() )
+                        put(iter.next());
+                } finally {
+                    Iter.close(iter);
+                }
+                put(MORSEL_DONE);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable th) {
+            put(new Failure(th));
+        } finally {
+            try {
+                if ( inScope )
+                    scope.finish();
+            } finally {
+                finished();
+            }
+        }
+    }
+
+    private void put(Object item) {
+        try {
+            while ( ! stopped ) {
+                if ( results.offer(item, PollMillis, TimeUnit.MILLISECONDS) )
+                    return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        checkAbort();
+        if ( slot != null )
+            return true;
+        if ( closed )
+            return false;
+        if ( ! started )
+            startWorkers();
+        for (;;) {
+            // Results from workers first, so they are not held up.
+            Object x = results.poll();
+            if ( x != null ) {
+                if ( accept(x) )
+                    return true;
+                continue;
+            }
+            if ( current != null ) {
+                if ( current.hasNext() ) {
+                    slot = current.next();
+                    return true;
+                }
+                Iter.close(current);
+                current = null;
+                completed++;
+                continue;
+            }
+            if ( ! inputDone && morsels.remainingCapacity() > 0 ) {
+                readMorsel();
+                continue;
+            }
+            if ( completed == dispatched )
+                return false;
+            // Nothing ready : work on this thread, else wait.
+            List<T> morsel = morsels.poll();
+            if ( morsel != null ) {
+                current = stage.apply(morsel.iterator());
+                continue;
+            }
+            if ( accept(take()) )
+                return true;
+        }
+    }
+
+    private void readMorsel() {
+        List<T> morsel = new ArrayList<>(MorselSize);
+        while ( morsel.size() < MorselSize && input.hasNext() )
+            morsel.add(input.next());
+        boolean end = ! input.hasNext();
+        if ( ! morsel.isEmpty() ) {
+            morsels.add(morsel);
+            dispatched++;
+        }
+        // After the morsel is queued: a worker that sees the end has seen all morsels.
+        if ( end )
+            inputDone = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean accept(Object x) {
+        if ( x == MORSEL_DONE ) {
+            completed++;
+            return false;
+        }
+        if ( x instanceof Failure ) {
+            close();
+            Throwable th = ((Failure)x).throwable;
+            if ( th instanceof RuntimeException )
+                throw (RuntimeException)th;
+            if ( th instanceof Error )
+                throw (Error)th;
+            throw new QueryExecException(th);
+        }
+        slot = (R)x;
+        return true;
+    }
+
+    private Object take() {
+        try {
+            while ( ! stopped ) {
+                Object x = results.poll(PollMillis, TimeUnit.MILLISECONDS);
+                if ( x != null )
+                    return x;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        checkAbort();
+        throw new QueryCancelledException();
+    }
+
+    private void checkAbort() {
+        if ( aborted ) {
+            close();
+            throw new QueryCancelledException();
+        }
+    }
+
+    @Override
+    public R next() {
+        if ( ! hasNext() )
+            throw new NoSuchElementException();
+        R r = slot;
+        slot = null;
+        return r;
+    }
+
+    /** Can call asynchronously at any time */
+    @Override
+    public void abort() {
+        aborted = true;
+        stopped = true;
+    }
+
+    @Override
+    public void close() {
+        if ( closed )
+            return;
+        closed = true;
+        stopped = true;
+        slot = null;
+        morsels.clear();
+        results.clear();
+        Iter.close(current);
+        current = null;
+        Iter.close(input);
+        awaitFinished();
+    }
+}
@@ -23,6 +23,10 @@ import java.util.Collection ;
 import java.util.Iterator ;
 import java.util.List ;
 
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.DataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
 import org.apache.jena.atlas.lib.Pair ;
@@ -39,10 +43,27 @@ import org.apache.jena.sparql.engine.binding.BindingFactory ;
 import org.apache.jena.sparql.expr.ExprAggregator ;
 import org.apache.jena.sparql.expr.NodeValue ;
 import org.apache.jena.sparql.expr.aggregate.Accumulator ;
+import org.apache.jena.sparql.system.SerializationFactoryFinder ;
 
+/**
+ * GROUP BY and aggregation.
+ * <p>
+ * If the number of groups goes over the spill threshold ({@code ARQ.spillToDiskThreshold}),
+ * input rows for any further groups are hash-partitioned to disk. The groups already
+ * in memory are completed from the rest of the input; each partition is then grouped
+ * in turn. A group is either wholly in memory or wholly in one partition, so
+ * accumulators never need merging.
+ */
 public class QueryIterGroup extends QueryIterPlainWrapper
 {
 	private final QueryIterator embeddedIterator;
+	// Partitions spilled to disk, closed with the iterator.
+	private final List<DataBag<Binding>> spills;
+
+    // Number of partitions when the groups spill.
+    private static final int NumPartitions = 32;
+    // Partitions that spill again are partitioned on different hash bits, up to this depth.
+    private static final int MaxSpillDepth = 4;
 
 	public QueryIterGroup(QueryIterator qIter,
                           VarExprList groupVars,
@@ -50,9 +71,18 @@ public class QueryIterGroup extends QueryIterPlainWrapper
                           ExecutionContext execCxt) {
 	    // Delayed initalization
 	    // Does the group calculation when first used (typically hasNext)
-        super(calc(qIter, groupVars, aggregators, execCxt),
+        this(qIter, groupVars, aggregators, execCxt, new ArrayList<>());
+    }
+
+    private QueryIterGroup(QueryIterator qIter,
+                           VarExprList groupVars,
+                           List<ExprAggregator> aggregators,
+                           ExecutionContext execCxt,
+                           List<DataBag<Binding>> spills) {
+        super(calc(qIter, groupVars, aggregators, execCxt, spills),
               execCxt);
         this.embeddedIterator = qIter;
+        this.spills = spills;
     }
 
     @Override
@@ -64,6 +94,7 @@ public class QueryIterGroup extends QueryIterPlainWrapper
     @Override
     protected void closeIterator() {
         this.embeddedIterator.close();
+        spills.forEach(DataBag::close);
         super.closeIterator();
     }
 
@@ -72,7 +103,8 @@ public class QueryIterGroup extends QueryIterPlainWrapper
     private static Iterator<Binding> calc(final QueryIterator iter,
                                           final VarExprList groupVarExpr,
                                           final List<ExprAggregator> aggregators,
-                                          final ExecutionContext execCxt) {
+                                          final ExecutionContext execCxt,
+                                          final List<DataBag<Binding>> spills) {
         return new IteratorDelayedInitialization<Binding>() {
             @Override
             protected Iterator<Binding> initializeIterator() {
@@ -105,57 +137,126 @@ public class QueryIterGroup extends QueryIterPlainWrapper
                 }
 
                 // Case: there is input.
-                // Phase 1 : Create keys and aggregators per key, and pump bindings through the aggregators.
-                Multimap<Binding, Pair<Var, Accumulator>> accumulators = MultimapBuilder.hashKeys().arrayListValues().build();
-                while (iter.hasNext()) {
-                    Binding b = iter.nextBinding();
-                    Binding key = genKey(groupVarExpr, b, execCxt);
-
-                    if ( !hasAggregators ) {
-                        // Put in a dummy to remember the input.
-                        accumulators.put(key, placeholder);
-                        continue;
-                    }
+                return group(iter, groupVarExpr, aggregators, execCxt, spills, 0);
+            }
+        };
+    }
 
-                    // Create if does not exist.
-                    if ( !accumulators.containsKey(key) ) {
-                        for ( ExprAggregator agg : aggregators ) {
-                            Accumulator x = agg.getAggregator().createAccumulator();
-                            Var v = agg.getVar();
-                            accumulators.put(key, Pair.create(v, x));
-                        }
-                    }
+    /** Group some input, spilling to partitions if there are too many groups. */
+    private static Iterator<Binding> group(Iterator<Binding> iter,
+                                           VarExprList groupVarExpr,
+                                           List<ExprAggregator> aggregators,
+                                           ExecutionContext execCxt,
+                                           List<DataBag<Binding>> spills,
+                                           int depth) {
+        boolean hasAggregators = ( aggregators != null && ! aggregators.isEmpty() );
+        long threshold = ThresholdPolicyFactory.thresholdFromContext(execCxt.getContext());
+        ThresholdPolicy<Binding> policy = ( depth < MaxSpillDepth && threshold >= 0 )
+            ? ThresholdPolicyFactory.count(threshold)
+            : ThresholdPolicyFactory.never();
+        List<DataBag<Binding>> partitions = null;
+
+        // Phase 1 : Create keys and aggregators per key, and pump bindings through the aggregators.
+        Multimap<Binding, Pair<Var, Accumulator>> accumulators = MultimapBuilder.hashKeys().arrayListValues().build();
+        while (iter.hasNext()) {
+            Binding b = iter.next();
+            Binding key = genKey(groupVarExpr, b, execCxt);
+
+            if ( !accumulators.containsKey(key) ) {
+                if ( partitions != null ) {
+                    // Too many groups : a new group is grouped later, from its partition.
+                    partitions.get(partition(key, depth)).add(b);
+                    continue;
+                }
+                policy.increment(b);
+                if ( policy.isThresholdExceeded() )
+                    partitions = createPartitions(threshold, spills);
+            }
+
+            if ( !hasAggregators ) {
+                // Put in a dummy to remember the input.
+                accumulators.put(key, placeholder);
+                continue;
+            }
 
-                    // Do the per-accumulator calculation.
-                    for ( Pair<Var, Accumulator> pair : accumulators.get(key) )
-                        pair.getRight().accumulate(b, execCxt);
+            // Create if does not exist.
+            if ( !accumulators.containsKey(key) ) {
+                for ( ExprAggregator agg : aggregators ) {
+                    Accumulator x = agg.getAggregator().createAccumulator();
+                    Var v = agg.getVar();
+                    accumulators.put(key, Pair.create(v, x));
                 }
+            }
 
-                // Phase 2 : There was input and so there are some groups.
-                // For each bucket, get binding, add aggregator values to the binding.
-                // We used AccNull so there are always accumulators.
+            // Do the per-accumulator calculation.
+            for ( Pair<Var, Accumulator> pair : accumulators.get(key) )
+                pair.getRight().accumulate(b, execCxt);
+        }
 
-                if ( !hasAggregators )
-                    // We used placeholder so there are always the key.
-                    return accumulators.keySet().iterator();
+        // Phase 2 : There was input and so there are some groups.
+        // For each bucket, get binding, add aggregator values to the binding.
+        // We used AccNull so there are always accumulators.
 
-                List<Binding> results = new ArrayList<>();
-                for ( Binding k : accumulators.keySet() ) {
-                    BindingBuilder builder2 = Binding.builder(k);
-                    Collection<Pair<Var, Accumulator>> accs = accumulators.get(k);
+        Iterator<Binding> results;
+        if ( !hasAggregators )
+            // We used placeholder so there are always the key.
+            results = accumulators.keySet().iterator();
+        else {
+            List<Binding> rows = new ArrayList<>();
+            for ( Binding k : accumulators.keySet() ) {
+                BindingBuilder builder2 = Binding.builder(k);
+                Collection<Pair<Var, Accumulator>> accs = accumulators.get(k);
 
-                    for ( Pair<Var, Accumulator> pair : accs ) {
-                        NodeValue value = pair.getRight().getValue();
-                        if ( value == null )
-                            continue;
-                        Var v = pair.getLeft();
-                        builder2.add(v, value.asNode());
-                    }
-                    results.add(builder2.build());
+                for ( Pair<Var, Accumulator> pair : accs ) {
+                    NodeValue value = pair.getRight().getValue();
+                    if ( value == null )
+                        continue;
+                    Var v = pair.getLeft();
+                    builder2.add(v, value.asNode());
                 }
-                return results.iterator();
+                rows.add(builder2.build());
             }
-        };
+            results = rows.iterator();
+        }
+        if ( partitions == null )
+            return results;
+
+        // Then each partition, one at a time.
+        Iterator<Binding> spilled = Iter.flatMap(partitions.iterator(), bag -> {
+            if ( bag.size() == 0 ) {
+                bag.close();
+                return Iter.nullIterator();
+            }
+            Iterator<Binding> input = bag.iterator();
+            try {
+                // Grouped now, so the bag can be deleted.
+                return group(input, groupVarExpr, aggregators, execCxt, spills, depth+1);
+            } finally {
+                Iter.close(input);
+                bag.close();
+            }
+        });
+        return Iter.concat(results, spilled);
+    }
+
+    private static List<DataBag<Binding>> createPartitions(long threshold, List<DataBag<Binding>> spills) {
+        // Together, the partitions hold at most the threshold in memory.
+        long bagThreshold = Math.max(1, threshold / NumPartitions);
+        List<DataBag<Binding>> partitions = new ArrayList<>(NumPartitions);
+        for ( int i = 0 ; i < NumPartitions ; i++ ) {
+            DataBag<Binding> bag = BagFactory.newDefaultBag(ThresholdPolicyFactory.count(bagThreshold),
+                                                            SerializationFactoryFinder.bindingSerializationFactory());
+            partitions.add(bag);
+            spills.add(bag);
+        }
+        return partitions;
+    }
+
+    private static int partition(Binding key, int depth) {
+        // Different hash bits at each depth.
+        int h = key.hashCode() * 0x9E3779B9;
+        h = Integer.rotateLeft(h, 5 * depth);
+        return h >>> 27;
     }
 
     static private Binding genKey(VarExprList vars, Binding binding, ExecutionContext execCxt) {
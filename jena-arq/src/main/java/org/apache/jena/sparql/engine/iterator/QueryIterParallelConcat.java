@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.Set ;
+import java.util.concurrent.* ;
+import java.util.function.Supplier ;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory ;
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.lib.Lib ;
+import org.apache.jena.query.QueryCancelledException ;
+import org.apache.jena.query.QueryExecException ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.serializer.SerializationContext ;
+
+/**
+ * A query iterator of the rows of several branches, where branches can be evaluated
+ * on other threads. Rows from other threads are passed through a bounded queue and
+ * are returned in the order they arrive.
+ * <p>
+ * Threads come from a shared pool of bounded size. A branch that must be evaluated
+ * on the calling thread, or for which no thread is free, is evaluated when the queue
+ * is empty, as with {@link QueryIterConcat}.
+ * <p>
+ * {@link #cancel} and {@link #close} are passed on to the branches, including those
+ * on other threads. {@link #close} then waits until the branches on other threads
+ * have finished and been closed.
+ */
+public class QueryIterParallelConcat extends QueryIter
+{
+    private static final int QueueSize = 1000 ;
+    private static final int MaxThreads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors()) ;
+    private static final long PollMillis = 100 ;
+
+    // Threads are only created up to MaxThreads; when all are busy, tasks are rejected (not queued)
+    // and the branch is run on the calling thread. A waiting branch never holds up another.
+    static final ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(0, MaxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                               new BasicThreadFactory.Builder().daemon(true).namingPattern("arq-parallel-%d").build()) ;
+
+    // Marker for the end of a branch.
+    private static final Object END = new Object() ;
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QueueSize) ;
+    // Branches on other threads, for cancel.
+    private final Set<QueryIterator> running = ConcurrentHashMap.newKeySet() ;
+    private final List<Supplier<QueryIterator>> local = new ArrayList<>() ;
+    private int nextLocal = 0 ;
+    private QueryIterator currentLocal = null ;
+    // Branches on other threads that have not ended, as seen by the consumer.
+    private int producers = 0 ;
+    // Branch threads that have not finished, for close to wait for.
+    private final Object activeLock = new Object() ;
+    private int active = 0 ;
+    private volatile boolean stopped = false ;
+    private Binding slot = null ;
+
+    public QueryIterParallelConcat(ExecutionContext context) {
+        super(context) ;
+    }
+
+    /**
+     * Add a branch. If {@code async}, the branch is started now on another thread if
+     * one is free; otherwise it is evaluated on the calling thread, in turn.
+     * The supplier is called on the thread that evaluates the branch.
+     */
+    public void add(Supplier<QueryIterator> branch, boolean async) {
+        if ( async ) {
+            synchronized(activeLock) { active++ ; }
+            try {
+                executor.execute(()->produce(branch)) ;
+                producers++ ;
+                return ;
+            } catch (RejectedExecutionException ex) {
+                // No free thread.
+                finished() ;
+            }
+        }
+        local.add(branch) ;
+    }
+
+    private void produce(Supplier<QueryIterator> branch) {
+        QueryIterator qIter = null ;
+        Object end = END ;
+        try {
+            qIter = branch.get() ;
+            running.add(qIter) ;
+            if ( stopped )
+                qIter.cancel() ;
+            while ( ! stopped && qIter.hasNext() )
+                put(qIter.next()) ;
+        } catch (Throwable th) {
+            end = th ;
+        } finally {
+            if ( qIter != null ) {
+                running.remove(qIter) ;
+                try { qIter.close() ; } catch (Throwable th) { if ( end == END ) end = th ; }
+            }
+            put(end) ;
+            finished() ;
+        }
+    }
+
+    private void finished() {
+        synchronized(activeLock) {
+            active-- ;
+            activeLock.notifyAll() ;
+        }
+    }
+
+    // Wait for the branch threads to finish. They have been told to stop.
+    private void awaitFinished() {
+        synchronized(activeLock) {
+            try {
+                while ( active > 0 )
+                    activeLock.wait() ;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt() ;
+            }
+        }
+    }
+
+    private void put(Object item) {
+        try {
+            while ( ! stopped ) {
+                if ( queue.offer(item, PollMillis, TimeUnit.MILLISECONDS) )
+                    return ;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt() ;
+        }
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        if ( slot != null )
+            return true ;
+        for (;;) {
+            Object x = queue.poll() ;
+            if ( x == null ) {
+                // Nothing ready : work on this thread, else wait.
+                if ( nextLocal() )
+                    return true ;
+                if ( producers == 0 )
+                    return false ;
+                x = take() ;
+            }
+            if ( x == END ) {
+                producers-- ;
+                continue ;
+            }
+            if ( x instanceof Throwable ) {
+                producers-- ;
+                Throwable th = (Throwable)x ;
+                if ( th instanceof RuntimeException )
+                    throw (RuntimeException)th ;
+                if ( th instanceof Error )
+                    throw (Error)th ;
+                throw new QueryExecException(th) ;
+            }
+            slot = (Binding)x ;
+            return true ;
+        }
+    }
+
+    private boolean nextLocal() {
+        for (;;) {
+            if ( currentLocal != null ) {
+                if ( currentLocal.hasNext() ) {
+                    slot = currentLocal.next() ;
+                    return true ;
+                }
+                currentLocal.close() ;
+                currentLocal = null ;
+            }
+            if ( nextLocal >= local.size() )
+                return false ;
+            currentLocal = local.get(nextLocal++).get() ;
+        }
+    }
+
+    private Object take() {
+        try {
+            while ( ! stopped ) {
+                Object x = queue.poll(PollMillis, TimeUnit.MILLISECONDS) ;
+                if ( x != null )
+                    return x ;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt() ;
+        }
+        throw new QueryCancelledException() ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        Binding b = slot ;
+        slot = null ;
+        return b ;
+    }
+
+    @Override
+    protected void closeIterator() {
+        stopped = true ;
+        running.forEach(QueryIterator::cancel) ;
+        queue.clear() ;
+        if ( currentLocal != null )
+            performClose(currentLocal) ;
+        currentLocal = null ;
+        awaitFinished() ;
+    }
+
+    @Override
+    protected void requestCancel() {
+        stopped = true ;
+        running.forEach(QueryIterator::cancel) ;
+        if ( currentLocal != null )
+            performRequestCancel(currentLocal) ;
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext sCxt) {
+        out.println(Lib.className(this)) ;
+    }
+}
@@ -18,9 +18,12 @@
 
 package org.apache.jena.sparql.engine.join;
 
+import java.util.BitSet ;
 import java.util.Iterator ;
 import java.util.List ;
 
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.sparql.algebra.Algebra ;
 import org.apache.jena.sparql.core.Var ;
@@ -34,6 +37,10 @@ import org.apache.jena.sparql.engine.iterator.QueryIterPeek ;
  *  
  * This code materializes one input into the probe table
  * then hash joins the other input from the stream side.
+ * <p>
+ * If the probe side grows beyond the spill threshold ({@code ARQ.spillToDiskThreshold}),
+ * both sides are partitioned by join key hash, spilling to disk, and each partition is
+ * joined in turn (see {@link HashJoinPartitions}).
  */
 
 public abstract class AbstractIterHashJoin extends QueryIter2 {
@@ -44,7 +51,8 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     // See also stats in the probe table.
     
     protected final JoinKey               joinKey ;
-    protected final HashProbeTable        hashTable ;
+    // The table being probed. When partitioned, this is the table for the current partition.
+    protected HashProbeTable              hashTable ;
 
     private QueryIterator               iterStream ;
     private Binding                     rowStream       = null ;
@@ -58,6 +66,23 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     
     private Binding slot = null ;
 
+    private final long                  threshold ;
+    private final ThresholdPolicy<Binding> policy ;
+    // Partitioned execution, when the probe side has been spilled.
+    private HashJoinPartitions          partitions      = null ;
+    private int                         pass            = -1 ;      // -1 : the pass over the live stream.
+    private HashJoinPartitions.Partition partition      = null ;
+    private Iterator<Binding>           passKeyed       = null ;
+    private Iterator<Binding>           passNoKey       = null ;
+    private long                        noKeyNext       = 0 ;
+    // Index of the current stream row if it has no join key, else -1.
+    private long                        noKeyIndex      = -1 ;
+    // Whether stream rows with no join key are joined with probe rows with no join key in this pass.
+    // This is done in exactly one pass.
+    private boolean                     noKeyWithNoKey  = false ;
+    private BitSet                      noKeyYielded    = null ;
+    private boolean                     finalTail       = false ;
+
     protected AbstractIterHashJoin(JoinKey joinKey, QueryIterator probeIter, QueryIterator streamIter, ExecutionContext execCxt) {
         super(probeIter, streamIter, execCxt) ;
         
@@ -78,6 +103,8 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         this.joinKey = joinKey ;
         this.iterStream = streamIter ;
         this.hashTable = new HashProbeTable(joinKey) ;
+        this.threshold = ThresholdPolicyFactory.thresholdFromContext(execCxt.getContext()) ;
+        this.policy = ThresholdPolicyFactory.policyFromContext(execCxt.getContext()) ;
         this.iterCurrent = null ;
         buildHashTable(probeIter) ;
         
@@ -88,9 +115,21 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         for (; iter1.hasNext();) {
             Binding row1 = iter1.next() ;
             s_countProbe ++ ;
+            if ( partitions != null ) {
+                partitions.putProbe(row1) ;
+                continue ;
+            }
             hashTable.put(row1) ;
+            policy.increment(row1) ;
+            if ( policy.isThresholdExceeded() )
+                partitions = new HashJoinPartitions(joinKey, threshold, hashTable) ;
         }
         iter1.close() ;
+        if ( partitions != null ) {
+            hashTable = partitions.resident() ;
+            noKeyWithNoKey = ( hashTable != null ) ;
+            noKeyYielded = new BitSet() ;
+        }
         state = Phase.STREAM ;
     }
 
@@ -131,26 +170,45 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         }
         
         for(;;) {
+            // Rows to yield between partitions.
+            if ( iterTail != null ) {
+                if ( iterTail.hasNext() ) {
+                    s_countResults ++ ;
+                    s_trailerResults ++ ;
+                    return iterTail.next() ;
+                }
+                iterTail = null ;
+            }
             // Ensure we are processing a row. 
             while ( iterCurrent == null ) {
                 // Move on to the next row from the right.
-                if ( ! iterStream.hasNext() ) {
+                rowStream = nextStreamRow() ;
+                if ( rowStream == null ) {
+                    if ( partitions != null ) {
+                        iterTail = finishPass() ;
+                        if ( ! finalTail )
+                            break ;
+                    } else
+                        iterTail = joinFinished() ;
                     state = Phase.TRAILER ;
-                    iterTail = joinFinished() ;
                     if ( iterTail != null )
                         return doOneTail() ;
                     return null ;
                 }
-                rowStream = iterStream.next() ;
-                s_countScan ++ ;
-                iterCurrent = hashTable.getCandidates(rowStream) ;
+                boolean includeNoKey = ( noKeyIndex < 0 || noKeyWithNoKey ) ;
+                iterCurrent = hashTable.getCandidates(rowStream, includeNoKey) ;
                 yielded = false ;
             }
+            if ( iterCurrent == null )
+                // Next partition.
+                continue ;
             
             // Emit one row using the rightRow and the current matched left rows. 
             if ( ! iterCurrent.hasNext() ) {
                 iterCurrent = null ;
-                if ( ! yielded ) {
+                // Stream rows with no join key are joined in every partition;
+                // they are "no yielded" rows only at the end.
+                if ( ! yielded && noKeyIndex < 0 ) {
                     Binding b = noYieldedRows(rowStream) ;
                     if ( b != null ) {
                         s_countScan ++ ;
@@ -173,6 +231,8 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
                 // Reject
             } else {
                 yielded = true ;
+                if ( noKeyIndex >= 0 )
+                    noKeyYielded.set((int)noKeyIndex) ;
                 s_countResults ++ ;
                 return r2 ;
             }
@@ -180,6 +240,80 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     }    
     
     
+    private Binding nextStreamRow() {
+        if ( partitions == null ) {
+            if ( ! iterStream.hasNext() )
+                return null ;
+            s_countScan ++ ;
+            return iterStream.next() ;
+        }
+        if ( pass < 0 ) {
+            // Route the live stream to partitions, joining the rows for the resident partition now.
+            while ( iterStream.hasNext() ) {
+                Binding row = iterStream.next() ;
+                s_countScan ++ ;
+                long x = partitions.routeStream(row) ;
+                if ( x == HashJoinPartitions.ROUTED )
+                    continue ;
+                if ( x >= 0 && hashTable == null )
+                    // No join key and no resident partition.
+                    continue ;
+                noKeyIndex = ( x >= 0 ) ? x : -1 ;
+                return row ;
+            }
+            return null ;
+        }
+        if ( passKeyed.hasNext() ) {
+            noKeyIndex = -1 ;
+            return passKeyed.next() ;
+        }
+        if ( passNoKey != null && passNoKey.hasNext() ) {
+            noKeyIndex = noKeyNext++ ;
+            return passNoKey.next() ;
+        }
+        return null ;
+    }
+
+    /**
+     * Finish the current partition and move to the next one. Returns any rows to
+     * yield before the next partition, or, after the last partition, the rows to
+     * finish the join with.
+     */
+    private Iterator<Binding> finishPass() {
+        Iterator<Binding> tail = ( hashTable != null ) ? partitionFinished() : null ;
+        boolean noKeyDone = noKeyWithNoKey || pass >= 0 ;
+        Iter.close(passKeyed) ;
+        Iter.close(passNoKey) ;
+        passKeyed = null ;
+        passNoKey = null ;
+        hashTable = null ;
+        if ( partition != null )
+            partition.close() ;
+        partition = partitions.nextPartition() ;
+        if ( partition != null ) {
+            pass++ ;
+            hashTable = partition.loadTable() ;
+            passKeyed = partition.streamRows() ;
+            noKeyWithNoKey = ! noKeyDone ;
+            // Stream rows with no join key can only match rows of this partition,
+            // or, once, the probe rows with no join key.
+            if ( noKeyWithNoKey || partition.hasProbeRows() ) {
+                passNoKey = partitions.streamNoKeyRows() ;
+                noKeyNext = 0 ;
+            }
+            return tail ;
+        }
+        // All partitions done.
+        finalTail = true ;
+        noKeyIndex = -1 ;
+        hashTable = partitions.noKeyTable() ;
+        long[] idx = { 0 } ;
+        Iterator<Binding> unmatched = Iter.map(partitions.streamNoKeyRows(),
+                                               row -> noKeyYielded.get((int)(idx[0]++)) ? null : noYieldedRows(row)) ;
+        tail = Iter.concat(tail, Iter.removeNulls(unmatched)) ;
+        return Iter.concat(tail, joinFinished()) ;
+    }
+
     private Binding doOneTail() {
         // Only in TRAILING
         if ( iterTail.hasNext() ) {
@@ -216,6 +350,16 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
      * @return QueryIterator or null
      */
     protected abstract QueryIterator joinFinished() ;
+
+    /**
+     * Signal the end of joining one partition, when the probe side has been
+     * partitioned. {@code hashTable} is the table for the partition; its rows with no
+     * join key are in every partition and are covered by {@code joinFinished}.
+     * @return Iterator or null
+     */
+    protected Iterator<Binding> partitionFinished() {
+        return null ;
+    }
         
     @Override
     protected void closeSubIterator() {
@@ -228,7 +372,15 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         }
         // In case it's a peek iterator.
         iterStream.close() ;
-        hashTable.clear(); 
+        if ( partitions != null ) {
+            Iter.close(passKeyed) ;
+            Iter.close(passNoKey) ;
+            if ( partition != null )
+                partition.close() ;
+            partitions.close() ;
+        }
+        if ( hashTable != null )
+            hashTable.clear(); 
     }
 
     @Override
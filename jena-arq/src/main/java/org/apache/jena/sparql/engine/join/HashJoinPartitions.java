@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.join;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.atlas.data.BagFactory;
+import org.apache.jena.atlas.data.DataBag;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.system.SerializationFactoryFinder;
+
+/**
+ * The rows of a hash join, partitioned by the hash of the join key, for when the
+ * probe side is larger than the spill threshold.
+ * <p>
+ * Each partition of the probe side is joined with the same partition of the stream
+ * side. Partition 0 of the probe side is kept in memory so that stream rows for it are
+ * joined as they arrive; if it grows to half the threshold, it is spilled as well.
+ * Rows in other partitions are kept in {@link DataBag DataBags}, which write to disk
+ * beyond their share of the threshold. A partition whose probe side is too large to
+ * load is partitioned again, on different hash bits, up to {@link #MaxSpillDepth}.
+ * <p>
+ * Rows with no join key match any row. Probe side ones are in every partition's table,
+ * read from a {@link DataBag}. Stream side ones are joined with every partition.
+ */
+class HashJoinPartitions {
+    static final int NumPartitions = 32;
+    // Partitions too large to load are partitioned again, up to this depth.
+    static final int MaxSpillDepth = 4;
+
+    /** The probe and stream rows, with a join key, of one partition. */
+    class Partition {
+        private final DataBag<Binding> probe = newBag();
+        private final DataBag<Binding> stream = newBag();
+        final int depth;
+
+        private Partition(int depth) {
+            this.depth = depth;
+        }
+
+        /** Load the probe side of this partition. */
+        HashProbeTable loadTable() {
+            HashProbeTable table = new HashProbeTable(joinKey, probeNoKey);
+            Iterator<Binding> iter = probe.iterator();
+            try {
+                iter.forEachRemaining(row -> table.putKeyed(JoinLib.hash(joinKey, row), row));
+            } finally { Iter.close(iter); }
+            return table;
+        }
+
+        /** Whether the probe side has rows. */
+        boolean hasProbeRows() {
+            return probe.size() > 0;
+        }
+
+        /** The stream rows of this partition. */
+        Iterator<Binding> streamRows() {
+            return stream.iterator();
+        }
+
+        void close() {
+            probe.close();
+            stream.close();
+        }
+    }
+
+    private final JoinKey joinKey;
+    private final long threshold;
+    private final DataBag<Binding> probeNoKey;
+    private final List<Partition> partitions = new ArrayList<>();
+    // Partitions waiting for their pass, in order.
+    private final Deque<Partition> pending = new ArrayDeque<>();
+    private final DataBag<Binding> streamNoKey;
+    private long streamNoKeyCount = 0;
+    // Partition 0 of the probe side while it is in memory.
+    private HashProbeTable resident;
+
+    /** Result of {@link #routeStream} for a row that has been put in a partition for later. */
+    static final long ROUTED = -2;
+    /** Result of {@link #routeStream} for a row to join now with the resident partition. */
+    static final long RESIDENT = -1;
+
+    /** Start partitioning, moving the rows in the table so far. */
+    HashJoinPartitions(JoinKey joinKey, long threshold, HashProbeTable table) {
+        this.joinKey = joinKey;
+        this.threshold = threshold;
+        for ( int i = 0 ; i < NumPartitions ; i++ )
+            partitions.add(new Partition(0));
+        pending.addAll(partitions);
+        probeNoKey = newBag();
+        streamNoKey = newBag();
+        resident = new HashProbeTable(joinKey, probeNoKey);
+        table.values().forEachRemaining(this::putProbe);
+        table.clear();
+    }
+
+    private DataBag<Binding> newBag() {
+        // Together, the bags of one level of partitioning hold at most the threshold in memory.
+        long bagThreshold = Math.max(1, threshold / (2 * NumPartitions + 2));
+        return BagFactory.newDefaultBag(ThresholdPolicyFactory.count(bagThreshold),
+                                        SerializationFactoryFinder.bindingSerializationFactory());
+    }
+
+    private static int partition(Object longHash, int depth) {
+        // Different hash bits at each depth.
+        long h = (Long)longHash * 0x9E3779B97F4A7C15L;
+        h = Long.rotateLeft(h, 5 * depth);
+        return (int)(h >>> 59);
+    }
+
+    void putProbe(Binding row) {
+        Object longHash = JoinLib.hash(joinKey, row);
+        if ( longHash == JoinLib.noKeyHash ) {
+            probeNoKey.add(row);
+            return;
+        }
+        int p = partition(longHash, 0);
+        if ( p != 0 || resident == null ) {
+            partitions.get(p).probe.add(row);
+            return;
+        }
+        resident.putKeyed(longHash, row);
+        if ( resident.s_count > threshold / 2 ) {
+            resident.keyedValues().forEachRemaining(partitions.get(0).probe::add);
+            resident = null;
+        }
+    }
+
+    /** The in-memory table for partition 0, or null if it has been spilled. */
+    HashProbeTable resident() {
+        return resident;
+    }
+
+    /**
+     * Put a stream row in its partition unless it can be joined now.
+     * Returns {@link #ROUTED}, {@link #RESIDENT}, or, for a row with no join key, its
+     * index among those rows (such rows are also joined now if there is a resident table).
+     */
+    long routeStream(Binding row) {
+        Object longHash = JoinLib.hash(joinKey, row);
+        if ( longHash == JoinLib.noKeyHash ) {
+            streamNoKey.add(row);
+            return streamNoKeyCount++;
+        }
+        int p = partition(longHash, 0);
+        if ( p == 0 && resident != null )
+            return RESIDENT;
+        partitions.get(p).stream.add(row);
+        return ROUTED;
+    }
+
+    /**
+     * The next partition that needs a pass over its stream rows, or null if there
+     * are no more. A partition that is too large to load is first partitioned again.
+     */
+    Partition nextPartition() {
+        while ( ! pending.isEmpty() ) {
+            Partition part = pending.removeFirst();
+            if ( ! part.hasProbeRows() && part.stream.size() == 0 ) {
+                part.close();
+                continue;
+            }
+            if ( part.probe.size() > threshold / 2 && part.depth < MaxSpillDepth ) {
+                List<Partition> split = split(part);
+                for ( int i = split.size() - 1 ; i >= 0 ; i-- )
+                    pending.addFirst(split.get(i));
+                continue;
+            }
+            return part;
+        }
+        return null;
+    }
+
+    private List<Partition> split(Partition part) {
+        int depth = part.depth + 1;
+        List<Partition> split = new ArrayList<>(NumPartitions);
+        for ( int i = 0 ; i < NumPartitions ; i++ )
+            split.add(new Partition(depth));
+        try {
+            Iterator<Binding> iter = part.probe.iterator();
+            try {
+                iter.forEachRemaining(row -> split.get(partition(JoinLib.hash(joinKey, row), depth)).probe.add(row));
+            } finally { Iter.close(iter); }
+            iter = part.stream.iterator();
+            try {
+                iter.forEachRemaining(row -> split.get(partition(JoinLib.hash(joinKey, row), depth)).stream.add(row));
+            } finally { Iter.close(iter); }
+        } catch (RuntimeException ex) {
+            split.forEach(Partition::close);
+            throw ex;
+        } finally {
+            part.close();
+        }
+        return split;
+    }
+
+    /** The stream rows with no join key, in the order of their indexes. */
+    Iterator<Binding> streamNoKeyRows() {
+        return streamNoKey.iterator();
+    }
+
+    long streamNoKeyCount() {
+        return streamNoKeyCount;
+    }
+
+    /** A table of the probe rows with no join key. */
+    HashProbeTable noKeyTable() {
+        return new HashProbeTable(joinKey, probeNoKey);
+    }
+
+    void close() {
+        partitions.forEach(Partition::close);
+        pending.forEach(Partition::close);
+        probeNoKey.close();
+        streamNoKey.close();
+    }
+}
@@ -37,19 +37,42 @@ class HashProbeTable {
     /*package*/ long s_maxMatchGroup   = 0;
     /*package*/ long s_countScanMiss   = 0;
 
-    private final List<Binding>             noKeyBucket = new ArrayList<>();
+    // Rows with no join key added to this table, or null if they are shared.
+    private final List<Binding>             noKeyBucket;
+    private final Iterable<Binding>         noKeyRows;
     private final Multimap<Object, Binding> buckets;
     private final JoinKey                   joinKey;
 
     HashProbeTable(JoinKey joinKey) {
         this.joinKey = joinKey;
+        this.noKeyBucket = new ArrayList<>();
+        this.noKeyRows = noKeyBucket;
         buckets = ArrayListMultimap.create();
     }
 
+    /**
+     * A probe table whose rows with no join key are {@code noKeyRows}, which may be
+     * shared with other tables. Rows with no join key can not be added to the table.
+     */
+    HashProbeTable(JoinKey joinKey, Iterable<Binding> noKeyRows) {
+        this.joinKey = joinKey;
+        this.noKeyBucket = null;
+        this.noKeyRows = noKeyRows;
+        buckets = ArrayListMultimap.create();
+    }
+
+    /** Add a row that has a join key, with its already calculated hash. */
+    /*package*/ void putKeyed(Object longHash, Binding row) {
+        s_count++;
+        buckets.put(longHash, row);
+    }
+
     public void put(Binding row) {
         s_count++;
         Object longHash = JoinLib.hash(joinKey, row);
         if ( longHash == JoinLib.noKeyHash ) {
+            if ( noKeyBucket == null )
+                throw new IllegalStateException("Rows with no join key are shared");
             noKeyBucket.add(row);
             return;
         }
@@ -57,6 +80,14 @@ class HashProbeTable {
     }
 
     public Iterator<Binding> getCandidates(Binding row) {
+        return getCandidates(row, true);
+    }
+
+    /**
+     * Rows that may join with {@code row}, optionally leaving out the rows with no
+     * join key.
+     */
+    public Iterator<Binding> getCandidates(Binding row, boolean includeNoKey) {
         Iterator<Binding> iter = null;
         Object longHash = JoinLib.hash(joinKey, row);
         if ( longHash == JoinLib.noKeyHash )
@@ -71,8 +102,10 @@ class HashProbeTable {
             }
         }
         // And the rows with no common hash key
-        if ( noKeyBucket != null )
-            iter = Iter.concat(iter, noKeyBucket.iterator());
+        if ( includeNoKey )
+            iter = Iter.concat(iter, noKeyRows.iterator());
+        if ( iter == null )
+            iter = Iter.nullIterator();
         return iter;
     }
 
@@ -105,9 +138,14 @@ class HashProbeTable {
         return list;
     }
 
+    /** The rows that have a join key. */
+    public Iterator<Binding> keyedValues() {
+        return buckets.values().iterator();
+    }
+
     public Iterator<Binding> values() {
         return Iter.concat(buckets.values().iterator(),
-                           noKeyBucket.iterator()) ;
+                           noKeyRows.iterator()) ;
     }
     
     public void clear() {
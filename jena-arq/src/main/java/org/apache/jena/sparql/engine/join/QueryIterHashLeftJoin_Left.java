@@ -101,6 +101,19 @@ public class QueryIterHashLeftJoin_Left extends AbstractIterHashJoin {
         return null;
     }
     
+    @Override
+    protected Iterator<Binding> partitionFinished() {
+        // Rows with a join key are only in this partition; rows with no key are in every partition.
+        Set<Binding> hits = leftHits ;
+        Iterator<Binding> iter = Iter.filter(hashTable.keyedValues(), b-> ! hits.contains(b)) ;
+        leftHits = new HashSet<>() ;
+        hits.forEach(b -> {
+            if ( JoinLib.hash(joinKey, b) == JoinLib.noKeyHash )
+                leftHits.add(b) ;
+        }) ;
+        return iter ;
+    }
+
     @Override
     protected QueryIterator joinFinished() {
         Iterator<Binding> iter = Iter.filter(hashTable.values(), b-> ! leftHits.contains(b) )  ;
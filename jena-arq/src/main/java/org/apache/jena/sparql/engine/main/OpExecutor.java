@@ -38,6 +38,8 @@ import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.batch.* ;
 import org.apache.jena.sparql.engine.iterator.* ;
 import org.apache.jena.sparql.engine.join.Join ;
 import org.apache.jena.sparql.engine.main.iterator.* ;
@@ -97,6 +99,8 @@ public class OpExecutor
     protected static final int     TOP_LEVEL  = 0 ;
     protected int                  level      = TOP_LEVEL - 1 ;
     private final boolean          hideBNodeVars ;
+    // Rows per batch for batch execution, or 0 for row-at-a-time.
+    private final int              batchSize ;
     protected final StageGenerator stageGenerator ;
 
     protected OpExecutor(ExecutionContext execCxt)
@@ -104,6 +108,7 @@ public class OpExecutor
         this.execCxt = execCxt ;
         this.dispatcher = new ExecutionDispatch(this) ;
         this.hideBNodeVars = execCxt.getContext().isTrue(ARQ.hideNonDistiguishedVariables) ;
+        this.batchSize = execCxt.getContext().getInt(ARQ.executionBatchSize, 0) ;
         this.stageGenerator = StageBuilder.chooseStageGenerator(execCxt.getContext()) ;
     }
 
@@ -214,8 +219,18 @@ public class OpExecutor
             QueryIterator qIter = Join.join(left, right, execCxt) ;
             return qIter ;
         }
-        QueryIterator left = exec(opJoin.getLeft(), input) ;
-        QueryIterator right = exec(opJoin.getRight(), root()) ;
+        QueryIterator left ;
+        QueryIterator right ;
+        if ( execCxt.getContext().isTrue(ARQ.parallelJoin) && ParallelLib.canEvalAsync(opJoin.getRight(), execCxt) ) {
+            // The right side does not depend on the input: evaluate it on another thread while the left side is evaluated.
+            QueryIterParallelConcat qIter = new QueryIterParallelConcat(execCxt) ;
+            qIter.add(()->ParallelLib.evalAsync(opJoin.getRight(), BindingFactory.empty(), execCxt), true) ;
+            right = qIter ;
+            left = exec(opJoin.getLeft(), input) ;
+        } else {
+            left = exec(opJoin.getLeft(), input) ;
+            right = exec(opJoin.getRight(), root()) ;
+        }
         // Join key.
         QueryIterator qIter = Join.join(left, right, execCxt) ;
         return qIter ;
@@ -299,6 +314,8 @@ public class OpExecutor
         Op base = opFilter.getSubOp() ;
         QueryIterator qIter = exec(base, input) ;
 
+        if ( batchSize > 0 )
+            return batch(new BatchFilter(batches(qIter), exprs, execCxt), qIter) ;
         for (Expr expr : exprs)
             qIter = new QueryIterFilterExpr(qIter, expr, execCxt) ;
         return qIter ;
@@ -388,6 +405,8 @@ public class OpExecutor
 
         if (input instanceof QueryIterRoot) {
             QueryIterator qIter = exec(opProject.getSubOp(), input) ;
+            if ( batchSize > 0 )
+                return batch(new BatchProject(batches(qIter), opProject.getVars()), qIter) ;
             qIter = new QueryIterProject(qIter, opProject.getVars(), execCxt) ;
             return qIter ;
         }
@@ -398,6 +417,8 @@ public class OpExecutor
 
     protected QueryIterator execute(OpSlice opSlice, QueryIterator input) {
         QueryIterator qIter = exec(opSlice.getSubOp(), input) ;
+        if ( batchSize > 0 )
+            return batch(new BatchSlice(batches(qIter), opSlice.getStart(), opSlice.getLength()), qIter) ;
         qIter = new QueryIterSlice(qIter, opSlice.getStart(), opSlice.getLength(), execCxt) ;
         return qIter ;
     }
@@ -433,6 +454,8 @@ public class OpExecutor
 
     protected QueryIterator execute(OpAssign opAssign, QueryIterator input) {
         QueryIterator qIter = exec(opAssign.getSubOp(), input) ;
+        if ( batchSize > 0 )
+            return batch(new BatchExtend(batches(qIter), opAssign.getVarExprList(), execCxt), qIter) ;
         qIter = new QueryIterAssign(qIter, opAssign.getVarExprList(), execCxt, false) ;
         return qIter ;
     }
@@ -442,10 +465,22 @@ public class OpExecutor
         // the query so we can use QueryIterAssign knowing that it behaves
         // the same as extend. The boolean should only be a check.
         QueryIterator qIter = exec(opExtend.getSubOp(), input) ;
+        if ( batchSize > 0 )
+            return batch(new BatchExtend(batches(qIter), opExtend.getVarExprList(), execCxt), qIter) ;
         qIter = new QueryIterAssign(qIter, opExtend.getVarExprList(), execCxt, true) ;
         return qIter ;
     }
 
+    // Batch execution: adjacent batch stages are connected directly, not via the rows of a QueryIterator.
+
+    private BatchIterator batches(QueryIterator qIter) {
+        return QueryIterBatch.batches(qIter, batchSize) ;
+    }
+
+    private QueryIterator batch(BatchIterator batches, QueryIterator input) {
+        return new QueryIterBatch(batches, input, execCxt) ;
+    }
+
     public static QueryIterator createRootQueryIterator(ExecutionContext execCxt) {
         return QueryIterRoot.create(execCxt) ;
     }
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.main;
+
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.OpVisitorBase ;
+import org.apache.jena.sparql.algebra.op.* ;
+import org.apache.jena.sparql.algebra.walker.Walker ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.mem.DatasetGraphInMemory ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.iterator.ParallelMorsels ;
+import org.apache.jena.sparql.engine.iterator.ParallelMorsels.WorkerScope ;
+import org.apache.jena.sparql.engine.iterator.QueryIterSingleton ;
+import org.apache.jena.sparql.expr.ExprFunctionOp ;
+import org.apache.jena.sparql.expr.ExprVisitorBase ;
+
+/** Support for evaluating parts of a query on other threads. */
+public class ParallelLib {
+
+    /**
+     * Whether an op can be evaluated on another thread.
+     * <p>
+     * Transactions are per-thread, so another thread can not see the dataset in the same
+     * transaction. An op can be evaluated on another thread if it does not access the
+     * dataset (other than inside SERVICE), or the dataset is not in a transaction.
+     */
+    public static boolean canEvalAsync(Op op, ExecutionContext execCxt) {
+        DatasetGraph dsg = execCxt.getDataset() ;
+        if ( dsg == null || ! dsg.supportsTransactions() || ! dsg.isInTransaction() )
+            return true ;
+        return ! accessesDataset(op) ;
+    }
+
+    /** Evaluate an op, on any thread, with its own iterator tracking. */
+    public static QueryIterator evalAsync(Op op, Binding input, ExecutionContext execCxt) {
+        ExecutionContext cxt = ExecutionContext.copyWithSeparateTracking(execCxt) ;
+        QueryIterator parent = QueryIterSingleton.create(input, cxt) ;
+        return QC.execute(op, parent, cxt) ;
+    }
+
+    /**
+     * Setup for threads that access the dataset of the execution context in parallel
+     * with the calling thread, or null if that is not possible.
+     * <p>
+     * If the dataset is in a transaction, threads must have their own transaction
+     * that sees the same data. This is possible for read transactions on TIM.
+     */
+    public static WorkerScope workerScope(ExecutionContext execCxt) {
+        DatasetGraph dsg = execCxt.getDataset() ;
+        if ( dsg == null || ! dsg.supportsTransactions() || ! dsg.isInTransaction() )
+            return ParallelMorsels.noScope ;
+        if ( dsg instanceof DatasetGraphInMemory && dsg.transactionMode() == ReadWrite.READ ) {
+            DatasetGraphInMemory dsgMem = (DatasetGraphInMemory)dsg ;
+            long version = dsgMem.dataVersion() ;
+            return new WorkerScope() {
+                @Override public boolean start()  { return dsgMem.beginReadShared(version) ; }
+                @Override public void finish()    { dsgMem.end() ; }
+            } ;
+        }
+        return null ;
+    }
+
+    /** The number of threads to use for a basic graph pattern; 1 for no parallel evaluation. */
+    public static int parallelBGP(ExecutionContext execCxt) {
+        return Math.max(1, execCxt.getContext().getInt(ARQ.parallelBGP, 1)) ;
+    }
+
+    private static boolean accessesDataset(Op op) {
+        DatasetAccess v = new DatasetAccess() ;
+        // EXISTS and NOT EXISTS access the dataset.
+        ExprVisitorBase exprVisitor = new ExprVisitorBase() {
+            @Override
+            public void visit(ExprFunctionOp funcOp) { v.access = true ; }
+        } ;
+        Walker.walkSkipService(op, v, exprVisitor, null, null) ;
+        return v.access ;
+    }
+
+    private static class DatasetAccess extends OpVisitorBase {
+        boolean access = false ;
+        @Override public void visit(OpBGP opBGP)                    { access = true ; }
+        @Override public void visit(OpQuadPattern quadPattern)      { access = true ; }
+        @Override public void visit(OpQuadBlock quadBlock)          { access = true ; }
+        @Override public void visit(OpTriple opTriple)              { access = true ; }
+        @Override public void visit(OpQuad opQuad)                  { access = true ; }
+        @Override public void visit(OpPath opPath)                  { access = true ; }
+        @Override public void visit(OpExt opExt)                    { access = true ; }
+        @Override public void visit(OpGraph opGraph)                { access = true ; }
+        @Override public void visit(OpDatasetNames dsNames)         { access = true ; }
+        @Override public void visit(OpPropFunc opPropFunc)          { access = true ; }
+        @Override public void visit(OpProcedure opProc)             { access = true ; }
+    }
+}
@@ -20,7 +20,6 @@ package org.apache.jena.sparql.engine.main.iterator;
 
 import java.util.Iterator ;
 import java.util.NoSuchElementException ;
-import org.apache.jena.acl.DatasetACL;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.SingletonIterator ;
@@ -35,6 +34,7 @@ import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.sparql.core.Substitute ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryACL ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.iterator.QueryIterAssignVarValue ;
@@ -42,8 +42,6 @@ import org.apache.jena.sparql.engine.iterator.QueryIterRepeatApply ;
 import org.apache.jena.sparql.engine.iterator.QueryIterSingleton ;
 import org.apache.jena.sparql.engine.iterator.QueryIterSub ;
 import org.apache.jena.sparql.engine.main.QC ;
-import org.apache.jena.sparql.util.Context;
-import org.apache.jena.sparql.util.Symbol;
 
 public class QueryIterGraph extends QueryIterRepeatApply
 {
@@ -100,9 +98,6 @@ public class QueryIterGraph extends QueryIterRepeatApply
 
     protected static class QueryIterGraphInner extends QueryIterSub
     {
-        private static final Symbol SYM_ACL = Symbol.create(DatasetACL.ACL_HANDLER_NAME);
-        private static final Symbol SYM_USR = Symbol.create(DatasetACL.ACL_USER_NAME);
-        
         protected final Binding parentBinding ;
         protected final Iterator<Node> graphNames ;
         protected final OpGraph opGraph ;
@@ -183,6 +178,12 @@ public class QueryIterGraph extends QueryIterRepeatApply
             boolean syntheticGraph = ( Quad.isDefaultGraph(graphNode) || Quad.isUnionGraph(graphNode) ) ;
             if ( ! syntheticGraph && ! outerCxt.getDataset().containsGraph(graphNode) )
                 return null ;
+            // A graph the user may not read gives no results; skip it before building the sub-iterator.
+            if ( ! syntheticGraph ) {
+                QueryACL acl = QueryACL.get(outerCxt) ;
+                if ( acl != null && ! acl.permits(graphNode) )
+                    return null ;
+            }
 
             Graph g = outerCxt.getDataset().getGraph(graphNode) ;
             // And the contains was true??!!!!!!
@@ -26,15 +26,20 @@ import org.apache.jena.sparql.algebra.Op ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.query.ARQ ;
 import org.apache.jena.sparql.engine.iterator.QueryIterConcat ;
+import org.apache.jena.sparql.engine.iterator.QueryIterParallelConcat ;
 import org.apache.jena.sparql.engine.iterator.QueryIterRepeatApply ;
 import org.apache.jena.sparql.engine.iterator.QueryIterSingleton ;
+import org.apache.jena.sparql.engine.main.ParallelLib ;
 import org.apache.jena.sparql.engine.main.QC ;
 import org.apache.jena.sparql.serializer.SerializationContext ;
 
 
 /** Execute each sub stage against the input.
- *  Streamed SPARQL Union. */
+ *  Streamed SPARQL Union.
+ *  If {@link ARQ#parallelUnion} is set, branches may be evaluated at the same time
+ *  on other threads (see {@link QueryIterParallelConcat}). */
 
 public class QueryIterUnion extends QueryIterRepeatApply 
 {
@@ -51,6 +56,9 @@ public class QueryIterUnion extends QueryIterRepeatApply
     @Override
     protected QueryIterator nextStage(Binding binding)
     {
+        int parallel = getExecContext().getContext().getInt(ARQ.parallelUnion, 0) ;
+        if ( parallel > 1 )
+            return nextStageParallel(binding, parallel) ;
         QueryIterConcat unionQIter = new QueryIterConcat(getExecContext()) ;
         for (Op subOp : subOps)
         {
@@ -62,6 +70,22 @@ public class QueryIterUnion extends QueryIterRepeatApply
         
         return unionQIter ;
     }
+
+    private QueryIterator nextStageParallel(Binding binding, int parallel)
+    {
+        QueryIterParallelConcat unionQIter = new QueryIterParallelConcat(getExecContext()) ;
+        int async = 0 ;
+        for (Op subOp : subOps)
+        {
+            Op op = QC.substitute(subOp, binding) ;
+            if ( async < parallel && ParallelLib.canEvalAsync(op, getExecContext()) ) {
+                async++ ;
+                unionQIter.add(()->ParallelLib.evalAsync(op, binding, getExecContext()), true) ;
+            } else
+                unionQIter.add(()->QC.execute(op, QueryIterSingleton.create(binding, getExecContext()), getExecContext()), false) ;
+        }
+        return unionQIter ;
+    }
     
     @Override
     public void output(IndentedWriter out, SerializationContext sCxt)
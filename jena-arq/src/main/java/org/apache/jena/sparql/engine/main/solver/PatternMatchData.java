@@ -21,6 +21,7 @@ package org.apache.jena.sparql.engine.main.solver;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import org.apache.jena.graph.Graph;
@@ -33,7 +34,10 @@ import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.iterator.Abortable;
+import org.apache.jena.sparql.engine.iterator.ParallelMorsels;
+import org.apache.jena.sparql.engine.iterator.ParallelMorsels.WorkerScope;
 import org.apache.jena.sparql.engine.iterator.QueryIterAbortable;
+import org.apache.jena.sparql.engine.main.ParallelLib;
 
 /**
  * Match a graph node + basic graph pattern.
@@ -53,6 +57,22 @@ public class PatternMatchData {
         Iterator<Binding> chain = input;
         List<Abortable> killList = new ArrayList<>();
 
+        int threads = ParallelLib.parallelBGP(execCxt);
+        WorkerScope scope = ( threads > 1 && triples.size() > 1 ) ? ParallelLib.workerScope(execCxt) : null;
+        if ( scope != null ) {
+            // First triple pattern on this thread, the rest on several threads.
+            chain = SolverRX3.rdfStarTriple(chain, triples.get(0), execCxt);
+            chain = SolverLib.makeAbortable(chain, killList);
+            List<Triple> rest = triples.subList(1, triples.size());
+            chain = parallel(chain, morsel -> {
+                Iterator<Binding> iter = morsel;
+                for ( Triple triple : rest )
+                    iter = SolverRX3.rdfStarTriple(iter, triple, execCxt);
+                return iter;
+            }, scope, threads, killList);
+            return new QueryIterAbortable(chain, killList, input, execCxt);
+        }
+
         for ( Triple triple : triples ) {
             // Plain, no RDF-star
             //chain = StageMatchTriple.accessTriple(chain, graph, triple, filter, execCxt);
@@ -92,6 +112,23 @@ public class PatternMatchData {
         Iterator<Binding> chain = input;
         List<Abortable> killList = new ArrayList<>();
 
+        int threads = ParallelLib.parallelBGP(execCxt);
+        WorkerScope scope = ( threads > 1 && triples.size() > 1 ) ? ParallelLib.workerScope(execCxt) : null;
+        if ( scope != null ) {
+            // First triple pattern on this thread, the rest on several threads.
+            Node gn = graphNode;
+            chain = SolverRX4.rdfStarQuad(chain, gn, triples.get(0), execCxt);
+            chain = SolverLib.makeAbortable(chain, killList);
+            List<Triple> rest = triples.subList(1, triples.size());
+            chain = parallel(chain, morsel -> {
+                Iterator<Binding> iter = morsel;
+                for ( Triple triple : rest )
+                    iter = SolverRX4.rdfStarQuad(iter, gn, triple, execCxt);
+                return iter;
+            }, scope, threads, killList);
+            return new QueryIterAbortable(chain, killList, input, execCxt);
+        }
+
         for ( Triple triple : triples ) {
             // Plain - no RDF-star.
             //chain = StageMatchData.accessQuad(chain, graphNode, triple, filter, anyGraph, execCxt);
@@ -105,4 +142,15 @@ public class PatternMatchData {
         // "killList" will be aborted on timeout.
         return new QueryIterAbortable(chain, killList, input, execCxt);
     }
+
+    /**
+     * Apply {@code stage} to blocks of rows of {@code chain} using {@code threads}
+     * threads. The order of the results is not preserved.
+     */
+    private static Iterator<Binding> parallel(Iterator<Binding> chain, Function<Iterator<Binding>, Iterator<Binding>> stage,
+                                              WorkerScope scope, int threads, List<Abortable> killList) {
+        ParallelMorsels<Binding, Binding> iter = new ParallelMorsels<>(chain, stage, scope, threads - 1);
+        killList.add(iter);
+        return iter;
+    }
 }
@@ -21,7 +21,6 @@ package org.apache.jena.sparql.engine.main.solver;
 import java.util.Iterator;
 import java.util.Objects;
 import java.util.function.Predicate;
-import org.apache.jena.acl.DatasetACL;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.graph.Graph;
@@ -30,11 +29,10 @@ import org.apache.jena.graph.Triple;
 import org.apache.jena.sparql.core.GraphView;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryACL;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.binding.BindingBuilder;
 import org.apache.jena.sparql.graph.GraphReadOnly;
-import org.apache.jena.sparql.util.Context;
-import org.apache.jena.sparql.util.Symbol;
 import org.apache.jena.util.iterator.ExtendedIterator;
 
 /**
@@ -68,20 +66,10 @@ public class StageMatchTriple {
                 gv = (GraphView) g;
         }
         
-        //
-        if (gv != null) {
-            final Node n = gv.getGraphName();
-            final String graphName = (n != null ? n.toString() : DatasetACL.DEF_GRAPH_NAME);
-            
-            final Context ctx = execCxt.getContext();
-            
-            final DatasetACL dacl = (DatasetACL) ctx.get(Symbol.create(DatasetACL.ACL_HANDLER_NAME));
-            final String userName  = (String) ctx.get(Symbol.create(DatasetACL.ACL_USER_NAME));
-            if (dacl != null && userName != null) {
-                if (dacl.checkGraphBase(DatasetACL.aclId.aiQuery, graphName, userName) == false)
-                    return Iter.nullIterator();
-            }
-            
+        if ( gv != null ) {
+            QueryACL acl = QueryACL.get(execCxt);
+            if ( acl != null && !acl.permits(gv.getGraphName()) )
+                return Iter.nullIterator();
         }
         Node s = substituteFlat(pattern.getSubject(), binding) ;
         Node p = substituteFlat(pattern.getPredicate(), binding) ;
@@ -27,18 +27,24 @@ import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.jena.atlas.web.ContentType;
 import org.apache.jena.http.HttpEnv;
 import org.apache.jena.http.HttpLib;
+import org.apache.jena.query.ARQ;
 import org.apache.jena.riot.WebContent;
 import org.apache.jena.riot.web.HttpNames;
 import org.apache.jena.sparql.engine.http.HttpParams;
 import org.apache.jena.sparql.exec.UpdateExec;
+import org.apache.jena.sparql.modify.ChangeSetIO;
+import org.apache.jena.sparql.modify.ChangeSetSink;
 import org.apache.jena.sparql.modify.UpdateResult;
 import org.apache.jena.sparql.util.Context;
 import org.apache.jena.update.UpdateRequest;
+import org.apache.jena.web.HttpSC;
 
 public class UpdateExecHTTP implements UpdateExec {
 
@@ -50,6 +56,9 @@ public class UpdateExecHTTP implements UpdateExec {
         return UpdateExecHTTPBuilder.create().endpoint(endpointURL);
     }
 
+    // Prefer the binary change-set, which is read incrementally.
+    private static final String changeSetAccept = ChangeSetIO.contentTypeThrift+", "+ChangeSetIO.contentTypeJSON+";q=0.9";
+
     private final Context context;
     private final String service;
     // Not used private final UpdateRequest update;
@@ -107,15 +116,14 @@ public class UpdateExecHTTP implements UpdateExec {
 
         switch(sendMode) {
             case asPost :
-                executePostBody(thisParams); break;
+                return executePostBody(thisParams);
             case asPostForm :
-                executePostForm(thisParams); break;
+                return executePostForm(thisParams);
         }
-        
         return null;
     }
 
-    private void executePostBody(Params thisParams) {
+    private List<UpdateResult> executePostBody(Params thisParams) {
         //String str = (updateString != null) ? updateString : update.toString();
         // Can't be null.
         String str = updateString;
@@ -124,24 +132,57 @@ public class UpdateExecHTTP implements UpdateExec {
             String qs = thisParams.httpString();
             requestURL = requestURL(requestURL, qs);
         }
-        executeUpdate(requestURL, BodyPublishers.ofString(str), WebContent.contentTypeSPARQLUpdate);
+        return executeUpdate(requestURL, BodyPublishers.ofString(str), WebContent.contentTypeSPARQLUpdate);
     }
 
-    private void executePostForm(Params thisParams) {
+    private List<UpdateResult> executePostForm(Params thisParams) {
         String requestURL = service;
         thisParams.add(HttpParams.pUpdate, updateString);
         String formString = thisParams.httpString();
         // Everything goes into the form body, no use of the request URI query string.
-        executeUpdate(requestURL, BodyPublishers.ofString(formString, StandardCharsets.US_ASCII), WebContent.contentTypeHTMLForm);
+        return executeUpdate(requestURL, BodyPublishers.ofString(formString, StandardCharsets.US_ASCII), WebContent.contentTypeHTMLForm);
     }
 
-    private String executeUpdate(String requestURL, BodyPublisher body, String contentType) {
+    private List<UpdateResult> executeUpdate(String requestURL, BodyPublisher body, String contentType) {
         HttpRequest.Builder builder = HttpLib.requestBuilder(requestURL, httpHeaders, -1L, null);
         builder = contentTypeHeader(builder, contentType);
+        if ( httpHeaders == null || !httpHeaders.containsKey(HttpNames.hAccept) )
+            builder = acceptHeader(builder, changeSetAccept);
         HttpRequest request = builder.POST(body).build();
         logUpdate(updateString, request);
         HttpResponse<InputStream> response = HttpLib.execute(httpClient, request);
-        return handleResponseRtnString(response);
+        return handleResponseChangeSet(response);
+    }
+
+    /**
+     * The change-set returned by the service (see {@link ChangeSetIO}) as a single
+     * {@link UpdateResult}, or null if the response does not have one. If the context
+     * has a {@link ChangeSetSink} ({@link ARQ#updateChangeSetSink}), the changes are
+     * streamed to it and the result is that of {@link ChangeSetSink#finish()}.
+     */
+    private List<UpdateResult> handleResponseChangeSet(HttpResponse<InputStream> response) {
+        InputStream input = handleResponseInputStream(response);
+        try {
+            String ct = HttpLib.responseHeader(response, HttpNames.hContentType);
+            if ( response.statusCode() == HttpSC.NO_CONTENT_204 || !isChangeSet(ct) )
+                return null;
+            ChangeSetSink sink = ( context != null ) ? context.get(ARQ.updateChangeSetSink) : null;
+            UpdateResult result = ( sink != null )
+                ? ChangeSetIO.read(input, ct, sink)
+                : ChangeSetIO.read(input, ct);
+            List<UpdateResult> results = new ArrayList<>(1);
+            results.add(result);
+            return results;
+        } finally {
+            HttpLib.finish(input);
+        }
+    }
+
+    private static boolean isChangeSet(String contentType) {
+        if ( contentType == null )
+            return false;
+        String ct = ContentType.create(contentType).getContentTypeStr();
+        return ChangeSetIO.contentTypeJSON.equalsIgnoreCase(ct) || ChangeSetIO.contentTypeThrift.equalsIgnoreCase(ct);
     }
 
     private static void logUpdate(String updateString, HttpRequest request) {}
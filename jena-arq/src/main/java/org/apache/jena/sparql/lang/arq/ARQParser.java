@@ -1892,7 +1892,7 @@ silent=true ;
     QuadData(qd);
     finishDataInsert(qd, beginLine, beginColumn) ;
     qd.close() ;
-    return new UpdateResult(null,qd.getQuadList());
+    return qd.getResult();
 
   }
 
@@ -1903,7 +1903,7 @@ silent=true ;
     QuadData(qd);
     finishDataDelete(qd, beginLine, beginColumn) ;
     qd.close() ;
-    return new UpdateResult(qd.getQuadList(),null);
+    return qd.getResult();
   }
 
   final public Update DeleteWhere() throws ParseException {QuadAcc qp = new QuadAcc() ; Token t ;
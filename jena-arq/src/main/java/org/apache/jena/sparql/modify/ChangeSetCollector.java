@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.modify;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.modify.request.* ;
+import org.apache.jena.update.Update ;
+
+/**
+ * {@link ChangeSetSink} that collects the changes of each operation in memory and
+ * returns them as an {@link UpdateResult}.
+ * <p>
+ * The side of the change that an operation can not produce is null
+ * (e.g. the deleted quads of {@code INSERT DATA}).
+ */
+public class ChangeSetCollector implements ChangeSetSink {
+    private List<Quad> deleted = null ;
+    private List<Quad> added = null ;
+    private List<Node> cleared = null ;
+
+    @Override
+    public void start(Update update) {
+        // Unknown operation (null): either side.
+        boolean inserts = ! ( update instanceof UpdateDataDelete || update instanceof UpdateDeleteWhere
+                              || update instanceof UpdateDropClear ) ;
+        boolean deletes = ! ( update instanceof UpdateDataInsert || update instanceof UpdateLoad
+                              || update instanceof UpdateAdd ) ;
+        deleted = deletes ? new ArrayList<>() : null ;
+        added = inserts ? new ArrayList<>() : null ;
+        cleared = null ;
+    }
+
+    @Override
+    public void add(Quad quad) {
+        added.add(quad) ;
+    }
+
+    @Override
+    public void delete(Quad quad) {
+        deleted.add(quad) ;
+    }
+
+    @Override
+    public void clear(Node graph) {
+        if ( cleared == null )
+            cleared = new ArrayList<>() ;
+        if ( ! cleared.contains(graph) )
+            cleared.add(graph) ;
+    }
+
+    @Override
+    public UpdateResult finish() {
+        UpdateResult result = new UpdateResult(deleted, added, cleared) ;
+        abort() ;
+        return result ;
+    }
+
+    @Override
+    public void abort() {
+        deleted = null ;
+        added = null ;
+        cleared = null ;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.modify;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.update.Update ;
+
+/**
+ * {@link ChangeSetSink} that collects the changes of each operation into an
+ * {@link UpdateResultColumnar}.
+ */
+public class ChangeSetColumnarCollector implements ChangeSetSink {
+    private UpdateResultColumnar result = null ;
+    private List<Node> cleared = null ;
+
+    @Override
+    public void start(Update update) {
+        result = new UpdateResultColumnar() ;
+        cleared = null ;
+    }
+
+    @Override
+    public void add(Quad quad) {
+        result.add(quad) ;
+    }
+
+    @Override
+    public void delete(Quad quad) {
+        result.delete(quad) ;
+    }
+
+    @Override
+    public void clear(Node graph) {
+        if ( cleared == null )
+            cleared = new ArrayList<>() ;
+        if ( ! cleared.contains(graph) )
+            cleared.add(graph) ;
+    }
+
+    @Override
+    public UpdateResult finish() {
+        UpdateResult r = ( cleared == null ) ? result : result.withCleared(cleared) ;
+        abort() ;
+        return r ;
+    }
+
+    @Override
+    public void abort() {
+        result = null ;
+        cleared = null ;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.modify;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.DataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.system.SerializationFactoryFinder ;
+import org.apache.jena.sparql.util.Context ;
+import org.apache.jena.update.Update ;
+
+/**
+ * {@link ChangeSetSink} that accumulates the changes of each operation in
+ * {@link DataBag DataBags}, spilling to disk according to a {@link ThresholdPolicy}
+ * (see {@link org.apache.jena.query.ARQ#spillToDiskThreshold}), and passes them to a
+ * {@link Handler} when the operation finishes.
+ * <p>
+ * No {@link UpdateResult} is returned so the memory used by an update does not grow
+ * with the size of its change set.
+ */
+public class ChangeSetDataBag implements ChangeSetSink {
+
+    /** Receiver of the changes of one update operation. */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * Called once per update operation. {@code cleared} is the graphs emptied
+         * (see {@link ChangeSetSink#clear}), or null if none. The iterators are only
+         * valid during the call.
+         */
+        public void changes(Update update, List<Node> cleared, Iterator<Quad> deleted, Iterator<Quad> added) ;
+    }
+
+    private final Context context ;
+    private final Handler handler ;
+    private Update update = null ;
+    private DataBag<Quad> deleted = null ;
+    private DataBag<Quad> added = null ;
+    private List<Node> cleared = null ;
+
+    /** Spill threshold from the context, or never spill if the context is null. */
+    public ChangeSetDataBag(Context context, Handler handler) {
+        this.context = context ;
+        this.handler = handler ;
+    }
+
+    @Override
+    public void start(Update update) {
+        this.update = update ;
+        this.deleted = newBag() ;
+        this.added = newBag() ;
+        this.cleared = null ;
+    }
+
+    private DataBag<Quad> newBag() {
+        ThresholdPolicy<Quad> policy = ( context == null )
+            ? ThresholdPolicyFactory.never()
+            : ThresholdPolicyFactory.policyFromContext(context) ;
+        return BagFactory.newDefaultBag(policy, SerializationFactoryFinder.quadSerializationFactory()) ;
+    }
+
+    @Override
+    public void add(Quad quad) {
+        added.add(quad) ;
+    }
+
+    @Override
+    public void delete(Quad quad) {
+        deleted.add(quad) ;
+    }
+
+    @Override
+    public void clear(Node graph) {
+        if ( cleared == null )
+            cleared = new ArrayList<>() ;
+        if ( ! cleared.contains(graph) )
+            cleared.add(graph) ;
+    }
+
+    @Override
+    public UpdateResult finish() {
+        try {
+            Iterator<Quad> itDel = deleted.iterator() ;
+            Iterator<Quad> itAdd = added.iterator() ;
+            try {
+                handler.changes(update, cleared, itDel, itAdd) ;
+            } finally {
+                Iter.close(itDel) ;
+                Iter.close(itAdd) ;
+            }
+        } finally {
+            reset() ;
+        }
+        return null ;
+    }
+
+    @Override
+    public void abort() {
+        reset() ;
+    }
+
+    private void reset() {
+        if ( deleted != null )
+            deleted.close() ;
+        if ( added != null )
+            added.close() ;
+        deleted = null ;
+        added = null ;
+        cleared = null ;
+        update = null ;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.modify;
+
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.io.OutputStream ;
+import java.io.Writer ;
+import java.util.Iterator ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.json.JSON ;
+import org.apache.jena.atlas.json.JsonObject ;
+import org.apache.jena.atlas.json.JsonValue ;
+import org.apache.jena.atlas.json.io.JSWriter ;
+import org.apache.jena.atlas.web.ContentType ;
+import org.apache.jena.datatypes.TypeMapper ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.WebContent ;
+import org.apache.jena.riot.thrift.TRDF ;
+import org.apache.jena.riot.thrift.ThriftConvert ;
+import org.apache.jena.riot.thrift.wire.RDF_Quad ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.util.NodeUtils ;
+import org.apache.jena.update.UpdateException ;
+import org.apache.thrift.TException ;
+import org.apache.thrift.protocol.TProtocol ;
+import org.apache.thrift.transport.TTransportException ;
+
+/**
+ * Wire formats for the change-set of an update request, as returned by a SPARQL
+ * update service.
+ * <p>
+ * JSON ({@link #contentTypeJSON}):
+ * <pre>
+ *  [ { "cleared" : [ TERM, ... ] , "deleted" : [ QUAD, ... ] , "updated" : [ QUAD, ... ] } ]
+ * </pre>
+ * where QUAD is an object with "graph" (absent for a triple), "subject", "predicate"
+ * and "object", each an RDF term written as in SPARQL results JSON, e.g.
+ * <code>{ "type" : "uri" , "value" : "http://example/s" }</code>. "cleared" lists
+ * the graphs emptied by the request (see {@link ChangeSetSink#clear}). An empty
+ * part is omitted.
+ * <p>
+ * Binary ({@link #contentTypeThrift}): a sequence of rows, each a Thrift boolean
+ * (true for deleted, false for added) followed by an {@code RDF_Quad}, up to the
+ * end of the stream. A cleared graph is a deleted row with ANY as subject, predicate
+ * and object.
+ * <p>
+ * Both are written incrementally from iterators. The binary format is also read
+ * incrementally; JSON is parsed as a whole.
+ */
+public class ChangeSetIO {
+    public static final String contentTypeJSON   = WebContent.contentTypeJSON ;
+    public static final String contentTypeThrift = WebContent.contentTypeRDFThrift ;
+
+    public static final String kCleared   = "cleared" ;
+    public static final String kDeleted   = "deleted" ;
+    public static final String kAdded     = "updated" ;
+    public static final String kGraph     = "graph" ;
+    public static final String kSubject   = "subject" ;
+    public static final String kPredicate = "predicate" ;
+    public static final String kObject    = "object" ;
+
+    public static void writeJSON(OutputStream out, Iterator<Quad> deleted, Iterator<Quad> added) {
+        writeJSON(out, Iter.nullIterator(), deleted, added) ;
+    }
+
+    public static void writeJSON(OutputStream out, Iterator<Node> cleared, Iterator<Quad> deleted, Iterator<Quad> added) {
+        Writer w = IO.asBufferedUTF8(out) ;
+        try {
+            w.write("[ {") ;
+            boolean first = writeCleared(w, cleared) ;
+            first = writeJSON(w, kDeleted, deleted, first) ;
+            writeJSON(w, kAdded, added, first) ;
+            w.write("\n} ]\n") ;
+            w.flush() ;
+        } catch (IOException ex) { IO.exception(ex) ; }
+    }
+
+    private static boolean writeCleared(Writer w, Iterator<Node> graphs) throws IOException {
+        if ( !graphs.hasNext() )
+            return true ;
+        w.write("\n  ") ;
+        w.write(JSWriter.outputQuotedString(kCleared)) ;
+        w.write(" : [") ;
+        boolean first = true ;
+        while ( graphs.hasNext() ) {
+            w.write(first ? "\n    " : " ,\n    ") ;
+            first = false ;
+            writeTerm(w, graphs.next()) ;
+        }
+        w.write("\n  ]") ;
+        return false ;
+    }
+
+    private static boolean writeJSON(Writer w, String key, Iterator<Quad> quads, boolean first) throws IOException {
+        if ( !quads.hasNext() )
+            return first ;
+        if ( !first )
+            w.write(" ,") ;
+        w.write("\n  ") ;
+        w.write(JSWriter.outputQuotedString(key)) ;
+        w.write(" : [") ;
+        boolean firstQuad = true ;
+        while ( quads.hasNext() ) {
+            Quad q = quads.next() ;
+            w.write(firstQuad ? "\n    { " : " ,\n    { ") ;
+            firstQuad = false ;
+            if ( q.getGraph() != null ) {
+                writeJSON(w, kGraph, q.getGraph()) ;
+                w.write(" , ") ;
+            }
+            writeJSON(w, kSubject, q.getSubject()) ;
+            w.write(" , ") ;
+            writeJSON(w, kPredicate, q.getPredicate()) ;
+            w.write(" , ") ;
+            writeJSON(w, kObject, q.getObject()) ;
+            w.write(" }") ;
+        }
+        w.write("\n  ]") ;
+        return false ;
+    }
+
+    private static void writeJSON(Writer w, String key, Node n) throws IOException {
+        w.write(JSWriter.outputQuotedString(key)) ;
+        w.write(" : ") ;
+        writeTerm(w, n) ;
+    }
+
+    /** An RDF term in the SPARQL results JSON layout. */
+    private static void writeTerm(Writer w, Node n) throws IOException {
+        w.write("{ \"type\" : ") ;
+        if ( n.isURI() ) {
+            w.write("\"uri\" , \"value\" : ") ;
+            w.write(JSWriter.outputQuotedString(n.getURI())) ;
+        } else if ( n.isBlank() ) {
+            w.write("\"bnode\" , \"value\" : ") ;
+            w.write(JSWriter.outputQuotedString(n.getBlankNodeLabel())) ;
+        } else if ( n.isLiteral() ) {
+            w.write("\"literal\" , ") ;
+            String lang = n.getLiteralLanguage() ;
+            if ( lang != null && !lang.isEmpty() ) {
+                w.write("\"xml:lang\" : ") ;
+                w.write(JSWriter.outputQuotedString(lang)) ;
+                w.write(" , ") ;
+            } else if ( !NodeUtils.isSimpleString(n) ) {
+                w.write("\"datatype\" : ") ;
+                w.write(JSWriter.outputQuotedString(n.getLiteralDatatypeURI())) ;
+                w.write(" , ") ;
+            }
+            w.write("\"value\" : ") ;
+            w.write(JSWriter.outputQuotedString(n.getLiteralLexicalForm())) ;
+        } else if ( n.isNodeTriple() ) {
+            Triple t = n.getTriple() ;
+            w.write("\"triple\" , \"value\" : { ") ;
+            writeJSON(w, kSubject, t.getSubject()) ;
+            w.write(" , ") ;
+            writeJSON(w, kPredicate, t.getPredicate()) ;
+            w.write(" , ") ;
+            writeJSON(w, kObject, t.getObject()) ;
+            w.write(" }") ;
+        } else
+            throw new UpdateException("Can't write term in a change-set: " + n) ;
+        w.write(" }") ;
+    }
+
+    public static void writeThrift(OutputStream out, Iterator<Quad> deleted, Iterator<Quad> added) {
+        writeThrift(out, Iter.nullIterator(), deleted, added) ;
+    }
+
+    public static void writeThrift(OutputStream out, Iterator<Node> cleared, Iterator<Quad> deleted, Iterator<Quad> added) {
+        TProtocol protocol = TRDF.protocol(out) ;
+        try {
+            writeThrift(protocol, true, Iter.map(cleared, ChangeSetIO::tombstone)) ;
+            writeThrift(protocol, true, deleted) ;
+            writeThrift(protocol, false, added) ;
+        } catch (TException ex) { TRDF.exception(ex) ; }
+        TRDF.flush(protocol) ;
+    }
+
+    private static void writeThrift(TProtocol protocol, boolean isDeleted, Iterator<Quad> quads) throws TException {
+        while ( quads.hasNext() ) {
+            RDF_Quad rq = ThriftConvert.convert(quads.next(), false) ;
+            protocol.writeBool(isDeleted) ;
+            rq.write(protocol) ;
+        }
+    }
+
+    private static Quad tombstone(Node graph) {
+        return Quad.create(graph, Node.ANY, Node.ANY, Node.ANY) ;
+    }
+
+    private static boolean isTombstone(Quad quad) {
+        return Node.ANY.equals(quad.getSubject()) && Node.ANY.equals(quad.getPredicate()) && Node.ANY.equals(quad.getObject()) ;
+    }
+
+    /** Does the content type name the binary format? Otherwise JSON is assumed. */
+    public static boolean isThrift(String contentType) {
+        if ( contentType == null )
+            return false ;
+        return contentTypeThrift.equalsIgnoreCase(ContentType.create(contentType).getContentTypeStr()) ;
+    }
+
+    /** Read a change-set into an {@link UpdateResult}. */
+    public static UpdateResult read(InputStream in, String contentType) {
+        return read(in, contentType, new ChangeSetCollector()) ;
+    }
+
+    /**
+     * Read a change-set and send it to a {@link ChangeSetSink} as one operation
+     * (with a null update). Returns the result of {@link ChangeSetSink#finish()}.
+     */
+    public static UpdateResult read(InputStream in, String contentType, ChangeSetSink sink) {
+        sink.start(null) ;
+        try {
+            if ( isThrift(contentType) )
+                readThrift(in, sink) ;
+            else
+                readJSON(in, sink) ;
+        } catch (RuntimeException ex) {
+            sink.abort() ;
+            throw ex ;
+        }
+        return sink.finish() ;
+    }
+
+    private static void readJSON(InputStream in, ChangeSetSink sink) {
+        JsonValue v = JSON.parseAny(in) ;
+        // [ { ... } ] or { ... }
+        if ( v.isArray() ) {
+            for ( JsonValue x : v.getAsArray() )
+                readJSON(x.getAsObject(), sink) ;
+        } else
+            readJSON(v.getAsObject(), sink) ;
+    }
+
+    private static void readJSON(JsonObject obj, ChangeSetSink sink) {
+        if ( obj.hasKey(kCleared) )
+            obj.get(kCleared).getAsArray().forEach(x -> sink.clear(termFromJSON(x))) ;
+        if ( obj.hasKey(kDeleted) )
+            obj.get(kDeleted).getAsArray().forEach(x -> sink.delete(quadFromJSON(x.getAsObject()))) ;
+        if ( obj.hasKey(kAdded) )
+            obj.get(kAdded).getAsArray().forEach(x -> sink.add(quadFromJSON(x.getAsObject()))) ;
+    }
+
+    private static Quad quadFromJSON(JsonObject obj) {
+        Node g = obj.hasKey(kGraph) ? termFromJSON(obj.get(kGraph)) : null ;
+        Node s = termFromJSON(obj.get(kSubject)) ;
+        Node p = termFromJSON(obj.get(kPredicate)) ;
+        Node o = termFromJSON(obj.get(kObject)) ;
+        return Quad.create(g, s, p, o) ;
+    }
+
+    private static Node termFromJSON(JsonValue v) {
+        if ( v == null || !v.isObject() )
+            throw new UpdateException("Bad term in change-set: " + v) ;
+        JsonObject term = v.getAsObject() ;
+        String type = str(term, "type") ;
+        if ( "triple".equals(type) ) {
+            JsonValue t0 = term.get("value") ;
+            if ( t0 == null || !t0.isObject() )
+                throw new UpdateException("Bad triple term in change-set: " + v) ;
+            JsonObject t = t0.getAsObject() ;
+            return NodeFactory.createTripleNode(termFromJSON(t.get(kSubject)),
+                                                termFromJSON(t.get(kPredicate)),
+                                                termFromJSON(t.get(kObject))) ;
+        }
+        String value = str(term, "value") ;
+        if ( type == null || value == null )
+            throw new UpdateException("Bad term in change-set: " + v) ;
+        switch (type) {
+            case "uri" :
+                return NodeFactory.createURI(value) ;
+            case "bnode" :
+                return NodeFactory.createBlankNode(value) ;
+            case "literal" : {
+                String lang = str(term, "xml:lang") ;
+                if ( lang != null )
+                    return NodeFactory.createLiteral(value, lang) ;
+                String dt = str(term, "datatype") ;
+                if ( dt != null )
+                    return NodeFactory.createLiteral(value, TypeMapper.getInstance().getSafeTypeByName(dt)) ;
+                return NodeFactory.createLiteral(value) ;
+            }
+            default :
+                throw new UpdateException("Bad term type in change-set: " + type) ;
+        }
+    }
+
+    private static String str(JsonObject obj, String key) {
+        JsonValue v = obj.get(key) ;
+        return ( v != null && v.isString() ) ? v.getAsString().value() : null ;
+    }
+
+    private static void readThrift(InputStream in, ChangeSetSink sink) {
+        TProtocol protocol = TRDF.protocol(in) ;
+        RDF_Quad rq = new RDF_Quad() ;
+        for ( ;; ) {
+            boolean isDeleted ;
+            try { isDeleted = protocol.readBool() ; }
+            catch (TTransportException ex) {
+                if ( ex.getType() == TTransportException.END_OF_FILE )
+                    return ;
+                TRDF.exception(ex) ;
+                return ;
+            }
+            catch (TException ex) { TRDF.exception(ex) ; return ; }
+            try {
+                rq.clear() ;
+                rq.read(protocol) ;
+            } catch (TException ex) { TRDF.exception(ex) ; }
+            Quad q = ThriftConvert.convert(rq) ;
+            if ( isDeleted && isTombstone(q) )
+                sink.clear(q.getGraph()) ;
+            else if ( isDeleted )
+                sink.delete(q) ;
+            else
+                sink.add(q) ;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.modify;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.update.Update ;
+
+/**
+ * Destination for the effective changes made by an update operation.
+ * <p>
+ * {@link UpdateEngineWorker} calls {@link #start(Update)} before executing an operation,
+ * then sends each quad that is actually added to, or deleted from, the dataset as it
+ * is applied, and finally calls {@link #finish()}, or {@link #abort()} if the
+ * operation fails. Quads that were already present
+ * (insert) or absent (delete) are not sent.
+ * <p>
+ * Operations that empty a whole graph (DROP, CLEAR, and the destination of COPY and
+ * the source of MOVE) first send {@link #clear(Node)} for the graph, then its deleted
+ * quads unless {@link org.apache.jena.query.ARQ#updateChangeSetClearQuads} is false.
+ * <p>
+ * A sink is set for an update execution with the context symbol
+ * {@link org.apache.jena.query.ARQ#updateChangeSetSink}. If none is set,
+ * {@link ChangeSetCollector} is used, which gives the {@code List<UpdateResult>}
+ * returned by update execution.
+ */
+public interface ChangeSetSink {
+    /**
+     * Start of an update operation. The update is null if the operation is not
+     * known, e.g. for a change-set received from a remote update service.
+     */
+    public void start(Update update) ;
+
+    /** A quad has been added to the dataset. */
+    public void add(Quad quad) ;
+
+    /** A quad has been deleted from the dataset. */
+    public void delete(Quad quad) ;
+
+    /**
+     * All quads of a graph are being removed: a tombstone for the graph, so a consumer
+     * can invalidate by graph. The default graph is {@link Quad#defaultGraphIRI}.
+     */
+    public default void clear(Node graph) {}
+
+    /**
+     * End of the current update operation.
+     * Return the {@link UpdateResult} to be included in the results of the update
+     * execution, or null for none.
+     */
+    public UpdateResult finish() ;
+
+    /** The current update operation failed. */
+    public default void abort() {}
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.modify;
+
+import java.io.Closeable ;
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.DataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.system.SerializationFactoryFinder ;
+import org.apache.jena.sparql.util.Context ;
+import org.apache.jena.update.Update ;
+
+/**
+ * {@link ChangeSetSink} that accumulates the changes of a whole update request,
+ * all operations together, in two {@link DataBag DataBags} that spill to disk
+ * according to the context (see {@link org.apache.jena.query.ARQ#spillToDiskThreshold}).
+ * <p>
+ * After execution the changes are read with {@link #cleared()}, {@link #deleted()} and
+ * {@link #added()} and must be released with {@link #close()}.
+ */
+public class ChangeSetSpool implements ChangeSetSink, Closeable {
+    private final DataBag<Quad> deleted ;
+    private final DataBag<Quad> added ;
+    // Tombstones: few, kept in memory.
+    private final List<Node> cleared = new ArrayList<>() ;
+
+    /** Spill threshold from the context, or never spill if the context is null. */
+    public ChangeSetSpool(Context context) {
+        this.deleted = newBag(context) ;
+        this.added = newBag(context) ;
+    }
+
+    private static DataBag<Quad> newBag(Context context) {
+        ThresholdPolicy<Quad> policy = ( context == null )
+            ? ThresholdPolicyFactory.never()
+            : ThresholdPolicyFactory.policyFromContext(context) ;
+        return BagFactory.newDefaultBag(policy, SerializationFactoryFinder.quadSerializationFactory()) ;
+    }
+
+    @Override
+    public void start(Update update) {}
+
+    @Override
+    public void add(Quad quad) {
+        added.add(quad) ;
+    }
+
+    @Override
+    public void delete(Quad quad) {
+        deleted.add(quad) ;
+    }
+
+    @Override
+    public void clear(Node graph) {
+        if ( ! cleared.contains(graph) )
+            cleared.add(graph) ;
+    }
+
+    @Override
+    public UpdateResult finish() {
+        return null ;
+    }
+
+    /** Graphs emptied by the request. */
+    public List<Node> cleared() {
+        return cleared ;
+    }
+
+    /** Quads deleted by the request. */
+    public Iterator<Quad> deleted() {
+        return deleted.iterator() ;
+    }
+
+    /** Quads added by the request. */
+    public Iterator<Quad> added() {
+        return added.iterator() ;
+    }
+
+    public long deletedSize() {
+        return deleted.size() ;
+    }
+
+    public long addedSize() {
+        return added.size() ;
+    }
+
+    @Override
+    public void close() {
+        deleted.close() ;
+        added.close() ;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.modify;
+
+import org.apache.jena.atlas.lib.Sink;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Destination of the quads of INSERT DATA or DELETE DATA streamed by the parser.
+ * Each {@link #close()} ends one operation, whose changes are then available from
+ * {@link #result()}.
+ */
+public interface QuadSinkWithReturn extends Sink<Quad> {
+    /** The changes made by the operation last closed, or null. */
+    public UpdateResult result();
+}
@@ -69,10 +69,17 @@ public class UpdateEngineMain extends UpdateEngineBase
     @Override
     public UpdateSink getUpdateSink()
     {
-        if ( updateSink == null )
-            updateSink = new UpdateVisitorSinkWithReturn(this.prepareWorker(),
-                                               sink(q->datasetGraph.add(q)), 
-                                               sink(q->datasetGraph.delete(q)));
+        if ( updateSink == null ) {
+            UpdateVisitor worker = this.prepareWorker();
+            if ( worker instanceof UpdateEngineWorker ) {
+                // Streamed data goes through the worker: ACL checks and change-set reporting.
+                UpdateEngineWorker w = (UpdateEngineWorker)worker;
+                updateSink = new UpdateVisitorSinkWithReturn(w, w.createDataSink(true), w.createDataSink(false));
+            } else
+                updateSink = new UpdateVisitorSinkWithReturn(worker,
+                                                   sink(q->datasetGraph.add(q)), 
+                                                   sink(q->datasetGraph.delete(q)));
+        }
         return updateSink ;
     }
     
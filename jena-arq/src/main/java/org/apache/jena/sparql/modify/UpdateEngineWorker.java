@@ -37,21 +37,23 @@ import org.apache.jena.atlas.lib.Pair ;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.atlas.web.TypedInputStream;
 import org.apache.jena.graph.Graph ;
-import org.apache.jena.graph.GraphUtil ;
 import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ARQ ;
 import org.apache.jena.query.Query ;
 import org.apache.jena.query.QueryExecutionFactory ;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFLanguages;
 import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
 import org.apache.jena.sparql.ARQInternalErrorException ;
 import org.apache.jena.sparql.core.* ;
 import org.apache.jena.sparql.engine.Plan ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.binding.BindingRoot ;
 import org.apache.jena.sparql.graph.GraphFactory ;
-import org.apache.jena.sparql.graph.GraphOps ;
 import org.apache.jena.sparql.modify.request.* ;
 import org.apache.jena.sparql.syntax.Element ;
 import org.apache.jena.sparql.syntax.ElementGroup ;
@@ -75,22 +77,44 @@ public class UpdateEngineWorker implements UpdateVisitor
     protected final boolean alwaysSilent = true ;
     protected final Binding inputBinding;       // Used for UpdateModify only
     protected final Context context ;
+    protected final ChangeSetSink changeSink ;
 
     public UpdateEngineWorker(DatasetGraph datasetGraph, Binding inputBinding, Context context) {
         this.datasetGraph = datasetGraph ;
         this.inputBinding = inputBinding ;
         this.context = context ;
+        this.changeSink = changeSink(context) ;
+    }
+
+    private static ChangeSetSink changeSink(Context context) {
+        ChangeSetSink sink = ( context != null ) ? context.get(ARQ.updateChangeSetSink) : null ;
+        return ( sink != null ) ? sink : new ChangeSetCollector() ;
+    }
+
+    /** Run an operation, sending its effective changes to the {@link ChangeSetSink}. */
+    private UpdateResult withChanges(Update update, Runnable action) {
+        changeSink.start(update) ;
+        try {
+            action.run() ;
+        } catch (RuntimeException | Error ex) {
+            changeSink.abort() ;
+            throw ex ;
+        }
+        UpdateResult ret = changeSink.finish() ;
+        if ( enableDebugPrint && ret != null )
+            System.out.println(ret.toString()) ;
+        return ret ;
     }
 
     @Override
-    public void visit(UpdateDrop update)
+    public UpdateResult visit(UpdateDrop update)
     { 
-        execDropClear(update, false) ; 
+        return withChanges(update, ()->execDropClear(update, false)) ; 
     }
 
     @Override
-    public void visit(UpdateClear update)
-    { execDropClear(update, true) ; }
+    public UpdateResult visit(UpdateClear update)
+    { return withChanges(update, ()->execDropClear(update, true)) ; }
 
     protected void execDropClear(UpdateDropClear update, boolean isClear) {
         if ( update.isAll() ) {
@@ -119,10 +143,13 @@ public class UpdateEngineWorker implements UpdateVisitor
         if ( isClear ) {
             if ( g == null || datasetGraph.containsGraph(g) ) {
                 checkACL(graphName, DatasetACL.aclId.aiClear);
+                reportClear(datasetGraph, g, changeSink, context);
                 graph(datasetGraph, g).clear();
             }
         } else {
             checkACL(graphName, DatasetACL.aclId.aiDrop);
+            if ( datasetGraph.containsGraph(g) )
+                reportClear(datasetGraph, g, changeSink, context);
             datasetGraph.removeGraph(g);
         }
     }
@@ -143,27 +170,35 @@ public class UpdateEngineWorker implements UpdateVisitor
     }
 
     @Override
-    public void visit(UpdateCreate update) {
+    public UpdateResult visit(UpdateCreate update) {
         Node g = update.getGraph();
         if ( g == null )
-            return;
+            return null;
         if ( datasetGraph.containsGraph(g) ) {
             if ( !alwaysSilent && !update.isSilent() )
                 error("Graph store already contains graph : " + g);
-            return;
+            return null;
         }
         
         checkACL(g.getURI(), DatasetACL.aclId.aiCreate);
         // In-memory specific
         datasetGraph.addGraph(g, GraphFactory.createDefaultGraph());
+        // No quads change.
+        return null;
     }
 
     @Override
-    public void visit(UpdateLoad update) {
+    public UpdateResult visit(UpdateLoad update) {
+        return withChanges(update, ()->execLoad(update)) ;
+    }
+
+    protected void execLoad(UpdateLoad update) {
         // LOAD SILENT? iri ( INTO GraphRef )? 
         String source = update.getSource();
         Node dest = update.getDest();
-        Graph graph = graph(datasetGraph, dest);
+        // Parser output goes to the dataset one quad at a time, reporting the quads
+        // actually added, so the change-set of a large LOAD is not buffered here.
+        StreamRDF loader = loadDestination(dest);
         // We must load buffered if silent so that the dataset graph sees
         // all or no triples/quads when there is a parse error
         // (no nested transaction abort). 
@@ -175,9 +210,9 @@ public class UpdateEngineWorker implements UpdateVisitor
                 if ( loadBuffered ) {
                     DatasetGraph dsg2 = DatasetGraphFactory.create();
                     RDFDataMgr.read(dsg2, source);
-                    dsg2.find().forEachRemaining(datasetGraph::add);
+                    dsg2.find().forEachRemaining(loader::quad);
                 } else {
-                    RDFDataMgr.read(datasetGraph, source);
+                    RDFParser.source(source).parse(loader);
                 }
                 return ;
             }
@@ -200,9 +235,9 @@ public class UpdateEngineWorker implements UpdateVisitor
             if ( loadBuffered ) {
                 Graph g = GraphFactory.createGraphMem();
                 parser.parse(g);
-                GraphUtil.addInto(graph, g);
+                g.find().forEachRemaining(loader::triple);
             } else {
-                parser.parse(graph);
+                parser.parse(loader);
             }
         } catch (RuntimeException ex) {
             if ( !update.getSilent() ) {
@@ -213,34 +248,53 @@ public class UpdateEngineWorker implements UpdateVisitor
         }
     }
 
+    /** Triples go to the destination graph (null for the default graph); quads as given. */
+    private StreamRDF loadDestination(Node dest) {
+        Node gn = ( dest == null ) ? Quad.defaultGraphIRI : dest ;
+        return new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                addQuad(datasetGraph, Quad.create(gn, triple), changeSink) ;
+            }
+
+            @Override
+            public void quad(Quad quad) {
+                if ( quad.isTriple() )
+                    triple(quad.asTriple()) ;
+                else
+                    addQuad(datasetGraph, quad, changeSink) ;
+            }
+        } ;
+    }
+
     @Override
-    public void visit(UpdateAdd update) {
+    public UpdateResult visit(UpdateAdd update) {
         // ADD SILENT? (DEFAULT or GRAPH) TO (DEFAULT or GRAPH)
         if ( !validBinaryGraphOp(update) )
-            return;
+            return null;
         if ( update.getSrc().equals(update.getDest()) )
-            return;
+            return null;
         // Different source and destination.
-        gsAddTriples(datasetGraph, update.getSrc(), update.getDest());
+        return withChanges(update, ()->gsAddTriples(datasetGraph, update.getSrc(), update.getDest(), changeSink));
     }
 
     @Override
-    public void visit(UpdateCopy update) {
+    public UpdateResult visit(UpdateCopy update) {
         // COPY SILENT? (DEFAULT or GRAPH) TO (DEFAULT or GRAPH)
         if ( !validBinaryGraphOp(update) )
-            return;
+            return null;
         if ( update.getSrc().equals(update.getDest()) )
-            return;
-        gsCopy(datasetGraph, update.getSrc(), update.getDest(), update.getSilent());
+            return null;
+        return withChanges(update, ()->gsCopy(datasetGraph, update.getSrc(), update.getDest(), update.getSilent(), changeSink, context));
     }
 
     @Override
-    public void visit(UpdateMove update) {
+    public UpdateResult visit(UpdateMove update) {
         // MOVE SILENT? (DEFAULT or GRAPH) TO (DEFAULT or GRAPH)
         if ( !validBinaryGraphOp(update) )
-            return;
+            return null;
         if ( update.getSrc().equals(update.getDest()) )
-            return;
+            return null;
         
         
         // MOVE (DEFAULT or GRAPH) TO (DEFAULT or GRAPH)
@@ -252,8 +306,10 @@ public class UpdateEngineWorker implements UpdateVisitor
         if (datasetGraph.containsGraph(update.getDest().getGraph()) == false)
             checkACL(update.getDest().getGraph().getURI() , DatasetACL.aclId.aiCreate);
         
-        gsCopy(datasetGraph, update.getSrc(), update.getDest(), update.getSilent());
-        gsDrop(datasetGraph, update.getSrc(), true);
+        return withChanges(update, ()->{
+            gsCopy(datasetGraph, update.getSrc(), update.getDest(), update.getSilent(), changeSink, context);
+            gsDrop(datasetGraph, update.getSrc(), true, changeSink, context);
+        });
     }
 
     private boolean validBinaryGraphOp(UpdateBinaryOp update) {
@@ -276,58 +332,151 @@ public class UpdateEngineWorker implements UpdateVisitor
     // ----
     // Core operations
     /** Copy from src to dst : copy overwrites (= deletes) the old contents */
-    protected static void gsCopy(DatasetGraph dsg, Target src, Target dest, boolean isSilent)
+    protected static void gsCopy(DatasetGraph dsg, Target src, Target dest, boolean isSilent, ChangeSetSink changes, Context ctx)
     {
         if ( dest.equals(src) ) 
             return ;
-        gsClear(dsg, dest, true) ;
-        gsAddTriples(dsg, src, dest) ;
+        gsClear(dsg, dest, true, changes, ctx) ;
+        gsAddTriples(dsg, src, dest, changes) ;
     }
 
     /** Add triples from src to dest */
-    protected static void gsAddTriples(DatasetGraph dsg, Target src, Target dest) {
+    protected static void gsAddTriples(DatasetGraph dsg, Target src, Target dest, ChangeSetSink changes) {
         Graph gSrc = graph(dsg, src);
-        Graph gDest = graph(dsg, dest);
-        GraphOps.addAll(gDest, gSrc.find());
+        Node gn = graphNode(dest);
+        Iterator<Triple> iter = gSrc.find();
+        try {
+            iter.forEachRemaining(t -> addQuad(dsg, Quad.create(gn, t), changes));
+        } finally { Iter.close(iter); }
     }
 
     /** Clear target */
-    protected static void gsClear(DatasetGraph dsg, Target target, boolean isSilent) {
+    protected static void gsClear(DatasetGraph dsg, Target target, boolean isSilent, ChangeSetSink changes, Context ctx) {
         // No create - we tested earlier.
         Graph g = graph(dsg, target);
+        if ( target.isDefault() || dsg.containsGraph(target.getGraph()) )
+            reportClear(dsg, graphNode(target), changes, ctx);
         g.clear();
     }
 
     /** Remove the target graph */
-    protected static void gsDrop(DatasetGraph dsg, Target target, boolean isSilent) {
+    protected static void gsDrop(DatasetGraph dsg, Target target, boolean isSilent, ChangeSetSink changes, Context ctx) {
+        if ( target.isDefault() || dsg.containsGraph(target.getGraph()) )
+            reportClear(dsg, graphNode(target), changes, ctx);
         if ( target.isDefault() )
             dsg.getDefaultGraph().clear();
         else
             dsg.removeGraph(target.getGraph());
     }
+
+    private static Node graphNode(Target target) {
+        if ( target.isDefault() )
+            return Quad.defaultGraphIRI;
+        if ( target.isOneNamedGraph() )
+            return target.getGraph();
+        error("Target does not name one graph: " + target);
+        return null;
+    }
+
+    /**
+     * Report that all of a graph (null for the default graph) is about to be removed:
+     * the tombstone, then, unless {@link ARQ#updateChangeSetClearQuads} is false,
+     * each quad. Must be called before the graph is changed.
+     */
+    protected static void reportClear(DatasetGraph dsg, Node gn, ChangeSetSink changes, Context ctx) {
+        Node g = ( gn == null || Quad.isDefaultGraph(gn) ) ? Quad.defaultGraphIRI : gn ;
+        changes.clear(g) ;
+        if ( ctx != null && ctx.isFalse(ARQ.updateChangeSetClearQuads) )
+            return ;
+        Iterator<Quad> iter = dsg.find(g, Node.ANY, Node.ANY, Node.ANY) ;
+        try {
+            iter.forEachRemaining(changes::delete) ;
+        } finally { Iter.close(iter) ; }
+    }
+
+    /** Add a quad without an ACL check (graph level operations), reporting it if it is new. */
+    private static void addQuad(DatasetGraph dsg, Quad quad, ChangeSetSink changes) {
+        if ( quad.isLegalAsData() && dsg.add(quad) )
+            changes.add(quad) ;
+    }
     
     // ----
     
     @Override
     public UpdateResult visit(UpdateDataInsert update) {
-        List<Quad> ret = new ArrayList<>();
-        for ( Quad quad : update.getQuads() )
-            addToDatasetGraph(datasetGraph, quad,ret,this.context,DatasetACL.aclId.aiInsertData);
-        
-        return new UpdateResult(null,ret);
+        return withChanges(update, ()->{
+            for ( Quad quad : update.getQuads() )
+                addToDatasetGraph(datasetGraph, quad,changeSink,this.context,DatasetACL.aclId.aiInsertData);
+        });
     }
 
     @Override
     public UpdateResult visit(UpdateDataDelete update) {
-        List<Quad> ret = new ArrayList<>();
-        for ( Quad quad : update.getQuads() )
-            deleteFromDatasetGraph(datasetGraph, quad,ret,this.context,DatasetACL.aclId.aiDeleteData);
-        
-        return new UpdateResult(ret,null);
+        return withChanges(update, ()->{
+            for ( Quad quad : update.getQuads() )
+                deleteFromDatasetGraph(datasetGraph, quad,changeSink,this.context,DatasetACL.aclId.aiDeleteData);
+        });
+    }
+
+    /**
+     * Sink for the quads of an INSERT DATA or DELETE DATA that the parser streams
+     * instead of building the operation. Quads are applied as they arrive, with the
+     * same checks as {@link #visit(UpdateDataInsert)}, and each operation (up to
+     * {@code close}) is reported to the {@link ChangeSetSink}, whose result is then
+     * available from {@link QuadSinkWithReturn#result()}. The operation passed to
+     * {@link ChangeSetSink#start} has no quads.
+     */
+    public QuadSinkWithReturn createDataSink(boolean isInsert) {
+        return new QuadSinkWithReturn() {
+            private boolean started = false ;
+            private UpdateResult result = null ;
+
+            private void start() {
+                changeSink.start(isInsert ? new UpdateDataInsert(new QuadDataAcc()) : new UpdateDataDelete(new QuadDataAcc())) ;
+                started = true ;
+                result = null ;
+            }
+
+            @Override
+            public boolean send(Quad quad) {
+                if ( !started )
+                    start() ;
+                try {
+                    return isInsert
+                        ? addToDatasetGraph(datasetGraph, quad, changeSink, context, DatasetACL.aclId.aiInsertData)
+                        : deleteFromDatasetGraph(datasetGraph, quad, changeSink, context, DatasetACL.aclId.aiDeleteData) ;
+                } catch (RuntimeException | Error ex) {
+                    started = false ;
+                    changeSink.abort() ;
+                    throw ex ;
+                }
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {
+                // An operation with no quads is reported too.
+                if ( !started )
+                    start() ;
+                started = false ;
+                result = changeSink.finish() ;
+            }
+
+            @Override
+            public UpdateResult result() {
+                return result ;
+            }
+        } ;
     }
 
     @Override
     public UpdateResult visit(UpdateDeleteWhere update) {
+        return withChanges(update, ()->execDeleteWhere(update));
+    }
+
+    protected void execDeleteWhere(UpdateDeleteWhere update) {
         List<Quad> quads = update.getQuads() ;
         // Removed from SPARQL : Convert bNodes to named variables first.
         //quads = convertBNodesToVariables(quads) ;
@@ -337,7 +486,6 @@ public class UpdateEngineWorker implements UpdateVisitor
         
         // Decided to serialize the bindings, but could also have decided to
         // serialize the quads after applying the template instead.
-        List<Quad> deleted = null;
         ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(datasetGraph.getContext());
         DataBag<Binding> db = BagFactory.newDefaultBag(policy, SerializationFactoryFinder.bindingSerializationFactory());
         try {
@@ -346,23 +494,20 @@ public class UpdateEngineWorker implements UpdateVisitor
             Iter.close(bindings);
 
             Iterator<Binding> it = db.iterator();
-            deleted = execDelete(datasetGraph, quads, null, it,this.context,DatasetACL.aclId.aiUpdate);
+            execDelete(datasetGraph, quads, null, it,changeSink,this.context,DatasetACL.aclId.aiUpdate);
             Iter.close(it);
         }
         finally {
             db.close();
         }
-        
-        final UpdateResult ret = new UpdateResult(deleted,null);
-        if (enableDebugPrint)
-            System.out.println(ret.toString());
-        
-        return ret;
     }
     
     @Override
     public UpdateResult visit(UpdateModify update) {
-        
+        return withChanges(update, ()->execModify(update));
+    }
+
+    protected void execModify(UpdateModify update) {
         Node withGraph = update.getWithIRI();
         Element elt = update.getWherePattern();
 
@@ -398,7 +543,6 @@ public class UpdateEngineWorker implements UpdateVisitor
         Query query = elementToQuery(elt) ;
         ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(datasetGraph.getContext());
         DataBag<Binding> db = BagFactory.newDefaultBag(policy, SerializationFactoryFinder.bindingSerializationFactory()) ;
-        UpdateResult ret = null;
         try {
             Iterator<Binding> bindings = evalBindings(query, dsg, inputBinding, context);
 
@@ -413,25 +557,16 @@ public class UpdateEngineWorker implements UpdateVisitor
             Iter.close(bindings);
 
             Iterator<Binding> it = db.iterator();
-            List<Quad> deleted = execDelete(datasetGraph, update.getDeleteQuads(), withGraph, it,this.context,DatasetACL.aclId.aiUpdate);
+            execDelete(datasetGraph, update.getDeleteQuads(), withGraph, it,changeSink,this.context,DatasetACL.aclId.aiUpdate);
             Iter.close(it);
 
             Iterator<Binding> it2 = db.iterator();
-            List<Quad> updated =  execInsert(datasetGraph, update.getInsertQuads(), withGraph, it2,this.context,DatasetACL.aclId.aiUpdate);
+            execInsert(datasetGraph, update.getInsertQuads(), withGraph, it2,changeSink,this.context,DatasetACL.aclId.aiUpdate);
             Iter.close(it2);
-            
-            ret = new UpdateResult(deleted,updated);
-            
-            if (enableDebugPrint) {
-                System.out.println(ret.toString());
-                
-            }
         }
         finally {
             db.close();
         }
-        return ret;
-        
     }
 
     // Indirection for subsystems to support USING/USING NAMED.
@@ -506,97 +641,101 @@ public class UpdateEngineWorker implements UpdateVisitor
         return n.isURI() || n.isLiteral() ;
     }
 
-    protected static List<Quad> execDelete(
+    protected static void execDelete(
         DatasetGraph        dsg, 
         List<Quad>          quads, 
         Node                dftGraph, 
         Iterator<Binding>   bindings,
+        ChangeSetSink       changes,
         Context             ctx,
         DatasetACL.aclId    aclId
     ) {
         Pair<List<Quad>, List<Quad>> p = split(quads) ;
-        return execDelete(dsg, p.getLeft(), p.getRight(), dftGraph, bindings,ctx,aclId) ;
+        execDelete(dsg, p.getLeft(), p.getRight(), dftGraph, bindings,changes,ctx,aclId) ;
     }
     
-    protected static List<Quad> execDelete(
+    protected static void execDelete(
             DatasetGraph        dsg, 
             List<Quad>          onceQuads, 
             List<Quad>          templateQuads, 
             Node                dftGraph, 
             Iterator<Binding>   bindings,
+            ChangeSetSink       changes,
             Context             ctx,
             DatasetACL.aclId    aclId
     ) {
-        List<Quad> ret = new ArrayList<>();
-        
         if ( onceQuads != null && bindings.hasNext() ) {
             onceQuads = remapDefaultGraph(onceQuads, dftGraph) ;
-            onceQuads.forEach(q->deleteFromDatasetGraph(dsg, q,ret,ctx,aclId)) ;
+            onceQuads.forEach(q->deleteFromDatasetGraph(dsg, q,changes,ctx,aclId)) ;
         }
         Iterator<Quad> it = template(templateQuads, dftGraph, bindings) ;
         if ( it == null )
-            return ret;
+            return ;
         
         
-        it.forEachRemaining(q->deleteFromDatasetGraph(dsg, q,ret,ctx,aclId)) ;
-        return ret;
+        it.forEachRemaining(q->deleteFromDatasetGraph(dsg, q,changes,ctx,aclId)) ;
     }
 
-    protected static List<Quad> execInsert(
+    protected static void execInsert(
         DatasetGraph        dsg, 
         List<Quad>          quads, 
         Node                dftGraph, 
         Iterator<Binding>   bindings,
+        ChangeSetSink       changes,
         Context             ctx,
         DatasetACL.aclId    aclId
     ) {
         Pair<List<Quad>, List<Quad>> p = split(quads) ;
-        return execInsert(dsg, p.getLeft(), p.getRight(), dftGraph, bindings,ctx,aclId) ;
+        execInsert(dsg, p.getLeft(), p.getRight(), dftGraph, bindings,changes,ctx,aclId) ;
     }
     
-    protected static List<Quad>  execInsert(
+    protected static void execInsert(
         DatasetGraph        dsg, 
         List<Quad>          onceQuads, 
         List<Quad>          templateQuads, 
         Node                dftGraph, 
         Iterator<Binding>   bindings,
+        ChangeSetSink       changes,
         Context             ctx,
         DatasetACL.aclId    aclId
     ) {
-        List<Quad> ret = new ArrayList<>();
         if ( onceQuads != null && bindings.hasNext() ) {
             onceQuads = remapDefaultGraph(onceQuads, dftGraph) ;
-            onceQuads.forEach((q)->addToDatasetGraph(dsg, q,ret,ctx,aclId)) ;
+            onceQuads.forEach((q)->addToDatasetGraph(dsg, q,changes,ctx,aclId)) ;
         }
         Iterator<Quad> it = template(templateQuads, dftGraph, bindings) ;
         if ( it == null )
-            return ret ;
-        it.forEachRemaining((q)->addToDatasetGraph(dsg, q,ret,ctx,aclId)) ;
-        
-        return ret;
+            return ;
+        it.forEachRemaining((q)->addToDatasetGraph(dsg, q,changes,ctx,aclId)) ;
     }
 
     // Catch all individual adds of quads
-    private static void addToDatasetGraph(DatasetGraph datasetGraph, Quad quad,List<Quad> result,Context ctx,DatasetACL.aclId aclId) {
+    private static boolean addToDatasetGraph(DatasetGraph datasetGraph, Quad quad,ChangeSetSink changes,Context ctx,DatasetACL.aclId aclId) {
         // Check legal triple.
         if ( quad.isLegalAsData() ) { 
             checkACL(quad.getGraph().getURI(), aclId, ctx);
-            if(datasetGraph.add(quad))
-                result.add(quad);
+            if(datasetGraph.add(quad)) {
+                changes.add(quad);
+                return true;
+            }
         }
         // Else drop.
         // Log.warn(UpdateEngineWorker.class, "Bad quad as data: "+quad) ;
+        return false;
     }
 
     // Catch all individual deletes of quads
-    private static void deleteFromDatasetGraph(DatasetGraph datasetGraph, Quad quad,List<Quad> result,Context ctx,DatasetACL.aclId aclId) {
+    private static boolean deleteFromDatasetGraph(DatasetGraph datasetGraph, Quad quad,ChangeSetSink changes,Context ctx,DatasetACL.aclId aclId) {
         if ( datasetGraph instanceof DatasetGraphReadOnly )
             Log.warn(UpdateEngineWorker.class, "Read only dataset");
         
         checkACL(quad.getGraph().getURI().toString(), aclId, ctx);
         
-        if(datasetGraph.delete(quad))
-            result.add(quad);
+        if(datasetGraph.delete(quad)) {
+            changes.delete(quad);
+            return true;
+        }
+        return false;
     }
 
     protected Query elementToQuery(Element pattern) {
@@ -21,6 +21,7 @@ package org.apache.jena.sparql.modify;
 
 import java.util.List;
 
+import org.apache.jena.graph.Node;
 import org.apache.jena.sparql.core.Quad;
 
 /**
@@ -30,14 +31,31 @@ import org.apache.jena.sparql.core.Quad;
 public class UpdateResult {
     public final List<Quad> deletedTuples;
     public final List<Quad> addedTuples;
+    /**
+     * Graphs emptied by DROP, CLEAR, COPY or MOVE, or null if none. The deleted quads
+     * of these graphs are in {@link #deletedTuples} unless the execution was asked
+     * for tombstones only (see {@link ChangeSetSink#clear}).
+     */
+    public final List<Node> clearedGraphs;
+
     public UpdateResult(List<Quad> del, List<Quad> upd) {
+        this(del, upd, null);
+    }
+
+    public UpdateResult(List<Quad> del, List<Quad> upd, List<Node> cleared) {
         deletedTuples = del; // processQuadList(del, db);
         addedTuples = upd; // processQuadList(upd, db);
+        clearedGraphs = cleared;
     }
     
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
+        if (clearedGraphs != null) {
+            sb.append("Cleared graphs ");
+            sb.append(clearedGraphs);
+            sb.append(System.lineSeparator());
+        }
         sb.append("Deleted quads");
         printQuadList(deletedTuples, sb);
         sb.append(System.lineSeparator());
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.modify;
+
+import java.io.* ;
+import java.util.AbstractList ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.HashMap ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.riot.thrift.ThriftConvert ;
+import org.apache.jena.sparql.core.Quad ;
+
+/**
+ * An {@link UpdateResult} that stores the changes as dictionary-encoded columns.
+ * <p>
+ * Each distinct node is held once, in a dictionary shared by the deleted and added
+ * quads; each side is four {@code int} columns (graph, subject, predicate, object)
+ * of dictionary ids. {@link #deletedTuples} and {@link #addedTuples} are read-only
+ * views that create {@link Quad} objects only when an element is accessed; use
+ * {@link #forEachDeleted} and {@link #forEachAdded} to avoid that.
+ * <p>
+ * The binary form written by {@link #write(OutputStream)} is the dictionary
+ * (Thrift encoded RDF terms) followed by the id columns.
+ */
+public class UpdateResultColumnar extends UpdateResult {
+
+    /** Receiver of the nodes of a quad, without a {@link Quad} object. */
+    @FunctionalInterface
+    public interface QuadAction {
+        public void accept(Node g, Node s, Node p, Node o) ;
+    }
+
+    private final Dictionary dictionary ;
+    private final Columns deleted ;
+    private final Columns added ;
+
+    public UpdateResultColumnar() {
+        this(new Dictionary(), new Columns(), new Columns()) ;
+    }
+
+    private UpdateResultColumnar(Dictionary dictionary, Columns deleted, Columns added, List<Node> cleared) {
+        super(new QuadList(dictionary, deleted), new QuadList(dictionary, added), cleared) ;
+        this.dictionary = dictionary ;
+        this.deleted = deleted ;
+        this.added = added ;
+    }
+
+    private UpdateResultColumnar(Dictionary dictionary, Columns deleted, Columns added) {
+        this(dictionary, deleted, added, null) ;
+    }
+
+    /**
+     * This change set, sharing its columns, with {@link #clearedGraphs} set to
+     * {@code cleared}.
+     */
+    public UpdateResultColumnar withCleared(List<Node> cleared) {
+        return new UpdateResultColumnar(dictionary, deleted, added, cleared) ;
+    }
+
+    /** Record a deleted quad. */
+    public void delete(Quad quad) {
+        deleted.add(dictionary, quad) ;
+    }
+
+    /** Record an added quad. */
+    public void add(Quad quad) {
+        added.add(dictionary, quad) ;
+    }
+
+    public int deletedSize() {
+        return deleted.size ;
+    }
+
+    public int addedSize() {
+        return added.size ;
+    }
+
+    /** Number of distinct nodes in the change set. */
+    public int dictionarySize() {
+        return dictionary.nodes.size() ;
+    }
+
+    public void forEachDeleted(QuadAction action) {
+        deleted.forEach(dictionary, action) ;
+    }
+
+    public void forEachAdded(QuadAction action) {
+        added.forEach(dictionary, action) ;
+    }
+
+    /** Write the binary form of this change set. */
+    public void write(OutputStream output) {
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output)) ;
+            // Cleared graphs may not be in any quad; add them before writing the dictionary.
+            if ( clearedGraphs != null )
+                clearedGraphs.forEach(dictionary::id) ;
+            out.writeInt(dictionary.nodes.size()) ;
+            for ( Node n : dictionary.nodes ) {
+                byte[] bytes = ThriftConvert.termToBytes(ThriftConvert.convert(n, false)) ;
+                out.writeInt(bytes.length) ;
+                out.write(bytes) ;
+            }
+            deleted.write(out) ;
+            added.write(out) ;
+            if ( clearedGraphs == null )
+                out.writeInt(-1) ;
+            else {
+                out.writeInt(clearedGraphs.size()) ;
+                for ( Node g : clearedGraphs )
+                    out.writeInt(dictionary.id(g)) ;
+            }
+            out.flush() ;
+        } catch (IOException ex) { IO.exception(ex) ; }
+    }
+
+    /**
+     * Read a change set written by {@link #write(OutputStream)}.
+     * Only the bytes of the change set are read, so change sets written one after
+     * another to a stream can be read in turn. The stream is read directly; pass a
+     * buffered stream for speed.
+     */
+    public static UpdateResultColumnar read(InputStream input) {
+        try {
+            DataInputStream in = new DataInputStream(input) ;
+            Dictionary dictionary = new Dictionary() ;
+            int n = in.readInt() ;
+            for ( int i = 0 ; i < n ; i++ ) {
+                byte[] bytes = new byte[in.readInt()] ;
+                in.readFully(bytes) ;
+                dictionary.id(ThriftConvert.convert(ThriftConvert.termFromBytes(bytes))) ;
+            }
+            Columns deleted = Columns.read(in) ;
+            Columns added = Columns.read(in) ;
+            List<Node> cleared = null ;
+            int numCleared = in.readInt() ;
+            if ( numCleared >= 0 ) {
+                cleared = new ArrayList<>(numCleared) ;
+                for ( int i = 0 ; i < numCleared ; i++ )
+                    cleared.add(dictionary.node(in.readInt())) ;
+            }
+            return new UpdateResultColumnar(dictionary, deleted, added, cleared) ;
+        } catch (IOException ex) { IO.exception(ex) ; return null ; }
+    }
+
+    /** Node to id, id to node. */
+    private static class Dictionary {
+        private final List<Node> nodes = new ArrayList<>() ;
+        private final Map<Node, Integer> ids = new HashMap<>() ;
+
+        int id(Node node) {
+            Integer x = ids.get(node) ;
+            if ( x != null )
+                return x ;
+            int id = nodes.size() ;
+            nodes.add(node) ;
+            ids.put(node, id) ;
+            return id ;
+        }
+
+        Node node(int id) {
+            return nodes.get(id) ;
+        }
+    }
+
+    /** Four id columns, growing as quads are added. */
+    private static class Columns {
+        private static final int initialSize = 16 ;
+        private int[] g = new int[initialSize] ;
+        private int[] s = new int[initialSize] ;
+        private int[] p = new int[initialSize] ;
+        private int[] o = new int[initialSize] ;
+        private int size = 0 ;
+
+        void add(Dictionary dictionary, Quad quad) {
+            if ( size == g.length ) {
+                int len = 2 * size ;
+                g = Arrays.copyOf(g, len) ;
+                s = Arrays.copyOf(s, len) ;
+                p = Arrays.copyOf(p, len) ;
+                o = Arrays.copyOf(o, len) ;
+            }
+            g[size] = dictionary.id(quad.getGraph()) ;
+            s[size] = dictionary.id(quad.getSubject()) ;
+            p[size] = dictionary.id(quad.getPredicate()) ;
+            o[size] = dictionary.id(quad.getObject()) ;
+            size++ ;
+        }
+
+        Quad get(Dictionary dictionary, int i) {
+            return Quad.create(dictionary.node(g[i]), dictionary.node(s[i]), dictionary.node(p[i]), dictionary.node(o[i])) ;
+        }
+
+        void forEach(Dictionary dictionary, QuadAction action) {
+            for ( int i = 0 ; i < size ; i++ )
+                action.accept(dictionary.node(g[i]), dictionary.node(s[i]), dictionary.node(p[i]), dictionary.node(o[i])) ;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(size) ;
+            writeColumn(out, g, size) ;
+            writeColumn(out, s, size) ;
+            writeColumn(out, p, size) ;
+            writeColumn(out, o, size) ;
+        }
+
+        static Columns read(DataInputStream in) throws IOException {
+            Columns c = new Columns() ;
+            int size = in.readInt() ;
+            c.g = readColumn(in, size) ;
+            c.s = readColumn(in, size) ;
+            c.p = readColumn(in, size) ;
+            c.o = readColumn(in, size) ;
+            c.size = size ;
+            return c ;
+        }
+
+        private static void writeColumn(DataOutputStream out, int[] column, int size) throws IOException {
+            for ( int i = 0 ; i < size ; i++ )
+                out.writeInt(column[i]) ;
+        }
+
+        private static int[] readColumn(DataInputStream in, int size) throws IOException {
+            // Keep a non-empty array so that add() can grow it.
+            int[] column = new int[Math.max(size, initialSize)] ;
+            for ( int i = 0 ; i < size ; i++ )
+                column[i] = in.readInt() ;
+            return column ;
+        }
+    }
+
+    /** Read-only list view of one side of the change set. */
+    private static class QuadList extends AbstractList<Quad> {
+        private final Dictionary dictionary ;
+        private final Columns columns ;
+
+        QuadList(Dictionary dictionary, Columns columns) {
+            this.dictionary = dictionary ;
+            this.columns = columns ;
+        }
+
+        @Override
+        public Quad get(int index) {
+            if ( index < 0 || index >= columns.size )
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+columns.size) ;
+            return columns.get(dictionary, index) ;
+        }
+
+        @Override
+        public int size() {
+            return columns.size ;
+        }
+    }
+}
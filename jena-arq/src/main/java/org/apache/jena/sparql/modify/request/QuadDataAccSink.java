@@ -18,42 +18,32 @@
 
 package org.apache.jena.sparql.modify.request;
 
-import java.util.ArrayList;
-import java.util.List;
 import org.apache.jena.atlas.lib.Sink ;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.query.QueryParseException ;
 import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.modify.QuadSinkWithReturn ;
+import org.apache.jena.sparql.modify.UpdateResult ;
 
 /** Accumulate quads (excluding allowing variables) during parsing. */
 public class QuadDataAccSink extends QuadAccSink
 {
-    private final List<Quad>        quadList = new ArrayList<>();
-    
-    public List<Quad>  getQuadList() {
-        return quadList;
-    }    public boolean addQuad(Quad quad)
-    {
-        final boolean f = super.addQuad(quad);
-        if (f)
-            quadList.add(quad);
-        return f;
-    }
+    private final Sink<Quad> sink;
 
-    @Override
-    public boolean addTriple(Triple triple)
-    {
-        final boolean f = super.addTriple(triple);
-        if (f) {
-            final Quad q = new Quad(super.getGraph(),triple);
-            quadList.add(q);
-        }
-        return f;
-    }
-    
     public QuadDataAccSink(Sink<Quad> sink) {
         super(sink);
+        this.sink = sink;
+    }
+
+    /**
+     * The changes made, after {@link #close()}, if the destination reports them
+     * (see {@link QuadSinkWithReturn}), else null.
+     */
+    public UpdateResult getResult() {
+        if ( sink instanceof QuadSinkWithReturn )
+            return ((QuadSinkWithReturn)sink).result();
+        return null;
     }
 
     @Override
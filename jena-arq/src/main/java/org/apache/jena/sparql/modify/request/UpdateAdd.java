@@ -33,7 +33,6 @@ public class UpdateAdd extends UpdateBinaryOp
 
     @Override
     public UpdateResult visit(UpdateVisitor visitor){ 
-        visitor.visit(this) ; 
-        return null;
+        return visitor.visit(this) ; 
     }
 }
@@ -34,7 +34,6 @@ public class UpdateClear extends UpdateDropClear
     
     @Override
     public UpdateResult visit(UpdateVisitor visitor){ 
-        visitor.visit(this) ; 
-        return null;
+        return visitor.visit(this) ; 
     }
 }
@@ -39,7 +39,6 @@ public class UpdateCopy extends UpdateBinaryOp
 
     @Override
     public UpdateResult visit(UpdateVisitor visitor){ 
-        visitor.visit(this) ; 
-        return null;
+        return visitor.visit(this) ; 
     }
 }
@@ -83,8 +83,7 @@ public class UpdateCreate extends Update
 
     @Override
     public UpdateResult visit(UpdateVisitor visitor){ 
-        visitor.visit(this) ; 
-        return null;
+        return visitor.visit(this) ; 
     }
 
     @Override
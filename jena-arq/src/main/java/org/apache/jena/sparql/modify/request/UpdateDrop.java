@@ -42,7 +42,6 @@ public class UpdateDrop extends UpdateDropClear
     
     @Override
     public UpdateResult visit(UpdateVisitor visitor){ 
-        visitor.visit(this) ; 
-        return null;
+        return visitor.visit(this) ; 
     }
 }
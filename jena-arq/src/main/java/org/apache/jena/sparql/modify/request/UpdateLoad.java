@@ -88,8 +88,7 @@ public class UpdateLoad extends Update
 
     @Override
     public UpdateResult visit(UpdateVisitor visitor){ 
-        visitor.visit(this) ; 
-        return null;
+        return visitor.visit(this) ; 
     }
 
     @Override
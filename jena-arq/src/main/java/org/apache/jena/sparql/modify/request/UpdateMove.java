@@ -29,7 +29,6 @@ public class UpdateMove extends UpdateBinaryOp
 
     @Override
     public UpdateResult visit(UpdateVisitor visitor){ 
-        visitor.visit(this) ; 
-        return null;
+        return visitor.visit(this) ; 
     }
 }
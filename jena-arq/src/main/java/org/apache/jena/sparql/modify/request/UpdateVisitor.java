@@ -18,20 +18,19 @@
 
 package org.apache.jena.sparql.modify.request;
 
-import org.apache.jena.sparql.modify.UpdateResult;
 import org.apache.jena.sparql.modify.UpdateResult;
 
 public interface UpdateVisitor
 {
-    public void visit(UpdateDrop update) ;
-    public void visit(UpdateClear update) ;
+    public UpdateResult visit(UpdateDrop update) ;
+    public UpdateResult visit(UpdateClear update) ;
     
-    public void visit(UpdateCreate update) ;
-    public void visit(UpdateLoad update) ;
+    public UpdateResult visit(UpdateCreate update) ;
+    public UpdateResult visit(UpdateLoad update) ;
     
-    public void visit(UpdateAdd update) ;
-    public void visit(UpdateCopy update) ;
-    public void visit(UpdateMove update) ;
+    public UpdateResult visit(UpdateAdd update) ;
+    public UpdateResult visit(UpdateCopy update) ;
+    public UpdateResult visit(UpdateMove update) ;
     
     public UpdateResult visit(UpdateDataInsert update) ;
     public UpdateResult visit(UpdateDataDelete update) ;
@@ -23,15 +23,15 @@ import org.apache.jena.sparql.modify.UpdateResult;
 
 public class UpdateVisitorBase implements UpdateVisitor 
 {
-    @Override public void visit(UpdateDrop update)        {}
-    @Override public void visit(UpdateClear update)       {}
+    @Override public UpdateResult visit(UpdateDrop update)        { return null; }
+    @Override public UpdateResult visit(UpdateClear update)       { return null; }
     
-    @Override public void visit(UpdateCreate update)      {}
-    @Override public void visit(UpdateLoad update)        {}
+    @Override public UpdateResult visit(UpdateCreate update)      { return null; }
+    @Override public UpdateResult visit(UpdateLoad update)        { return null; }
     
-    @Override public void visit(UpdateAdd update)         {}
-    @Override public void visit(UpdateCopy update)        {}
-    @Override public void visit(UpdateMove update)        {}
+    @Override public UpdateResult visit(UpdateAdd update)         { return null; }
+    @Override public UpdateResult visit(UpdateCopy update)        { return null; }
+    @Override public UpdateResult visit(UpdateMove update)        { return null; }
     
     @Override public UpdateResult visit(UpdateDataInsert update)  {return null;}
     @Override public UpdateResult visit(UpdateDataDelete update)  {return null; }
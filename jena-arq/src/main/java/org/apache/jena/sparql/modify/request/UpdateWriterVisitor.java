@@ -72,15 +72,15 @@ public class UpdateWriterVisitor implements UpdateVisitor {
     }
 
     @Override
-    public void visit(UpdateDrop update)
-    { visitDropClear("DROP", update) ; }
+    public UpdateResult visit(UpdateDrop update)
+    { visitDropClear("DROP", update) ; return null; }
 
     @Override
-    public void visit(UpdateClear update)
-    { visitDropClear("CLEAR", update) ; }
+    public UpdateResult visit(UpdateClear update)
+    { visitDropClear("CLEAR", update) ; return null; }
 
     @Override
-    public void visit(UpdateCreate update) {
+    public UpdateResult visit(UpdateCreate update) {
         out.ensureStartOfLine();
         out.print("CREATE");
         out.print(" ");
@@ -90,10 +90,11 @@ public class UpdateWriterVisitor implements UpdateVisitor {
         out.print(" ");
         String s = FmtUtils.stringForNode(update.getGraph(), sCxt);
         out.print(s);
+        return null;
     }
 
     @Override
-    public void visit(UpdateLoad update) {
+    public UpdateResult visit(UpdateLoad update) {
         out.ensureStartOfLine();
         out.print("LOAD");
         out.print(" ");
@@ -106,6 +107,7 @@ public class UpdateWriterVisitor implements UpdateVisitor {
             out.print(" INTO GRAPH ");
             output(update.getDest());
         }
+        return null;
     }
 
     protected void outputStringAsURI(String uriStr) {
@@ -137,16 +139,16 @@ public class UpdateWriterVisitor implements UpdateVisitor {
     }
 
     @Override
-    public void visit(UpdateAdd update)
-    { printUpdate2(update, "ADD") ; }
+    public UpdateResult visit(UpdateAdd update)
+    { printUpdate2(update, "ADD") ; return null; }
 
     @Override
-    public void visit(UpdateCopy update)
-    { printUpdate2(update, "COPY") ; }
+    public UpdateResult visit(UpdateCopy update)
+    { printUpdate2(update, "COPY") ; return null; }
 
     @Override
-    public void visit(UpdateMove update)
-    { printUpdate2(update, "MOVE") ; }
+    public UpdateResult visit(UpdateMove update)
+    { printUpdate2(update, "MOVE") ; return null; }
 
     @Override
     public UpdateResult visit(UpdateDataInsert update) {
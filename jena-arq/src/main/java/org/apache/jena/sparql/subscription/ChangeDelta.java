@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.subscription;
+
+import java.util.Collections ;
+import java.util.LinkedHashSet ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.modify.UpdateResult ;
+
+/**
+ * The net change to a dataset made by a sequence of {@link UpdateResult UpdateResults}:
+ * quads that were absent before and are present after ({@link #added()}), and quads that
+ * were present before and are absent after ({@link #deleted()}).
+ * <p>
+ * A quad deleted and then added again (or the reverse) is not a change.
+ * The default graph is always named by {@link Quad#defaultGraphIRI}.
+ */
+public class ChangeDelta {
+    private final Set<Quad> added = new LinkedHashSet<>() ;
+    private final Set<Quad> deleted = new LinkedHashSet<>() ;
+
+    public static ChangeDelta create(List<UpdateResult> results) {
+        ChangeDelta delta = new ChangeDelta() ;
+        if ( results != null )
+            results.forEach(delta::add) ;
+        return delta ;
+    }
+
+    /** Apply the next {@link UpdateResult}, in execution order. */
+    public void add(UpdateResult result) {
+        if ( result == null )
+            return ;
+        if ( result.deletedTuples != null ) {
+            for ( Quad q : result.deletedTuples ) {
+                q = normalize(q) ;
+                if ( ! added.remove(q) )
+                    deleted.add(q) ;
+            }
+        }
+        if ( result.addedTuples != null ) {
+            for ( Quad q : result.addedTuples ) {
+                q = normalize(q) ;
+                if ( ! deleted.remove(q) )
+                    added.add(q) ;
+            }
+        }
+    }
+
+    public Set<Quad> added() {
+        return Collections.unmodifiableSet(added) ;
+    }
+
+    public Set<Quad> deleted() {
+        return Collections.unmodifiableSet(deleted) ;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && deleted.isEmpty() ;
+    }
+
+    /** The quad with the default graph, if any, named by {@link Quad#defaultGraphIRI}. */
+    public static Quad normalize(Quad quad) {
+        Node g = quad.getGraph() ;
+        if ( g == null || ( Quad.isDefaultGraph(g) && ! Quad.defaultGraphIRI.equals(g) ) )
+            return Quad.create(Quad.defaultGraphIRI, quad.asTriple()) ;
+        return quad ;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeDelta[added="+added.size()+", deleted="+deleted.size()+"]" ;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.subscription;
+
+import java.util.ArrayList ;
+import java.util.HashMap ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.query.Query ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+
+/**
+ * A SELECT query registered with a {@link SubscriptionRegistry}, with its current results.
+ * <p>
+ * The results are kept as a multiset of bindings. Each {@link ChangeDelta} is turned into
+ * bindings gained and lost, which are applied to the results and sent to the
+ * {@link SubscriptionListener}. For a query with DISTINCT, only bindings that appear in,
+ * or disappear from, the results are sent.
+ */
+public abstract class Subscription {
+    private final Query query ;
+    private final SubscriptionListener listener ;
+    private final boolean distinct ;
+    private final Map<Binding, Integer> results = new HashMap<>() ;
+
+    protected Subscription(Query query, SubscriptionListener listener, boolean distinct) {
+        this.query = query ;
+        this.listener = listener ;
+        this.distinct = distinct ;
+    }
+
+    public Query getQuery() {
+        return query ;
+    }
+
+    public SubscriptionListener getListener() {
+        return listener ;
+    }
+
+    /** Whether the results are maintained from the changes, without re-running the query. */
+    public abstract boolean isIncremental() ;
+
+    /** The current results. */
+    public List<Binding> getResults() {
+        List<Binding> x = new ArrayList<>() ;
+        results.forEach((b, n) -> {
+            int k = distinct ? 1 : n ;
+            for ( int i = 0 ; i < k ; i++ )
+                x.add(b) ;
+        }) ;
+        return x ;
+    }
+
+    /** Evaluate the results for the current state of the dataset. */
+    protected abstract void initial(DatasetGraph dsg, List<Binding> acc) ;
+
+    /**
+     * Calculate the bindings gained ({@code plus}) and lost ({@code minus}), as a multiset,
+     * for a change to the dataset. The dataset is in the state after the change.
+     */
+    protected abstract void delta(DatasetGraph dsg, ChangeDelta delta, List<Binding> plus, List<Binding> minus) ;
+
+    /** Current results, as a multiset; for subclasses that compare with a re-evaluation. */
+    protected Map<Binding, Integer> counts() {
+        return results ;
+    }
+
+    final void start(DatasetGraph dsg) {
+        List<Binding> acc = new ArrayList<>() ;
+        initial(dsg, acc) ;
+        results.clear() ;
+        acc.forEach(b -> results.merge(b, 1, Integer::sum)) ;
+    }
+
+    final void process(DatasetGraph dsg, ChangeDelta delta) {
+        List<Binding> plus = new ArrayList<>() ;
+        List<Binding> minus = new ArrayList<>() ;
+        delta(dsg, delta, plus, minus) ;
+        if ( plus.isEmpty() && minus.isEmpty() )
+            return ;
+
+        // Net change per binding.
+        Map<Binding, Integer> change = new HashMap<>() ;
+        plus.forEach(b -> change.merge(b, 1, Integer::sum)) ;
+        minus.forEach(b -> change.merge(b, -1, Integer::sum)) ;
+
+        List<Binding> added = new ArrayList<>() ;
+        List<Binding> removed = new ArrayList<>() ;
+        change.forEach((b, n) -> {
+            if ( n == 0 )
+                return ;
+            int before = results.getOrDefault(b, 0) ;
+            int after = Math.max(0, before + n) ;
+            if ( after == 0 )
+                results.remove(b) ;
+            else
+                results.put(b, after) ;
+            if ( distinct ) {
+                if ( before == 0 && after > 0 )
+                    added.add(b) ;
+                else if ( before > 0 && after == 0 )
+                    removed.add(b) ;
+            } else {
+                List<Binding> acc = ( after > before ) ? added : removed ;
+                for ( int i = Math.abs(after - before) ; i > 0 ; i-- )
+                    acc.add(b) ;
+            }
+        }) ;
+        if ( ! added.isEmpty() || ! removed.isEmpty() )
+            listener.changes(this, added, removed) ;
+    }
+
+    @Override
+    public String toString() {
+        return "Subscription["+query.toString().replace('\n', ' ')+"]" ;
+    }
+}
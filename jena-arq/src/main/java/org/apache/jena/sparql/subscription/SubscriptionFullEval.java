@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.subscription;
+
+import java.util.HashMap ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.query.Query ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.exec.QueryExec ;
+import org.apache.jena.sparql.exec.RowSet ;
+
+/**
+ * Subscription for a query that can not be maintained incrementally:
+ * the query is run again after each change and the results compared.
+ */
+class SubscriptionFullEval extends Subscription {
+
+    SubscriptionFullEval(Query query, SubscriptionListener listener) {
+        super(query, listener, false) ;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return false ;
+    }
+
+    @Override
+    protected void initial(DatasetGraph dsg, List<Binding> acc) {
+        try ( QueryExec qExec = QueryExec.dataset(dsg).query(getQuery()).build() ) {
+            RowSet rowSet = qExec.select() ;
+            rowSet.forEachRemaining(acc::add) ;
+        }
+    }
+
+    @Override
+    protected void delta(DatasetGraph dsg, ChangeDelta delta, List<Binding> plus, List<Binding> minus) {
+        Map<Binding, Integer> now = new HashMap<>() ;
+        try ( QueryExec qExec = QueryExec.dataset(dsg).query(getQuery()).build() ) {
+            qExec.select().forEachRemaining(b -> now.merge(b, 1, Integer::sum)) ;
+        }
+        Map<Binding, Integer> before = counts() ;
+        now.forEach((b, n) -> {
+            for ( int i = n - before.getOrDefault(b, 0) ; i > 0 ; i-- )
+                plus.add(b) ;
+        }) ;
+        before.forEach((b, n) -> {
+            for ( int i = n - now.getOrDefault(b, 0) ; i > 0 ; i-- )
+                minus.add(b) ;
+        }) ;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.subscription;
+
+import java.util.* ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.query.Query ;
+import org.apache.jena.sparql.algebra.Algebra ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.op.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.core.Substitute ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingBuilder ;
+import org.apache.jena.sparql.engine.binding.BindingRoot ;
+import org.apache.jena.sparql.engine.main.QC ;
+import org.apache.jena.sparql.expr.ExprList ;
+
+/**
+ * Subscription for a query that is a basic graph pattern (of triple and quad patterns)
+ * with optional FILTERs, projection and DISTINCT/REDUCED.
+ * <p>
+ * Changes are calculated with the delta rule over the join of the patterns: a
+ * solution is gained when at least one of its quads is in the added quads of the
+ * change and lost when at least one is in the deleted quads. To produce each solution
+ * once, the delta quad is matched by the first pattern, in pattern order, that uses a
+ * delta quad; earlier patterns match only quads that are not in the delta.
+ * <ul>
+ * <li>Gained: pattern {@code i} matches an added quad; patterns before {@code i} match
+ * the new state less the added quads; patterns after {@code i} match the new state.
+ * <li>Lost: pattern {@code i} matches a deleted quad; patterns before {@code i} match
+ * the new state less the added quads; patterns after {@code i} match the old state,
+ * that is, the new state less the added quads plus the deleted quads.
+ * </ul>
+ */
+class SubscriptionIncremental extends Subscription {
+    private final Op pattern ;
+    private final List<Quad> quadPatterns ;
+    private final ExprList filters ;
+    private final List<Var> vars ;
+
+    private SubscriptionIncremental(Query query, SubscriptionListener listener, boolean distinct,
+                                    Op pattern, List<Quad> quadPatterns, ExprList filters, List<Var> vars) {
+        super(query, listener, distinct) ;
+        this.pattern = pattern ;
+        this.quadPatterns = quadPatterns ;
+        this.filters = filters ;
+        this.vars = vars ;
+    }
+
+    /** Create an incremental subscription, or return null if the query is not supported. */
+    static SubscriptionIncremental create(Query query, SubscriptionListener listener) {
+        Op op = Algebra.compile(query) ;
+        boolean distinct = false ;
+        if ( op instanceof OpDistinct || op instanceof OpReduced ) {
+            distinct = true ;
+            op = ((Op1)op).getSubOp() ;
+        }
+        List<Var> vars = query.getProjectVars() ;
+        if ( op instanceof OpProject ) {
+            vars = ((OpProject)op).getVars() ;
+            op = ((OpProject)op).getSubOp() ;
+        }
+        List<Quad> quadPatterns = new ArrayList<>() ;
+        ExprList filters = new ExprList() ;
+        if ( ! collect(Algebra.toQuadForm(op), quadPatterns, filters) )
+            return null ;
+        if ( quadPatterns.isEmpty() )
+            return null ;
+        return new SubscriptionIncremental(query, listener, distinct, op, quadPatterns, filters, vars) ;
+    }
+
+    /** Flatten to quad patterns and filters; return false if that is not possible. */
+    private static boolean collect(Op op, List<Quad> quadPatterns, ExprList filters) {
+        if ( op instanceof OpQuadPattern ) {
+            for ( Quad q : ((OpQuadPattern)op).getPattern() ) {
+                if ( q.isUnionGraph() )
+                    return false ;
+                quadPatterns.add(q) ;
+            }
+            return true ;
+        }
+        if ( op instanceof OpJoin ) {
+            OpJoin opJoin = (OpJoin)op ;
+            return collect(opJoin.getLeft(), quadPatterns, filters) && collect(opJoin.getRight(), quadPatterns, filters) ;
+        }
+        if ( op instanceof OpSequence ) {
+            for ( Op sub : ((OpSequence)op).getElements() ) {
+                if ( ! collect(sub, quadPatterns, filters) )
+                    return false ;
+            }
+            return true ;
+        }
+        if ( op instanceof OpTable )
+            return ((OpTable)op).isJoinIdentity() ;
+        if ( op instanceof OpFilter ) {
+            // A filter can be applied to the whole join only if the patterns it
+            // applies to bind all its variables.
+            OpFilter opFilter = (OpFilter)op ;
+            List<Quad> inner = new ArrayList<>() ;
+            if ( ! collect(opFilter.getSubOp(), inner, filters) )
+                return false ;
+            Set<Var> patternVars = new HashSet<>() ;
+            inner.forEach(q -> addVars(patternVars, q)) ;
+            if ( ! patternVars.containsAll(opFilter.getExprs().getVarsMentioned()) )
+                return false ;
+            quadPatterns.addAll(inner) ;
+            opFilter.getExprs().forEach(filters::add) ;
+            return true ;
+        }
+        return false ;
+    }
+
+    private static void addVars(Set<Var> acc, Quad q) {
+        for ( Node n : new Node[] {q.getGraph(), q.getSubject(), q.getPredicate(), q.getObject()} ) {
+            if ( Var.isVar(n) )
+                acc.add(Var.alloc(n)) ;
+        }
+    }
+
+    /** The quad patterns of the query, default graph patterns named by {@link Quad#defaultGraphNodeGenerated}. */
+    List<Quad> getQuadPatterns() {
+        return Collections.unmodifiableList(quadPatterns) ;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return true ;
+    }
+
+    @Override
+    protected void initial(DatasetGraph dsg, List<Binding> acc) {
+        QueryIterator qIter = Algebra.exec(pattern, dsg) ;
+        try {
+            qIter.forEachRemaining(b -> acc.add(project(b))) ;
+        } finally { qIter.close() ; }
+    }
+
+    @Override
+    protected void delta(DatasetGraph dsg, ChangeDelta delta, List<Binding> plus, List<Binding> minus) {
+        ExecutionContext execCxt = new ExecutionContext(ARQ.getContext().copy(), dsg.getDefaultGraph(), dsg, QC.getFactory(ARQ.getContext())) ;
+        for ( int i = 0 ; i < quadPatterns.size() ; i++ ) {
+            Quad qp = quadPatterns.get(i) ;
+            for ( Quad q : delta.added() ) {
+                Binding b = match(qp, q, BindingRoot.create()) ;
+                if ( b != null )
+                    join(dsg, delta, i, false, b, remaining(i), plus, execCxt) ;
+            }
+            for ( Quad q : delta.deleted() ) {
+                Binding b = match(qp, q, BindingRoot.create()) ;
+                if ( b != null )
+                    join(dsg, delta, i, true, b, remaining(i), minus, execCxt) ;
+            }
+        }
+    }
+
+    private List<Integer> remaining(int i) {
+        List<Integer> x = new ArrayList<>(quadPatterns.size()) ;
+        for ( int j = 0 ; j < quadPatterns.size() ; j++ ) {
+            if ( j != i )
+                x.add(j) ;
+        }
+        return x ;
+    }
+
+    /**
+     * Extend the binding with matches of the remaining patterns.
+     * {@code deltaIdx} is the pattern matched to the delta quad; {@code lost} is
+     * whether this is the calculation of lost solutions.
+     */
+    private void join(DatasetGraph dsg, ChangeDelta delta, int deltaIdx, boolean lost,
+                      Binding binding, List<Integer> remaining, List<Binding> acc, ExecutionContext execCxt) {
+        if ( remaining.isEmpty() ) {
+            if ( filters.isSatisfied(binding, execCxt) )
+                acc.add(project(binding)) ;
+            return ;
+        }
+        // Next, the pattern with fewest variables after substitution.
+        int idx = -1 ;
+        Quad next = null ;
+        int best = Integer.MAX_VALUE ;
+        for ( int j : remaining ) {
+            Quad q = Substitute.substitute(quadPatterns.get(j), binding) ;
+            int n = countVars(q) ;
+            if ( n < best ) {
+                best = n ;
+                idx = j ;
+                next = q ;
+            }
+        }
+        List<Integer> rest = new ArrayList<>(remaining) ;
+        rest.remove(Integer.valueOf(idx)) ;
+
+        boolean excludeAdded = lost || idx < deltaIdx ;
+        boolean includeDeleted = lost && idx > deltaIdx ;
+        Iterator<Quad> iter = find(dsg, next) ;
+        try {
+            while ( iter.hasNext() ) {
+                Quad q = iter.next() ;
+                if ( excludeAdded && delta.added().contains(ChangeDelta.normalize(q)) )
+                    continue ;
+                Binding b = match(next, q, binding) ;
+                if ( b != null )
+                    join(dsg, delta, deltaIdx, lost, b, rest, acc, execCxt) ;
+            }
+        } finally { Iter.close(iter) ; }
+        if ( includeDeleted ) {
+            for ( Quad q : delta.deleted() ) {
+                Binding b = match(next, q, binding) ;
+                if ( b != null )
+                    join(dsg, delta, deltaIdx, lost, b, rest, acc, execCxt) ;
+            }
+        }
+    }
+
+    private static int countVars(Quad q) {
+        int n = 0 ;
+        if ( Var.isVar(q.getGraph()) )     n++ ;
+        if ( Var.isVar(q.getSubject()) )   n++ ;
+        if ( Var.isVar(q.getPredicate()) ) n++ ;
+        if ( Var.isVar(q.getObject()) )    n++ ;
+        return n ;
+    }
+
+    private static Iterator<Quad> find(DatasetGraph dsg, Quad pattern) {
+        Node g = pattern.getGraph() ;
+        Node s = any(pattern.getSubject()) ;
+        Node p = any(pattern.getPredicate()) ;
+        Node o = any(pattern.getObject()) ;
+        if ( Quad.isDefaultGraph(g) )
+            return dsg.find(Quad.defaultGraphIRI, s, p, o) ;
+        if ( Var.isVar(g) )
+            return dsg.findNG(Node.ANY, s, p, o) ;
+        return dsg.find(g, s, p, o) ;
+    }
+
+    private static Node any(Node n) {
+        return Var.isVar(n) ? Node.ANY : n ;
+    }
+
+    /** Match a quad to a quad pattern, extending the binding; return null for no match. */
+    static Binding match(Quad pattern, Quad quad, Binding parent) {
+        BindingBuilder builder = Binding.builder(parent) ;
+        Node pg = pattern.getGraph() ;
+        Node g = quad.getGraph() ;
+        if ( Quad.isDefaultGraph(pg) || Quad.isDefaultGraph(g) ) {
+            if ( ! ( Quad.isDefaultGraph(pg) && Quad.isDefaultGraph(g) ) )
+                return null ;
+        } else if ( ! match(pg, g, builder) )
+            return null ;
+        if ( ! match(pattern.getSubject(), quad.getSubject(), builder) )
+            return null ;
+        if ( ! match(pattern.getPredicate(), quad.getPredicate(), builder) )
+            return null ;
+        if ( ! match(pattern.getObject(), quad.getObject(), builder) )
+            return null ;
+        return builder.build() ;
+    }
+
+    private static boolean match(Node patternNode, Node node, BindingBuilder builder) {
+        if ( ! Var.isVar(patternNode) )
+            return patternNode.equals(node) ;
+        Var v = Var.alloc(patternNode) ;
+        Node x = builder.get(v) ;
+        if ( x == null ) {
+            builder.add(v, node) ;
+            return true ;
+        }
+        return x.equals(node) ;
+    }
+
+    private Binding project(Binding binding) {
+        BindingBuilder builder = Binding.builder() ;
+        for ( Var v : vars ) {
+            Node n = binding.get(v) ;
+            if ( n != null )
+                builder.add(v, n) ;
+        }
+        return builder.build() ;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.subscription;
+
+import java.util.* ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.modify.UpdateResult ;
+
+/**
+ * Index of subscriptions by the constant terms of their quad patterns, to find the
+ * subscriptions that a change can affect without evaluating each of them.
+ * <p>
+ * Each quad pattern is entered under the positions (G, S, P, O) that are constants
+ * and the terms at those positions. A changed quad is looked up once per combination of
+ * constant positions in use (at most 16), so finding the candidates is linear in the
+ * number of changed quads, not in the number of subscriptions.
+ * <p>
+ * This is a conservative filter: a candidate may still not change. Subscriptions that are
+ * not maintained incrementally are always candidates.
+ */
+public class SubscriptionIndex {
+    private static final int G = 1, S = 2, P = 4, O = 8 ;
+
+    // Mask of constant positions -> constant terms -> subscriptions.
+    private final Map<Integer, Map<List<Node>, Set<Subscription>>> index = new HashMap<>() ;
+    private final Map<Subscription, List<Entry>> entries = new HashMap<>() ;
+    private final Set<Subscription> always = new LinkedHashSet<>() ;
+
+    private static class Entry {
+        final int mask ;
+        final List<Node> key ;
+        Entry(int mask, List<Node> key) { this.mask = mask ; this.key = key ; }
+    }
+
+    public void add(Subscription subscription) {
+        if ( ! ( subscription instanceof SubscriptionIncremental ) ) {
+            always.add(subscription) ;
+            return ;
+        }
+        List<Entry> acc = new ArrayList<>() ;
+        for ( Quad qp : ((SubscriptionIncremental)subscription).getQuadPatterns() ) {
+            int mask = mask(qp) ;
+            List<Node> key = key(mask, qp) ;
+            index.computeIfAbsent(mask, m -> new HashMap<>())
+                 .computeIfAbsent(key, k -> new LinkedHashSet<>())
+                 .add(subscription) ;
+            acc.add(new Entry(mask, key)) ;
+        }
+        entries.put(subscription, acc) ;
+    }
+
+    public void remove(Subscription subscription) {
+        always.remove(subscription) ;
+        List<Entry> acc = entries.remove(subscription) ;
+        if ( acc == null )
+            return ;
+        for ( Entry e : acc ) {
+            Map<List<Node>, Set<Subscription>> map = index.get(e.mask) ;
+            if ( map == null )
+                continue ;
+            Set<Subscription> subs = map.get(e.key) ;
+            if ( subs == null )
+                continue ;
+            subs.remove(subscription) ;
+            if ( subs.isEmpty() ) {
+                map.remove(e.key) ;
+                if ( map.isEmpty() )
+                    index.remove(e.mask) ;
+            }
+        }
+    }
+
+    /** The subscriptions that may be affected by the change. */
+    public Set<Subscription> candidates(ChangeDelta delta) {
+        Set<Subscription> acc = new LinkedHashSet<>(always) ;
+        delta.added().forEach(q -> candidates(q, acc)) ;
+        delta.deleted().forEach(q -> candidates(q, acc)) ;
+        return acc ;
+    }
+
+    /** The subscriptions that may be affected by the changes of one update operation. */
+    public Set<Subscription> candidates(UpdateResult result) {
+        Set<Subscription> acc = new LinkedHashSet<>(always) ;
+        if ( result.deletedTuples != null )
+            result.deletedTuples.forEach(q -> candidates(ChangeDelta.normalize(q), acc)) ;
+        if ( result.addedTuples != null )
+            result.addedTuples.forEach(q -> candidates(ChangeDelta.normalize(q), acc)) ;
+        return acc ;
+    }
+
+    private void candidates(Quad quad, Set<Subscription> acc) {
+        index.forEach((mask, map) -> {
+            Set<Subscription> subs = map.get(key(mask, quad)) ;
+            if ( subs != null )
+                acc.addAll(subs) ;
+        }) ;
+    }
+
+    private static int mask(Quad qp) {
+        int mask = 0 ;
+        if ( ! Var.isVar(qp.getGraph()) )     mask |= G ;
+        if ( ! Var.isVar(qp.getSubject()) )   mask |= S ;
+        if ( ! Var.isVar(qp.getPredicate()) ) mask |= P ;
+        if ( ! Var.isVar(qp.getObject()) )    mask |= O ;
+        return mask ;
+    }
+
+    /** The terms at the positions of the mask; quads are normalized as in {@link ChangeDelta}. */
+    private static List<Node> key(int mask, Quad quad) {
+        List<Node> key = new ArrayList<>(4) ;
+        if ( ( mask & G ) != 0 ) {
+            Node g = quad.getGraph() ;
+            key.add(Quad.isDefaultGraph(g) ? Quad.defaultGraphIRI : g) ;
+        }
+        if ( ( mask & S ) != 0 ) key.add(quad.getSubject()) ;
+        if ( ( mask & P ) != 0 ) key.add(quad.getPredicate()) ;
+        if ( ( mask & O ) != 0 ) key.add(quad.getObject()) ;
+        return key ;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.subscription;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.query.Query ;
+import org.apache.jena.query.QueryException ;
+import org.apache.jena.query.QueryFactory ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.modify.UpdateResult ;
+import org.apache.jena.system.Txn ;
+
+/**
+ * Registry of SELECT queries over a dataset whose results are kept up to date from the
+ * changes reported by SPARQL Update ({@code List<UpdateResult>}).
+ * <p>
+ * Queries that are a basic graph pattern, with optional FILTERs, projection and
+ * DISTINCT, are maintained incrementally from the changed quads. Other queries are
+ * re-run after each change. Only the subscriptions that a {@link SubscriptionIndex}
+ * finds for the changed quads are evaluated.
+ * <p>
+ * {@link #process} must see the dataset in the state after the update; call it in the
+ * transaction that executed the update, after execution and before commit, or with no
+ * other update in between.
+ */
+public class SubscriptionRegistry {
+    private final DatasetGraph dsg ;
+    private final List<Subscription> subscriptions = new ArrayList<>() ;
+    private final SubscriptionIndex index = new SubscriptionIndex() ;
+
+    public SubscriptionRegistry(DatasetGraph dsg) {
+        this.dsg = dsg ;
+    }
+
+    public DatasetGraph getDataset() {
+        return dsg ;
+    }
+
+    public Subscription register(String queryString, SubscriptionListener listener) {
+        return register(QueryFactory.create(queryString), listener) ;
+    }
+
+    public synchronized Subscription register(Query query, SubscriptionListener listener) {
+        if ( ! query.isSelectType() )
+            throw new QueryException("Subscription: not a SELECT query") ;
+        Subscription sub = SubscriptionIncremental.create(query, listener) ;
+        if ( sub == null )
+            sub = new SubscriptionFullEval(query, listener) ;
+        Subscription sub2 = sub ;
+        Txn.executeRead(dsg, ()->sub2.start(dsg)) ;
+        subscriptions.add(sub) ;
+        index.add(sub) ;
+        return sub ;
+    }
+
+    public synchronized boolean unregister(Subscription subscription) {
+        index.remove(subscription) ;
+        return subscriptions.remove(subscription) ;
+    }
+
+    public synchronized List<Subscription> getSubscriptions() {
+        return new ArrayList<>(subscriptions) ;
+    }
+
+    public synchronized int size() {
+        return subscriptions.size() ;
+    }
+
+    /** Process the results of one update request. */
+    public void process(List<UpdateResult> results) {
+        process(ChangeDelta.create(results)) ;
+    }
+
+    public synchronized void process(ChangeDelta delta) {
+        if ( delta.isEmpty() || subscriptions.isEmpty() )
+            return ;
+        Set<Subscription> candidates = index.candidates(delta) ;
+        if ( candidates.isEmpty() )
+            return ;
+        Txn.executeRead(dsg, ()->{
+            for ( Subscription sub : candidates )
+                sub.process(dsg, delta) ;
+        }) ;
+    }
+}
@@ -104,38 +104,45 @@ public class UpdateTransformOps {
         }
 
         @Override
-        public void visit(UpdateDrop update) {
+        public UpdateResult visit(UpdateDrop update) {
             result = update ;
+            return null;
         }
 
         @Override
-        public void visit(UpdateClear update) {
+        public UpdateResult visit(UpdateClear update) {
             result = update ;
+            return null;
         }
 
         @Override
-        public void visit(UpdateCreate update) {
+        public UpdateResult visit(UpdateCreate update) {
             result = update ;
+            return null;
         }
 
         @Override
-        public void visit(UpdateLoad update) {
+        public UpdateResult visit(UpdateLoad update) {
             result = update ;
+            return null;
         }
 
         @Override
-        public void visit(UpdateAdd update) {
+        public UpdateResult visit(UpdateAdd update) {
             result = update ;
+            return null;
         }
 
         @Override
-        public void visit(UpdateCopy update) {
+        public UpdateResult visit(UpdateCopy update) {
             result = update ;
+            return null;
         }
 
         @Override
-        public void visit(UpdateMove update) {
+        public UpdateResult visit(UpdateMove update) {
             result = update ;
+            return null;
         }
 
         @Override
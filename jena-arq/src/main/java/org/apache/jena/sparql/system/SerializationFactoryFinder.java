@@ -23,10 +23,18 @@ import java.io.OutputStream ;
 import java.util.Iterator ;
 
 import org.apache.jena.atlas.data.SerializationFactory ;
+import org.apache.jena.atlas.iterator.IteratorSlotted ;
 import org.apache.jena.atlas.lib.Sink ;
+import org.apache.jena.riot.thrift.ThriftConvert ;
+import org.apache.jena.riot.thrift.TRDF ;
+import org.apache.jena.riot.thrift.wire.RDF_Quad ;
+import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.binding.BindingInputStream ;
 import org.apache.jena.sparql.engine.binding.BindingOutputStream ;
+import org.apache.thrift.TException ;
+import org.apache.thrift.protocol.TProtocol ;
+import org.apache.thrift.transport.TTransportException ;
 
 public class SerializationFactoryFinder {
     public static SerializationFactory<Binding> bindingSerializationFactory() {
@@ -42,4 +50,55 @@ public class SerializationFactoryFinder {
             }
         };
     }
+
+    /**
+     * Serialization of quads, using the Thrift encoding of RDF terms.
+     * Quads are always written with their graph node, including the default graph
+     * nodes, so that they read back as the same quad.
+     */
+    public static SerializationFactory<Quad> quadSerializationFactory() {
+        return new SerializationFactory<Quad>() {
+            @Override
+            public Sink<Quad> createSerializer(OutputStream out) {
+                TProtocol protocol = TRDF.protocol(out) ;
+                return new Sink<Quad>() {
+                    @Override
+                    public boolean send(Quad quad) {
+                        RDF_Quad rq = ThriftConvert.convert(quad, false) ;
+                        try { rq.write(protocol) ; }
+                        catch (TException ex) { TRDF.exception(ex) ; }
+                        return true ;
+                    }
+
+                    @Override
+                    public void flush() { TRDF.flush(protocol) ; }
+
+                    @Override
+                    public void close() { TRDF.flush(protocol) ; }
+                } ;
+            }
+
+            @Override
+            public Iterator<Quad> createDeserializer(InputStream in) {
+                TProtocol protocol = TRDF.protocol(in) ;
+                return new IteratorSlotted<Quad>() {
+                    @Override
+                    protected Quad moveToNext() {
+                        RDF_Quad rq = new RDF_Quad() ;
+                        try { rq.read(protocol) ; }
+                        catch (TTransportException ex) {
+                            if ( ex.getType() == TTransportException.END_OF_FILE )
+                                return null ;
+                            TRDF.exception(ex) ;
+                        }
+                        catch (TException ex) { TRDF.exception(ex) ; }
+                        return ThriftConvert.convert(rq) ;
+                    }
+
+                    @Override
+                    protected boolean hasMore() { return true ; }
+                } ;
+            }
+        };
+    }
 }
@@ -411,9 +411,25 @@ public class UpdateAction
      * @param syntax       The update language syntax
      */
     public static List<UpdateResult>parseExecute(UsingList usingList, DatasetGraph dataset, InputStream input, Binding inputBinding, String baseURI, Syntax syntax)
+    {
+        return parseExecute(usingList, dataset, input, inputBinding, baseURI, syntax, null) ;
+    }
+
+    /**
+     * Parse update operations into a DatasetGraph by parsing from an InputStream.
+     * @param usingList    A list of USING or USING NAMED statements that be added to all {@link UpdateWithUsing} queries
+     * @param dataset      The dataset to apply the changes to
+     * @param input        The source of the update request (must be UTF-8).
+     * @param inputBinding Initial binding to be applied to Update operations that can apply an initial binding
+     *                     (i.e. UpdateDeleteWhere, UpdateModify).  May be <code>null</code>
+     * @param baseURI      The base URI for resolving relative URIs (may be <code>null</code>)
+     * @param syntax       The update language syntax
+     * @param context      Execution context (may be <code>null</code>)
+     */
+    public static List<UpdateResult>parseExecute(UsingList usingList, DatasetGraph dataset, InputStream input, Binding inputBinding, String baseURI, Syntax syntax, Context context)
     {
         @SuppressWarnings("deprecation")
-        UpdateProcessorStreaming uProc = UpdateExecutionFactory.createStreaming(dataset, inputBinding) ;
+        UpdateProcessorStreaming uProc = UpdateExecutionFactory.createStreaming(dataset, inputBinding, context) ;
         if (uProc == null)
             throw new ARQException("No suitable update procesors are registered/able to execute your updates");
 
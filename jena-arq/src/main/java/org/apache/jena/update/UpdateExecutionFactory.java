@@ -233,7 +233,7 @@ public class UpdateExecutionFactory
 
     // Everything for local updates comes through one of these two make methods
     private static UpdateExecution make(UpdateRequest updateRequest, Dataset dataset, QuerySolution inputBinding, Context context) {
-        return UpdateExecution.dataset(dataset,updateRequest.getConnectionContext()).update(updateRequest).initialBinding(inputBinding).build();
+        return UpdateExecution.dataset(dataset,updateRequest.getConnectionContext()).update(updateRequest).initialBinding(inputBinding).context(context).build();
     }
 
     // Everything for local updates comes through one of these two make methods
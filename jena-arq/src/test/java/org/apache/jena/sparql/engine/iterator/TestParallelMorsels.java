@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.ParallelMorsels.WorkerScope;
+import org.apache.jena.sparql.engine.main.ParallelLib;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.junit.TL;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.junit.Test;
+
+public class TestParallelMorsels {
+    // Each input integer i becomes i%5 copies of i.
+    private static final Function<Iterator<Integer>, Iterator<Integer>> stage =
+            morsel -> Iter.flatMap(morsel, i -> IntStream.range(0, i % 5).mapToObj(j -> i).iterator());
+
+    private static Iterator<Integer> input(int n) {
+        return IntStream.range(0, n).iterator();
+    }
+
+    /** Scope that counts the threads in use. */
+    private static class CountingScope implements WorkerScope {
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger();
+        private final boolean accept;
+        CountingScope(boolean accept) { this.accept = accept; }
+
+        @Override public boolean start() {
+            if ( ! accept )
+                return false;
+            started.incrementAndGet();
+            active.incrementAndGet();
+            return true;
+        }
+
+        @Override public void finish() { active.decrementAndGet(); }
+    }
+
+    @Test public void morsels_same_as_serial() throws Exception {
+        Map<Integer, Integer> expected = TL.multiset(stage.apply(input(10_000)));
+        CountingScope scope = new CountingScope(true);
+        ParallelMorsels<Integer, Integer> iter = new ParallelMorsels<>(input(10_000), stage, scope, 3);
+        try {
+            assertEquals(expected, TL.multiset(iter));
+        } finally { iter.close(); }
+        // close waits for the workers.
+        assertEquals(0, scope.active.get());
+    }
+
+    @Test public void morsels_empty() {
+        ParallelMorsels<Integer, Integer> iter = new ParallelMorsels<>(input(0), stage, ParallelMorsels.noScope, 3);
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test public void morsels_workers_decline() throws Exception {
+        // No worker thread can be used : all work is done on the calling thread.
+        Map<Integer, Integer> expected = TL.multiset(stage.apply(input(5_000)));
+        CountingScope scope = new CountingScope(false);
+        ParallelMorsels<Integer, Integer> iter = new ParallelMorsels<>(input(5_000), stage, scope, 3);
+        try {
+            assertEquals(expected, TL.multiset(iter));
+        } finally { iter.close(); }
+        assertEquals(0, scope.started.get());
+    }
+
+    @Test public void morsels_abort() throws Exception {
+        // Infinite input.
+        Iterator<Integer> input = IntStream.iterate(0, i -> i + 1).iterator();
+        CountingScope scope = new CountingScope(true);
+        ParallelMorsels<Integer, Integer> iter = new ParallelMorsels<>(input, stage, scope, 3);
+        for ( int i = 0 ; i < 1000 ; i++ )
+            iter.next();
+        iter.abort();
+        try {
+            iter.hasNext();
+            fail("Expected QueryCancelledException");
+        } catch (QueryCancelledException ex) {}
+        iter.close();
+        // close waits for the workers.
+        assertEquals(0, scope.active.get());
+    }
+
+    @Test public void morsels_abort_other_thread() throws Exception {
+        Iterator<Integer> input = IntStream.iterate(0, i -> i + 1).iterator();
+        CountingScope scope = new CountingScope(true);
+        ParallelMorsels<Integer, Integer> iter = new ParallelMorsels<>(input, stage, scope, 3);
+        CountDownLatch running = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                running.await();
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {}
+            iter.abort();
+        });
+        thread.start();
+        try {
+            for ( long i = 0 ; ; i++ ) {
+                iter.next();
+                if ( i == 0 )
+                    running.countDown();
+            }
+        } catch (QueryCancelledException ex) {}
+        thread.join();
+        iter.close();
+        // close waits for the workers.
+        assertEquals(0, scope.active.get());
+    }
+
+    @Test public void morsels_error() throws Exception {
+        RuntimeException error = new RuntimeException("stage");
+        Function<Iterator<Integer>, Iterator<Integer>> badStage = morsel -> Iter.map(morsel, i -> {
+            if ( i == 3000 )
+                throw error;
+            return i;
+        });
+        CountingScope scope = new CountingScope(true);
+        ParallelMorsels<Integer, Integer> iter = new ParallelMorsels<>(input(10_000), badStage, scope, 3);
+        try {
+            Iter.consume(iter);
+            fail("Expected an exception");
+        } catch (RuntimeException ex) {
+            assertEquals(error, ex);
+        } finally { iter.close(); }
+        // close waits for the workers.
+        assertEquals(0, scope.active.get());
+    }
+
+    @Test public void morsels_close_waits() throws Exception {
+        // Slow stage; count the stage iterators that are open.
+        AtomicInteger open = new AtomicInteger();
+        Function<Iterator<Integer>, Iterator<Integer>> slowStage = morsel -> {
+            open.incrementAndGet();
+            Iterator<Integer> iter = Iter.map(morsel, i -> {
+                try { Thread.sleep(1); } catch (InterruptedException ex) {}
+                return i;
+            });
+            return Iter.onClose(iter, open::decrementAndGet);
+        };
+        CountingScope scope = new CountingScope(true);
+        ParallelMorsels<Integer, Integer> iter = new ParallelMorsels<>(input(100_000), slowStage, scope, 3);
+        for ( int i = 0 ; i < 500 ; i++ )
+            iter.next();
+        iter.close();
+        assertEquals(0, scope.active.get());
+        assertEquals(0, open.get());
+    }
+
+    // TIM (DatasetGraphInMemory)
+
+    private static DatasetGraph data() {
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        Txn.executeWrite(dsg, () -> {
+            for ( int i = 0 ; i < 2000 ; i++ ) {
+                dsg.add(SSE.parseQuad("(_ :s"+i+" :p "+(i % 7)+")"));
+                dsg.add(SSE.parseQuad("(_ :s"+i+" :q "+(i % 11)+")"));
+                dsg.add(SSE.parseQuad("(:g :s"+i+" :p "+(i % 7)+")"));
+                dsg.add(SSE.parseQuad("(:g :s"+(i / 2)+" :q "+(i % 11)+")"));
+            }
+        });
+        return dsg;
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+    private static final String queryDft = PREFIX+"SELECT * { ?s :p ?o . ?s :q ?x . ?s :p ?o2 }";
+    private static final String queryNamed = PREFIX+"SELECT * { GRAPH ?g { ?s :p ?o . ?s :q ?x } }";
+
+    private static QueryExec queryExec(DatasetGraph dsg, String queryString, int threads) {
+        return QueryExec.dataset(dsg).query(queryString).set(ARQ.parallelBGP, threads).build();
+    }
+
+    private static Map<Binding, Integer> results(DatasetGraph dsg, String queryString, int threads) {
+        try ( QueryExec qExec = queryExec(dsg, queryString, threads) ) {
+            return TL.multiset(qExec.select());
+        }
+    }
+
+    @Test public void bgp_same_as_serial() {
+        DatasetGraph dsg = data();
+        for ( String queryString : List.of(queryDft, queryNamed) ) {
+            Map<Binding, Integer> expected = Txn.calculateRead(dsg, () -> results(dsg, queryString, 1));
+            assertFalse(expected.isEmpty());
+            Txn.executeRead(dsg, () -> assertEquals(expected, results(dsg, queryString, 4)));
+        }
+    }
+
+    @Test public void bgp_commit_before_worker_start() throws Exception {
+        DatasetGraph dsg = data();
+        Map<Binding, Integer> expected = Txn.calculateRead(dsg, () -> results(dsg, queryNamed, 1));
+        dsg.begin(TxnType.READ);
+        try {
+            WorkerScope scope = ParallelLib.workerScope(new ExecutionContext(dsg));
+            // Query set up, no rows read yet.
+            try ( QueryExec qExec = queryExec(dsg, queryNamed, 4) ) {
+                RowSet rowSet = qExec.select();
+                // Commit on another thread.
+                Thread writer = new Thread(() -> Txn.executeWrite(dsg, () -> dsg.add(SSE.parseQuad("(:g :s0 :q 99)"))));
+                writer.start();
+                writer.join();
+                // A worker no longer sees the same data and declines.
+                List<Boolean> started = new ArrayList<>();
+                Thread worker = new Thread(() -> {
+                    boolean b = scope.start();
+                    started.add(b);
+                    if ( b )
+                        scope.finish();
+                });
+                worker.start();
+                worker.join();
+                assertEquals(List.of(false), started);
+                // The query still sees the data as it was when it started.
+                assertEquals(expected, TL.multiset(rowSet));
+            }
+        } finally {
+            dsg.end();
+        }
+    }
+
+    @Test public void bgp_abort() throws Exception {
+        DatasetGraph dsg = data();
+        Txn.executeRead(dsg, () -> {
+            try ( QueryExec qExec = queryExec(dsg, queryDft, 4) ) {
+                RowSet rowSet = qExec.select();
+                for ( int i = 0 ; i < 100 ; i++ )
+                    rowSet.next();
+                qExec.abort();
+                try {
+                    Iter.consume(rowSet);
+                    fail("Expected QueryCancelledException");
+                } catch (QueryCancelledException ex) {}
+            }
+        });
+        // Worker transactions have ended : a write transaction can commit.
+        CountDownLatch done = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            Txn.executeWrite(dsg, () -> dsg.add(SSE.parseQuad("(:g :s0 :q 99)")));
+            done.countDown();
+        });
+        writer.start();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.QueryExecBuilder;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.junit.TL;
+import org.junit.Test;
+
+/** GROUP BY that spills to partitions gives the same results as in memory. */
+public class TestQueryIterGroup {
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+    private static final String queryAggregators = PREFIX
+        + "SELECT ?g (COUNT(*) AS ?c) (SUM(?v) AS ?s) (MIN(?v) AS ?min) (COUNT(DISTINCT ?v) AS ?d) "
+        + "{ ?x :g ?g ; :v ?v } GROUP BY ?g";
+    private static final String queryNoAggregators = PREFIX
+        + "SELECT ?g { ?x :g ?g ; :v ?v } GROUP BY ?g";
+    private static final String queryExprKey = PREFIX
+        + "SELECT ?k (COUNT(*) AS ?c) { ?x :g ?g ; :v ?v } GROUP BY (STR(?v) AS ?k)";
+
+    private static Node uri(String local) {
+        return NodeFactory.createURI("http://example/" + local);
+    }
+
+    /** {@code n} rows, with the group of row i given by {@code group}. */
+    private static DatasetGraph data(int n, IntFunction<String> group) {
+        Graph graph = GraphFactory.createDefaultGraph();
+        for ( int i = 0 ; i < n ; i++ ) {
+            Node x = uri("x" + i);
+            graph.add(Triple.create(x, uri("g"), NodeFactory.createLiteral(group.apply(i))));
+            graph.add(Triple.create(x, uri("v"), NodeFactory.createLiteral(Integer.toString(i % 13), XSDDatatype.XSDinteger)));
+        }
+        return DatasetGraphFactory.wrap(graph);
+    }
+
+    private static Map<Binding, Integer> results(DatasetGraph dsg, String queryString, long threshold) {
+        QueryExecBuilder builder = QueryExec.dataset(dsg).query(queryString);
+        if ( threshold >= 0 )
+            builder.set(ARQ.spillToDiskThreshold, threshold);
+        try ( QueryExec qExec = builder.build() ) {
+            return TL.multiset(qExec.select());
+        }
+    }
+
+    private static void test(DatasetGraph dsg, String queryString, long threshold) {
+        Map<Binding, Integer> expected = results(dsg, queryString, -1);
+        Map<Binding, Integer> actual = results(dsg, queryString, threshold);
+        assertTrue(expected.size() > 1);
+        assertEquals(expected, actual);
+    }
+
+    @Test public void group_in_memory() {
+        DatasetGraph dsg = data(1000, i -> "g" + (i % 300));
+        test(dsg, queryAggregators, 1000);
+    }
+
+    @Test public void group_spill() {
+        DatasetGraph dsg = data(1000, i -> "g" + (i % 300));
+        test(dsg, queryAggregators, 5);
+        test(dsg, queryNoAggregators, 5);
+        test(dsg, queryExprKey, 2);
+    }
+
+    @Test public void group_spill_tiny() {
+        DatasetGraph dsg = data(1000, i -> "g" + (i % 300));
+        test(dsg, queryAggregators, 1);
+        test(dsg, queryAggregators, 0);
+    }
+
+    // Group keys with the same hash code are in the same partition at every depth,
+    // so partitioning recurses to MaxSpillDepth, where the rest are grouped in memory.
+    @Test public void group_spill_max_depth() {
+        String[] parts = { "Aa", "BB" };
+        String[] keys = new String[16];
+        for ( int i = 0 ; i < keys.length ; i++ )
+            keys[i] = parts[i & 1] + parts[(i >> 1) & 1] + parts[(i >> 2) & 1] + parts[(i >> 3) & 1];
+        Var g = Var.alloc("g");
+        int hash = BindingFactory.binding(g, NodeFactory.createLiteral(keys[0])).hashCode();
+        for ( String k : keys )
+            assertEquals(hash, BindingFactory.binding(g, NodeFactory.createLiteral(k)).hashCode());
+
+        DatasetGraph dsg = data(400, i -> keys[i % keys.length]);
+        test(dsg, queryAggregators, 1);
+        test(dsg, queryNoAggregators, 1);
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.main.ParallelLib;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.junit.TL;
+import org.apache.jena.sparql.serializer.SerializationContext;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.junit.Test;
+
+public class TestQueryIterParallelConcat {
+    private static final Var var = Var.alloc("x");
+
+    private static ExecutionContext execCxt() {
+        return new ExecutionContext(DatasetGraphFactory.create());
+    }
+
+    /**
+     * A branch of {@code n} rows ({@code n < 0} for no end), then {@code error} if not
+     * null. If {@code wait}, it waits for cancellation before each row.
+     */
+    private static class Branch extends QueryIter implements Supplier<QueryIterator> {
+        private final long n;
+        private final RuntimeException error;
+        private final boolean wait;
+        private long i = 0;
+        volatile Thread thread = null;
+        volatile boolean cancelled = false;
+        volatile boolean closed = false;
+
+        Branch(long n, RuntimeException error, boolean wait, ExecutionContext execCxt) {
+            super(execCxt);
+            this.n = n;
+            this.error = error;
+            this.wait = wait;
+        }
+
+        @Override
+        public QueryIterator get() {
+            thread = Thread.currentThread();
+            return this;
+        }
+
+        @Override
+        protected boolean hasNextBinding() {
+            while ( wait && !cancelled ) {
+                try { Thread.sleep(5); } catch (InterruptedException ex) { return false; }
+            }
+            if ( n < 0 || i < n )
+                return true;
+            if ( error != null )
+                throw error;
+            return false;
+        }
+
+        @Override
+        protected Binding moveToNextBinding() {
+            return BindingFactory.binding(var, NodeFactory.createLiteral(Long.toString(i++)));
+        }
+
+        @Override
+        protected void closeIterator() {
+            closed = true;
+        }
+
+        @Override
+        protected void requestCancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void output(IndentedWriter out, SerializationContext sCxt) {}
+    }
+
+    private static long count(QueryIterParallelConcat qIter) {
+        long n = 0;
+        try {
+            for ( ; qIter.hasNext() ; qIter.next() )
+                n++;
+        } finally { qIter.close(); }
+        return n;
+    }
+
+    @Test public void concat_rows() {
+        ExecutionContext execCxt = execCxt();
+        QueryIterParallelConcat qIter = new QueryIterParallelConcat(execCxt);
+        Branch b1 = new Branch(500, null, false, execCxt);
+        Branch b2 = new Branch(1500, null, false, execCxt);
+        Branch b3 = new Branch(7, null, false, execCxt);
+        qIter.add(b1, true);
+        qIter.add(b2, true);
+        qIter.add(b3, false);
+        assertEquals(2007, count(qIter));
+        assertTrue(b1.closed && b2.closed && b3.closed);
+        assertNotSame(Thread.currentThread(), b1.thread);
+        assertSame(Thread.currentThread(), b3.thread);
+    }
+
+    @Test public void cancel() {
+        ExecutionContext execCxt = execCxt();
+        QueryIterParallelConcat qIter = new QueryIterParallelConcat(execCxt);
+        Branch branch = new Branch(-1, null, false, execCxt);
+        qIter.add(branch, true);
+        for ( int i = 0 ; i < 10 ; i++ )
+            qIter.next();
+        qIter.cancel();
+        try {
+            qIter.hasNext();
+            fail("Not cancelled");
+        } catch (QueryCancelledException ex) {}
+        qIter.close();
+        // Close waits for the branch thread.
+        assertTrue(branch.closed);
+    }
+
+    // A timeout cancels the iterator from another thread while the consumer waits for rows.
+    @Test public void timeout() throws Exception {
+        ExecutionContext execCxt = execCxt();
+        QueryIterParallelConcat qIter = new QueryIterParallelConcat(execCxt);
+        Branch branch = new Branch(-1, null, true, execCxt);
+        qIter.add(branch, true);
+        Thread timer = new Thread(() -> {
+            try { Thread.sleep(200); } catch (InterruptedException ex) {}
+            qIter.cancel();
+        });
+        long start = System.nanoTime();
+        timer.start();
+        try {
+            qIter.hasNext();
+            fail("Not cancelled");
+        } catch (QueryCancelledException ex) {
+        } finally {
+            qIter.close();
+        }
+        timer.join();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertTrue(branch.closed);
+    }
+
+    @Test public void error() {
+        ExecutionContext execCxt = execCxt();
+        QueryIterParallelConcat qIter = new QueryIterParallelConcat(execCxt);
+        IllegalStateException error = new IllegalStateException("Branch error");
+        Branch branch = new Branch(5, error, false, execCxt);
+        qIter.add(branch, true);
+        qIter.add(new Branch(5, null, false, execCxt), false);
+        try {
+            count(qIter);
+            fail("No exception");
+        } catch (IllegalStateException ex) {
+            assertSame(error, ex);
+        }
+        assertTrue(branch.closed);
+    }
+
+    @Test public void error_supplier() {
+        ExecutionContext execCxt = execCxt();
+        QueryIterParallelConcat qIter = new QueryIterParallelConcat(execCxt);
+        IllegalStateException error = new IllegalStateException("Supplier error");
+        qIter.add(() -> { throw error; }, true);
+        try {
+            count(qIter);
+            fail("No exception");
+        } catch (IllegalStateException ex) {
+            assertSame(error, ex);
+        }
+    }
+
+    // When every pool thread is busy, an async branch is run on the calling thread.
+    @Test public void pool_exhausted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(QueryIterParallelConcat.executor.getMaximumPoolSize());
+        int busy = 0;
+        try {
+            for ( ;; ) {
+                try {
+                    QueryIterParallelConcat.executor.execute(() -> {
+                        try { release.await(); } catch (InterruptedException ex) {}
+                        done.countDown();
+                    });
+                    busy++;
+                } catch (RejectedExecutionException ex) { break; }
+            }
+            assertTrue(busy > 0);
+
+            ExecutionContext execCxt = execCxt();
+            QueryIterParallelConcat qIter = new QueryIterParallelConcat(execCxt);
+            Branch branch = new Branch(100, null, false, execCxt);
+            qIter.add(branch, true);
+            assertEquals(100, count(qIter));
+            assertSame(Thread.currentThread(), branch.thread);
+            assertTrue(branch.closed);
+        } finally {
+            release.countDown();
+        }
+        for ( int i = busy ; i < QueryIterParallelConcat.executor.getMaximumPoolSize() ; i++ )
+            done.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    private static Map<Binding, Integer> results(DatasetGraph dsg, String queryString, int parallel) {
+        try ( QueryExec qExec = QueryExec.dataset(dsg).query(queryString).set(ARQ.parallelUnion, parallel).build() ) {
+            return TL.multiset(qExec.select());
+        }
+    }
+
+    @Test public void union_query() {
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        Txn.executeWrite(dsg, () -> {
+            for ( int i = 0 ; i < 200 ; i++ )
+                dsg.add(SSE.parseQuad("(_ :s"+(i % 17)+" :p"+(i % 3)+" "+i+")"));
+        });
+        String queryString = "PREFIX : <http://example/> SELECT * { { ?s :p0 ?o } UNION { ?s :p1 ?o } UNION { ?s :p2 ?o } UNION { VALUES ?o { 1 2 } } }";
+        Map<Binding, Integer> expected = results(dsg, queryString, 0);
+        assertEquals(202, expected.values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(expected, results(dsg, queryString, 4));
+        // In a transaction, only branches that do not access the dataset are run on other threads.
+        Txn.executeRead(dsg, () -> assertEquals(expected, results(dsg, queryString, 4)));
+    }
+
+    @Test public void can_eval_async() {
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        ExecutionContext execCxt = new ExecutionContext(dsg);
+        Op bgp = SSE.parseOp("(bgp (?s ?p ?o))");
+        Op table = SSE.parseOp("(table (vars ?x) (row [?x 1]))");
+        assertTrue(ParallelLib.canEvalAsync(bgp, execCxt));
+        Txn.executeRead(dsg, () -> {
+            assertFalse(ParallelLib.canEvalAsync(bgp, execCxt));
+            assertTrue(ParallelLib.canEvalAsync(table, execCxt));
+        });
+    }
+}
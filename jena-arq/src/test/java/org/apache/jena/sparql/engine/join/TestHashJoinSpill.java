@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.junit.TL;
+import org.apache.jena.sparql.util.ExprUtils;
+import org.junit.Test;
+
+/** Hash joins that spill to partitions give the same results as a nested loop join. */
+public class TestHashJoinSpill {
+    private static final Var x = Var.alloc("x");
+    private static final Var a = Var.alloc("a");
+    private static final Var b = Var.alloc("b");
+    private static final JoinKey key = JoinKey.create(x);
+
+    private static ExecutionContext execCxt(long threshold) {
+        ExecutionContext execCxt = new ExecutionContext(DatasetGraphFactory.create());
+        if ( threshold >= 0 )
+            execCxt.getContext().set(ARQ.spillToDiskThreshold, threshold);
+        return execCxt;
+    }
+
+    private static Node n(int i) {
+        return NodeFactory.createLiteral(Integer.toString(i));
+    }
+
+    /**
+     * Rows with {@code ?x} taken from {@code keys}, and {@code var} numbered; every
+     * {@code noKeyEvery} row has no {@code ?x} (0 for none).
+     */
+    private static List<Binding> rows(Var var, int n, Function<Integer, Integer> keys, int noKeyEvery) {
+        List<Binding> rows = new ArrayList<>();
+        for ( int i = 0 ; i < n ; i++ ) {
+            BindingBuilder builder = Binding.builder();
+            if ( noKeyEvery == 0 || i % noKeyEvery != 0 )
+                builder.add(x, n(keys.apply(i)));
+            builder.add(var, n(i % 7));
+            rows.add(builder.build());
+        }
+        return rows;
+    }
+
+    private static QueryIterator iter(List<Binding> rows, ExecutionContext execCxt) {
+        return QueryIterPlainWrapper.create(rows.iterator(), execCxt);
+    }
+
+    private static void testJoin(List<Binding> left, List<Binding> right, long threshold) {
+        ExecutionContext execCxt = execCxt(threshold);
+        Map<Binding, Integer> expected = TL.multiset(Join.nestedLoopJoinBasic(iter(left, execCxt), iter(right, execCxt), execCxt));
+        Map<Binding, Integer> actual = TL.multiset(QueryIterHashJoin.create(key, iter(left, execCxt), iter(right, execCxt), execCxt));
+        assertTrue(expected.size() > 0);
+        assertEquals(expected, actual);
+    }
+
+    private static void testLeftJoin(List<Binding> left, List<Binding> right, ExprList conditions, long threshold) {
+        ExecutionContext execCxt = execCxt(threshold);
+        Map<Binding, Integer> expected = TL.multiset(Join.nestedLoopLeftJoinBasic(iter(left, execCxt), iter(right, execCxt), conditions, execCxt));
+        // Probe the right side, stream the left.
+        Map<Binding, Integer> actualRight = TL.multiset(QueryIterHashLeftJoin_Right.create(key, iter(left, execCxt), iter(right, execCxt), conditions, execCxt));
+        assertEquals(expected, actualRight);
+        // Probe the left side, stream the right.
+        Map<Binding, Integer> actualLeft = TL.multiset(QueryIterHashLeftJoin_Left.create(key, iter(left, execCxt), iter(right, execCxt), conditions, execCxt));
+        assertEquals(expected, actualLeft);
+    }
+
+    @Test public void join_in_memory() {
+        testJoin(rows(a, 300, i -> i % 50, 0), rows(b, 200, i -> i % 60, 0), -1);
+    }
+
+    @Test public void join_multi_pass() {
+        testJoin(rows(a, 300, i -> i % 50, 0), rows(b, 200, i -> i % 60, 0), 10);
+    }
+
+    @Test public void join_no_key() {
+        testJoin(rows(a, 300, i -> i % 50, 11), rows(b, 200, i -> i % 60, 13), 10);
+    }
+
+    @Test public void join_no_key_spilled() {
+        // More probe rows with no join key than the threshold.
+        testJoin(rows(a, 100, i -> i % 20, 2), rows(b, 300, i -> i % 25, 17), 10);
+    }
+
+    @Test public void join_skewed() {
+        // One key for most rows: partitions split to the maximum depth.
+        testJoin(rows(a, 200, i -> i % 10 == 0 ? i : 1, 0), rows(b, 50, i -> i % 3 == 0 ? 1 : i, 0), 10);
+    }
+
+    @Test public void join_threshold_zero() {
+        testJoin(rows(a, 50, i -> i % 5, 7), rows(b, 40, i -> i % 4, 9), 0);
+    }
+
+    @Test public void left_join_multi_pass() {
+        testLeftJoin(rows(a, 300, i -> i % 50, 0), rows(b, 200, i -> i % 70, 0), null, 10);
+    }
+
+    @Test public void left_join_no_key() {
+        testLeftJoin(rows(a, 300, i -> i % 50, 11), rows(b, 200, i -> i % 70, 13), null, 10);
+    }
+
+    @Test public void left_join_conditions() {
+        ExprList conditions = new ExprList(ExprUtils.parse("?a < ?b"));
+        testLeftJoin(rows(a, 300, i -> i % 50, 11), rows(b, 200, i -> i % 70, 13), conditions, 10);
+    }
+
+    @Test public void repartition() {
+        HashProbeTable table = new HashProbeTable(key);
+        HashJoinPartitions partitions = new HashJoinPartitions(key, 10, table);
+        try {
+            // All in one partition, and too many to load.
+            rows(a, 100, i -> 1, 0).forEach(partitions::putProbe);
+            rows(b, 10, i -> 1, 0).forEach(partitions::routeStream);
+            int passes = 0;
+            for ( HashJoinPartitions.Partition p = partitions.nextPartition() ; p != null ; p = partitions.nextPartition() ) {
+                passes++;
+                assertEquals(HashJoinPartitions.MaxSpillDepth, p.depth);
+                assertEquals(100, Iter.count(p.loadTable().keyedValues()));
+                p.close();
+            }
+            assertEquals(1, passes);
+        } finally {
+            partitions.close();
+        }
+    }
+}
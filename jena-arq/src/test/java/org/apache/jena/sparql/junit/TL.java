@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.junit;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.jena.atlas.iterator.Iter;
+
+/** Support for ARQ tests. */
+public class TL {
+    /**
+     * The items of an iterator, with the number of times each occurs, for comparing
+     * results where the order does not matter. The iterator is closed.
+     */
+    public static <X> Map<X, Integer> multiset(Iterator<X> iter) {
+        Map<X, Integer> counts = new HashMap<>();
+        try {
+            iter.forEachRemaining(x -> counts.merge(x, 1, Integer::sum));
+        } finally { Iter.close(iter); }
+        return counts;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.modify;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import org.apache.jena.sparql.sse.SSE;
+import org.junit.Test;
+
+public class TestUpdateResultColumnar {
+    private static UpdateResultColumnar changes(int i) {
+        UpdateResultColumnar result = new UpdateResultColumnar();
+        result.add(SSE.parseQuad("(:g :s :p "+i+")"));
+        result.add(SSE.parseQuad("(_ :s :p 'abc')"));
+        result.delete(SSE.parseQuad("(:g :s :q "+i+")"));
+        return result;
+    }
+
+    private static void assertSame(UpdateResult expected, UpdateResult actual) {
+        assertEquals(expected.deletedTuples, actual.deletedTuples);
+        assertEquals(expected.addedTuples, actual.addedTuples);
+        assertEquals(expected.clearedGraphs, actual.clearedGraphs);
+    }
+
+    @Test public void write_read() {
+        UpdateResultColumnar result = changes(1).withCleared(List.of(SSE.parseNode(":g1")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        result.write(out);
+        UpdateResultColumnar result2 = UpdateResultColumnar.read(new ByteArrayInputStream(out.toByteArray()));
+        assertSame(result, result2);
+        assertEquals(result.dictionarySize(), result2.dictionarySize());
+    }
+
+    @Test public void write_read_no_cleared() {
+        UpdateResultColumnar result = changes(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        result.write(out);
+        UpdateResultColumnar result2 = UpdateResultColumnar.read(new ByteArrayInputStream(out.toByteArray()));
+        assertSame(result, result2);
+        assertNull(result2.clearedGraphs);
+    }
+
+    @Test public void write_read_several() throws Exception {
+        // Change sets one after another in a stream.
+        List<UpdateResultColumnar> results = List.of(changes(1), changes(2).withCleared(List.of(SSE.parseNode(":g2"))), changes(3));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        results.forEach(r -> r.write(out));
+        InputStream in = new ByteArrayInputStream(out.toByteArray());
+        for ( UpdateResultColumnar r : results )
+            assertSame(r, UpdateResultColumnar.read(in));
+        // All read, nothing more.
+        assertEquals(-1, in.read());
+    }
+}
@@ -39,7 +39,7 @@ public class CmdxBuildIndex extends AbstractCmdxLoad {
     protected void setCmdArgs() {
         super.add(argLocation,  "--loc=", "Database location");
         super.add(argTmpdir,    "--tmpdir=", "Temporary directory (defaults to --loc)");
-        super.add(argIndex,     "--index=", "Index name");
+        super.add(argIndex,     "--index=", "Index name, or comma separated list of index names");
         //super.add(argSortIndexArgs, "--sortIndexArgs=", "Specialised argument for the sort for the indexes");
     }
 
@@ -50,7 +50,7 @@ public class CmdxBuildIndex extends AbstractCmdxLoad {
 
     @Override
     protected String getArgsSummary() {
-        return super.getArgsSummary()+" --index=NAME";
+        return super.getArgsSummary()+" --index=NAME[,NAME...]";
     }
 
     @Override
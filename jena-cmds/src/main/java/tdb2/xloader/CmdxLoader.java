@@ -26,7 +26,7 @@ import org.apache.jena.tdb2.xloader.BulkLoaderX;
 /**
  * A version of xloader/TDB2 that runs in a single JVM.
  * <p>
- * This still requires an external sort programme.
+ * The node table step still requires an external sort programme.
  * Normally, xloader is run by script which uses one JVM per operation.
  * Exiting the JVM and starting a new one clears the process state which is beneficial.
  * <p>
@@ -91,16 +91,7 @@ public class CmdxLoader extends AbstractCmdxLoad {
            CmdxIngestData.main("--loc=" + DIR, datafile);
 
            System.out.println("STEP 3 - build indexes");
-           CmdxBuildIndex.main("--loc=" + DIR, "--index=SPO");
-           CmdxBuildIndex.main("--loc=" + DIR, "--index=POS");
-           CmdxBuildIndex.main("--loc=" + DIR, "--index=OSP");
-
-           CmdxBuildIndex.main("--loc=" + DIR, "--index=GSPO");
-           CmdxBuildIndex.main("--loc=" + DIR, "--index=GPOS");
-           CmdxBuildIndex.main("--loc=" + DIR, "--index=GOSP");
-
-           CmdxBuildIndex.main("--loc=" + DIR, "--index=SPOG");
-           CmdxBuildIndex.main("--loc=" + DIR, "--index=POSG");
-           CmdxBuildIndex.main("--loc=" + DIR, "--index=OSPG");
+           CmdxBuildIndex.main("--loc=" + DIR, "--index=SPO,POS,OSP");
+           CmdxBuildIndex.main("--loc=" + DIR, "--index=GSPO,GPOS,GOSP,SPOG,POSG,OSPG");
        }
    }
\ No newline at end of file
@@ -17,6 +17,11 @@
  */
 package org.apache.jena.acl;
 
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  *
  * @author Lorenzo
@@ -30,6 +35,9 @@ public abstract class  DatasetACL {
     public static final String ACL_GRAPH_NAME_DEFAULT = "$$DEFAULT$$";
     
     public static final String DEF_GRAPH_NAME = "urn:x-arq:DefaultGraphNode";
+
+    private final AtomicLong            version = new AtomicLong(0);
+    private final List<ACLListener>     listeners = new CopyOnWriteArrayList<>();
     
     public static  enum aclId {
         aiDrop, 
@@ -76,4 +84,36 @@ public abstract class  DatasetACL {
     }
     
     public abstract boolean checkGraphBase(aclId id, String graphName, String user);
+
+    /**
+     * The names of the graphs the user may access for the operation, or null if
+     * the implementation can not enumerate them. A result containing
+     * {@link #ACL_GRAPH_NAME_ALL} means every graph.
+     */
+    public Set<String> permittedGraphs(aclId id, String user) {
+        return null;
+    }
+
+    /**
+     * Version of the permissions. It changes whenever a permission changes, so
+     * decisions cached under one version are valid while it stays the same.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public void addListener(ACLListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ACLListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Implementations call this after changing permissions. */
+    protected void changed() {
+        version.incrementAndGet();
+        for (ACLListener listener : listeners)
+            listener.aclChanged(this);
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.acl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * In-memory {@link DatasetACL}.
+ * <p>
+ * Permissions are compiled into an immutable set of graph names for each user and
+ * operation. Checks read the current sets without locking; changes build new sets,
+ * publish them and then call {@link #changed()}.
+ */
+public class DatasetACLMem extends DatasetACL {
+    private volatile Map<String, Map<aclId, Set<String>>> permissions = Collections.emptyMap();
+
+    public DatasetACLMem() {}
+
+    @Override
+    public boolean checkGraphBase(aclId id, String graphName, String user) {
+        Set<String> graphs = graphs(id, user);
+        if (graphs.isEmpty())
+            return false;
+        return graphs.contains(ACL_GRAPH_NAME_ALL) || graphs.contains(normalize(graphName));
+    }
+
+    @Override
+    public Set<String> permittedGraphs(aclId id, String user) {
+        return graphs(id, user);
+    }
+
+    /** The users that have at least one permission. */
+    public Set<String> getUsers() {
+        return Collections.unmodifiableSet(permissions.keySet());
+    }
+
+    /** Allow the user the operation on a graph; {@link #ACL_GRAPH_NAME_ALL} for every graph. */
+    public void grant(String user, aclId id, String graphName) {
+        grant(user, id, Collections.singleton(graphName));
+    }
+
+    public synchronized void grant(String user, aclId id, Collection<String> graphNames) {
+        update(user, id, graphs -> {
+            boolean modified = false;
+            for (String graphName : graphNames)
+                modified |= graphs.add(normalize(graphName));
+            return modified;
+        });
+    }
+
+    public void revoke(String user, aclId id, String graphName) {
+        revoke(user, id, Collections.singleton(graphName));
+    }
+
+    public synchronized void revoke(String user, aclId id, Collection<String> graphNames) {
+        update(user, id, graphs -> {
+            boolean modified = false;
+            for (String graphName : graphNames)
+                modified |= graphs.remove(normalize(graphName));
+            return modified;
+        });
+    }
+
+    /** Remove every permission of the user. */
+    public synchronized void revokeAll(String user) {
+        if (!permissions.containsKey(user))
+            return;
+        Map<String, Map<aclId, Set<String>>> x = new HashMap<>(permissions);
+        x.remove(user);
+        permissions = Collections.unmodifiableMap(x);
+        changed();
+    }
+
+    private Set<String> graphs(aclId id, String user) {
+        Map<aclId, Set<String>> ops = permissions.get(user);
+        if (ops == null)
+            return Collections.emptySet();
+        return ops.getOrDefault(id, Collections.emptySet());
+    }
+
+    // Copy on write: only the entry for this user is rebuilt.
+    private void update(String user, aclId id, Predicate<Set<String>> action) {
+        Set<String> graphs = new HashSet<>(graphs(id, user));
+        if (!action.test(graphs))
+            return;
+        Map<aclId, Set<String>> ops = new EnumMap<>(aclId.class);
+        Map<aclId, Set<String>> current = permissions.get(user);
+        if (current != null)
+            ops.putAll(current);
+        if (graphs.isEmpty())
+            ops.remove(id);
+        else
+            ops.put(id, Collections.unmodifiableSet(graphs));
+        Map<String, Map<aclId, Set<String>>> x = new HashMap<>(permissions);
+        if (ops.isEmpty())
+            x.remove(user);
+        else
+            x.put(user, Collections.unmodifiableMap(ops));
+        permissions = Collections.unmodifiableMap(x);
+        changed();
+    }
+
+    /** The default graph has two names; permissions use {@link #DEF_GRAPH_NAME}. */
+    protected static String normalize(String graphName) {
+        if (ACL_GRAPH_NAME_DEFAULT.equals(graphName))
+            return DEF_GRAPH_NAME;
+        return graphName;
+    }
+}
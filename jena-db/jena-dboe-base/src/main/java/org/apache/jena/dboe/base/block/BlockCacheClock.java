@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.block;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongPredicate;
+
+/**
+ * Fixed size cache of blocks by id, for {@link BlockMgrCacheConcurrent}.
+ * <p>
+ * The cache is split into stripes by the hash of the block id. Each stripe is an
+ * open addressing (linear probing) table; lookups read the table without a lock,
+ * changes take the stripe lock. Eviction is CLOCK within a stripe: a lookup sets
+ * the entry's reference bit, and the clock hand, sweeping the table, clears
+ * set bits and evicts the first entry whose bit is clear.
+ * <p>
+ * A lookup that races with a change to its stripe may miss an entry that is
+ * present. That costs a read from the underlying {@link BlockMgr}; it never returns
+ * the wrong block.
+ */
+class BlockCacheClock {
+    // Minimum entries per stripe before splitting the cache further.
+    private static final int MinStripeSize = 16;
+
+    private static class Entry {
+        final long id;
+        final Block block;
+        volatile boolean referenced = true;
+
+        Entry(long id, Block block) {
+            this.id = id;
+            this.block = block;
+        }
+    }
+
+    private static class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final AtomicReferenceArray<Entry> slots;
+        final int mask;
+        final int capacity;
+        int size = 0;
+        int hand = 0;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            // Load factor at most 0.5 keeps probe sequences short.
+            int n = Integer.highestOneBit(Math.max(2, 2*capacity-1)) << 1;
+            this.slots = new AtomicReferenceArray<>(n);
+            this.mask = n-1;
+        }
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    BlockCacheClock(int capacity) {
+        capacity = Math.max(1, capacity);
+        int n = Integer.highestOneBit(Math.max(1, 4*Runtime.getRuntime().availableProcessors()-1)) << 1;
+        while ( n > 1 && capacity/n < MinStripeSize )
+            n >>= 1;
+        stripes = new Stripe[n];
+        stripeMask = n-1;
+        int perStripe = (capacity+n-1)/n;
+        for ( int i = 0 ; i < n ; i++ )
+            stripes[i] = new Stripe(perStripe);
+    }
+
+    private static long hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private Stripe stripe(long h) {
+        return stripes[(int)(h >>> 40) & stripeMask];
+    }
+
+    /** Get a block, or null. Does not take a lock. */
+    Block get(long id) {
+        long h = hash(id);
+        Stripe s = stripe(h);
+        AtomicReferenceArray<Entry> slots = s.slots;
+        for ( int i = (int)h & s.mask ; ; i = (i+1) & s.mask ) {
+            Entry e = slots.get(i);
+            if ( e == null )
+                return null;
+            if ( e.id == id ) {
+                if ( !e.referenced )
+                    e.referenced = true;
+                return e.block;
+            }
+        }
+    }
+
+    boolean containsKey(long id) {
+        return get(id) != null;
+    }
+
+    /** Add or replace. */
+    void put(long id, Block block) {
+        put(id, block, true, null);
+    }
+
+    /** Add if absent; return true if added. */
+    boolean putIfAbsent(long id, Block block) {
+        return put(id, block, false, null);
+    }
+
+    /**
+     * Add if absent and {@code condition}, which is tested while holding the lock
+     * that any other change for this id must also take, is true. Return true if added.
+     */
+    boolean putIfAbsent(long id, Block block, BooleanSupplier condition) {
+        return put(id, block, false, condition);
+    }
+
+    private boolean put(long id, Block block, boolean replace, BooleanSupplier condition) {
+        long h = hash(id);
+        Stripe s = stripe(h);
+        s.lock.lock();
+        try {
+            if ( condition != null && !condition.getAsBoolean() )
+                return false;
+            int i = find(s, id, h);
+            if ( s.slots.get(i) != null ) {
+                if ( !replace )
+                    return false;
+                s.slots.set(i, new Entry(id, block));
+                return true;
+            }
+            if ( s.size >= s.capacity ) {
+                evict(s);
+                // The table has changed.
+                i = find(s, id, h);
+            }
+            s.slots.set(i, new Entry(id, block));
+            s.size++;
+            return true;
+        } finally { s.lock.unlock(); }
+    }
+
+    void remove(long id) {
+        long h = hash(id);
+        Stripe s = stripe(h);
+        s.lock.lock();
+        try {
+            int i = find(s, id, h);
+            if ( s.slots.get(i) != null )
+                delete(s, i);
+        } finally { s.lock.unlock(); }
+    }
+
+    /** Remove all entries with an id that matches the predicate. */
+    void removeIf(LongPredicate predicate) {
+        for ( Stripe s : stripes ) {
+            s.lock.lock();
+            try {
+                for ( int i = 0 ; i <= s.mask ; ) {
+                    Entry e = s.slots.get(i);
+                    // A deletion may shift another entry into slot i.
+                    if ( e != null && predicate.test(e.id) )
+                        delete(s, i);
+                    else
+                        i++;
+                }
+            } finally { s.lock.unlock(); }
+        }
+    }
+
+    void clear() {
+        removeIf(x -> true);
+    }
+
+    long size() {
+        long n = 0;
+        for ( Stripe s : stripes )
+            n += s.size;
+        return n;
+    }
+
+    // Slot of the entry for id or the empty slot where it would go. Lock held.
+    private static int find(Stripe s, long id, long h) {
+        for ( int i = (int)h & s.mask ; ; i = (i+1) & s.mask ) {
+            Entry e = s.slots.get(i);
+            if ( e == null || e.id == id )
+                return i;
+        }
+    }
+
+    // CLOCK: clear reference bits until an unreferenced entry is found. Lock held.
+    private static void evict(Stripe s) {
+        for ( ;; ) {
+            int i = s.hand;
+            s.hand = (i+1) & s.mask;
+            Entry e = s.slots.get(i);
+            if ( e == null )
+                continue;
+            if ( e.referenced ) {
+                e.referenced = false;
+                continue;
+            }
+            delete(s, i);
+            return;
+        }
+    }
+
+    // Delete at slot i, shifting back later entries of the probe sequence so
+    // lookups still find them (no tombstones). Lock held.
+    private static void delete(Stripe s, int i) {
+        AtomicReferenceArray<Entry> slots = s.slots;
+        int hole = i;
+        for ( int j = (i+1) & s.mask ; ; j = (j+1) & s.mask ) {
+            Entry e = slots.get(j);
+            if ( e == null )
+                break;
+            int home = (int)hash(e.id) & s.mask;
+            // Move e into the hole if the hole lies cyclically in [home, j).
+            if ( ((j - home) & s.mask) >= ((j - hole) & s.mask) ) {
+                slots.set(hole, e);
+                hole = j;
+            }
+        }
+        slots.set(hole, null);
+        s.size--;
+    }
+}
@@ -21,9 +21,28 @@ package org.apache.jena.dboe.base.block;
 import org.apache.jena.dboe.base.file.FileSet;
 
 public class BlockMgrBuilderStd implements BlockMgrBuilder {
+    // Null means as given by the BlockParams.
+    private final Boolean concurrentCache;
+
+    public BlockMgrBuilderStd() {
+        this(null);
+    }
+
+    /** Builder that always uses the concurrent block cache (true) or the synchronized one (false). */
+    public BlockMgrBuilderStd(Boolean concurrentCache) {
+        this.concurrentCache = concurrentCache;
+    }
+
     @Override
     public BlockMgr buildBlockMgr(FileSet fileSet, String ext, BlockParams indexParams) {
-        return BlockMgrFactory.create(fileSet, ext, indexParams);
+        if ( concurrentCache == null )
+            return BlockMgrFactory.create(fileSet, ext, indexParams);
+        return BlockMgrFactory.create(fileSet, ext,
+                                      indexParams.getFileMode(),
+                                      indexParams.getBlockSize(),
+                                      indexParams.getBlockReadCacheSize(),
+                                      indexParams.getBlockWriteCacheSize(),
+                                      concurrentCache);
     }
 }
 
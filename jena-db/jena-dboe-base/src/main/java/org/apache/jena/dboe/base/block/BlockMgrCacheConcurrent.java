@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.block;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caching block manager for many concurrent readers.
+ * <p>
+ * Same caching as {@link BlockMgrCache} (a read cache and a delayed write cache) but
+ * {@link #getRead} and {@link #release} do not take the block manager lock: the read
+ * cache is a striped CLOCK cache with lock-free lookup, and a miss reads through to
+ * the underlying {@link BlockMgr}, which must support concurrent reads (file access
+ * does). Operations that change blocks are synchronized as in {@link BlockMgrSync}.
+ * <p>
+ * A read miss only fills the cache if no write operation has happened since
+ * it started, so a concurrent {@link #getWrite}, {@link #write}, {@link #overwrite}
+ * or {@link #free} can not be undone by a stale fill. Operations that change blocks
+ * increment an epoch before changing the read cache; the fill checks the epoch while
+ * holding the cache stripe lock, so the check and the insert are atomic with respect
+ * to those changes.
+ */
+public class BlockMgrCacheConcurrent extends BlockMgrSync {
+    private static Logger              log            = LoggerFactory.getLogger(BlockMgrCacheConcurrent.class);
+    private final BlockCacheClock      readCache;
+    // Delayed dirty writes. May be present, may not.
+    private final Cache<Long, Block>   writeCache;
+    // Incremented by operations that change the blocks the read cache may hold.
+    private final AtomicLong           epoch          = new AtomicLong(0);
+
+    // ---- stats
+    private final LongAdder            cacheReadHits  = new LongAdder();
+    private final LongAdder            cacheMisses    = new LongAdder();
+    private final LongAdder            cacheWriteHits = new LongAdder();
+
+    static BlockMgr create(int readSlots, int writeSlots, final BlockMgr blockMgr) {
+        if ( readSlots < 0 && writeSlots < 0 )
+            return blockMgr;
+        return new BlockMgrCacheConcurrent(readSlots, writeSlots, blockMgr);
+    }
+
+    private BlockMgrCacheConcurrent(int readSlots, int writeSlots, final BlockMgr blockMgr) {
+        super(blockMgr);
+        readCache = new BlockCacheClock(readSlots);
+        if ( writeSlots <= 0 )
+            writeCache = null;
+        else {
+            writeCache = CacheFactory.createCache(writeSlots);
+            writeCache.setDropHandler((id, block) -> {
+                // We're inside a synchronized operation at this point.
+                if ( block == null ) {
+                    log.warn("Write cache: " + id + " dropping an entry that isn't there");
+                    return;
+                }
+                // Force the block to be written.
+                BlockMgrCacheConcurrent.super.write(block);
+            });
+        }
+    }
+
+    @Override
+    public Block getRead(long id) {
+        Block blk = readCache.get(id);
+        if ( blk != null ) {
+            cacheReadHits.increment();
+            return blk;
+        }
+        // Writable blocks are readable.
+        if ( writeCache != null ) {
+            blk = writeCache.getIfPresent(id);
+            if ( blk != null ) {
+                cacheWriteHits.increment();
+                return blk;
+            }
+        }
+        cacheMisses.increment();
+        long start = epoch.get();
+        // Not super.getRead, which takes the lock.
+        blk = blockMgr.getRead(id);
+        readCache.putIfAbsent(id, blk, () -> epoch.get() == start);
+        return blk;
+    }
+
+    @Override
+    public void release(Block block) {
+        blockMgr.release(block);
+    }
+
+    @Override
+    synchronized public Block getWrite(long id) {
+        Block blk = null;
+        if ( writeCache != null )
+            blk = writeCache.getIfPresent(id);
+        if ( blk != null ) {
+            cacheWriteHits.increment();
+            return blk;
+        }
+        // A requested block may be in the other cache. Promote it.
+        blk = readCache.get(id);
+        if ( blk != null ) {
+            cacheReadHits.increment();
+            return promote(blk);
+        }
+        cacheMisses.increment();
+        // The block may change: stop fills by reads in progress.
+        epoch.incrementAndGet();
+        blk = super.getWrite(id);
+        if ( writeCache != null )
+            writeCache.put(id, blk);
+        return blk;
+    }
+
+    @Override
+    synchronized public Block promote(Block block) {
+        long id = block.getId();
+        epoch.incrementAndGet();
+        readCache.remove(id);
+        Block block2 = super.promote(block);
+        if ( writeCache != null )
+            writeCache.put(id, block2);
+        return block;
+    }
+
+    @Override
+    synchronized public void write(Block block) {
+        epoch.incrementAndGet();
+        // Any read cache entry is now out of date.
+        readCache.remove(block.getId());
+        if ( writeCache != null )
+            writeCache.put(block.getId(), block);
+        super.write(block);
+    }
+
+    @Override
+    synchronized public void overwrite(Block block) {
+        epoch.incrementAndGet();
+        super.overwrite(block);
+        // Keep read cache up-to-date.
+        readCache.put(block.getId(), block);
+    }
+
+    @Override
+    synchronized public void free(Block block) {
+        long id = block.getId();
+        epoch.incrementAndGet();
+        readCache.remove(id);
+        if ( writeCache != null )
+            writeCache.remove(id);
+        super.free(block);
+    }
+
+    @Override
+    synchronized public void resetAlloc(long boundary) {
+        // On abort, clear the caches of inaccessible blocks.
+        epoch.incrementAndGet();
+        readCache.removeIf(x -> x >= boundary);
+        if ( writeCache != null ) {
+            Iterator<Long> iter = writeCache.keys();
+            Long[] ids = new Long[(int)writeCache.size()];
+            int n = 0;
+            while ( iter.hasNext() && n < ids.length )
+                ids[n++] = iter.next();
+            for ( int i = 0 ; i < n ; i++ ) {
+                if ( ids[i] >= boundary )
+                    writeCache.remove(ids[i]);
+            }
+        }
+        super.resetAlloc(boundary);
+    }
+
+    @Override
+    synchronized public void sync() {
+        if ( syncFlush() )
+            super.sync();
+    }
+
+    @Override
+    synchronized public void syncForce() {
+        syncFlush();
+        super.syncForce();
+    }
+
+    @Override
+    synchronized public void close() {
+        syncFlush();
+        super.close();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheConcurrent:" + super.blockMgr.toString();
+    }
+
+    /** Hits, misses and write-cache hits, for monitoring. */
+    public String stats() {
+        return String.format("H=%d, M=%d, W=%d, size=%d", cacheReadHits.sum(), cacheMisses.sum(), cacheWriteHits.sum(), readCache.size());
+    }
+
+    // Write out the write cache, moving the blocks to the read cache as they are
+    // often read after writing.
+    private boolean syncFlush() {
+        if ( writeCache == null || writeCache.isEmpty() )
+            return false;
+        Long[] ids = new Long[(int)writeCache.size()];
+        Iterator<Long> iter = writeCache.keys();
+        int n = 0;
+        while ( iter.hasNext() && n < ids.length )
+            ids[n++] = iter.next();
+        for ( int i = 0 ; i < n ; i++ ) {
+            Block block = writeCache.getIfPresent(ids[i]);
+            if ( block == null )
+                continue;
+            super.write(block);
+            writeCache.remove(ids[i]);
+            readCache.put(ids[i], block);
+        }
+        return n > 0;
+    }
+}
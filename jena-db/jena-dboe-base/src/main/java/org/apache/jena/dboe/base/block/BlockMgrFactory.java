@@ -47,19 +47,28 @@ public class BlockMgrFactory {
                       params.getFileMode(),
                       params.getBlockSize(),
                       params.getBlockReadCacheSize(),
-                      params.getBlockWriteCacheSize());
+                      params.getBlockWriteCacheSize(),
+                      params.isBlockCacheConcurrent());
     }
 
     public static BlockMgr create(FileSet fileSet, String ext, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
         return create(fileSet, ext, null, blockSize, readBlockCacheSize, writeBlockCacheSize);
     }
 
+    public static BlockMgr create(FileSet fileSet, String ext, int blockSize, int readBlockCacheSize, int writeBlockCacheSize, boolean concurrentCache) {
+        return create(fileSet, ext, null, blockSize, readBlockCacheSize, writeBlockCacheSize, concurrentCache);
+    }
+
     // XXX Deprecate?
     public static BlockMgr create(FileSet fileSet, String ext, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return create(fileSet, ext, fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize, SystemIndex.BlockCacheConcurrent);
+    }
+
+    public static BlockMgr create(FileSet fileSet, String ext, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize, boolean concurrentCache) {
         if ( fileSet.isMem() )
             return createMem(fileSet.filename(ext), blockSize);
         else
-            return createFile(fileSet.filename(ext), fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize);
+            return createFile(fileSet.filename(ext), fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize, concurrentCache);
     }
 
     /** Create an in-memory block manager */
@@ -81,13 +90,18 @@ public class BlockMgrFactory {
 
         /** Create a BlockMgr backed by a real file */
     public static BlockMgr createFile(String filename, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return createFile(filename, fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize, SystemIndex.BlockCacheConcurrent);
+    }
+
+    /** Create a BlockMgr backed by a real file, choosing the kind of block cache */
+    public static BlockMgr createFile(String filename, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize, boolean concurrentCache) {
         if ( fileMode == null )
             fileMode = SystemIndex.fileMode();
         switch (fileMode) {
             case mapped :
                 return createMMapFile(filename, blockSize);
             case direct :
-                return createStdFile(filename, blockSize, readBlockCacheSize, writeBlockCacheSize);
+                return createStdFile(filename, blockSize, readBlockCacheSize, writeBlockCacheSize, concurrentCache);
         }
         throw new DBOpEnvException("Unknown file mode: " + fileMode);
     }
@@ -101,9 +115,14 @@ public class BlockMgrFactory {
 
     /** Create a Block Manager using direct access (and a cache) */
     public static BlockMgr createStdFile(String filename, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return createStdFile(filename, blockSize, readBlockCacheSize, writeBlockCacheSize, SystemIndex.BlockCacheConcurrent);
+    }
+
+    /** Create a Block Manager using direct access and a synchronized or a concurrent cache */
+    public static BlockMgr createStdFile(String filename, int blockSize, int readBlockCacheSize, int writeBlockCacheSize, boolean concurrentCache) {
         BlockAccess file = new BlockAccessDirect(filename, blockSize);
         BlockMgr blockMgr = wrapFileAccess(file, blockSize);
-        blockMgr = addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize);
+        blockMgr = addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize, concurrentCache);
         return track(blockMgr);
     }
 
@@ -123,8 +142,18 @@ public class BlockMgrFactory {
      * @see #addCache(BlockMgr, FileSet, FileMode, int, int)
      */
     public static BlockMgr addCache(BlockMgr blockMgr, int readBlockCacheSize, int writeBlockCacheSize) {
-        if ( blockMgr instanceof BlockMgrCache )
+        return addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize, SystemIndex.BlockCacheConcurrent);
+    }
+
+    /**
+     * Add a caching layer to a BlockMgr: {@link BlockMgrCacheConcurrent} if
+     * {@code concurrentCache} is true, else {@link BlockMgrCache}.
+     */
+    public static BlockMgr addCache(BlockMgr blockMgr, int readBlockCacheSize, int writeBlockCacheSize, boolean concurrentCache) {
+        if ( blockMgr instanceof BlockMgrCache || blockMgr instanceof BlockMgrCacheConcurrent )
             Log.warn(BlockMgrFactory.class, "BlockMgr already has a cache: " + blockMgr.getLabel());
+        if ( concurrentCache )
+            return BlockMgrCacheConcurrent.create(readBlockCacheSize, writeBlockCacheSize, blockMgr);
         return BlockMgrCache.create(readBlockCacheSize, writeBlockCacheSize, blockMgr);
     }
 
@@ -18,10 +18,17 @@
 
 package org.apache.jena.dboe.base.block;
 
+import org.apache.jena.dboe.sys.SystemIndex;
+
 public interface BlockParams {
     public FileMode getFileMode();
     public Integer getBlockSize();
     public Integer getBlockReadCacheSize();
     public Integer getBlockWriteCacheSize();
+
+    /** Use the concurrent block cache ({@link BlockMgrCacheConcurrent}). */
+    public default boolean isBlockCacheConcurrent() {
+        return SystemIndex.BlockCacheConcurrent;
+    }
 }
 
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.buffer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.dboe.base.record.Record;
+
+/**
+ * A batch of record keys decoded as longs: fixed-width rows, stored row-major in one
+ * {@code long[]}. Keys are read as big-endian longs, so the key length must be a
+ * multiple of 8.
+ * <p>
+ * Batch iterators reuse one {@code LongBatch}; the contents are valid until the next
+ * call of {@code next()}.
+ */
+public final class LongBatch {
+    private final int width;
+    private long[] values;
+    private int rows = 0;
+
+    public LongBatch(int width, int initialRows) {
+        if ( width <= 0 )
+            throw new IllegalArgumentException("LongBatch: width = "+width);
+        this.width = width;
+        this.values = new long[width * Math.max(1, initialRows)];
+    }
+
+    /** Number of longs in a row. */
+    public int width()          { return width; }
+
+    /** Number of rows. */
+    public int size()           { return rows; }
+
+    public boolean isEmpty()    { return rows == 0; }
+
+    public long get(int row, int col) {
+        return values[row * width + col];
+    }
+
+    /** The underlying array, row-major. Only the first {@code size()*width()} entries are in use. */
+    public long[] array()       { return values; }
+
+    public void clear()         { rows = 0; }
+
+    /** Make space for {@code n} more rows and return the array index to write the first of them. */
+    public int reserve(int n) {
+        int needed = (rows + n) * width;
+        if ( needed > values.length )
+            values = Arrays.copyOf(values, Math.max(needed, 2 * values.length));
+        int idx = rows * width;
+        rows += n;
+        return idx;
+    }
+
+    /** Add the key of a record as a row. */
+    public void add(Record record) {
+        byte[] key = record.getKey();
+        int idx = reserve(1);
+        for ( int i = 0 ; i < width ; i++ )
+            values[idx + i] = Bytes.getLong(key, i * Long.BYTES);
+    }
+
+    /** Group the keys of records into batches of up to {@code batchSize} rows. */
+    public static Iterator<LongBatch> batches(Iterator<Record> iter, int width, int batchSize) {
+        LongBatch batch = new LongBatch(width, batchSize);
+        return new Iterator<LongBatch>() {
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public LongBatch next() {
+                if ( !iter.hasNext() )
+                    throw new NoSuchElementException("LongBatch.batches");
+                batch.clear();
+                while ( iter.hasNext() && batch.size() < batchSize )
+                    batch.add(iter.next());
+                return batch;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "LongBatch[width=" + width + ", rows=" + rows + "]";
+    }
+}
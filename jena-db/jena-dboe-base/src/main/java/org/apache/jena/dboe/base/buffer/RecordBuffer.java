@@ -137,6 +137,26 @@ final public class RecordBuffer extends BufferBase {
         return new RecordBufferIteratorMapper<>(this, min, max, factory.keyLength(), mapper);
     }
 
+    /** Append the keys of slots {@code from} (inclusive) to {@code to} (exclusive)
+     * to a {@link LongBatch}, one row per record.
+     */
+    public void appendKeys(int from, int to, LongBatch batch) {
+        if ( from >= to )
+            return;
+        checkBounds(from, numSlot);
+        checkBounds(to - 1, numSlot);
+        int width = batch.width();
+        if ( width * Long.BYTES > factory.keyLength() )
+            throw new BufferException(format("Key too short for batch: keyLength=%d, width=%d", factory.keyLength(), width));
+        int idx = batch.reserve(to - from);
+        long[] array = batch.array();
+        for ( int i = from ; i < to ; i++ ) {
+            int x = i * slotLen;
+            for ( int j = 0 ; j < width ; j++ )
+                array[idx++] = bb.getLong(x + j * Long.BYTES);
+        }
+    }
+
     public Record findGet(Record k) {
         int x = find(k);
         if ( x >= 0 )
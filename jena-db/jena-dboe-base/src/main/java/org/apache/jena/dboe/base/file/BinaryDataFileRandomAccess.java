@@ -20,14 +20,18 @@ package org.apache.jena.dboe.base.file;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.apache.jena.atlas.RuntimeIOException;
 import org.apache.jena.atlas.io.IO;
+import org.apache.jena.dboe.sys.FileSync;
 
 /** Implementation of {@link BinaryDataFile} using {@link RandomAccessFile}.
  *
  * <li>No buffering of reads or writes provided.
- * <li>Not thread-safe.
+ * <li>Reads are positional (they do not move the file pointer) and may be concurrent.
+ * <li>Writes are not thread-safe.
  *
  *  @see BinaryDataFileWriteBuffered
  */
@@ -35,6 +39,7 @@ public class BinaryDataFileRandomAccess implements BinaryDataFile {
     // On OpenJDK, RandomAccessFile and FileChannelImpl both
     // dive into native code.
     protected RandomAccessFile file;
+    protected FileChannel channel;
     protected boolean readMode;
     protected long readPosition;
     protected long writePosition;
@@ -50,6 +55,7 @@ public class BinaryDataFileRandomAccess implements BinaryDataFile {
             throw new RuntimeIOException("Already open");
         try {
             file = new RandomAccessFile(filename, "rw");
+            channel = file.getChannel();
             writePosition = file.length();
             readPosition = 0;
             readMode = true;
@@ -65,11 +71,18 @@ public class BinaryDataFileRandomAccess implements BinaryDataFile {
     @Override
     public int read(long posn, byte[] b, int start, int length) {
         checkOpen();
-        switchToReadMode();
-        seek(posn);
+        ByteBuffer bb = ByteBuffer.wrap(b, start, length);
         try {
-            int x = file.read(b, start, length);
-            readPosition += x;
+            // FileChannel positional reads are thread-safe and do not
+            // change the file pointer used for writing.
+            while ( bb.hasRemaining() ) {
+                int x = channel.read(bb, posn + bb.position() - start);
+                if ( x < 0 )
+                    break;
+            }
+            int x = bb.position() - start;
+            if ( x == 0 && length > 0 )
+                return -1;
             return x;
         }
         catch (IOException ex) { IO.exception(ex); return -1; }
@@ -105,7 +118,7 @@ public class BinaryDataFileRandomAccess implements BinaryDataFile {
     @Override
     public void sync() {
         checkOpen();
-        flush$();
+        FileSync.sync(this, () -> { if ( isOpen() ) flush$(); });
     }
 
     protected void flush$() {
@@ -120,6 +133,7 @@ public class BinaryDataFileRandomAccess implements BinaryDataFile {
         try { file.close(); }
         catch (IOException ex) { IO.exception(ex); }
         file = null;
+        channel = null;
     }
 
     @Override
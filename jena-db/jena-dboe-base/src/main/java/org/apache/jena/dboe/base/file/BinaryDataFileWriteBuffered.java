@@ -24,7 +24,9 @@ import org.apache.jena.atlas.RuntimeIOException;
  * {@link BinaryDataFile} file, such as a {@link BinaryDataFileRandomAccess}.
  *  <li>Thread-safe.
  *  <li>No read buffering provided.
- *  <li>The write buffer is flushed when switching to read.
+ *  <li>The write buffer is flushed when a read overlaps it.
+ *  <li>Reads of the already written part of the file do not take the lock;
+ *      the underlying file must support concurrent reads.
  */
 
 public class BinaryDataFileWriteBuffered implements BinaryDataFile {
@@ -33,6 +35,8 @@ public class BinaryDataFileWriteBuffered implements BinaryDataFile {
     private final byte[] buffer;
     private volatile int bufferLength;
     private final BinaryDataFile other;
+    // Length of the underlying file, i.e. the part not in the write buffer.
+    private volatile long otherLength;
 
     public BinaryDataFileWriteBuffered(BinaryDataFile other) {
         this(other, SIZE);
@@ -49,6 +53,7 @@ public class BinaryDataFileWriteBuffered implements BinaryDataFile {
         synchronized(sync) {
             other.open();
             bufferLength = 0;
+            otherLength = other.length();
         }
     }
 
@@ -101,6 +106,7 @@ public class BinaryDataFileWriteBuffered implements BinaryDataFile {
                 }
             }
             other.truncate(posn);
+            otherLength = other.length();
         }
     }
 
@@ -111,6 +117,9 @@ public class BinaryDataFileWriteBuffered implements BinaryDataFile {
 
     @Override
     public int read(long posn, byte[] b, int start, int length) {
+        if ( posn + length <= otherLength )
+            // Does not overlap the write buffer.
+            return other.read(posn, b, start, length);
         synchronized(sync) {
             // Overlap with buffered area
             // We flush the write buffer for a read so no need to check.
@@ -150,6 +159,7 @@ public class BinaryDataFileWriteBuffered implements BinaryDataFile {
             }
             // Larger than the buffer space.  Write directly.
             other.write(buf, off, len);
+            otherLength += len;
             return x;
         }
     }
@@ -165,6 +175,7 @@ public class BinaryDataFileWriteBuffered implements BinaryDataFile {
     private void writeBuffer() {
         if ( bufferLength > 0 ) {
             other.write(buffer, 0, bufferLength);
+            otherLength += bufferLength;
             bufferLength = 0;
         }
     }
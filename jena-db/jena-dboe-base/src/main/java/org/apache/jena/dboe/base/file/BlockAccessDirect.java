@@ -26,6 +26,7 @@ import java.nio.ByteBuffer;
 import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.dboe.base.block.Block;
 import org.apache.jena.dboe.sys.FileLib;
+import org.apache.jena.dboe.sys.FileSync;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -105,7 +106,7 @@ public class BlockAccessDirect extends BlockAccessBase
 
     @Override
     public void sync() {
-        force();
+        FileSync.sync(this, () -> { if ( ! isClosed() ) force(); });
     }
 
     @Override
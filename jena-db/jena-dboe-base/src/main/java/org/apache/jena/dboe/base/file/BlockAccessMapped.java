@@ -27,6 +27,7 @@ import java.nio.channels.FileChannel.MapMode;
 import java.util.Arrays;
 
 import org.apache.jena.dboe.base.block.Block;
+import org.apache.jena.dboe.sys.FileSync;
 import org.apache.jena.dboe.sys.SystemIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -125,7 +126,8 @@ public class BlockAccessMapped extends BlockAccessBase
     @Override
     public void sync() {
         checkIfClosed();
-        force();
+        // Closing also flushes dirty segments.
+        FileSync.sync(this, () -> { if ( ! isClosed() ) force(); });
     }
 
     private ByteBuffer getByteBuffer(long _id) {
@@ -24,6 +24,7 @@ import java.nio.channels.FileChannel;
 
 import org.apache.jena.atlas.io.IO;
 import org.apache.jena.dboe.sys.FileLib;
+import org.apache.jena.dboe.sys.FileSync;
 
 public class BufferChannelFile implements BufferChannel {
     private String      filename;
@@ -146,7 +147,7 @@ public class BufferChannelFile implements BufferChannel {
 
     @Override
     public void sync() {
-        FileLib.sync(file);
+        FileSync.sync(this, () -> { if ( file.isOpen() ) FileLib.sync(file); });
     }
 
     @Override
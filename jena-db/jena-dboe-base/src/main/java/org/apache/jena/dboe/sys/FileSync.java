@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.sys;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Forcing file contents to persistent storage.
+ * <p>
+ * Normally {@link #sync(Object, Runnable)} runs the sync action immediately, and
+ * {@link #write(Object, Runnable)} writes the committed state of a file in place
+ * immediately. A thread can {@linkplain #startDefer() defer} both: the actions are
+ * then recorded and handed back by {@link #endDefer()} for the caller to run later,
+ * for example to force the files of several transactions in one step. Recorded
+ * in-place writes are run after all recorded syncs, so the state written never
+ * refers to data that is not yet on disk.
+ */
+public class FileSync {
+    private static final ThreadLocal<Deferred> deferred = new ThreadLocal<>();
+
+    /** Sync actions, once per file, and in-place writes, the last one per file. */
+    public static class Deferred {
+        private final Map<Object, Runnable> syncs = new LinkedHashMap<>();
+        private final Map<Object, Runnable> writes = new LinkedHashMap<>();
+
+        public boolean isEmpty() {
+            return syncs.isEmpty() && writes.isEmpty();
+        }
+
+        /** Add the actions of another {@code Deferred}, recorded after those of this one. */
+        public void addAll(Deferred other) {
+            other.syncs.forEach(syncs::putIfAbsent);
+            writes.putAll(other.writes);
+        }
+
+        /** Run the sync actions. */
+        public void runSyncs() {
+            syncs.values().forEach(Runnable::run);
+        }
+
+        /** Run the in-place writes. */
+        public void runWrites() {
+            writes.values().forEach(Runnable::run);
+        }
+
+        /** Run the sync actions, then the in-place writes. */
+        public void runAll() {
+            runSyncs();
+            runWrites();
+        }
+    }
+
+    /** Run a sync action for a file, or record it if this thread is deferring syncs. */
+    public static void sync(Object file, Runnable action) {
+        Deferred actions = deferred.get();
+        if ( actions == null ) {
+            action.run();
+            return;
+        }
+        actions.syncs.putIfAbsent(file, action);
+    }
+
+    /**
+     * Write the committed state of a file in place, including forcing it to disk, or
+     * record the write if this thread is deferring syncs. A recorded write replaces any
+     * earlier recorded write of the same file, so the action must carry the state to
+     * write, not read it when run.
+     */
+    public static void write(Object file, Runnable action) {
+        Deferred actions = deferred.get();
+        if ( actions == null ) {
+            action.run();
+            return;
+        }
+        actions.writes.put(file, action);
+    }
+
+    /** Start recording sync actions and in-place writes on this thread instead of running them. */
+    public static void startDefer() {
+        if ( deferred.get() != null )
+            throw new IllegalStateException("Already deferring syncs");
+        deferred.set(new Deferred());
+    }
+
+    /** Whether this thread is deferring syncs. */
+    public static boolean isDeferring() {
+        return deferred.get() != null;
+    }
+
+    /** Stop recording on this thread and return the actions recorded. */
+    public static Deferred endDefer() {
+        Deferred actions = deferred.get();
+        deferred.remove();
+        if ( actions == null )
+            throw new IllegalStateException("Not deferring syncs");
+        return actions;
+    }
+}
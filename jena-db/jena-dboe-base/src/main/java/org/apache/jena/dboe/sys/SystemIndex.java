@@ -63,8 +63,16 @@ public class SystemIndex
     /** Size of read block cache (32 bit systems only).  Increase JVM size as necessary. Per file. */
     public static final int BlockReadCacheSize      = intValue("BlockReadCacheSize", 10*1000);
 
+    /**
+     * Use the concurrent block cache ({@link org.apache.jena.dboe.base.block.BlockMgrCacheConcurrent}),
+     * where reads do not take a lock, instead of the synchronized one, by default.
+     */
+    public static final boolean BlockCacheConcurrent = booleanValue("BlockCacheConcurrent", false);
+
     private static int intValue(String name, int dft) { return dft; }
 
+    private static boolean booleanValue(String name, boolean dft) { return dft; }
+
     public static void setNullOut(boolean nullOut)
     { NullOut = nullOut; }
 
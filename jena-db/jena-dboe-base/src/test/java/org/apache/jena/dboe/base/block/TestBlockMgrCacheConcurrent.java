@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.block;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class TestBlockMgrCacheConcurrent {
+    private static final int BlockSize = 16;
+
+    /**
+     * Storage that returns a new block, holding the version last written, on each
+     * read. Reads of {@link #pauseId} wait for {@link #resume} after reading.
+     */
+    private static class VersionedBlockMgr extends BlockMgrWrapper {
+        final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+        volatile long pauseId = -1;
+        final CountDownLatch paused = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+
+        VersionedBlockMgr() {
+            super(BlockMgrFactory.createMem("test", BlockSize));
+        }
+
+        private static Block block(long id, int version) {
+            ByteBuffer bb = ByteBuffer.allocate(BlockSize);
+            bb.putInt(0, version);
+            return new Block(id, bb);
+        }
+
+        @Override
+        public Block getRead(long id) {
+            Block block = block(id, versions.getOrDefault(id, 0));
+            if ( id == pauseId ) {
+                pauseId = -1;
+                paused.countDown();
+                try { resume.await(); } catch (InterruptedException ex) {}
+            }
+            return block;
+        }
+
+        @Override
+        public Block getWrite(long id) {
+            return block(id, versions.getOrDefault(id, 0));
+        }
+
+        @Override
+        public Block promote(Block block) {
+            return block;
+        }
+
+        @Override
+        public void write(Block block) {
+            versions.put(block.getId(), version(block));
+        }
+
+        @Override
+        public void overwrite(Block block) {
+            write(block);
+        }
+
+        @Override
+        public void free(Block block) {
+            versions.remove(block.getId());
+        }
+    }
+
+    private static int version(Block block) {
+        return block.getByteBuffer().getInt(0);
+    }
+
+    private static void setVersion(Block block, int version) {
+        block.getByteBuffer().putInt(0, version);
+    }
+
+    // A read that misses the cache, then a write of the block before the read fills the cache.
+    @Test public void stale_fill() throws Exception {
+        VersionedBlockMgr storage = new VersionedBlockMgr();
+        BlockMgr mgr = BlockMgrCacheConcurrent.create(10, 0, storage);
+        storage.pauseId = 1;
+        AtomicReference<Block> read = new AtomicReference<>();
+        Thread reader = new Thread(() -> read.set(mgr.getRead(1)));
+        reader.start();
+        assertTrue(storage.paused.await(10, TimeUnit.SECONDS));
+
+        Block w = mgr.getWrite(1);
+        setVersion(w, 1);
+        mgr.write(w);
+
+        storage.resume.countDown();
+        reader.join();
+        assertEquals(0, version(read.get()));
+        assertEquals(1, version(mgr.getRead(1)));
+    }
+
+    // Readers must see at least the version published after each write completes.
+    @Test public void concurrent_read_write() throws Exception {
+        concurrent(10, 0);
+        concurrent(10, 4);
+    }
+
+    private static void concurrent(int readSlots, int writeSlots) throws Exception {
+        final int numIds = 8;
+        final int numReaders = 4;
+        final int numWrites = 20_000;
+        VersionedBlockMgr storage = new VersionedBlockMgr();
+        BlockMgr mgr = BlockMgrCacheConcurrent.create(readSlots, writeSlots, storage);
+        AtomicIntegerArray published = new AtomicIntegerArray(numIds);
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for ( int r = 0 ; r < numReaders ; r++ ) {
+            Thread t = new Thread(() -> {
+                int i = 0;
+                while ( !done.get() && failure.get() == null ) {
+                    int id = (i++) % numIds;
+                    int expected = published.get(id);
+                    int version = version(mgr.getRead(id));
+                    if ( version < expected )
+                        failure.set("Block " + id + ": read version " + version + ", expected at least " + expected);
+                    Thread.yield();
+                }
+            });
+            readers.add(t);
+            t.start();
+        }
+
+        try {
+            for ( int n = 1 ; n <= numWrites && failure.get() == null ; n++ ) {
+                int id = n % numIds;
+                // Read first, so the write promotes a cached block some of the time.
+                if ( n % 3 == 0 )
+                    mgr.getRead(id);
+                Block w = mgr.getWrite(id);
+                setVersion(w, n);
+                if ( n % 5 == 0 )
+                    mgr.overwrite(w);
+                else
+                    mgr.write(w);
+                if ( n % 100 == 0 )
+                    mgr.sync();
+                published.set(id, n);
+                if ( n % 50 == 0 )
+                    Thread.yield();
+            }
+        } finally {
+            done.set(true);
+            for ( Thread t : readers )
+                t.join();
+        }
+        assertEquals(null, failure.get());
+        for ( int id = 0 ; id < numIds ; id++ )
+            assertEquals(published.get(id), version(mgr.getRead(id)));
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.jena.dboe.index;
 
 import java.util.Iterator;
 
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordMapper;
 
@@ -30,6 +31,16 @@ public interface RangeIndex extends Index
 
     public <X> Iterator<X> iterator(Record recordMin, Record recordMax, RecordMapper<X> mapper);
 
+    /**
+     * Return the keys between min (inclusive) and max (exclusive) as batches of rows of
+     * longs. The key length must be a multiple of 8. The batch object may be reused
+     * by the iterator; it is valid until the next call of {@code next()}.
+     */
+    public default Iterator<LongBatch> iteratorBatch(Record recordMin, Record recordMax) {
+        int width = getRecordFactory().keyLength() / Long.BYTES;
+        return LongBatch.batches(iterator(recordMin, recordMax), width, 256);
+    }
+
     /** Return the record containing the least key - may or may not have the associated value */
     public Record minKey();
 
@@ -20,6 +20,7 @@ package org.apache.jena.dboe.index;
 
 import java.util.Iterator;
 
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.base.record.RecordMapper;
@@ -73,6 +74,10 @@ public class RangeIndexWrapper implements RangeIndex
     public <X> Iterator<X> iterator(Record minRec, Record maxRec, RecordMapper<X> mapper)
     { return rIndex.iterator(minRec, maxRec, mapper); }
 
+    @Override
+    public Iterator<LongBatch> iteratorBatch(Record minRec, Record maxRec)
+    { return rIndex.iteratorBatch(minRec, maxRec); }
+
     @Override
     public boolean isEmpty()
     { return rIndex.isEmpty(); }
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.trans.bplustree;
+
+import static org.apache.jena.atlas.lib.Alg.decodeIndex;
+
+import java.util.*;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.InternalErrorException;
+import org.apache.jena.dboe.base.buffer.LongBatch;
+import org.apache.jena.dboe.base.buffer.RecordBuffer;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.trans.bplustree.AccessPath.AccessStep;
+
+/**
+ * Iterator over a range of a B+Tree, one {@link LongBatch} per leaf. The keys of a
+ * leaf are decoded from the block in one pass, with no {@link Record} objects.
+ * The batch is reused.
+ */
+class BPTreeRangeIteratorBatch implements Iterator<LongBatch> {
+
+    public static Iterator<LongBatch> create(BPTreeNode node, Record minRec, Record maxRec, int width) {
+        if ( minRec != null && maxRec != null && Record.keyGE(minRec, maxRec) )
+            return Iter.nullIter();
+        return new BPTreeRangeIteratorBatch(node, minRec, maxRec, width);
+    }
+
+    // Convert path to a stack of iterators
+    final private Deque<Iterator<BPTreePage>> stack = new ArrayDeque<>();
+    final private Record minRecord;
+    final private Record maxRecord;
+    final private LongBatch batch;
+    // Next leaf to decode.
+    private BPTreeRecords current;
+    private boolean slot = false;
+    private boolean finished = false;
+
+    BPTreeRangeIteratorBatch(BPTreeNode node, Record minRec, Record maxRec, int width) {
+        this.minRecord = minRec;
+        this.maxRecord = maxRec;
+        // Grows to the size of the largest leaf seen.
+        this.batch = new LongBatch(width, 256);
+        current = loadStack(node);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if ( finished )
+            return false;
+        if ( slot )
+            return true;
+        while ( current != null ) {
+            boolean more = decode(current);
+            current = more ? moveOnCurrent() : null;
+            if ( !batch.isEmpty() ) {
+                slot = true;
+                return true;
+            }
+        }
+        end();
+        return false;
+    }
+
+    /** Decode the in-range part of a leaf into the batch. Return false if the range ends in this leaf. */
+    private boolean decode(BPTreeRecords records) {
+        batch.clear();
+        records.bpTree.startReadBlkMgr();
+        try {
+            RecordBuffer rBuff = records.getRecordBuffer();
+            int size = rBuff.size();
+            int start = 0;
+            if ( minRecord != null ) {
+                start = rBuff.find(minRecord);
+                if ( start < 0 )
+                    start = decodeIndex(start);
+            }
+            int finish = size;
+            if ( maxRecord != null ) {
+                finish = rBuff.find(maxRecord);
+                if ( finish < 0 )
+                    finish = decodeIndex(finish);
+            }
+            rBuff.appendKeys(start, finish, batch);
+            return finish == size;
+        } finally {
+            records.bpTree.finishReadBlkMgr();
+        }
+    }
+
+    // Move across the head of the stack until empty - then move next level.
+    private BPTreeRecords moveOnCurrent() {
+        Iterator<BPTreePage> iter = null;
+        while(!stack.isEmpty()) {
+            iter = stack.peek();
+            if ( iter.hasNext() )
+              break;
+            stack.pop();
+        }
+
+        if ( iter == null || ! iter.hasNext() )
+            return null;
+        BPTreePage p = iter.next();
+        if (p instanceof BPTreeNode)
+            return loadStack((BPTreeNode)p);
+        return (BPTreeRecords)p;
+    }
+
+    private BPTreeRecords loadStack(BPTreeNode node) {
+        AccessPath path = new AccessPath(null);
+        node.bpTree.startReadBlkMgr();
+
+        if ( minRecord == null )
+            node.internalMinRecord(path);
+        else
+            node.internalSearch(path, minRecord);
+        List<AccessStep> steps = path.getPath();
+        for ( AccessStep step : steps ) {
+            BPTreeNode n = step.node;
+            Iterator<BPTreePage> it = n.iterator(minRecord, maxRecord);
+            if ( it == null || ! it.hasNext() )
+                continue;
+            it.next();
+            stack.push(it);
+        }
+        BPTreePage p = steps.get(steps.size()-1).page;
+        if ( ! ( p instanceof BPTreeRecords ) )
+            throw new InternalErrorException("Last path step not to a records block");
+        node.bpTree.finishReadBlkMgr();
+        return (BPTreeRecords)p;
+    }
+
+    private void end() {
+        finished = true;
+        current = null;
+        stack.clear();
+    }
+
+    @Override
+    public LongBatch next() {
+        if ( ! hasNext() )
+            throw new NoSuchElementException();
+        slot = false;
+        return batch;
+    }
+}
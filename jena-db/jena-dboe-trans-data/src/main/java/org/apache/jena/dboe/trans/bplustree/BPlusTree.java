@@ -24,6 +24,7 @@ import java.util.Iterator;
 import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.InternalErrorException;
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.base.record.RecordMapper;
@@ -352,6 +353,22 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
         return BPTreeRangeIteratorMapper.create(node, minRec, maxRec, keyLen, mapper);
     }
 
+    /** {@inheritDoc}
+     * <p>
+     * Each batch is the in-range part of one leaf, decoded directly from the block.
+     */
+    @Override
+    public Iterator<LongBatch> iteratorBatch(Record minRec, Record maxRec) {
+        int keyLen = recordsMgr.getRecordBufferPageMgr().getRecordFactory().keyLength();
+        if ( keyLen % Long.BYTES != 0 )
+            throw new BPTreeException("iteratorBatch: key length is not a multiple of 8: "+keyLen);
+        startReadBlkMgr();
+        BPTreeNode root = getRootRead();
+        releaseRootRead(root);
+        finishReadBlkMgr();
+        return BPTreeRangeIteratorBatch.create(root, minRec, maxRec, keyLen / Long.BYTES);
+    }
+
     // Internal calls.
     void startReadBlkMgr() {
         nodeManager.startRead();
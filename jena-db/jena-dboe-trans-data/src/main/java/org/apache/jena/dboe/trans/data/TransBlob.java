@@ -24,6 +24,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.apache.jena.atlas.RuntimeIOException;
 import org.apache.jena.atlas.lib.Bytes;
 import org.apache.jena.dboe.base.file.BufferChannel;
+import org.apache.jena.dboe.sys.FileSync;
 import org.apache.jena.dboe.transaction.txn.ComponentId;
 import org.apache.jena.dboe.transaction.txn.TransactionalComponentLifecycle;
 import org.apache.jena.dboe.transaction.txn.TxnId;
@@ -77,15 +78,17 @@ public class TransBlob extends TransactionalComponentLifecycle<TransBlob.BlobSta
     }
 
     private void writeBlobState() {
-        ByteBuffer blob = blobRef.get();
-        blob.rewind();
-        int x = blob.remaining();
-        file.truncate(0);
-        int len = file.write(blob);
-        if ( len != x )
-            throw new RuntimeIOException("Short write: "+len+" of "+x);
-        file.sync();
-        blob.rewind();
+        // The write may happen later (see FileSync.write).
+        ByteBuffer blob = blobRef.get().duplicate();
+        FileSync.write(file, ()->{
+            blob.rewind();
+            int x = blob.remaining();
+            file.truncate(0);
+            int len = file.write(blob);
+            if ( len != x )
+                throw new RuntimeIOException("Short write: "+len+" of "+x);
+            file.sync();
+        });
     }
 
     /** Set the byte buffer.
@@ -27,6 +27,7 @@ import org.apache.jena.atlas.io.IO;
 import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.dboe.sys.FileSync;
 import org.apache.jena.dboe.transaction.txn.ComponentId;
 import org.apache.jena.dboe.transaction.txn.TransactionalComponentLifecycle;
 import org.apache.jena.dboe.transaction.txn.TxnId;
@@ -93,7 +94,7 @@ public class TransInteger extends TransactionalComponentLifecycle<TransInteger.I
 
     private void writeLocation(long value) {
         if ( filename != null ) {
-            write(filename, value);
+            FileSync.write(this, ()->write(filename, value));
         }
     }
 
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.transaction.txn;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.apache.jena.dboe.sys.FileSync;
+
+/**
+ * Batching of the file syncs of committed write transactions.
+ * <p>
+ * The deferred actions of a commit (see {@link FileSync}) are added to the open group.
+ * The first committer to wait leads: it waits, for at most the maximum latency,
+ * while other writers may still join, then closes the group and makes it durable with
+ * a {@link Checkpoint}. Other committers wait for the leader. A failed checkpoint is
+ * not retried; that commit and all later ones report the failure.
+ */
+class GroupCommit {
+    /**
+     * Make a group of commits durable. {@code closeGroup} closes the open group and
+     * returns its deferred actions; the checkpoint calls it once, when no more commits
+     * may join the group.
+     */
+    interface Checkpoint { void run(Supplier<FileSync.Deferred> closeGroup); }
+
+    private static ScheduledExecutorService scheduler = null;
+
+    private final long maxLatencyNanos;
+    private final BooleanSupplier moreCommits;
+    private final Checkpoint checkpoint;
+    private final Object lock = new Object();
+
+    // All guarded by "lock".
+    private FileSync.Deferred pending = new FileSync.Deferred();
+    // The group that commits are added to.
+    private long openGroup = 1;
+    // The last group that has been made durable.
+    private long syncedGroup = 0;
+    private boolean leaderActive = false;
+    private boolean flushScheduled = false;
+    private long failedGroup = 0;
+    private RuntimeException failure = null;
+
+    /**
+     * @param maxLatencyMillis Longest time a commit waits for others to join its group.
+     * @param moreCommits      Whether there may be another commit to join the open group soon.
+     * @param checkpoint       Makes a group durable.
+     */
+    GroupCommit(long maxLatencyMillis, BooleanSupplier moreCommits, Checkpoint checkpoint) {
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxLatencyMillis));
+        this.moreCommits = moreCommits;
+        this.checkpoint = checkpoint;
+    }
+
+    /** Add the deferred actions of a commit, or abort, to the open group and return the group. */
+    long add(FileSync.Deferred actions) {
+        synchronized(lock) {
+            pending.addAll(actions);
+            // Wake a leader waiting for more commits.
+            lock.notifyAll();
+            return openGroup;
+        }
+    }
+
+    /** Wait until a group has been made durable. */
+    void await(long group) {
+        syncGroup(group, true);
+    }
+
+    /** Make the open group durable within the maximum latency. */
+    void scheduleFlush() {
+        synchronized(lock) {
+            if ( flushScheduled )
+                return;
+            flushScheduled = true;
+        }
+        scheduler().schedule(this::flush, maxLatencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Make all outstanding commits durable. */
+    void flush() {
+        long group;
+        synchronized(lock) {
+            flushScheduled = false;
+            if ( pending.isEmpty() )
+                return;
+            group = openGroup;
+        }
+        syncGroup(group, false);
+    }
+
+    /** Throw the exception of an earlier failed checkpoint, if any. */
+    void checkFailed() {
+        synchronized(lock) {
+            if ( failure != null )
+                throw failure;
+        }
+    }
+
+    // Returns when the group has been made durable, by this thread or another.
+    private void syncGroup(long group, boolean gather) {
+        // A commit can not be abandoned part way through so interrupts are deferred.
+        boolean interrupted = false;
+        try {
+            for ( ;; ) {
+                synchronized(lock) {
+                    while ( syncedGroup < group && leaderActive )
+                        interrupted |= waitOn(0);
+                    if ( syncedGroup >= group ) {
+                        if ( failedGroup != 0 && group >= failedGroup )
+                            throw failure;
+                        return;
+                    }
+                    leaderActive = true;
+                    if ( gather ) {
+                        long deadline = System.nanoTime() + maxLatencyNanos;
+                        long remaining;
+                        while ( moreCommits.getAsBoolean() && (remaining = deadline - System.nanoTime()) > 0 )
+                            interrupted |= waitOn(remaining);
+                    }
+                }
+                // Not holding "lock": the checkpoint waits for any writer using the journal,
+                // and that writer adds its commit to the group.
+                long[] closed = { -1 };
+                Throwable ex = null;
+                try {
+                    checkpoint.run(()->{
+                        synchronized(lock) {
+                            FileSync.Deferred actions = pending;
+                            pending = new FileSync.Deferred();
+                            closed[0] = openGroup++;
+                            return actions;
+                        }
+                    });
+                } catch (RuntimeException | Error ex2) {
+                    ex = ex2;
+                }
+                synchronized(lock) {
+                    if ( closed[0] < 0 ) {
+                        // Failed before the group was closed.
+                        pending = new FileSync.Deferred();
+                        closed[0] = openGroup++;
+                    }
+                    if ( ex != null && failure == null ) {
+                        failure = new TransactionException("Commit may not be durable: failed to sync files", ex);
+                        failedGroup = closed[0];
+                    }
+                    syncedGroup = closed[0];
+                    leaderActive = false;
+                    lock.notifyAll();
+                }
+            }
+        } finally {
+            if ( interrupted )
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    // Wait on the lock, inside synchronized(lock). Zero means no time limit.
+    // Returns whether the thread was interrupted.
+    private boolean waitOn(long nanos) {
+        try {
+            if ( nanos == 0 )
+                lock.wait();
+            else
+                TimeUnit.NANOSECONDS.timedWait(lock, nanos);
+            return false;
+        } catch (InterruptedException ex) {
+            return true;
+        }
+    }
+
+    private static synchronized ScheduledExecutorService scheduler() {
+        if ( scheduler == null ) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "GroupCommit");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+}
@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import org.apache.jena.atlas.lib.Closeable;
 import org.apache.jena.atlas.lib.Sync;
 import org.apache.jena.dboe.base.file.BufferChannel;
+import org.apache.jena.dboe.sys.FileSync;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -140,7 +141,8 @@ public abstract class StateMgrBase implements Sync, Closeable {
     //public BufferChannel getChannel() { return storage; }
 
     /** The write process : serialize, write, sync,
-     * After this, the bytes definitely are on disk, not in some OS cache
+     * After this, the bytes definitely are on disk, not in some OS cache,
+     * unless the thread is deferring syncs (see {@link FileSync#write}).
      */
     public void writeState() {
         bb.rewind();
@@ -148,10 +150,17 @@ public abstract class StateMgrBase implements Sync, Closeable {
         if ( bb1 != null )
             bb = bb1;
         bb.rewind();
-        int len = storage.write(bb, 0);
-        storage.sync();
+        // Copy : the write may happen later.
+        ByteBuffer bytes = ByteBuffer.allocate(bb.remaining());
+        bytes.put(bb);
+        bytes.flip();
+        bb.rewind();
+        FileSync.write(storage, ()->{
+            storage.write(bytes.duplicate(), 0);
+            storage.sync();
+            writeStateEvent();
+        });
         dirty = false;
-        writeStateEvent();
     }
 
     /** The read process : get all bytes on disk, deserialize */
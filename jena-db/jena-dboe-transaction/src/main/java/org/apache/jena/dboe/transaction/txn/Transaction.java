@@ -180,6 +180,8 @@ public class Transaction implements TransactionInfo {
         }
         setState(COMMITTED);
         endInternal();
+        // With group commit, the files are synced after the transaction has completed.
+        txnMgr.awaitDurable(this);
     }
 
     public void abort() {
@@ -28,13 +28,16 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.apache.jena.atlas.logging.FmtLog;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.dboe.base.file.FileException;
 import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.sys.FileSync;
 import org.apache.jena.dboe.sys.SysDB;
 import org.apache.jena.dboe.transaction.txn.journal.Journal;
 import org.apache.jena.dboe.transaction.txn.journal.JournalEntry;
@@ -114,6 +117,19 @@ public class TransactionCoordinator {
     // Coordinator wide lock object.
     private Object coordinatorLock = new Object();
 
+    private TxnDurability durability = TxnDurability.SYNC;
+    // Null for TxnDurability.SYNC.
+    private GroupCommit groupCommit = null;
+    // Write transactions whose file syncs are being deferred.
+    private final Set<Transaction> deferringSyncs = ConcurrentHashMap.newKeySet();
+    // With group commit, the journal holds the entries of several transactions until
+    // a group is made durable. Held by a writer from prepare to the end of commit or
+    // abort, and by the checkpoint, so the entries of a transaction are contiguous and
+    // a COMMIT entry only covers complete transactions.
+    private final ReentrantLock journalWriteLock = new ReentrantLock();
+    // Committed write transactions and the group that will sync their files.
+    private final Map<Transaction, Long> awaitingSync = new ConcurrentHashMap<>();
+
     @FunctionalInterface
     public interface ShutdownHook { void shutdown(); }
 
@@ -217,6 +233,29 @@ public class TransactionCoordinator {
         shutdownHooks.remove(hook);
     }
 
+    /**
+     * Set when committed write transactions are forced to persistent storage.
+     * For {@link TxnDurability#GROUP}, {@code maxLatencyMillis} is the longest a commit
+     * waits for others to join its group; for {@link TxnDurability#RELAXED}, it is the
+     * longest a commit stays unsynced.
+     */
+    public void setDurability(TxnDurability durability, long maxLatencyMillis) {
+        checklAllowModification();
+        Objects.requireNonNull(durability);
+        if ( groupCommit != null )
+            groupCommit.flush();
+        this.durability = durability;
+        this.groupCommit = ( durability == TxnDurability.SYNC )
+            ? null
+            : new GroupCommit(maxLatencyMillis,
+                              ()->writersWaiting.availablePermits() == 0 || writersWaiting.hasQueuedThreads(),
+                              this::checkpoint);
+    }
+
+    public TxnDurability getDurability() {
+        return durability;
+    }
+
     public void setQuorumGenerator(QuorumGenerator qGen) {
         checklAllowModification();
         this.quorumGenerator = qGen;
@@ -321,6 +360,7 @@ public class TransactionCoordinator {
             return;
         if ( ! silent && countActive() > 0 )
             FmtLog.warn(SysErr, "Transactions active: W=%d, R=%d", countActiveWriter(), countActiveReaders());
+        flushDeferredSyncs();
         components.forEach((id, c) -> c.shutdown());
         shutdownHooks.forEach((h)-> h.shutdown());
         coordinatorLock = null;
@@ -399,11 +439,12 @@ public class TransactionCoordinator {
     }
 
     private boolean startExclusiveMode(boolean canBlock) {
-        if ( canBlock ) {
+        if ( canBlock )
             exclusivitylock.writeLock().lock();
-            return true;
-        }
-        return exclusivitylock.writeLock().tryLock();
+        else if ( ! exclusivitylock.writeLock().tryLock() )
+            return false;
+        flushDeferredSyncs();
+        return true;
     }
 
     /** Return to normal (release waiting transactions, allow new transactions).
@@ -441,7 +482,7 @@ public class TransactionCoordinator {
      * @see #enableWriters()
      */
     public void blockWriters() {
-        acquireWriterLock(true);
+        tryBlockWriters(true);
     }
 
     /** Try to block all writers, or return if can't at the moment.
@@ -469,7 +510,10 @@ public class TransactionCoordinator {
      * @return true if the operation succeeded and writers are blocked
      */
     public boolean tryBlockWriters(boolean canBlock) {
-        return acquireWriterLock(canBlock);
+        if ( ! acquireWriterLock(canBlock) )
+            return false;
+        flushDeferredSyncs();
+        return true;
     }
     /** Allow writers.
      * This must be used in conjunction with {@link #blockWriters()} or {@link #tryBlockWriters()}
@@ -711,16 +755,84 @@ public class TransactionCoordinator {
     // Internally, an API call "commit" is "prepare then commit".
 
     /*package*/ void executePrepare(Transaction transaction) {
-        // Do here because it needs access to the journal.
-        notifyPrepareStart(transaction);
-        transaction.getComponents().forEach(sysTrans -> {
-            ByteBuffer data = sysTrans.commitPrepare();
-            if ( data != null ) {
-                PrepareState s = new PrepareState(sysTrans.getComponentId(), data);
-                journal.write(s);
+        boolean group = groupCommit != null && transaction.isWriteTxn();
+        if ( group ) {
+            groupCommit.checkFailed();
+            // File syncs and in-place state writes from here to the end of the commit
+            // are deferred and run by the group commit.
+            FileSync.startDefer();
+            deferringSyncs.add(transaction);
+            journalWriteLock.lock();
+            journal.startWrite();
+        }
+        try {
+            // Do here because it needs access to the journal.
+            notifyPrepareStart(transaction);
+            transaction.getComponents().forEach(sysTrans -> {
+                ByteBuffer data = sysTrans.commitPrepare();
+                if ( data != null ) {
+                    PrepareState s = new PrepareState(sysTrans.getComponentId(), data);
+                    journal.write(s);
+                }
+            });
+            notifyPrepareFinish(transaction);
+        } catch (RuntimeException | Error ex) {
+            if ( group ) {
+                journal.abortWrite();
+                endGroupWrite(transaction);
             }
-        });
-        notifyPrepareFinish(transaction);
+            throw ex;
+        }
+    }
+
+    /**
+     * Group commit: stop deferring the file syncs and in-place writes of a write
+     * transaction, add them to the open group, and let other writers use the journal.
+     * Return the group, or -1 if the transaction was not deferring.
+     */
+    private long endGroupWrite(Transaction transaction) {
+        try {
+            if ( ! deferringSyncs.remove(transaction) )
+                return -1;
+            return groupCommit.add(FileSync.endDefer());
+        } finally {
+            if ( journalWriteLock.isHeldByCurrentThread() )
+                journalWriteLock.unlock();
+        }
+    }
+
+    /**
+     * Group commit: make a group durable, keeping the write-ahead order. The data files
+     * written by the transactions of the group are synced, then one COMMIT entry for
+     * the whole group is written to the journal and the journal synced. Only then are
+     * the component states written in place, and then the journal is emptied.
+     * Recovery replays a group if, and only if, its COMMIT entry is on disk.
+     */
+    private void checkpoint(Supplier<FileSync.Deferred> closeGroup) {
+        FileSync.Deferred actions;
+        long journalEnd;
+        journalWriteLock.lock();
+        try {
+            actions = closeGroup.get();
+            actions.runSyncs();
+            journal.writeJournal(JournalEntry.COMMIT);
+            journalEnd = journal.size();
+        } finally { journalWriteLock.unlock(); }
+        // *** COMMIT POINT for the group
+        journal.sync();
+        actions.runWrites();
+        // Empty the journal unless a writer has started to use it again.
+        if ( journalWriteLock.tryLock() ) {
+            try {
+                if ( journal.size() == journalEnd )
+                    journal.truncate(0);
+            } finally { journalWriteLock.unlock(); }
+        }
+    }
+
+    private void flushDeferredSyncs() {
+        if ( groupCommit != null )
+            groupCommit.flush();
     }
 
     /*package*/ void executeCommit(Transaction transaction, Runnable commit, Runnable finish, Runnable sysabort) {
@@ -730,6 +842,10 @@ public class TransactionCoordinator {
             notifyCommitFinish(transaction);
             return;
         }
+        if ( deferringSyncs.contains(transaction) ) {
+            executeCommitGroup(transaction, commit, finish);
+            return;
+        }
         // Writer
         journal.startWrite();
         try {
@@ -743,6 +859,44 @@ public class TransactionCoordinator {
         notifyCommitFinish(transaction);
     }
 
+    /**
+     * Commit of a write transaction with group commit. The changes become visible to
+     * later transactions now. The COMMIT entry and the file syncs are done later, for
+     * several transactions at once, by {@link #checkpoint}; until then the component
+     * states on disk are unchanged and the journal has no COMMIT for this transaction.
+     */
+    private void executeCommitGroup(Transaction transaction, Runnable commit, Runnable finish) {
+        long group;
+        try {
+            synchronized(coordinatorLock) {
+                commit.run();
+                finish.run();
+                advanceDataVersion();
+            }
+            journal.commitWrite();
+        } finally {
+            // Removes the journal entries if the commit did not complete.
+            journal.endWrite();
+            group = endGroupWrite(transaction);
+        }
+        // Releases the writer lock.
+        notifyCommitFinish(transaction);
+        if ( durability == TxnDurability.RELAXED )
+            groupCommit.scheduleFlush();
+        else
+            awaitingSync.put(transaction, group);
+    }
+
+    /**
+     * Called by Transaction after a write transaction has committed and completed.
+     * Wait until the commit is durable.
+     */
+    /*package*/ void awaitDurable(Transaction transaction) {
+        Long group = awaitingSync.remove(transaction);
+        if ( group != null )
+            groupCommit.await(group);
+    }
+
     private void executeCommitWriter(Transaction transaction, Runnable commit, Runnable finish, Runnable sysabort) {
         synchronized(coordinatorLock) {
             try {
@@ -844,7 +998,20 @@ public class TransactionCoordinator {
 
     /*package*/ void executeAbort(Transaction transaction, Runnable abort) {
         notifyAbortStart(transaction);
-        abort.run();
+        // With group commit, an abort rewrites the last committed component states,
+        // which may not be durable yet, so those writes also go through the group.
+        if ( groupCommit != null && transaction.isWriteTxn() && ! deferringSyncs.contains(transaction) ) {
+            FileSync.startDefer();
+            deferringSyncs.add(transaction);
+        }
+        try {
+            // Abort after prepare: remove the transaction's journal entries.
+            if ( journalWriteLock.isHeldByCurrentThread() )
+                journal.abortWrite();
+            abort.run();
+        } finally {
+            endGroupWrite(transaction);
+        }
         notifyAbortFinish(transaction);
     }
 
@@ -894,6 +1061,12 @@ public class TransactionCoordinator {
     public long countActiveWriter()     { return activeWritersCount.get(); }
     public long countActive()           { return activeTransactionCount.get(); }
 
+    /**
+     * The current data version. Each commit of a write transaction advances it; a
+     * transaction started now has this {@link Transaction#getDataVersion()}.
+     */
+    public long getDataVersion()        { return dataVersion.get(); }
+
     // notify*Start/Finish called round each transaction lifecycle step
 
     private void notifyBegin(Transaction transaction) {
@@ -111,6 +111,30 @@ public class TransactionalBase implements TransactionalSystem {
         theTxn.set(transaction);
     }
 
+    /**
+     * Begin a READ transaction on this thread that sees the same data as
+     * {@code other}, a READ transaction active on another thread. This is used to
+     * let worker threads share the snapshot of a query. Returns false, without
+     * starting a transaction, if {@code other} is not a read transaction, if
+     * beginning would block, or if there has been a commit since {@code other}
+     * started.
+     */
+    public final boolean beginReadShared(Transaction other) {
+        checkRunning();
+        checkNotActive();
+        if ( other == null || other.getMode() != ReadWrite.READ )
+            return false;
+        Transaction transaction = txnMgr.begin(TxnType.READ, false);
+        if ( transaction == null )
+            return false;
+        theTxn.set(transaction);
+        if ( transaction.getDataVersion() != other.getDataVersion() ) {
+            _end();
+            return false;
+        }
+        return true;
+    }
+
     @Override
     public final boolean promote() {
         checkActive();
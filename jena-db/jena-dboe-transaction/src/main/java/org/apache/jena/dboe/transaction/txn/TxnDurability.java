@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.transaction.txn;
+
+/**
+ * When the changes of a committed write transaction are forced to persistent storage.
+ *
+ * @see TransactionCoordinator#setDurability
+ */
+public enum TxnDurability {
+    /** Each commit syncs the journal and data files before returning (the default). */
+    SYNC,
+    /**
+     * Commits that arrive close together are made durable together. A commit makes
+     * its changes visible and lets the next writer start; then, for at most the
+     * maximum latency, other commits may join its group. The data files of the group
+     * are synced, then one journal COMMIT entry for the group is written and synced,
+     * and only then are the component states written in place. The commit returns
+     * when its group is on disk. After a crash, journal recovery restores either all
+     * or none of a group.
+     */
+    GROUP,
+    /**
+     * As {@link #GROUP} but commits return without waiting: groups are made durable in
+     * the background within the maximum latency. The write-ahead order is kept, so
+     * after an operating system failure or power loss the database recovers to a
+     * consistent state, but commits of the last moments before the failure may be lost.
+     */
+    RELAXED
+}
@@ -268,7 +268,7 @@ class Journal implements Sync, Closeable
 
     // Idempotent. Safe to call multiple times and after commit (when it has no effect).
     public void abortWrite() {
-        if ( !journalWriteEnded && journalWriteStart > 0 ) {
+        if ( !journalWriteEnded && journalWriteStart >= 0 ) {
             truncate(journalWriteStart);
             sync();
         }
@@ -390,7 +390,12 @@ class Journal implements Sync, Closeable
 
     public boolean isEmpty()  { return channel.size() == 0; }
 
-    public void truncate(long size) { channel.truncate(size); }
+    public void truncate(long size) {
+        channel.truncate(size);
+        // Next write is at the new end.
+        if ( position > size )
+            position = size;
+    }
 
     public void reset() {
         truncate(0);
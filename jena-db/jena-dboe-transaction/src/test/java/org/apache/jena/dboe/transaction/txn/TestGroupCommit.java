@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.transaction.txn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.sys.FileSync;
+import org.apache.jena.dboe.transaction.TransInteger;
+import org.apache.jena.dboe.transaction.txn.journal.Journal;
+import org.apache.jena.query.ReadWrite;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Group commit and crash recovery. A "crash" is a copy of the database directory
+ * taken at a chosen point: the copy includes every write that has been made, synced
+ * or not, which is the worst case for the order in which writes reach the disk.
+ * Recovery is then run on the copy.
+ */
+public class TestGroupCommit {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final UUID base = UUID.fromString("e6a3d4b2-7f3c-4d3e-9a0c-0f6e8b9d2a11");
+    private static final ComponentId cid = ComponentId.alloc("value", base, 1);
+    // Far longer than a test: RELAXED commits are only made durable when flushed.
+    private static final long LongLatency = 60_000;
+
+    private final List<TransactionCoordinator> coordinators = new ArrayList<>();
+
+    private static class Db {
+        final TransactionCoordinator txnMgr;
+        final TransactionalBase txn;
+        final TransInteger value;
+        Db(TransactionCoordinator txnMgr, TransactionalBase txn, TransInteger value) {
+            this.txnMgr = txnMgr;
+            this.txn = txn;
+            this.value = value;
+        }
+    }
+
+    @After public void after() {
+        coordinators.forEach(c -> c.shutdown(true));
+    }
+
+    private Db open(Path dir, TxnDurability durability, long maxLatency, TransactionListener listener) {
+        Location location = Location.create(dir.toString());
+        TransInteger value = new TransInteger(location.getPath("value"), cid);
+        TransactionCoordinator txnMgr = new TransactionCoordinator(Journal.create(location));
+        txnMgr.add(value);
+        if ( listener != null )
+            txnMgr.addListener(listener);
+        txnMgr.setDurability(durability, maxLatency);
+        TransactionalBase txn = new TransactionalBase(txnMgr);
+        txnMgr.start();
+        coordinators.add(txnMgr);
+        return new Db(txnMgr, txn, value);
+    }
+
+    private Db open(Path dir) {
+        return open(dir, TxnDurability.SYNC, 0, null);
+    }
+
+    private static void set(Db db, long x) {
+        db.txn.begin(ReadWrite.WRITE);
+        db.value.set(x);
+        db.txn.commit();
+        db.txn.end();
+    }
+
+    private static long onDisk(Path dir) {
+        return Long.parseLong(IO.readWholeFileAsUTF8(dir.resolve("value").toString()).trim());
+    }
+
+    private Path crash(Path dir) {
+        try {
+            Path image = tmp.newFolder().toPath();
+            try ( Stream<Path> files = Files.list(dir) ) {
+                files.forEach(f -> {
+                    try { Files.copy(f, image.resolve(f.getFileName()), StandardCopyOption.REPLACE_EXISTING); }
+                    catch (IOException ex) { throw new UncheckedIOException(ex); }
+                });
+            }
+            return image;
+        } catch (IOException ex) { throw new UncheckedIOException(ex); }
+    }
+
+    // Make all commits durable.
+    private static void flush(Db db) {
+        db.txnMgr.blockWriters();
+        db.txnMgr.enableWriters();
+    }
+
+    @Test public void relaxed_crash_before_checkpoint() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        Db db = open(dir, TxnDurability.RELAXED, LongLatency, null);
+        set(db, 10);
+        set(db, 20);
+        assertEquals(20, db.value.value());
+        // Nothing written in place before the group's COMMIT is durable.
+        assertEquals(0, onDisk(dir));
+
+        Db db2 = open(crash(dir));
+        assertEquals(0, db2.value.value());
+    }
+
+    @Test public void relaxed_crash_after_checkpoint() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        Db db = open(dir, TxnDurability.RELAXED, LongLatency, null);
+        set(db, 10);
+        set(db, 20);
+        flush(db);
+        assertEquals(20, onDisk(dir));
+        assertTrue(db.txnMgr.getJournal().isEmpty());
+
+        Db db2 = open(crash(dir));
+        assertEquals(20, db2.value.value());
+    }
+
+    @Test public void group_crash_after_commit_point() throws IOException {
+        // Take the crash image when the group's in-place writes start: the journal has
+        // the COMMIT for the group, synced, but the state file is unchanged.
+        Path dir = tmp.newFolder().toPath();
+        Path[] image = new Path[1];
+        TransactionListener listener = new TransactionListener() {
+            @Override public void notifyCommitStart(Transaction transaction) {
+                if ( FileSync.isDeferring() )
+                    FileSync.write(this, ()->{ if ( image[0] == null ) image[0] = crash(dir); });
+            }
+        };
+        Db db = open(dir, TxnDurability.GROUP, 1, listener);
+        set(db, 10);
+        set(db, 30);
+        assertEquals(30, onDisk(dir));
+        assertEquals(0, onDisk(image[0]));
+
+        Db db2 = open(image[0]);
+        assertEquals(10, db2.value.value());
+        assertEquals(10, onDisk(image[0]));
+    }
+
+    @Test public void relaxed_abort() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        Db db = open(dir, TxnDurability.RELAXED, LongLatency, null);
+        set(db, 5);
+        db.txn.begin(ReadWrite.WRITE);
+        db.value.set(7);
+        db.txn.abort();
+        db.txn.end();
+        set(db, 6);
+        db.txn.begin(ReadWrite.WRITE);
+        db.value.set(8);
+        db.txn.abort();
+        db.txn.end();
+        assertEquals(6, db.value.value());
+        assertEquals(0, onDisk(dir));
+
+        flush(db);
+        assertEquals(6, onDisk(dir));
+        Db db2 = open(crash(dir));
+        assertEquals(6, db2.value.value());
+    }
+
+    @Test public void group_concurrent_writers() throws Exception {
+        Path dir = tmp.newFolder().toPath();
+        Db db = open(dir, TxnDurability.GROUP, 2, null);
+        int threads = 4;
+        int each = 25;
+        List<Thread> workers = new ArrayList<>();
+        for ( int i = 0 ; i < threads ; i++ ) {
+            Thread t = new Thread(()->{
+                for ( int j = 0 ; j < each ; j++ ) {
+                    db.txn.begin(ReadWrite.WRITE);
+                    db.value.inc();
+                    db.txn.commit();
+                    db.txn.end();
+                }
+            });
+            workers.add(t);
+            t.start();
+        }
+        for ( Thread t : workers )
+            t.join();
+        // Every commit has returned, so is durable.
+        assertEquals(threads * each, db.value.value());
+        Db db2 = open(crash(dir));
+        assertEquals(threads * each, db2.value.value());
+    }
+}
@@ -27,6 +27,7 @@ import org.apache.jena.sparql.core.assembler.AssemblerUtils;
 import org.apache.jena.sparql.util.Symbol;
 import org.apache.jena.sys.JenaSystem;
 import org.apache.jena.tdb2.assembler.VocabTDB2;
+import org.apache.jena.tdb2.sys.DatasetACLTDB;
 
 /**
  *  Public factory for connecting to and creating datasets backed by TDB2 storage.
@@ -58,6 +59,22 @@ public class TDB2Factory
     public static Dataset connectDataset(String location,DatasetACL acl) {
         return connectDataset(Location.create(location),acl);    }
 
+    /**
+     * Create or connect to a TDB2-backed dataset whose ACL is stored with the database.
+     * The ACL is available from the dataset context; connections to the same location
+     * share it.
+     * @see DatasetACLTDB
+     */
+    public static Dataset connectDatasetWithACL(Location location) {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(location);
+        Symbol symACL = Symbol.create(DatasetACL.ACL_HANDLER_NAME);
+        synchronized (dsg) {
+            if ( ! ( dsg.getContext().get(symACL) instanceof DatasetACLTDB ) )
+                dsg.getContext().set(symACL, new DatasetACLTDB(location));
+        }
+        return DatasetFactory.wrap(dsg);
+    }
+
 
     /**
      * Create an in-memory TDB2-backed dataset (for testing). In-memory TDB2 datasets are use
@@ -19,12 +19,14 @@
 package org.apache.jena.tdb2.lib;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.graph.Node;
@@ -52,6 +54,34 @@ public class TupleLib {
         return Iter.map(iter, item -> quad(nodeTable, item));
     }
 
+    /** Group tuples into batches of encoded NodeIds (see {@link NodeIdFactory#encode}). The batch is reused. */
+    public static Iterator<LongBatch> convertToBatches(Iterator<Tuple<NodeId>> iter, int tupleLength) {
+        LongBatch batch = new LongBatch(tupleLength, BatchSize);
+        return new Iterator<LongBatch>() {
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public LongBatch next() {
+                if ( ! iter.hasNext() )
+                    throw new NoSuchElementException("TupleLib.convertToBatches");
+                batch.clear();
+                while ( iter.hasNext() && batch.size() < BatchSize ) {
+                    Tuple<NodeId> tuple = iter.next();
+                    int idx = batch.reserve(1);
+                    long[] array = batch.array();
+                    for ( int i = 0 ; i < tupleLength ; i++ )
+                        array[idx + i] = NodeIdFactory.encode(tuple.get(i));
+                }
+                return batch;
+            }
+        };
+    }
+
+    private static final int BatchSize = 256;
+
     public static Tuple<Node> tupleNodes(NodeTable nodeTable, Tuple<NodeId> ids) {
         return ids.map(nid->nodeTable.getNodeForNodeId(nid));
     }
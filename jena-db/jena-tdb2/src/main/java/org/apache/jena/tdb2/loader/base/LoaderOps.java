@@ -36,6 +36,8 @@ import org.apache.jena.riot.system.StreamRDFWrapper;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.system.progress.*;
 import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.solver.stats.CardinalityStats;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
@@ -107,6 +109,16 @@ public class LoaderOps {
         sink.finish();
     }
 
+    /**
+     * Loaders that write to the {@link TupleIndex TupleIndexes} directly bypass the
+     * {@link CardinalityStats} of the database; call this when the load has committed.
+     */
+    public static void invalidateStats(DatasetGraphTDB dsgtdb) {
+        CardinalityStats stats = CardinalityStats.get(dsgtdb);
+        if ( stats != null )
+            stats.invalidate();
+    }
+
     /** Copy a stream to several indexes (sequential version) */
     public static void copyIndex(Iterator<Tuple<NodeId>> srcIter, TupleIndex[] destIndexes, ProgressMonitor monitor) {
         long counter = 0;
@@ -268,6 +268,7 @@ public class LoaderMain extends LoaderBase implements DataLoader {
         }
         super.finishBulk();
         dsgtdb.getTxnSystem().getTxnMgr().finishExclusiveMode();
+        LoaderOps.invalidateStats(dsgtdb);
     }
 
     /** Execute secondary index building of a {@link LoaderPlan} */
@@ -47,9 +47,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<Integer>            blockSize;
     /*package*/ final Item<Integer>            blockReadCacheSize;
     /*package*/ final Item<Integer>            blockWriteCacheSize;
+    /*package*/ final Item<Boolean>            blockCacheConcurrent;
     /*package*/ final Item<Integer>            Node2NodeIdCacheSize;
     /*package*/ final Item<Integer>            NodeId2NodeCacheSize;
     /*package*/ final Item<Integer>            NodeMissCacheSize;
+    /*package*/ final Item<Integer>            NodeId2NodeOffHeapCacheMB;
 
     /* These are items affect database layout and
      * only can be applied when a database is created.
@@ -84,8 +86,9 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
 
     /*package*/ StoreParams(Item<FileMode> fileMode, Item<Integer> blockSize,
                             Item<Integer> blockReadCacheSize, Item<Integer> blockWriteCacheSize,
+                            Item<Boolean> blockCacheConcurrent,
                             Item<Integer> node2NodeIdCacheSize, Item<Integer> nodeId2NodeCacheSize,
-                            Item<Integer> nodeMissCacheSize,
+                            Item<Integer> nodeMissCacheSize, Item<Integer> nodeId2NodeOffHeapCacheMB,
 
                             Item<String> nodeTableBaseName,
                             Item<String> primaryIndexTriples, Item<String[]> tripleIndexes,
@@ -97,9 +100,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         this.blockSize              = blockSize;
         this.blockReadCacheSize     = blockReadCacheSize;
         this.blockWriteCacheSize    = blockWriteCacheSize;
+        this.blockCacheConcurrent   = blockCacheConcurrent;
         this.Node2NodeIdCacheSize   = node2NodeIdCacheSize;
         this.NodeId2NodeCacheSize   = nodeId2NodeCacheSize;
         this.NodeMissCacheSize      = nodeMissCacheSize;
+        this.NodeId2NodeOffHeapCacheMB = nodeId2NodeOffHeapCacheMB;
 
         this.nodeTableBaseName      = nodeTableBaseName;
 
@@ -168,6 +173,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return blockWriteCacheSize.isSet;
     }
 
+    @Override
+    public boolean isBlockCacheConcurrent() {
+        return blockCacheConcurrent.value;
+    }
+
+    @Override
+    public boolean isSetBlockCacheConcurrent() {
+        return blockCacheConcurrent.isSet;
+    }
+
     @Override
     public Integer getNode2NodeIdCacheSize() {
         return Node2NodeIdCacheSize.value;
@@ -198,6 +213,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return NodeMissCacheSize.isSet;
     }
 
+    @Override
+    public Integer getNodeId2NodeOffHeapCacheMB() {
+        return NodeId2NodeOffHeapCacheMB.value;
+    }
+
+    @Override
+    public boolean isSetNodeId2NodeOffHeapCacheMB() {
+        return NodeId2NodeOffHeapCacheMB.isSet;
+    }
+
     public String getNodeTableBaseName() {
         return nodeTableBaseName.value;
     }
@@ -247,9 +272,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         fmt(buff, "blockSize", getBlockSize(), blockSize.isSet);
         fmt(buff, "readCacheSize", getBlockReadCacheSize(), blockReadCacheSize.isSet);
         fmt(buff, "writeCacheSize", getBlockWriteCacheSize(), blockWriteCacheSize.isSet);
+        fmt(buff, "cacheConcurrent", Boolean.toString(isBlockCacheConcurrent()), blockCacheConcurrent.isSet);
         fmt(buff, "Node2NodeIdCacheSize", getNode2NodeIdCacheSize(), Node2NodeIdCacheSize.isSet);
         fmt(buff, "NodeId2NodeCacheSize", getNodeId2NodeCacheSize(), NodeId2NodeCacheSize.isSet);
         fmt(buff, "NodeMissCacheSize", getNodeMissCacheSize(), NodeMissCacheSize.isSet);
+        fmt(buff, "NodeId2NodeOffHeap", getNodeId2NodeOffHeapCacheMB(), NodeId2NodeOffHeapCacheMB.isSet);
 
         fmt(buff, "nodeTableBaseName", getNodeTableBaseName(), nodeTableBaseName.isSet);
         fmt(buff, "primaryIndexTriples", getPrimaryIndexTriples(), primaryIndexTriples.isSet);
@@ -301,12 +328,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
             return false;
         if ( !sameValues(params1.blockWriteCacheSize, params2.blockWriteCacheSize) )
             return false;
+        if ( !sameValues(params1.blockCacheConcurrent, params2.blockCacheConcurrent) )
+            return false;
         if ( !sameValues(params1.Node2NodeIdCacheSize, params2.Node2NodeIdCacheSize) )
             return false;
         if ( !sameValues(params1.NodeId2NodeCacheSize, params2.NodeId2NodeCacheSize) )
             return false;
         if ( !sameValues(params1.NodeMissCacheSize, params2.NodeMissCacheSize) )
             return false;
+        if ( !sameValues(params1.NodeId2NodeOffHeapCacheMB, params2.NodeId2NodeOffHeapCacheMB) )
+            return false;
         if ( !sameValues(params1.nodeTableBaseName, params2.nodeTableBaseName) )
             return false;
         if ( !sameValues(params1.primaryIndexTriples, params2.primaryIndexTriples) )
@@ -337,9 +368,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         result = prime * result + ((Node2NodeIdCacheSize == null) ? 0 : Node2NodeIdCacheSize.hashCode());
         result = prime * result + ((NodeId2NodeCacheSize == null) ? 0 : NodeId2NodeCacheSize.hashCode());
         result = prime * result + ((NodeMissCacheSize == null) ? 0 : NodeMissCacheSize.hashCode());
+        result = prime * result + ((NodeId2NodeOffHeapCacheMB == null) ? 0 : NodeId2NodeOffHeapCacheMB.hashCode());
         result = prime * result + ((blockReadCacheSize == null) ? 0 : blockReadCacheSize.hashCode());
         result = prime * result + ((blockSize == null) ? 0 : blockSize.hashCode());
         result = prime * result + ((blockWriteCacheSize == null) ? 0 : blockWriteCacheSize.hashCode());
+        result = prime * result + ((blockCacheConcurrent == null) ? 0 : blockCacheConcurrent.hashCode());
         result = prime * result + ((fileMode == null) ? 0 : fileMode.hashCode());
         result = prime * result + ((nodeTableBaseName == null) ? 0 : nodeTableBaseName.hashCode());
         result = prime * result + ((prefixTableBaseName == null) ? 0 : prefixTableBaseName.hashCode());
@@ -376,6 +409,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false;
         } else if ( !NodeMissCacheSize.equals(other.NodeMissCacheSize) )
             return false;
+        if ( NodeId2NodeOffHeapCacheMB == null ) {
+            if ( other.NodeId2NodeOffHeapCacheMB != null )
+                return false;
+        } else if ( !NodeId2NodeOffHeapCacheMB.equals(other.NodeId2NodeOffHeapCacheMB) )
+            return false;
         if ( blockReadCacheSize == null ) {
             if ( other.blockReadCacheSize != null )
                 return false;
@@ -391,6 +429,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false;
         } else if ( !blockWriteCacheSize.equals(other.blockWriteCacheSize) )
             return false;
+        if ( blockCacheConcurrent == null ) {
+            if ( other.blockCacheConcurrent != null )
+                return false;
+        } else if ( !blockCacheConcurrent.equals(other.blockCacheConcurrent) )
+            return false;
         if ( fileMode == null ) {
             if ( other.fileMode != null )
                 return false;
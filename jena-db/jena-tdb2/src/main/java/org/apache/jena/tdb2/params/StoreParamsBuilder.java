@@ -68,12 +68,16 @@ public class StoreParamsBuilder {
 
     private Item<Integer>            blockWriteCacheSize   = new Item<>(StoreParamsConst.blockWriteCacheSize, false);
 
+    private Item<Boolean>            blockCacheConcurrent  = new Item<>(StoreParamsConst.blockCacheConcurrent, false);
+
     private Item<Integer>            Node2NodeIdCacheSize  = new Item<>(StoreParamsConst.Node2NodeIdCacheSize, false);
 
     private Item<Integer>            NodeId2NodeCacheSize  = new Item<>(StoreParamsConst.NodeId2NodeCacheSize, false);
 
     private Item<Integer>            NodeMissCacheSize     = new Item<>(StoreParamsConst.NodeMissCacheSize, false);
 
+    private Item<Integer>            NodeId2NodeOffHeapCacheMB = new Item<>(StoreParamsConst.NodeId2NodeOffHeapCacheMB, false);
+
     /** Database layout - ignored after a database is created */
 
     private Item<Integer>            blockSize             = new Item<>(StoreParamsConst.blockSize, false);
@@ -121,6 +125,9 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetBlockWriteCacheSize() )
             b.blockWriteCacheSize(additionalParams.getBlockWriteCacheSize());
 
+        if ( additionalParams.isSetBlockCacheConcurrent() )
+            b.blockCacheConcurrent(additionalParams.isBlockCacheConcurrent());
+
         if ( additionalParams.isSetNode2NodeIdCacheSize() )
             b.node2NodeIdCacheSize(additionalParams.getNode2NodeIdCacheSize());
 
@@ -130,6 +137,9 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetNodeMissCacheSize() )
             b.nodeMissCacheSize(additionalParams.getNodeMissCacheSize());
 
+        if ( additionalParams.isSetNodeId2NodeOffHeapCacheMB() )
+            b.nodeId2NodeOffHeapCacheMB(additionalParams.getNodeId2NodeOffHeapCacheMB());
+
         return b.build();
     }
 
@@ -142,9 +152,11 @@ public class StoreParamsBuilder {
         this.blockSize              = other.blockSize;
         this.blockReadCacheSize     = other.blockReadCacheSize;
         this.blockWriteCacheSize    = other.blockWriteCacheSize;
+        this.blockCacheConcurrent   = other.blockCacheConcurrent;
         this.Node2NodeIdCacheSize   = other.Node2NodeIdCacheSize;
         this.NodeId2NodeCacheSize   = other.NodeId2NodeCacheSize;
         this.NodeMissCacheSize      = other.NodeMissCacheSize;
+        this.NodeId2NodeOffHeapCacheMB = other.NodeId2NodeOffHeapCacheMB;
 
         this.nodeTableBaseName      = other.nodeTableBaseName;
 
@@ -161,8 +173,8 @@ public class StoreParamsBuilder {
 
     public StoreParams build() {
         return new StoreParams(
-                 fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize,
-                 Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize,
+                 fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize, blockCacheConcurrent,
+                 Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize, NodeId2NodeOffHeapCacheMB,
                  nodeTableBaseName,
                  primaryIndexTriples, tripleIndexes,
                  primaryIndexQuads, quadIndexes,
@@ -206,6 +218,15 @@ public class StoreParamsBuilder {
        return this;
    }
 
+    public boolean isBlockCacheConcurrent() {
+        return blockCacheConcurrent.value;
+    }
+
+   public StoreParamsBuilder blockCacheConcurrent(boolean blockCacheConcurrent) {
+       this.blockCacheConcurrent = new Item<>(blockCacheConcurrent, true);
+       return this;
+   }
+
     public int getNode2NodeIdCacheSize() {
         return Node2NodeIdCacheSize.value;
     }
@@ -233,6 +254,15 @@ public class StoreParamsBuilder {
        return this;
    }
 
+    public int getNodeId2NodeOffHeapCacheMB() {
+        return NodeId2NodeOffHeapCacheMB.value;
+    }
+
+   public StoreParamsBuilder nodeId2NodeOffHeapCacheMB(int nodeId2NodeOffHeapCacheMB) {
+       NodeId2NodeOffHeapCacheMB = new Item<>(nodeId2NodeOffHeapCacheMB, true);
+       return this;
+   }
+
    public String getNodeTableBaseName() {
        return nodeTableBaseName.value;
    }
@@ -90,9 +90,13 @@ public class StoreParamsCodec {
         encode(builder, key(fBlockSize),                params.getBlockSize());
         encode(builder, key(fBlockReadCacheSize),       params.getBlockReadCacheSize());
         encode(builder, key(fBlockWriteCacheSize),      params.getBlockWriteCacheSize());
+        if ( params.isSetBlockCacheConcurrent() )
+            encode(builder, key(fBlockCacheConcurrent), params.isBlockCacheConcurrent());
         encode(builder, key(fNode2NodeIdCacheSize),     params.getNode2NodeIdCacheSize());
         encode(builder, key(fNodeId2NodeCacheSize),     params.getNodeId2NodeCacheSize());
         encode(builder, key(fNodeMissCacheSize),        params.getNodeMissCacheSize());
+        if ( params.isSetNodeId2NodeOffHeapCacheMB() )
+            encode(builder, key(fNodeId2NodeOffHeapCacheMB), params.getNodeId2NodeOffHeapCacheMB());
         encode(builder, key(fNodeTableBaseName),        params.getNodeTableBaseName());
         encode(builder, key(fPrimaryIndexTriples),      params.getPrimaryIndexTriples());
         encode(builder, key(fTripleIndexes),            params.getTripleIndexes());
@@ -130,9 +134,11 @@ public class StoreParamsCodec {
                 case fBlockSize:               builder.blockSize(getInt(json, key));                       break ;
                 case fBlockReadCacheSize:      builder.blockReadCacheSize(getInt(json, key));              break ;
                 case fBlockWriteCacheSize:     builder.blockWriteCacheSize(getInt(json, key));             break ;
+                case fBlockCacheConcurrent:    builder.blockCacheConcurrent(getBoolean(json, key));        break ;
                 case fNode2NodeIdCacheSize:    builder.node2NodeIdCacheSize(getInt(json, key));            break ;
                 case fNodeId2NodeCacheSize:    builder.nodeId2NodeCacheSize(getInt(json, key));            break ;
                 case fNodeMissCacheSize:       builder.nodeMissCacheSize(getInt(json, key));               break ;
+                case fNodeId2NodeOffHeapCacheMB: builder.nodeId2NodeOffHeapCacheMB(getInt(json, key));     break ;
 
                 case fNodeTableBaseName:       builder.nodeTableBaseName(getString(json, key));            break ;
                 case fPrimaryIndexTriples:     builder.primaryIndexTriples(getString(json, key));          break ;
@@ -167,6 +173,12 @@ public class StoreParamsCodec {
         return x;
     }
 
+    private static boolean getBoolean(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getBoolean: no such key: "+key);
+        return json.get(key).getAsBoolean().value();
+    }
+
     private static String[] getStringArray(JsonObject json, String key) {
         if ( ! json.hasKey(key) )
             throw new TDBException("StoreParamsCodec.getStringArray: no such key: "+key);
@@ -185,6 +197,10 @@ public class StoreParamsCodec {
             builder.key(name).value(x);
             return;
         }
+        if ( value instanceof Boolean ) {
+            builder.key(name).value(((Boolean)value).booleanValue());
+            return;
+        }
         if ( value instanceof String ) {
             builder.key(name).value(value.toString());
             return;
@@ -20,6 +20,7 @@ package org.apache.jena.tdb2.params;
 
 import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.dboe.sys.SystemIndex;
 import org.apache.jena.tdb2.sys.SystemTDB;
 
 public class StoreParamsConst {
@@ -38,6 +39,9 @@ public class StoreParamsConst {
     public static final String   fBlockWriteCacheSize  = "block_write_cache_size";
     public static final int      blockWriteCacheSize   = SystemTDB.BlockWriteCacheSize;
 
+    public static final String   fBlockCacheConcurrent = "block_cache_concurrent";
+    public static final boolean  blockCacheConcurrent  = SystemIndex.BlockCacheConcurrent;
+
     public static final String   fNode2NodeIdCacheSize = "node2nodeid_cache_size";
     public static final int      Node2NodeIdCacheSize  = SystemTDB.Node2NodeIdCacheSize;
 
@@ -47,6 +51,9 @@ public class StoreParamsConst {
     public static final String   fNodeMissCacheSize    = "node_miss_cache_size";
     public static final int      NodeMissCacheSize     = SystemTDB.NodeMissCacheSize;
 
+    public static final String   fNodeId2NodeOffHeapCacheMB = "nodeid2node_offheap_cache_mb";
+    public static final int      NodeId2NodeOffHeapCacheMB  = SystemTDB.NodeId2NodeOffHeapCacheMB;
+
     /** Database layout - ignored after a database is created */
     public static final String   fBlockSize            = "block_size";
     public static final int      blockSize             = SystemTDB.BlockSize;
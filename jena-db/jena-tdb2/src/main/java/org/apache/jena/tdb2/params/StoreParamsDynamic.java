@@ -39,6 +39,10 @@ public interface StoreParamsDynamic {
     public Integer getBlockWriteCacheSize();
     public boolean isSetBlockWriteCacheSize();
 
+    /** Concurrent block cache: block reads do not take a lock. */
+    public boolean isBlockCacheConcurrent();
+    public boolean isSetBlockCacheConcurrent();
+
     /** Node cache for Node{@literal ->}NodeId. */
     public Integer getNode2NodeIdCacheSize();
     public boolean isSetNode2NodeIdCacheSize();
@@ -50,5 +54,9 @@ public interface StoreParamsDynamic {
     /** Node cache for recording known misses */
     public Integer getNodeMissCacheSize();
     public boolean isSetNodeMissCacheSize();
+
+    /** Off-heap NodeId{@literal ->}Node cache, in megabytes. 0 means the on-heap cache is used. */
+    public Integer getNodeId2NodeOffHeapCacheMB();
+    public boolean isSetNodeId2NodeOffHeapCacheMB();
 }
 
@@ -19,25 +19,35 @@
 package org.apache.jena.tdb2.solver;
 
 import static org.apache.jena.sparql.engine.main.solver.SolverLib.makeAbortable;
+import static org.apache.jena.sparql.engine.main.solver.SolverLib.tripleHasEmbTripleWithVars;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.dboe.transaction.txn.TransactionalBase;
+import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ReadWrite;
 import org.apache.jena.sparql.core.BasicPattern;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.iterator.Abortable;
+import org.apache.jena.sparql.engine.iterator.ParallelMorsels;
+import org.apache.jena.sparql.engine.iterator.ParallelMorsels.WorkerScope;
 import org.apache.jena.sparql.engine.iterator.QueryIterAbortable;
+import org.apache.jena.sparql.engine.main.ParallelLib;
 import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.solver.stats.CardinalityStats;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
@@ -57,7 +67,8 @@ public class PatternMatchTDB2 {
     {
         // Maybe default graph or named graph.
         NodeTupleTable ntt = graph.getNodeTupleTable();
-        return execute(ntt, graph.getGraphName(), pattern, input, filter, execCxt);
+        DatasetGraphTDB dsg = graph.getDSG();
+        return execute(ntt, graph.getGraphName(), pattern, input, filter, StageMergeJoin.stats(dsg), dsg, execCxt);
     }
 
     /** Non-reordering execution of a quad pattern, given an iterator of bindings as input.
@@ -69,16 +80,18 @@ public class PatternMatchTDB2 {
                                         ExecutionContext execCxt)
     {
         NodeTupleTable ntt = ds.chooseNodeTupleTable(graphNode);
-        return execute(ntt, graphNode, pattern, input, filter, execCxt);
+        return execute(ntt, graphNode, pattern, input, filter, StageMergeJoin.stats(ds), ds, execCxt);
     }
 
     // The worker.  Callers choose the NodeTupleTable.
     //     graphNode may be Node.ANY, meaning we should make triples unique.
     //     graphNode may be null, meaning default graph
+    //     stats may be null, meaning no merge joins
+    //     dsg is used for parallel evaluation (ARQ.parallelBGP)
 
     private static QueryIterator execute(NodeTupleTable nodeTupleTable, Node graphNode, BasicPattern pattern,
                                          QueryIterator input, Predicate<Tuple<NodeId>> filter,
-                                         ExecutionContext execCxt)
+                                         CardinalityStats stats, DatasetGraphTDB dsg, ExecutionContext execCxt)
     {
         if ( Quad.isUnionGraph(graphNode) )
             graphNode = Node.ANY;
@@ -102,21 +115,56 @@ public class PatternMatchTDB2 {
         Iterator<BindingNodeId> chain = Iter.map(input, SolverLibTDB.convFromBinding(nodeTable));
         List<Abortable> killList = new ArrayList<>();
 
-        for ( Triple triple : triples ) {
-            Tuple<Node> patternTuple = null;
-            if ( graphNode == null )
-                // 3-tuples
-                patternTuple = TupleFactory.create3(triple.getSubject(), triple.getPredicate(), triple.getObject());
-            else
-                // 4-tuples.
-                patternTuple = TupleFactory.create4(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject());
-            // Plain RDF, no RDF-star
-            // chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt)
-            // ;
-            // RDF-star SA
-            chain = matchQuadPattern(chain, graphNode, triple, nodeTupleTable, patternTuple, anyGraph, filter, execCxt);
-
-            chain = makeAbortable(chain, killList);
+        int start = 0;
+        if ( stats != null && filter == null && !anyGraph && triples.size() >= 2 ) {
+            // The first two patterns may be matched by merging two index scans.
+            Triple triple1 = triples.get(0);
+            Triple triple2 = triples.get(1);
+            Tuple<Node> patternTuple1 = patternTuple(graphNode, triple1);
+            Tuple<Node> patternTuple2 = patternTuple(graphNode, triple2);
+            if ( !tripleHasEmbTripleWithVars(triple1) && !tripleHasEmbTripleWithVars(triple2) &&
+                 StageMergeJoin.sharesVariable(patternTuple1, patternTuple2) ) {
+                chain = StageMergeJoin.access(nodeTupleTable, chain, patternTuple1, patternTuple2, stats, killList, execCxt);
+                chain = makeAbortable(chain, killList);
+                start = 2;
+            }
+        }
+
+        int threads = ParallelLib.parallelBGP(execCxt);
+        WorkerScope scope = ( threads > 1 && triples.size() > 1 ) ? workerScope(dsg) : null;
+        if ( scope != null ) {
+            // First stage on this thread, the rest on several threads.
+            // Bindings are converted to nodes on this thread.
+            if ( start == 0 ) {
+                Triple triple = triples.get(0);
+                chain = matchQuadPattern(chain, graphNode, triple, nodeTupleTable, patternTuple(graphNode, triple), anyGraph, filter, execCxt);
+                chain = makeAbortable(chain, killList);
+                start = 1;
+            }
+            if ( start < triples.size() ) {
+                List<Triple> rest = triples.subList(start, triples.size());
+                Node gn = graphNode;
+                Function<Iterator<BindingNodeId>, Iterator<BindingNodeId>> stage = morsel -> {
+                    Iterator<BindingNodeId> iter = morsel;
+                    for ( Triple triple : rest )
+                        iter = matchQuadPattern(iter, gn, triple, nodeTupleTable, patternTuple(gn, triple), anyGraph, filter, execCxt);
+                    return iter;
+                };
+                ParallelMorsels<BindingNodeId, BindingNodeId> iter = new ParallelMorsels<>(chain, stage, scope, threads - 1);
+                killList.add(iter);
+                chain = iter;
+            }
+        } else {
+            for ( Triple triple : triples.subList(start, triples.size()) ) {
+                Tuple<Node> patternTuple = patternTuple(graphNode, triple);
+                // Plain RDF, no RDF-star
+                // chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt)
+                // ;
+                // RDF-star SA
+                chain = matchQuadPattern(chain, graphNode, triple, nodeTupleTable, patternTuple, anyGraph, filter, execCxt);
+
+                chain = makeAbortable(chain, killList);
+            }
         }
 
         Iterator<Binding> iterBinding = SolverLibTDB.convertToNodes(chain, nodeTable);
@@ -126,6 +174,34 @@ public class PatternMatchTDB2 {
         return new QueryIterAbortable(iterBinding, killList, input, execCxt);
     }
 
+    /**
+     * Setup for worker threads: a read transaction that sees the same data as the
+     * read transaction of this thread. Returns null if that is not possible.
+     */
+    /*package*/ static WorkerScope workerScope(DatasetGraphTDB dsg) {
+        if ( dsg == null )
+            return null;
+        TransactionalSystem txnSystem = dsg.getTxnSystem();
+        if ( ! ( txnSystem instanceof TransactionalBase ) )
+            return null;
+        TransactionalBase txnBase = (TransactionalBase)txnSystem;
+        Transaction txn = txnBase.getThreadTransaction();
+        if ( txn == null || txn.getMode() != ReadWrite.READ )
+            return null;
+        return new WorkerScope() {
+            @Override public boolean start()  { return txnBase.beginReadShared(txn); }
+            @Override public void finish()    { txnBase.end(); }
+        };
+    }
+
+    private static Tuple<Node> patternTuple(Node graphNode, Triple triple) {
+        if ( graphNode == null )
+            // 3-tuples
+            return TupleFactory.create3(triple.getSubject(), triple.getPredicate(), triple.getObject());
+        // 4-tuples.
+        return TupleFactory.create4(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject());
+    }
+
     private static Iterator<BindingNodeId> matchQuadPattern(Iterator<BindingNodeId> chain, Node graphNode, Triple tPattern,
                                                             NodeTupleTable nodeTupleTable, Tuple<Node> patternTuple, boolean anyGraph,
                                                             Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
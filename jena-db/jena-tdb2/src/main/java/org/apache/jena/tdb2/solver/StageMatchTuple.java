@@ -20,59 +20,47 @@ package org.apache.jena.tdb2.solver;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import org.apache.jena.acl.DatasetACL;
-import static org.apache.jena.acl.DatasetACL.DEF_GRAPH_NAME;
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.StrUtils;
 
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.graph.Node;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
-import org.apache.jena.sparql.util.Context;
-import org.apache.jena.sparql.util.Symbol;
+import org.apache.jena.sparql.engine.QueryACL;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 
 class StageMatchTuple {
+    /**
+     * Graph access filter. Decisions come from the per-execution {@link QueryACL}
+     * and are keyed by the graph NodeId, so each graph is decoded and checked once
+     * per query rather than once per tuple.
+     */
     private static class ACLFilter implements Predicate<Tuple<NodeId>> {
-        private final static Symbol SYM_USR = Symbol.create(DatasetACL.ACL_USER_NAME);
-        private final static Symbol SYM_ACL = Symbol.create(DatasetACL.ACL_HANDLER_NAME);
-        
-        private final Context           ctx;
-        private final NodeTupleTable    nodeTupleTable;
-        
-        
-        public ACLFilter(Context c,NodeTupleTable ntt) {
-            ctx = c;
-            nodeTupleTable = ntt;
+        private final QueryACL          acl;
+        private final NodeTable         nodeTable;
+
+        ACLFilter(QueryACL acl, NodeTable nodeTable) {
+            this.acl = acl;
+            this.nodeTable = nodeTable;
         }
+
         @Override
         public boolean test(Tuple<NodeId> t) {
-            final DatasetACL acl = (DatasetACL) ctx.get(SYM_ACL);
-            final String     usrName = (String) ctx.get(SYM_USR);
-            
-            if (acl == null || usrName == null)
-                return true;
-            
-            
-            String graphName = "";
-            
-            if (t.len() == 3)
-                graphName = DEF_GRAPH_NAME;
-            else { 
-                final Node nGraph = nodeTupleTable.getNodeTable().getNodeForNodeId(t.get(0));
-                graphName = nGraph.toString();
-            }
-            
-            return acl.checkGraphBase(DatasetACL.aclId.aiQuery, graphName, usrName);
+            if ( t.len() == 3 )
+                return acl.permitsDefaultGraph();
+            return acl.permits(t.get(0), nodeTable::getNodeForNodeId);
         }
-        
     }
+
     /* Entry point */
     static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, Tuple<Node> patternTuple,
                                                  Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
@@ -93,7 +81,11 @@ class StageMatchTuple {
             // Short cut - known unknown NodeId
             return Iter.nullIterator();
 
-        Iterator<Tuple<NodeId>> iterMatches = nodeTupleTable.find(TupleFactory.create(ids));
+        QueryACL acl = QueryACL.get(execCxt);
+        if ( filter == null )
+            return accessBatch(nodeTupleTable, input, ids, vars, acl, anyGraph);
+
+        Iterator<Tuple<NodeId>> iterMatches = find(nodeTupleTable, ids, acl, anyGraph);
         if ( false ) {
             List<Tuple<NodeId>> x = Iter.toList(iterMatches);
             System.out.println(x);
@@ -105,13 +97,9 @@ class StageMatchTuple {
         if ( filter != null )
             iterMatches = Iter.filter(iterMatches, filter);
         
-        ///PROVA PROVA PROVA
-        final Context ctx = execCxt.getContext();
-        
-        
-        iterMatches = Iter.filter(iterMatches, new ACLFilter(ctx, nodeTupleTable));
-        
-        
+        if ( acl != null )
+            iterMatches = Iter.filter(iterMatches, new ACLFilter(acl, nodeTupleTable.getNodeTable()));
+
         // If we want to reduce to RDF semantics over quads,
         // we need to reduce the quads to unique triples.
         // We do that by having the graph slot as "any", then running
@@ -140,6 +128,200 @@ class StageMatchTuple {
         return Iter.iter(iterMatches).map(binder).removeNulls();
     }
 
+    /**
+     * Batch access: matches arrive as rows of encoded NodeIds and only rows that
+     * produce a binding are turned into {@link NodeId} objects.
+     */
+    private static Iterator<BindingNodeId> accessBatch(NodeTupleTable nodeTupleTable, BindingNodeId input, NodeId[] ids, Var[] vars,
+                                                       QueryACL acl, boolean anyGraph) {
+        if ( acl != null && ids.length == 3 && !acl.permitsDefaultGraph() )
+            return Iter.nullIterator();
+        Iterator<LongBatch> batches = findBatch(nodeTupleTable, ids, acl, anyGraph);
+        return new BatchBinder(batches, input, vars, acl, nodeTupleTable.getNodeTable(), anyGraph);
+    }
+
+    /** As {@link #find}, for batches of encoded NodeIds. */
+    private static Iterator<LongBatch> findBatch(NodeTupleTable nodeTupleTable, NodeId[] ids, QueryACL acl, boolean anyGraph) {
+        if ( acl != null && ids.length == 4 && !anyGraph && NodeId.isAny(ids[0]) ) {
+            NodeTable nodeTable = nodeTupleTable.getNodeTable();
+            List<NodeId> graphs = acl.permittedGraphKeys(nodeTupleTable, g -> {
+                NodeId gid = nodeTable.getNodeIdForNode(g);
+                return NodeId.isDoesNotExist(gid) ? null : gid;
+            });
+            if ( graphs != null )
+                return Iter.flatMap(graphs.iterator(), gid -> {
+                    NodeId[] graphIds = ids.clone();
+                    graphIds[0] = gid;
+                    return nodeTupleTable.findBatch(TupleFactory.create(graphIds));
+                });
+        }
+        return nodeTupleTable.findBatch(TupleFactory.create(ids));
+    }
+
+    /**
+     * Turn rows of encoded NodeIds into bindings. Repeated variables, the graph
+     * ACL and union graph duplicate removal are all checked on the longs;
+     * decoded NodeIds are reused while a column value does not change.
+     */
+    private static class BatchBinder implements Iterator<BindingNodeId> {
+        private final Iterator<LongBatch> batches;
+        private final BindingNodeId input;
+        private final Var[]         vars;
+        // For each slot, the first slot with the same variable, or -1.
+        private final int[]         sameAs;
+        private final QueryACL      acl;
+        private final NodeTable     nodeTable;
+        private final boolean       anyGraph;
+        private final boolean       noMatch;
+
+        private final long[]        lastValue;
+        private final NodeId[]      lastNodeId;
+        private boolean             haveGraph = false;
+        private long                lastGraph;
+        private boolean             lastGraphPermitted;
+        private long[]              lastRow = null;
+
+        private LongBatch           batch = null;
+        private int                 row = 0;
+        private BindingNodeId       slot = null;
+
+        BatchBinder(Iterator<LongBatch> batches, BindingNodeId input, Var[] vars, QueryACL acl, NodeTable nodeTable, boolean anyGraph) {
+            this.batches = batches;
+            this.input = input;
+            this.vars = vars;
+            this.acl = ( vars.length == 4 ) ? acl : null;
+            this.nodeTable = nodeTable;
+            this.anyGraph = anyGraph;
+            this.sameAs = new int[vars.length];
+            boolean clash = false;
+            for ( int i = 0 ; i < vars.length ; i++ ) {
+                sameAs[i] = -1;
+                if ( vars[i] == null )
+                    continue;
+                for ( int j = 0 ; j < i ; j++ ) {
+                    if ( vars[i].equals(vars[j]) ) {
+                        sameAs[i] = j;
+                        break;
+                    }
+                }
+                // The union graph slot is bound to "any" so can not equal another slot.
+                if ( anyGraph && sameAs[i] == 0 )
+                    clash = true;
+            }
+            this.noMatch = clash;
+            this.lastValue = new long[vars.length];
+            this.lastNodeId = new NodeId[vars.length];
+            if ( anyGraph )
+                lastRow = new long[vars.length];
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( slot != null )
+                return true;
+            if ( noMatch )
+                return false;
+            for ( ;; ) {
+                if ( batch == null || row >= batch.size() ) {
+                    if ( !batches.hasNext() )
+                        return false;
+                    batch = batches.next();
+                    row = 0;
+                    continue;
+                }
+                int r = row++;
+                if ( accept(batch, r) ) {
+                    slot = bind(batch, r);
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public BindingNodeId next() {
+            if ( !hasNext() )
+                throw new NoSuchElementException();
+            BindingNodeId x = slot;
+            slot = null;
+            return x;
+        }
+
+        private boolean accept(LongBatch b, int r) {
+            for ( int i = 0 ; i < sameAs.length ; i++ ) {
+                int j = sameAs[i];
+                if ( j >= 0 && b.get(r, i) != b.get(r, j) )
+                    return false;
+            }
+            if ( acl != null && !permitsGraph(b.get(r, 0)) )
+                return false;
+            if ( anyGraph ) {
+                // Union graph: same triples are adjacent (index ends in G).
+                boolean same = lastRow[0] == 1;
+                for ( int i = 1 ; same && i < lastRow.length ; i++ )
+                    same = lastRow[i] == b.get(r, i);
+                if ( same )
+                    return false;
+                lastRow[0] = 1;
+                for ( int i = 1 ; i < lastRow.length ; i++ )
+                    lastRow[i] = b.get(r, i);
+            }
+            return true;
+        }
+
+        private boolean permitsGraph(long g) {
+            if ( !haveGraph || g != lastGraph ) {
+                haveGraph = true;
+                lastGraph = g;
+                lastGraphPermitted = acl.permits(NodeIdFactory.decode(g), nodeTable::getNodeForNodeId);
+            }
+            return lastGraphPermitted;
+        }
+
+        private BindingNodeId bind(LongBatch b, int r) {
+            BindingNodeId output = new BindingNodeId(input);
+            for ( int i = 0 ; i < vars.length ; i++ ) {
+                if ( vars[i] == null || sameAs[i] >= 0 )
+                    continue;
+                output.put(vars[i], nodeId(i, b.get(r, i)));
+            }
+            return output;
+        }
+
+        private NodeId nodeId(int i, long x) {
+            if ( anyGraph && i == 0 )
+                return NodeId.NodeIdAny;
+            if ( lastNodeId[i] == null || lastValue[i] != x ) {
+                lastValue[i] = x;
+                lastNodeId[i] = NodeIdFactory.decode(x);
+            }
+            return lastNodeId[i];
+        }
+    }
+
+    /**
+     * Find the matching tuples. When the graph slot is open and the ACL restricts
+     * the user to a small set of graphs, each permitted graph is scanned on a
+     * G-leading index instead of scanning every graph and filtering afterwards.
+     */
+    private static Iterator<Tuple<NodeId>> find(NodeTupleTable nodeTupleTable, NodeId[] ids, QueryACL acl, boolean anyGraph) {
+        // Union graph matching relies on one scan of an index ending in G
+        // (see access) so it is left to post-filtering.
+        if ( acl != null && ids.length == 4 && !anyGraph && NodeId.isAny(ids[0]) ) {
+            NodeTable nodeTable = nodeTupleTable.getNodeTable();
+            List<NodeId> graphs = acl.permittedGraphKeys(nodeTupleTable, g -> {
+                NodeId gid = nodeTable.getNodeIdForNode(g);
+                return NodeId.isDoesNotExist(gid) ? null : gid;
+            });
+            if ( graphs != null )
+                return Iter.flatMap(graphs.iterator(), gid -> {
+                    NodeId[] graphIds = ids.clone();
+                    graphIds[0] = gid;
+                    return nodeTupleTable.find(TupleFactory.create(graphIds));
+                });
+        }
+        return nodeTupleTable.find(TupleFactory.create(ids));
+    }
+
     private static BindingNodeId tupleToBinding(BindingNodeId input, Tuple<NodeId> tuple, Var[] var) {
         // Reuseable BindingNodeId builder?
         BindingNodeId output = new BindingNodeId(input);
@@ -161,7 +343,7 @@ class StageMatchTuple {
      * null in the NodeIds. A variable that is not bound by the binding is placed in
      * the var array. Return false if preparation detects the pattern can not match.
      */
-    private static boolean prepare(NodeTable nodeTable, Tuple<Node> patternTuple, BindingNodeId input, NodeId ids[], Var[] var) {
+    /*package*/ static boolean prepare(NodeTable nodeTable, Tuple<Node> patternTuple, BindingNodeId input, NodeId ids[], Var[] var) {
         // Process the Node to NodeId conversion ourselves because
         // we wish to abort if an unknown node is seen.
         for ( int i = 0 ; i < patternTuple.len() ; i++ ) {
@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.base.buffer.LongBatch;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryACL;
+import org.apache.jena.sparql.engine.iterator.Abortable;
+import org.apache.jena.tdb2.solver.stats.CardinalityStats;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
+
+/**
+ * Match two patterns that share a variable by a sort-merge join of two index scans.
+ * <p>
+ * A pattern can be scanned in order of a variable if there is an index that has the
+ * pattern's fixed terms as its leading columns followed by the variable, for example
+ * POS for {@code ?s :p :o}. When both patterns can be scanned in order of the same
+ * variable and the {@link CardinalityStats} estimate both to be large, the two scans
+ * are merged; otherwise the patterns are matched by substitution as usual.
+ * <p>
+ * A merge join may read many rows before it produces one, so it checks for
+ * cancellation as each batch of an index scan is read.
+ */
+class StageMergeJoin {
+
+    /** The live statistics for a dataset, or null. */
+    static CardinalityStats stats(DatasetGraphTDB dsg) {
+        return CardinalityStats.get(dsg);
+    }
+
+    /** Whether two patterns have a variable in common. */
+    static boolean sharesVariable(Tuple<Node> pattern1, Tuple<Node> pattern2) {
+        for ( Node n : pattern1 ) {
+            if ( Var.isVar(n) && pattern2.contains(n) )
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Entry point. An {@link Abortable} for the merge joins is added to
+     * {@code killList}.
+     */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                                          Tuple<Node> pattern1, Tuple<Node> pattern2,
+                                          CardinalityStats stats, List<Abortable> killList, ExecutionContext execCxt) {
+        Cancel cancel = new Cancel();
+        killList.add(cancel);
+        return Iter.flatMap(input, bnid -> access(nodeTupleTable, bnid, pattern1, pattern2, stats, cancel, execCxt));
+    }
+
+    /** Abort flag shared by the merge joins of one stage. */
+    private static class Cancel implements Abortable {
+        private volatile boolean cancelled = false;
+
+        /** Can call asynchronously at any time */
+        @Override
+        public void abort() {
+            cancelled = true;
+        }
+
+        void check() {
+            if ( cancelled )
+                throw new QueryCancelledException();
+        }
+    }
+
+    private static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, BindingNodeId input,
+                                                  Tuple<Node> pattern1, Tuple<Node> pattern2,
+                                                  CardinalityStats stats, Cancel cancel, ExecutionContext execCxt) {
+        int len = pattern1.len();
+        NodeId[] ids1 = new NodeId[len];
+        Var[] vars1 = new Var[len];
+        NodeId[] ids2 = new NodeId[len];
+        Var[] vars2 = new Var[len];
+        if ( !StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), pattern1, input, ids1, vars1) ||
+             !StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), pattern2, input, ids2, vars2) )
+            return Iter.nullIterator();
+
+        if ( QueryACL.get(execCxt) == null ) {
+            TupleTable tupleTable = nodeTupleTable.getTupleTable();
+            for ( int slot1 = 0 ; slot1 < len ; slot1++ ) {
+                Var v = vars1[slot1];
+                if ( v == null )
+                    continue;
+                int slot2 = indexOf(vars2, v);
+                if ( slot2 < 0 )
+                    continue;
+                TupleIndex index1 = orderedIndex(tupleTable, ids1, slot1);
+                TupleIndex index2 = orderedIndex(tupleTable, ids2, slot2);
+                if ( index1 == null || index2 == null )
+                    continue;
+                if ( !worthwhile(stats, estimate(stats, ids1), estimate(stats, ids2)) )
+                    break;
+                Iterator<LongBatch> scan1 = index1.findBatch(TupleFactory.create(ids1));
+                Iterator<LongBatch> scan2 = index2.findBatch(TupleFactory.create(ids2));
+                return new MergeJoin(input, scan1, slot1, vars1, scan2, slot2, vars2, cancel);
+            }
+        }
+
+        // Substitution.
+        Iterator<BindingNodeId> chain = Iter.singleton(input);
+        chain = StageMatchTuple.access(nodeTupleTable, chain, pattern1, null, false, execCxt);
+        return StageMatchTuple.access(nodeTupleTable, chain, pattern2, null, false, execCxt);
+    }
+
+    private static int indexOf(Var[] vars, Var v) {
+        for ( int i = 0 ; i < vars.length ; i++ ) {
+            if ( v.equals(vars[i]) )
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Find an index that returns the matches of the pattern in order of the value in
+     * slot: the fixed terms are the leading columns and the slot is the next column.
+     */
+    private static TupleIndex orderedIndex(TupleTable tupleTable, NodeId[] ids, int slot) {
+        int numFixed = 0;
+        for ( NodeId id : ids ) {
+            if ( id != null )
+                numFixed++;
+        }
+        if ( numFixed == 0 )
+            return null;
+        String primary = tupleTable.getIndex(0).getName();
+        for ( TupleIndex index : tupleTable.getIndexes() ) {
+            if ( index == null )
+                continue;
+            String name = index.getName();
+            boolean matches = ( primary.indexOf(name.charAt(numFixed)) == slot );
+            for ( int k = 0 ; matches && k < numFixed ; k++ )
+                matches = ( ids[primary.indexOf(name.charAt(k))] != null );
+            if ( matches )
+                return index;
+        }
+        return null;
+    }
+
+    private static boolean worthwhile(CardinalityStats stats, double size1, double size2) {
+        if ( stats == null || SystemTDB.MergeJoinMinCardinality < 0 || !stats.isReady() )
+            return false;
+        double min = Math.min(size1, size2);
+        double max = Math.max(size1, size2);
+        return min >= SystemTDB.MergeJoinMinCardinality && max <= min * SystemTDB.MergeJoinMaxRatio;
+    }
+
+    /** Estimated number of matches of a pattern (natural order, null for a variable). */
+    private static double estimate(CardinalityStats stats, NodeId[] ids) {
+        int len = ids.length;
+        NodeId s = ids[len - 3];
+        NodeId p = ids[len - 2];
+        NodeId o = ids[len - 1];
+        if ( s != null && o != null )
+            return 1;
+        if ( p != null ) {
+            if ( o != null )
+                return stats.countPO(p, o);
+            double count = stats.count(p);
+            if ( s != null )
+                return count / Math.max(1, stats.distinctSubjects(p));
+            return count;
+        }
+        double total = stats.count();
+        if ( s != null )
+            return total / Math.max(1, stats.distinctSubjects(null));
+        if ( o != null )
+            return total / Math.max(1, stats.distinctObjects(null));
+        return total;
+    }
+
+    /** Position in a stream of LongBatch rows. */
+    private static class Cursor {
+        private final Iterator<LongBatch> batches;
+        private final int keySlot;
+        private final Cancel cancel;
+        private LongBatch batch = null;
+        private int row = 0;
+
+        Cursor(Iterator<LongBatch> batches, int keySlot, Cancel cancel) {
+            this.batches = batches;
+            this.keySlot = keySlot;
+            this.cancel = cancel;
+        }
+
+        boolean valid() {
+            while ( batch == null || row >= batch.size() ) {
+                cancel.check();
+                if ( !batches.hasNext() )
+                    return false;
+                batch = batches.next();
+                row = 0;
+            }
+            return true;
+        }
+
+        long key() {
+            return batch.get(row, keySlot);
+        }
+
+        void advance() {
+            row++;
+        }
+
+        // Batches are reused so rows that are kept must be copied.
+        void copyRow(long[] dst) {
+            for ( int i = 0 ; i < dst.length ; i++ )
+                dst[i] = batch.get(row, i);
+        }
+    }
+
+    private static class MergeJoin implements Iterator<BindingNodeId> {
+        private final BindingNodeId input;
+        private final Cursor cursor1;
+        private final Cursor cursor2;
+        private final Var[] vars1;
+        private final Var[] vars2;
+
+        // Rows of the second scan with the current key.
+        private final List<long[]> group = new ArrayList<>();
+        private long groupKey;
+        private boolean inGroup = false;
+        private int groupIdx = 0;
+        private final long[] row1;
+        private BindingNodeId slot = null;
+
+        MergeJoin(BindingNodeId input, Iterator<LongBatch> scan1, int keySlot1, Var[] vars1,
+                  Iterator<LongBatch> scan2, int keySlot2, Var[] vars2, Cancel cancel) {
+            this.input = input;
+            this.cursor1 = new Cursor(scan1, keySlot1, cancel);
+            this.cursor2 = new Cursor(scan2, keySlot2, cancel);
+            this.vars1 = vars1;
+            this.vars2 = vars2;
+            this.row1 = new long[vars1.length];
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ( slot == null ) {
+                if ( inGroup ) {
+                    if ( groupIdx < group.size() ) {
+                        slot = bind(row1, group.get(groupIdx++));
+                        continue;
+                    }
+                    cursor1.advance();
+                    if ( cursor1.valid() && cursor1.key() == groupKey ) {
+                        cursor1.copyRow(row1);
+                        groupIdx = 0;
+                        continue;
+                    }
+                    inGroup = false;
+                    continue;
+                }
+                if ( !cursor1.valid() || !cursor2.valid() )
+                    return false;
+                long k1 = cursor1.key();
+                long k2 = cursor2.key();
+                int x = Long.compareUnsigned(k1, k2);
+                if ( x < 0 )
+                    cursor1.advance();
+                else if ( x > 0 )
+                    cursor2.advance();
+                else {
+                    groupKey = k1;
+                    group.clear();
+                    while ( cursor2.valid() && cursor2.key() == groupKey ) {
+                        long[] row = new long[vars2.length];
+                        cursor2.copyRow(row);
+                        group.add(row);
+                        cursor2.advance();
+                    }
+                    cursor1.copyRow(row1);
+                    groupIdx = 0;
+                    inGroup = true;
+                }
+            }
+            return true;
+        }
+
+        private BindingNodeId bind(long[] r1, long[] r2) {
+            BindingNodeId output = new BindingNodeId(input);
+            if ( !bind(output, vars1, r1) || !bind(output, vars2, r2) )
+                return null;
+            return output;
+        }
+
+        private static boolean bind(BindingNodeId output, Var[] vars, long[] row) {
+            for ( int i = 0 ; i < vars.length ; i++ ) {
+                Var v = vars[i];
+                if ( v == null )
+                    continue;
+                NodeId id = NodeIdFactory.decode(row[i]);
+                NodeId current = output.get(v);
+                if ( current == null )
+                    output.put(v, id);
+                else if ( !current.equals(id) )
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public BindingNodeId next() {
+            if ( !hasNext() )
+                throw new NoSuchElementException();
+            BindingNodeId x = slot;
+            slot = null;
+            return x;
+        }
+    }
+}
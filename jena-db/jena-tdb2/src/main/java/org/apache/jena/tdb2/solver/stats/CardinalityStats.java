@@ -0,0 +1,545 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.dboe.base.buffer.LongBatch;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.dboe.transaction.txn.TransactionListener;
+import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cardinality statistics for the triple and quad tables of a database, kept up
+ * to date as transactions commit.
+ * <p>
+ * Changes made by the write transaction are gathered as it runs, applied to the
+ * statistics when it commits and dropped if it aborts. Commits are merged into the
+ * statistics in place, so a reader may see a commit partly applied; the numbers are
+ * estimates either way.
+ * <p>
+ * The statistics are: the number of tuples, per predicate counts, estimates of
+ * the number of distinct subjects and objects, overall and per predicate
+ * (HyperLogLog), and a Count-Min sketch of (predicate, object) pair counts.
+ * Distinct counts do not go down when tuples are deleted; they are reset when
+ * a predicate is no longer used.
+ * <p>
+ * The statistics are saved, in the background, after each commit. If there is no
+ * saved file, or after {@link #invalidate()}, they are calculated from the data by
+ * a background scan, started when they are first asked for. Until the scan has
+ * finished, {@link #isReady()} is false and callers should use other estimates.
+ */
+public class CardinalityStats implements TransactionListener, TupleTable.ChangeListener {
+    private static Logger log = LoggerFactory.getLogger(CardinalityStats.class);
+
+    /** File name, in the storage area, of the saved statistics. */
+    public static final String StatsFilename = "cardinality.stats";
+    private static final int FileMagic = 0x53544154;
+    private static final int FileVersion = 1;
+
+    // Writes the statistics files; shared by all databases.
+    private static final ExecutorService persister = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TDB2-stats");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path file;
+    private final TransactionalSystem txnSystem;
+    private final TupleTable tripleTable;
+    private final TupleTable quadTable;
+
+    // Changed in place by commits, replaced by a scan. Guarded by "this" for changes.
+    private volatile Stats committed = new Stats();
+    private volatile boolean ready;
+    private boolean building = false;
+    // Incremented by invalidate(); a scan started before then is discarded.
+    private long generation = 0;
+    // Commits during a scan, with the data version each one created.
+    private final List<Pending> pending = new ArrayList<>();
+    private final AtomicBoolean persistPending = new AtomicBoolean(false);
+    // Changes by the active write transaction, if any. Only the writer uses this.
+    private Delta delta = null;
+
+    /** Statistics for the tables. Location is null or memory for no saved state. */
+    public CardinalityStats(Location location, TransactionalSystem txnSystem, TupleTable tripleTable, TupleTable quadTable) {
+        this.file = ( location == null || location.isMem() ) ? null : Path.of(location.getPath(StatsFilename));
+        this.txnSystem = txnSystem;
+        this.tripleTable = tripleTable;
+        this.quadTable = quadTable;
+        // An in-memory database starts empty.
+        this.ready = ( file == null );
+        if ( file != null && Files.exists(file) ) {
+            try {
+                committed = read(file);
+                ready = true;
+            } catch (IOException ex) {
+                FmtLog.warn(log, "Failed to read %s (statistics will be recalculated): %s", file, ex.getMessage());
+            }
+        }
+        tripleTable.addChangeListener(this);
+        quadTable.addChangeListener(this);
+    }
+
+    /** The live statistics used by a database, or null. */
+    public static CardinalityStats get(DatasetGraphTDB dsg) {
+        ReorderTransformation reorder = dsg.getReorderTransform();
+        if ( reorder instanceof ReorderCardinality )
+            return ((ReorderCardinality)reorder).getStats();
+        return null;
+    }
+
+    // ---- Access
+
+    /**
+     * Whether the statistics reflect the data. If not, a background calculation is
+     * started, if not already running, and the other operations return partial
+     * figures until it finishes.
+     */
+    public boolean isReady() {
+        if ( !ready )
+            startBuild();
+        return ready;
+    }
+
+    /** Number of triples and quads. */
+    public long count() {
+        return stats().total;
+    }
+
+    /** Number of triples and quads with the predicate. */
+    public long count(NodeId predicate) {
+        PredStats ps = stats().predicates.get(NodeIdFactory.encode(predicate));
+        return ps == null ? 0 : ps.count;
+    }
+
+    /** Number of different predicates. */
+    public int numPredicates() {
+        return stats().predicates.size();
+    }
+
+    /** Estimate of the number of distinct subjects, for a predicate or, if null, overall. */
+    public double distinctSubjects(NodeId predicate) {
+        Stats s = stats();
+        if ( predicate == null )
+            return s.subjects.estimate();
+        PredStats ps = s.predicates.get(NodeIdFactory.encode(predicate));
+        return ps == null ? 0 : ps.subjects.estimate();
+    }
+
+    /** Estimate of the number of distinct objects, for a predicate or, if null, overall. */
+    public double distinctObjects(NodeId predicate) {
+        Stats s = stats();
+        if ( predicate == null )
+            return s.objects.estimate();
+        PredStats ps = s.predicates.get(NodeIdFactory.encode(predicate));
+        return ps == null ? 0 : ps.objects.estimate();
+    }
+
+    /** Estimate (an upper bound) of the number of triples and quads with the predicate and object. */
+    public long countPO(NodeId predicate, NodeId object) {
+        Stats s = stats();
+        long p = NodeIdFactory.encode(predicate);
+        PredStats ps = s.predicates.get(p);
+        if ( ps == null )
+            return 0;
+        return Math.min(ps.count, s.pairs.estimate(pairKey(p, NodeIdFactory.encode(object))));
+    }
+
+    private Stats stats() {
+        if ( !ready )
+            startBuild();
+        return committed;
+    }
+
+    /**
+     * Discard the statistics and calculate them again from the data. This is for
+     * changes that were not made through the tuple tables, such as bulk loads; call
+     * it after they have been committed.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        ready = false;
+        building = false;
+        pending.clear();
+        committed = new Stats();
+        deleteFile();
+    }
+
+    /**
+     * Declare that the data is empty, so the statistics are exact without a scan.
+     * This is for a newly created database, before any changes.
+     */
+    public synchronized void setEmpty() {
+        generation++;
+        ready = true;
+        building = false;
+        pending.clear();
+        committed = new Stats();
+    }
+
+    // ---- Calculate from the data.
+
+    private synchronized void startBuild() {
+        if ( ready || building )
+            return;
+        building = true;
+        long gen = generation;
+        Thread thread = new Thread(() -> build(gen), "TDB2-stats-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void build(long gen) {
+        FmtLog.info(log, "Calculating statistics");
+        Stats s = new Stats();
+        long version;
+        try {
+            txnSystem.begin(TxnType.READ);
+            try {
+                version = txnSystem.getThreadTransaction().getDataVersion();
+                Delta d = new Delta();
+                scan(tripleTable, d);
+                scan(quadTable, d);
+                d.applyTo(s);
+            } finally {
+                txnSystem.end();
+            }
+        } catch (RuntimeException ex) {
+            FmtLog.warn(log, "Failed to calculate statistics: %s", ex.getMessage());
+            synchronized(this) {
+                if ( gen == generation ) {
+                    building = false;
+                    pending.clear();
+                }
+            }
+            return;
+        }
+        synchronized(this) {
+            if ( gen != generation )
+                return;
+            // Commits after the scan's snapshot.
+            for ( Pending p : pending ) {
+                if ( p.version > version )
+                    p.delta.applyTo(s);
+            }
+            pending.clear();
+            committed = s;
+            ready = true;
+            building = false;
+        }
+        FmtLog.info(log, "Statistics: %,d tuples, %,d predicates", s.total, s.predicates.size());
+        persist();
+    }
+
+    private static void scan(TupleTable table, Delta d) {
+        int len = table.getTupleLen();
+        NodeId[] any = new NodeId[len];
+        for ( int i = 0 ; i < len ; i++ )
+            any[i] = NodeId.NodeIdAny;
+        Iterator<LongBatch> iter = table.findBatch(TupleFactory.create(any));
+        while ( iter.hasNext() ) {
+            LongBatch batch = iter.next();
+            for ( int r = 0 ; r < batch.size() ; r++ )
+                d.record(batch.get(r, len - 3), batch.get(r, len - 2), batch.get(r, len - 1), 1);
+        }
+    }
+
+    // ---- Changes
+
+    @Override
+    public void added(Tuple<NodeId> tuple) {
+        record(tuple, 1);
+    }
+
+    @Override
+    public void deleted(Tuple<NodeId> tuple) {
+        record(tuple, -1);
+    }
+
+    private void record(Tuple<NodeId> tuple, int inc) {
+        if ( delta == null )
+            delta = new Delta();
+        int len = tuple.len();
+        delta.record(NodeIdFactory.encode(tuple.get(len - 3)),
+                     NodeIdFactory.encode(tuple.get(len - 2)),
+                     NodeIdFactory.encode(tuple.get(len - 1)),
+                     inc);
+    }
+
+    @Override
+    public void notifyTxnStart(Transaction transaction) {
+        if ( transaction.isWriteTxn() )
+            delta = null;
+    }
+
+    @Override
+    public void notifyPromoteFinish(Transaction transaction) {
+        if ( transaction.isWriteTxn() )
+            delta = null;
+    }
+
+    @Override
+    public void notifyCommitFinish(Transaction transaction) {
+        if ( !transaction.isWriteTxn() || delta == null )
+            return;
+        Delta d = delta;
+        delta = null;
+        synchronized(this) {
+            if ( building )
+                // The writer still holds the write lock, so this is the version its commit created.
+                pending.add(new Pending(txnSystem.getTxnMgr().getDataVersion(), d));
+            if ( !ready )
+                // The scan will include it.
+                return;
+            d.applyTo(committed);
+        }
+        persist();
+    }
+
+    @Override
+    public void notifyAbortStart(Transaction transaction) {
+        if ( transaction.isWriteTxn() )
+            delta = null;
+    }
+
+    // ---- Persistence
+
+    private void persist() {
+        if ( file == null )
+            return;
+        if ( !persistPending.compareAndSet(false, true) )
+            // A save is already waiting; it will write the latest state.
+            return;
+        persister.execute(() -> {
+            persistPending.set(false);
+            Stats s;
+            long gen;
+            synchronized(this) {
+                if ( !ready )
+                    return;
+                s = committed.copy();
+                gen = generation;
+            }
+            try {
+                write(s, file);
+            } catch (IOException ex) {
+                FmtLog.warn(log, "Failed to write %s: %s", file, ex.getMessage());
+            }
+            synchronized(this) {
+                // Invalidated while writing.
+                if ( gen != generation )
+                    deleteFile();
+            }
+        });
+    }
+
+    private void deleteFile() {
+        if ( file == null )
+            return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            FmtLog.warn(log, "Failed to delete %s: %s", file, ex.getMessage());
+        }
+    }
+
+    private static void write(Stats s, Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp))) ) {
+            out.writeInt(FileMagic);
+            out.writeInt(FileVersion);
+            out.writeLong(s.total);
+            s.subjects.write(out);
+            s.objects.write(out);
+            s.pairs.write(out);
+            out.writeInt(s.predicates.size());
+            for ( Map.Entry<Long, PredStats> e : s.predicates.entrySet() ) {
+                out.writeLong(e.getKey());
+                out.writeLong(e.getValue().count);
+                e.getValue().subjects.write(out);
+                e.getValue().objects.write(out);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Stats read(Path file) throws IOException {
+        try ( DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))) ) {
+            if ( in.readInt() != FileMagic || in.readInt() != FileVersion )
+                throw new IOException("Not a statistics file");
+            Stats s = new Stats();
+            s.total = in.readLong();
+            s.subjects = HyperLogLog.read(in);
+            s.objects = HyperLogLog.read(in);
+            s.pairs = CountMinSketch.read(in);
+            int n = in.readInt();
+            for ( int i = 0 ; i < n ; i++ ) {
+                long p = in.readLong();
+                long count = in.readLong();
+                s.predicates.put(p, new PredStats(count, HyperLogLog.read(in), HyperLogLog.read(in)));
+            }
+            return s;
+        }
+    }
+
+    private static long pairKey(long p, long o) {
+        return HyperLogLog.hash(p) ^ o;
+    }
+
+    // ---- State
+
+    private static final class PredStats {
+        volatile long count;
+        final HyperLogLog subjects;
+        final HyperLogLog objects;
+
+        PredStats(long count, HyperLogLog subjects, HyperLogLog objects) {
+            this.count = count;
+            this.subjects = subjects;
+            this.objects = objects;
+        }
+    }
+
+    /** Statistics. Readers do not lock; changes are made holding the CardinalityStats lock. */
+    private static final class Stats {
+        volatile long total = 0;
+        final Map<Long, PredStats> predicates = new ConcurrentHashMap<>();
+        volatile HyperLogLog subjects = new HyperLogLog();
+        volatile HyperLogLog objects = new HyperLogLog();
+        volatile CountMinSketch pairs = new CountMinSketch();
+
+        /** Deep copy, for saving. */
+        Stats copy() {
+            Stats s = new Stats();
+            s.total = total;
+            predicates.forEach((p, ps) -> s.predicates.put(p, new PredStats(ps.count, ps.subjects.copy(), ps.objects.copy())));
+            s.subjects = subjects.copy();
+            s.objects = objects.copy();
+            s.pairs = pairs.copy();
+            return s;
+        }
+    }
+
+    private static final class Pending {
+        final long version;
+        final Delta delta;
+
+        Pending(long version, Delta delta) {
+            this.version = version;
+            this.delta = delta;
+        }
+    }
+
+    /** Changes, or the results of a scan. */
+    private static final class Delta {
+        // Pair counts are kept exactly until there are this many, then folded into a sketch.
+        private static final int MaxPairs = 4096;
+
+        long total = 0;
+        final Map<Long, PredDelta> predicates = new HashMap<>();
+        final HyperLogLog subjects = new HyperLogLog();
+        final HyperLogLog objects = new HyperLogLog();
+        final Map<Long, Long> pairs = new HashMap<>();
+        CountMinSketch pairSketch = null;
+
+        void record(long s, long p, long o, int inc) {
+            total += inc;
+            PredDelta pd = predicates.computeIfAbsent(p, x -> new PredDelta());
+            pd.count += inc;
+            pairs.merge(pairKey(p, o), (long)inc, Long::sum);
+            if ( pairs.size() > MaxPairs ) {
+                if ( pairSketch == null )
+                    pairSketch = new CountMinSketch();
+                pairs.forEach(pairSketch::add);
+                pairs.clear();
+            }
+            if ( inc > 0 ) {
+                subjects.add(s);
+                objects.add(o);
+                pd.subjects.add(s);
+                pd.objects.add(o);
+            }
+        }
+
+        /** Merge into the statistics, in place. The delta must not be used afterwards. */
+        void applyTo(Stats s) {
+            long t = Math.max(0, s.total + total);
+            if ( t == 0 ) {
+                s.predicates.clear();
+                s.subjects = new HyperLogLog();
+                s.objects = new HyperLogLog();
+                s.pairs = new CountMinSketch();
+                s.total = 0;
+                return;
+            }
+            s.subjects.merge(subjects);
+            s.objects.merge(objects);
+            pairs.forEach(s.pairs::add);
+            if ( pairSketch != null )
+                s.pairs.merge(pairSketch);
+            predicates.forEach((p, pd) -> {
+                PredStats ps = s.predicates.get(p);
+                long count = ( ps == null ? 0 : ps.count ) + pd.count;
+                if ( count <= 0 ) {
+                    s.predicates.remove(p);
+                    return;
+                }
+                if ( ps == null ) {
+                    s.predicates.put(p, new PredStats(count, pd.subjects, pd.objects));
+                    return;
+                }
+                ps.subjects.merge(pd.subjects);
+                ps.objects.merge(pd.objects);
+                ps.count = count;
+            });
+            s.total = t;
+        }
+    }
+
+    private static final class PredDelta {
+        long count = 0;
+        final HyperLogLog subjects = new HyperLogLog();
+        final HyperLogLog objects = new HyperLogLog();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Count-Min sketch of 64 bit keys. Counts can go up and down; an estimate is
+ * never below the true count, and is close to it for frequent keys.
+ */
+final class CountMinSketch {
+    private static final int Depth = 4;
+    private static final int Width = 2048;
+
+    private final long[] counters;
+
+    CountMinSketch() {
+        this.counters = new long[Depth * Width];
+    }
+
+    private CountMinSketch(long[] counters) {
+        this.counters = counters;
+    }
+
+    CountMinSketch copy() {
+        return new CountMinSketch(counters.clone());
+    }
+
+    void add(long key, long delta) {
+        for ( int i = 0 ; i < Depth ; i++ )
+            counters[i * Width + slot(key, i)] += delta;
+    }
+
+    /** Add all the counts of another sketch into this one. */
+    void merge(CountMinSketch other) {
+        for ( int i = 0 ; i < counters.length ; i++ )
+            counters[i] += other.counters[i];
+    }
+
+    long estimate(long key) {
+        long x = Long.MAX_VALUE;
+        for ( int i = 0 ; i < Depth ; i++ )
+            x = Math.min(x, counters[i * Width + slot(key, i)]);
+        return Math.max(x, 0);
+    }
+
+    private static int slot(long key, int row) {
+        return (int)(HyperLogLog.hash(key + row * 0x9E3779B97F4A7C15L) & (Width - 1));
+    }
+
+    void write(DataOutput out) throws IOException {
+        for ( long c : counters )
+            out.writeLong(c);
+    }
+
+    static CountMinSketch read(DataInput in) throws IOException {
+        long[] counters = new long[Depth * Width];
+        for ( int i = 0 ; i < counters.length ; i++ )
+            counters[i] = in.readLong();
+        return new CountMinSketch(counters);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import static org.apache.jena.sparql.engine.optimizer.reorder.PatternElements.isSet;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.engine.optimizer.reorder.PatternTriple;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderFixed;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformationSubstitution;
+import org.apache.jena.sparql.sse.Item;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+
+/**
+ * BGP reordering using the live {@link CardinalityStats} of a database. The weight
+ * of a triple pattern is the estimated number of matches. While the database is
+ * empty, or the statistics are still being calculated, the weights of
+ * {@link ReorderFixed} are used.
+ */
+public class ReorderCardinality extends ReorderTransformationSubstitution {
+    private final CardinalityStats stats;
+    private final NodeTable nodeTable;
+    private final ReorderFixed fixed = new ReorderFixed();
+
+    public ReorderCardinality(CardinalityStats stats, NodeTable nodeTable) {
+        this.stats = stats;
+        this.nodeTable = nodeTable;
+    }
+
+    public CardinalityStats getStats() {
+        return stats;
+    }
+
+    @Override
+    protected double weight(PatternTriple pt) {
+        if ( !stats.isReady() )
+            return fixed.weight(pt);
+        long total = stats.count();
+        if ( total == 0 )
+            return fixed.weight(pt);
+
+        boolean sSet = isSet(pt.subject);
+        boolean oSet = isSet(pt.object);
+        // A term not in the database can not match.
+        NodeId s = nodeId(pt.subject);
+        NodeId p = nodeId(pt.predicate);
+        NodeId o = nodeId(pt.object);
+        if ( NodeId.isDoesNotExist(s) || NodeId.isDoesNotExist(p) || NodeId.isDoesNotExist(o) )
+            return 0;
+
+        if ( p != null ) {
+            long count = stats.count(p);
+            if ( count == 0 )
+                return 0;
+            if ( sSet && oSet )
+                return 1;
+            if ( sSet )
+                return count / Math.max(1, stats.distinctSubjects(p));
+            if ( o != null )
+                return stats.countPO(p, o);
+            if ( oSet )
+                return count / Math.max(1, stats.distinctObjects(p));
+            return count;
+        }
+
+        // Predicate is a variable or will be bound to an unknown value.
+        double count = isSet(pt.predicate) ? (double)total / Math.max(1, stats.numPredicates()) : total;
+        if ( sSet && oSet )
+            return 1;
+        if ( sSet )
+            return count / Math.max(1, stats.distinctSubjects(null));
+        if ( oSet )
+            return count / Math.max(1, stats.distinctObjects(null));
+        return count;
+    }
+
+    /** NodeId for a concrete term, else null. */
+    private NodeId nodeId(Item item) {
+        if ( !item.isNode() )
+            return null;
+        Node n = item.getNode();
+        if ( !n.isConcrete() )
+            return null;
+        return nodeTable.getNodeIdForNode(n);
+    }
+}
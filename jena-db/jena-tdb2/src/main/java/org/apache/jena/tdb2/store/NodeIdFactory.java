@@ -129,8 +129,8 @@ public class NodeIdFactory
         return decode(value2);
     }
 
-    // 64 bit version
-    private static NodeId decode(long value2) {
+    /** Make a NodeId from its 64 bit on-disk form. */
+    public static NodeId decode(long value2) {
         return NodeIdFactory.create64(value2);
     }
 
@@ -140,7 +140,8 @@ public class NodeIdFactory
         Bytes.setLong(v2, b, 0);
     }
 
-    private static long encode(NodeId nodeId) {
+    /** The 64 bit on-disk form of a NodeId, as found in index records. */
+    public static long encode(NodeId nodeId) {
         long x = nodeId.value2;
         switch(nodeId.type()) {
             case PTR:
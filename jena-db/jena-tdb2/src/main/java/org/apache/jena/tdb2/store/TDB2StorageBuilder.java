@@ -40,6 +40,7 @@ import org.apache.jena.dboe.transaction.txn.*;
 import org.apache.jena.dboe.transaction.txn.journal.Journal;
 import org.apache.jena.query.ARQ;
 import org.apache.jena.sparql.engine.main.QC;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderFixed;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
 import org.apache.jena.sparql.sse.SSEParseException;
@@ -48,6 +49,8 @@ import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.params.StoreParamsCodec;
 import org.apache.jena.tdb2.params.StoreParamsFactory;
 import org.apache.jena.tdb2.solver.OpExecutorTDB2;
+import org.apache.jena.tdb2.solver.stats.CardinalityStats;
+import org.apache.jena.tdb2.solver.stats.ReorderCardinality;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetable.NodeTableCache;
 import org.apache.jena.tdb2.store.nodetable.NodeTableInline;
@@ -103,13 +106,18 @@ public class TDB2StorageBuilder {
         TDB2StorageBuilder builder = new TDB2StorageBuilder(txnSystem, location, params, new ComponentIdMgr(UUID.randomUUID()));
         StorageTDB storage = builder.buildStorage();
         StoragePrefixes prefixes = builder.buildPrefixes();
+        CardinalityStats stats = new CardinalityStats(location, txnSystem,
+                                                      storage.getTripleTable().getNodeTupleTable().getTupleTable(),
+                                                      storage.getQuadTable().getNodeTupleTable().getTupleTable());
+        builder.listeners.add(stats);
 
         // Finalize.
         builder.components.forEach(txnCoord::add);
         builder.listeners.forEach(txnCoord::addListener);
         // Freezes the TransactionCoordinator components
         txnCoord.start();
-        ReorderTransformation reorderTranform = chooseReorderTransformation(location);
+        ReorderTransformation reorderTranform = chooseReorderTransformation(location, stats,
+                                                                            storage.getTripleTable().getNodeTupleTable().getNodeTable());
         DatasetGraphTDB dsg = new DatasetGraphTDB(location, params, reorderTranform,
                                                   storage, prefixes, txnSystem);
 
@@ -132,6 +140,8 @@ public class TDB2StorageBuilder {
     private static TransactionCoordinator buildTransactionCoordinator(Location location) {
         Journal journal = Journal.create(location);
         TransactionCoordinator txnCoord = new TransactionCoordinator(journal);
+        if ( ! location.isMem() )
+            txnCoord.setDurability(SystemTDB.CommitDurability, SystemTDB.CommitMaxLatency);
         return txnCoord;
     }
 
@@ -294,7 +304,7 @@ public class TDB2StorageBuilder {
     private RangeIndex makeRangeIndex(RecordFactory recordFactory, String name) {
         ComponentId cid = componentIdMgr.getComponentId(name);
         FileSet fs = new FileSet(location, name);
-        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory);
+        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory, params.isBlockCacheConcurrent());
         components.add(bpt);
         return bpt;
     }
@@ -335,6 +345,15 @@ public class TDB2StorageBuilder {
 
     private static boolean warnAboutOptimizer = true ;
     public static ReorderTransformation chooseReorderTransformation(Location location) {
+        return chooseReorderTransformation(location, null, null);
+    }
+
+    /**
+     * Choose the BGP optimizer. A stats, fixed or none file in the location is used if
+     * present; otherwise, if there are live statistics and the system default has not
+     * been changed from the fixed optimizer, they are used.
+     */
+    public static ReorderTransformation chooseReorderTransformation(Location location, CardinalityStats stats, NodeTable nodeTable) {
         if ( location == null )
             return ReorderLib.identity() ;
 
@@ -360,6 +379,11 @@ public class TDB2StorageBuilder {
             log.debug("Optimizer explicitly turned off") ;
         }
 
+        if ( reorder == null && stats != null && SystemTDB.getDefaultReorderTransform() instanceof ReorderFixed ) {
+            reorder = new ReorderCardinality(stats, nodeTable) ;
+            log.debug("Live statistics BGP optimizer") ;
+        }
+
         if ( reorder == null )
             reorder = SystemTDB.getDefaultReorderTransform() ;
 
@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.graph.Node;
+import org.apache.jena.riot.thrift.TRDF;
+import org.apache.jena.riot.thrift.ThriftConvert;
+import org.apache.jena.riot.thrift.wire.RDF_Term;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.thrift.TException;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.apache.thrift.transport.TMemoryInputTransport;
+
+/**
+ * A NodeId{@literal ->}Node cache that keeps the nodes outside the Java heap.
+ * <p>
+ * Nodes are stored in their Thrift encoding (as used by {@link NodeTableTRDF}) in a
+ * ring of direct memory segments and are decoded when looked up. The index, from
+ * NodeId to position in the ring, is an open-addressing table of pairs of longs,
+ * also in direct memory. Writing wraps round the ring, overwriting the oldest
+ * entries (FIFO eviction). Index entries for overwritten nodes are detected by
+ * position and cleared out when the index is rebuilt.
+ * <p>
+ * The index counts against the capacity: it starts small, grows with the number of
+ * entries, and may use up to a quarter of the capacity. When it can not grow, the
+ * oldest part of the ring is evicted to make room.
+ * <p>
+ * Only pointer NodeIds are cached. Lookups do not block: they copy the encoded bytes
+ * under an optimistic read of a {@link StampedLock} and retry under the read lock if
+ * a writer intervened.
+ */
+public class NodeCacheOffHeap implements Cache<NodeId, Node> {
+    // Record: NodeId pointer (8 bytes), length (4 bytes), Thrift bytes.
+    private static final int  RecordHeader  = 12;
+    private static final long EmptyKey      = -1;
+    private static final int  MaxSegment    = 1 << 30;
+    // Index slots are pairs (key, position) in a LongBuffer, itself limited to 2G bytes.
+    private static final int  MaxSlots      = 1 << 26;
+    private static final int  MinSlots      = 1 << 6;
+    private static final int  SlotBytes     = 2 * Long.BYTES;
+    // Fraction of the ring evicted at a time when the index is full.
+    private static final int  EvictFraction = 8;
+
+    private final StampedLock   lock        = new StampedLock();
+    private final ByteBuffer[]  segments;
+    private final int           segmentSize;
+    private final long          capacity;
+    private final int           maxRecord;
+    private final int           maxSlots;
+
+    private LongBuffer          index;
+    private int                 slots;
+    // Slots not EmptyKey, including those for overwritten records.
+    private int                 occupied;
+    // Next position in the ring to write to. Only increases.
+    private long                writePosn   = 0;
+    // Records before this position have been evicted. Only increases.
+    private long                evictPosn   = 0;
+
+    /**
+     * Create an off-heap cache using {@code capacityBytes} of direct memory for the
+     * nodes and the index.
+     */
+    public NodeCacheOffHeap(long capacityBytes) {
+        if ( capacityBytes < 1024 )
+            throw new IllegalArgumentException("NodeCacheOffHeap: capacity too small: "+capacityBytes);
+        long indexBytes = capacityBytes / 4;
+        long ringBytes = capacityBytes - indexBytes;
+        this.segmentSize = (int)Math.min(ringBytes, MaxSegment);
+        int numSegments = (int)(ringBytes / segmentSize);
+        this.segments = new ByteBuffer[numSegments];
+        for ( int i = 0 ; i < numSegments ; i++ )
+            segments[i] = ByteBuffer.allocateDirect(segmentSize);
+        this.capacity = (long)numSegments * segmentSize;
+        this.maxRecord = segmentSize / 4;
+        this.maxSlots = (int)Math.min(MaxSlots, Math.max(MinSlots, Long.highestOneBit(indexBytes / SlotBytes)));
+        allocIndex(MinSlots);
+    }
+
+    private int slotsFor(long entries) {
+        long x = Long.highestOneBit(Math.max(entries, MinSlots / 2) * 2);
+        return (int)Math.min(x, maxSlots);
+    }
+
+    private void allocIndex(int numSlots) {
+        index = ByteBuffer.allocateDirect(numSlots * SlotBytes).asLongBuffer();
+        slots = numSlots;
+        occupied = 0;
+        for ( int i = 0 ; i < numSlots ; i++ )
+            index.put(2 * i, EmptyKey);
+    }
+
+    private static long key(NodeId nodeId) {
+        if ( nodeId == null || !nodeId.isPtr() )
+            return EmptyKey;
+        return nodeId.getPtrLocation();
+    }
+
+    private static int hash(long key, int numSlots) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32)) & (numSlots - 1);
+    }
+
+    /** Is the record at {@code posn} still in the ring? */
+    private boolean isLive(long posn) {
+        return posn >= oldest();
+    }
+
+    /** Position of the oldest record that has not been overwritten or evicted. */
+    private long oldest() {
+        return Math.max(writePosn - capacity, evictPosn);
+    }
+
+    private ByteBuffer segment(long posn) {
+        return segments[(int)((posn % capacity) / segmentSize)];
+    }
+
+    private int offset(long posn) {
+        return (int)((posn % capacity) % segmentSize);
+    }
+
+    // ---- Read
+
+    @Override
+    public boolean containsKey(NodeId nodeId) {
+        return getIfPresent(nodeId) != null;
+    }
+
+    @Override
+    public Node getIfPresent(NodeId nodeId) {
+        long key = key(nodeId);
+        if ( key == EmptyKey )
+            return null;
+        byte[] bytes = null;
+        long stamp = lock.tryOptimisticRead();
+        if ( stamp != 0 ) {
+            try {
+                bytes = fetch(key, stamp);
+            } catch (RuntimeException ex) {
+                // Inconsistent view, caused by a concurrent writer.
+                bytes = null;
+            }
+        }
+        if ( stamp == 0 || !lock.validate(stamp) ) {
+            stamp = lock.readLock();
+            try {
+                bytes = fetch(key, stamp);
+            } finally { lock.unlockRead(stamp); }
+        }
+        if ( bytes == null )
+            return null;
+        return decode(bytes);
+    }
+
+    /** Find the encoded node, copied to the heap, or return null. */
+    private byte[] fetch(long key, long stamp) {
+        LongBuffer idx = index;
+        int numSlots = slots;
+        int mask = numSlots - 1;
+        int i = hash(key, numSlots);
+        for ( int probes = 0 ; probes < numSlots ; probes++ ) {
+            long k = idx.get(2 * i);
+            if ( k == EmptyKey )
+                return null;
+            if ( k == key ) {
+                long posn = idx.get(2 * i + 1);
+                if ( !isLive(posn) )
+                    return null;
+                return readRecord(key, posn, stamp);
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    private byte[] readRecord(long key, long posn, long stamp) {
+        ByteBuffer seg = segment(posn);
+        int off = offset(posn);
+        if ( seg.getLong(off) != key )
+            return null;
+        int len = seg.getInt(off + Long.BYTES);
+        // Do not allocate from a length read while a writer was changing the ring.
+        if ( !lock.validate(stamp) )
+            return null;
+        if ( len <= 0 || len > maxRecord || off + RecordHeader + len > segmentSize )
+            return null;
+        byte[] bytes = new byte[len];
+        ByteBuffer bb = seg.duplicate();
+        bb.position(off + RecordHeader);
+        bb.get(bytes);
+        return bytes;
+    }
+
+    private static Node decode(byte[] bytes) {
+        try {
+            RDF_Term term = new RDF_Term();
+            term.read(TRDF.protocol(new TMemoryInputTransport(bytes)));
+            return ThriftConvert.convert(term);
+        } catch (TException ex) {
+            throw new TDBException("NodeCacheOffHeap/decode", ex);
+        }
+    }
+
+    private static byte[] encode(Node node) {
+        try {
+            // No values: the cache must return the same node, not an equal value.
+            RDF_Term term = ThriftConvert.convert(node, false);
+            TMemoryBuffer buffer = new TMemoryBuffer(64);
+            term.write(TRDF.protocol(buffer));
+            byte[] bytes = new byte[buffer.length()];
+            System.arraycopy(buffer.getArray(), 0, bytes, 0, bytes.length);
+            return bytes;
+        } catch (TException ex) {
+            throw new TDBException("NodeCacheOffHeap/encode", ex);
+        }
+    }
+
+    @Override
+    public Node getOrFill(NodeId nodeId, Callable<Node> callable) {
+        Node node = getIfPresent(nodeId);
+        if ( node != null )
+            return node;
+        try {
+            node = callable.call();
+        } catch (Exception ex) {
+            throw new TDBException("NodeCacheOffHeap.getOrFill", ex);
+        }
+        if ( node != null )
+            put(nodeId, node);
+        return node;
+    }
+
+    // ---- Write
+
+    @Override
+    public void put(NodeId nodeId, Node node) {
+        long key = key(nodeId);
+        if ( key == EmptyKey || node == null )
+            return;
+        byte[] bytes = encode(node);
+        int recordLen = RecordHeader + bytes.length;
+        if ( bytes.length > maxRecord )
+            return;
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(key);
+            long k = index.get(2 * slot);
+            if ( k == key && isLive(index.get(2 * slot + 1)) )
+                // Nodes for a NodeId do not change.
+                return;
+            if ( k == EmptyKey ) {
+                if ( occupied + 1 > slots / 4 * 3 ) {
+                    rebuildIndex();
+                    slot = findSlot(key);
+                }
+                if ( index.get(2 * slot) == EmptyKey )
+                    occupied++;
+            }
+            long posn = append(key, bytes, recordLen);
+            index.put(2 * slot, key);
+            index.put(2 * slot + 1, posn);
+        } finally { lock.unlockWrite(stamp); }
+    }
+
+    /** Slot for the key, or the empty slot where it would go. */
+    private int findSlot(long key) {
+        int mask = slots - 1;
+        int i = hash(key, slots);
+        for ( ;; ) {
+            long k = index.get(2 * i);
+            if ( k == key || k == EmptyKey )
+                return i;
+            i = (i + 1) & mask;
+        }
+    }
+
+    private long append(long key, byte[] bytes, int recordLen) {
+        int off = offset(writePosn);
+        if ( off + recordLen > segmentSize )
+            // Records do not span segments.
+            writePosn += segmentSize - off;
+        long posn = writePosn;
+        ByteBuffer seg = segment(posn);
+        off = offset(posn);
+        seg.putLong(off, key);
+        seg.putInt(off + Long.BYTES, bytes.length);
+        ByteBuffer bb = seg.duplicate();
+        bb.position(off + RecordHeader);
+        bb.put(bytes);
+        writePosn += recordLen;
+        return posn;
+    }
+
+    /**
+     * Drop index entries for overwritten records; grow if still too full. If the
+     * index is at its maximum size, evict the oldest records until there is room.
+     */
+    private void rebuildIndex() {
+        LongBuffer oldIndex = index;
+        int oldSlots = slots;
+        int live = countLive(oldIndex, oldSlots);
+        int newSlots = Math.max(oldSlots, slotsFor(live));
+        while ( live + 1 > newSlots / 4 * 3 ) {
+            evictPosn = Math.min(writePosn, oldest() + Math.max(1, capacity / EvictFraction));
+            live = countLive(oldIndex, oldSlots);
+        }
+        allocIndex(newSlots);
+        for ( int i = 0 ; i < oldSlots ; i++ ) {
+            long k = oldIndex.get(2 * i);
+            long posn = oldIndex.get(2 * i + 1);
+            if ( k != EmptyKey && isLive(posn) ) {
+                int slot = findSlot(k);
+                index.put(2 * slot, k);
+                index.put(2 * slot + 1, posn);
+                occupied++;
+            }
+        }
+    }
+
+    private int countLive(LongBuffer idx, int numSlots) {
+        int live = 0;
+        for ( int i = 0 ; i < numSlots ; i++ ) {
+            long k = idx.get(2 * i);
+            if ( k != EmptyKey && isLive(idx.get(2 * i + 1)) )
+                live++;
+        }
+        return live;
+    }
+
+    @Override
+    public void remove(NodeId nodeId) {
+        long key = key(nodeId);
+        if ( key == EmptyKey )
+            return;
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(key);
+            if ( index.get(2 * slot) == EmptyKey )
+                return;
+            deleteSlot(slot);
+        } finally { lock.unlockWrite(stamp); }
+    }
+
+    /** Linear probing delete: shift back later entries of the probe sequence. */
+    private void deleteSlot(int slot) {
+        int mask = slots - 1;
+        int hole = slot;
+        int i = slot;
+        for ( ;; ) {
+            i = (i + 1) & mask;
+            long k = index.get(2 * i);
+            if ( k == EmptyKey )
+                break;
+            int home = hash(k, slots);
+            // Move if home is cyclically outside (hole, i].
+            boolean move = ( hole <= i ) ? ( home <= hole || home > i ) : ( home <= hole && home > i );
+            if ( move ) {
+                index.put(2 * hole, k);
+                index.put(2 * hole + 1, index.get(2 * i + 1));
+                hole = i;
+            }
+        }
+        index.put(2 * hole, EmptyKey);
+        occupied--;
+    }
+
+    @Override
+    public Iterator<NodeId> keys() {
+        List<NodeId> x = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            for ( int i = 0 ; i < slots ; i++ ) {
+                long k = index.get(2 * i);
+                if ( k != EmptyKey && isLive(index.get(2 * i + 1)) )
+                    x.add(NodeIdFactory.createPtr(k));
+            }
+        } finally { lock.unlockRead(stamp); }
+        return x.iterator();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            clearAll();
+        } finally { lock.unlockWrite(stamp); }
+    }
+
+    private void clearAll() {
+        // Moving the write position on by a whole ring makes every record dead.
+        writePosn += capacity;
+        allocIndex(slots);
+    }
+
+    @Override
+    public long size() {
+        long stamp = lock.readLock();
+        try {
+            long count = 0;
+            for ( int i = 0 ; i < slots ; i++ ) {
+                long k = index.get(2 * i);
+                if ( k != EmptyKey && isLive(index.get(2 * i + 1)) )
+                    count++;
+            }
+            return count;
+        } finally { lock.unlockRead(stamp); }
+    }
+
+    /** Not supported: entries are overwritten, not dropped. */
+    @Override
+    public void setDropHandler(BiConsumer<NodeId, Node> dropHandler) {
+        throw new UnsupportedOperationException("NodeCacheOffHeap.setDropHandler");
+    }
+
+    @Override
+    public String toString() {
+        return "NodeCacheOffHeap[" + capacity + "]";
+    }
+}
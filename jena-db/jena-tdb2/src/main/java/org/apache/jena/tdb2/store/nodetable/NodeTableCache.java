@@ -74,22 +74,26 @@ public class NodeTableCache implements NodeTable, TransactionListener {
     public static NodeTable create(NodeTable nodeTable, StoreParams params) {
         int nodeToIdCacheSize = params.getNode2NodeIdCacheSize();
         int idToNodeCacheSize = params.getNodeId2NodeCacheSize();
-        if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
+        int idToNodeOffHeapMB = params.getNodeId2NodeOffHeapCacheMB();
+        if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 && idToNodeOffHeapMB <= 0 )
             return nodeTable;
-        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, params.getNodeMissCacheSize());
+        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, idToNodeOffHeapMB, params.getNodeMissCacheSize());
     }
 
-    private static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
-        if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
+    private static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int idToNodeOffHeapMB, int nodeMissesCacheSize) {
+        if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 && idToNodeOffHeapMB <= 0 )
             return nodeTable;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize);
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, idToNodeOffHeapMB, nodeMissesCacheSize);
     }
 
-    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
+    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int idToNodeOffHeapMB, int nodeMissesCacheSize) {
         this.baseTable = baseTable;
         if ( nodeToIdCacheSize > 0 )
             node2id_Cache = createCache("nodeToId", nodeToIdCacheSize, 1000);
-        if ( idToNodeCacheSize > 0 )
+        // The off-heap cache, if configured, replaces the on-heap NodeId->Node cache.
+        if ( idToNodeOffHeapMB > 0 )
+            id2node_Cache = new ThreadBufferingCache<>("idToNode", new NodeCacheOffHeap(idToNodeOffHeapMB * 1024L * 1024L), 1000);
+        else if ( idToNodeCacheSize > 0 )
             id2node_Cache = createCache("idToNode", idToNodeCacheSize, 1000);
         if ( nodeMissesCacheSize > 0 )
             notPresent = CacheFactory.createCache(nodeMissesCacheSize);
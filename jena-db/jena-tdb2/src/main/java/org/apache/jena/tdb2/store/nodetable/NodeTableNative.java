@@ -84,13 +84,13 @@ public abstract class NodeTableNative implements NodeTable
 
     // ---- The worker functions
     // Synchronization:
-    // accessIndex and readNodeFromTable
-
-    // Cache around this class further out in NodeTableCache are synchronized
-    // to maintain cache validatity which indirectly sync access to the NodeTable.
-    // But to be sure, we provide MRSW guarantees on this class.
-    // (otherwise if no cache => disaster)
-    // synchonization happens in accessIndex() and readNodeByNodeId
+    // Allocating a NodeId (index insert and writeNodeToTable) is synchronized
+    // in accessIndex.
+    //
+    // Reads are not synchronized. Each transaction sees its own version of the
+    // index (MVCC) and the node file is append-only, so readers can look up and
+    // decode nodes concurrently with each other and with the writer.
+    // readNodeFromTable must be safe for concurrent calls.
 
     // NodeId to Node worker.
     private Node _retrieveNodeByNodeId(NodeId id) {
@@ -98,10 +98,8 @@ public abstract class NodeTableNative implements NodeTable
             return null;
         if ( NodeId.isAny(id) )
             return null;
-        synchronized (this) {
-            Node n = readNodeFromTable(id);
-            return n;
-        }
+        Node n = readNodeFromTable(id);
+        return n;
     }
 
     // ----------------
@@ -124,7 +122,14 @@ public abstract class NodeTableNative implements NodeTable
         // Key only.
         Record r = nodeHashToId.getRecordFactory().create(k);
 
-        synchronized (this)  // Pair to readNodeFromTable.
+        // Lookup without the lock.
+        Record r1 = nodeHashToId.find(r);
+        if ( r1 != null )
+            return NodeIdFactory.get(r1.getValue(), 0);
+        if ( ! create )
+            return NodeId.NodeDoesNotExist;
+
+        synchronized (this)
         {
             // Key and value, or null
             Record r2 = nodeHashToId.find(r);
@@ -156,7 +161,7 @@ public abstract class NodeTableNative implements NodeTable
     // -------- NodeId<->Node
     // Synchronization:
     //   write: in accessIndex
-    //   read: in _retrieveNodeByNodeId
+    //   read: none - must be thread-safe.
     // Only places for accessing the StringFile.
 
     abstract protected NodeId writeNodeToTable(Node node);
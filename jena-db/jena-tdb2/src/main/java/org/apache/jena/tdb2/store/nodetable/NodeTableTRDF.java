@@ -72,14 +72,15 @@ public class NodeTableTRDF extends NodeTableNative {
         }
     }
 
+    // Reads do not use the shared transport so that they can be concurrent.
     @Override
     protected Node readNodeFromTable(NodeId id) {
         try {
             // Paired : [*]
             long x = id.getPtrLocation();
-            transport.readPosition(x);
+            TProtocol readProtocol = TRDF.protocol(new TReadPositionTransport(diskFile, x));
             RDF_Term term = new RDF_Term();
-            term.read(protocol);
+            term.read(readProtocol);
             Node n = ThriftConvert.convert(term);
             return n;
         }
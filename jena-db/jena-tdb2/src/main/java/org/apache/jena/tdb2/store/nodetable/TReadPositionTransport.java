@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import org.apache.jena.dboe.base.file.BinaryDataFile;
+import org.apache.thrift.TConfiguration;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/** A read-only transport that reads a {@link BinaryDataFile} from a given position.
+ *  <p>
+ *  The file is read in chunks and the chunk is made available to the protocol
+ *  as the transport buffer, so small reads do not each go to the file.
+ *  <p>
+ *  It is for one read operation and is not shared between threads. It relies on
+ *  {@link BinaryDataFile#read} being thread-safe.
+ */
+public class TReadPositionTransport extends TTransport {
+    private static final int ChunkSize = 256;
+    private final BinaryDataFile file;
+    private final long limit;
+    private final byte[] buffer;
+    // File position of the start of buffer.
+    private long bufferStart;
+    private int bufferPosn = 0;
+    private int bufferLimit = 0;
+
+    public TReadPositionTransport(BinaryDataFile file, long posn) {
+        this.file = file;
+        // Do not read ahead past the visible end of the file.
+        this.limit = file.length();
+        this.buffer = new byte[ChunkSize];
+        this.bufferStart = posn;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws TTransportException {
+        if ( bufferPosn == bufferLimit ) {
+            long posn = bufferStart + bufferLimit;
+            if ( len >= ChunkSize ) {
+                // Large read: read directly.
+                int x = file.read(posn, buf, off, len);
+                if ( x <= 0 )
+                    throw new TTransportException(TTransportException.END_OF_FILE, "End of file at "+posn);
+                bufferStart = posn + x;
+                bufferPosn = 0;
+                bufferLimit = 0;
+                return x;
+            }
+            fill(posn);
+        }
+        int x = Math.min(len, bufferLimit - bufferPosn);
+        System.arraycopy(buffer, bufferPosn, buf, off, x);
+        bufferPosn += x;
+        return x;
+    }
+
+    private void fill(long posn) throws TTransportException {
+        int len = (int)Math.max(1, Math.min(ChunkSize, limit - posn));
+        int x = file.read(posn, buffer, 0, len);
+        if ( x <= 0 )
+            throw new TTransportException(TTransportException.END_OF_FILE, "End of file at "+posn);
+        bufferStart = posn;
+        bufferPosn = 0;
+        bufferLimit = x;
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws TTransportException {
+        throw new TTransportException("TReadPositionTransport is read-only");
+    }
+
+    @Override
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public int getBufferPosition() {
+        return bufferPosn;
+    }
+
+    @Override
+    public int getBytesRemainingInBuffer() {
+        return bufferLimit - bufferPosn;
+    }
+
+    @Override
+    public void consumeBuffer(int len) {
+        bufferPosn += len;
+    }
+
+    @Override
+    public TConfiguration getConfiguration() {
+        return TConfiguration.DEFAULT;
+    }
+
+    @Override
+    public void updateKnownMessageSize(long size) {}
+
+    @Override
+    public void checkReadBytesAvailable(long numBytes) {}
+}
@@ -23,6 +23,7 @@ import java.util.Iterator;
 import org.apache.jena.atlas.lib.Closeable;
 import org.apache.jena.atlas.lib.Sync;
 import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.graph.Node;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
@@ -49,6 +50,9 @@ public interface NodeTupleTable extends Sync, Closeable
     /** Find by NodeId. */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> ids);
 
+    /** Find by NodeId, returning batches of encoded NodeIds. See {@link TupleTable#findBatch}. */
+    public Iterator<LongBatch> findBatch(Tuple<NodeId> ids);
+
     /** Find all tuples */
     public Iterator<Tuple<NodeId>> findAll();
 
@@ -25,6 +25,7 @@ import java.util.Iterator;
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.graph.Node;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.TupleLib;
@@ -171,6 +172,17 @@ public class NodeTupleTableConcrete implements NodeTupleTable
         } finally { finishRead(); }
     }
 
+    /** Find by NodeId, as batches of encoded NodeIds. */
+    @Override
+    public Iterator<LongBatch> findBatch(Tuple<NodeId> tuple)
+    {
+        try {
+            startRead();
+            Iterator<LongBatch> iter = tupleTable.findBatch(tuple);
+            return iteratorControl(iter);
+        } finally { finishRead(); }
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> findAll()
     {
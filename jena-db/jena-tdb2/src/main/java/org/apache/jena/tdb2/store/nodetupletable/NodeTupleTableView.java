@@ -22,6 +22,8 @@ import java.util.Iterator;
 
 import org.apache.jena.atlas.lib.ArrayUtils;
 import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.graph.Node;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.tupletable.TupleTable;
@@ -93,6 +95,13 @@ public class NodeTupleTableView extends NodeTupleTableWrapper
         return nodeTupleTable.find(ids2);
     }
 
+    @Override
+    public Iterator<LongBatch> findBatch(Tuple<NodeId> ids)
+    {
+        NodeId[] ids2 = push(NodeId.class, prefixId, ids);
+        return nodeTupleTable.findBatch(TupleFactory.create(ids2));
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> findAsNodeIds(Node... nodes)
     {
@@ -21,6 +21,7 @@ package org.apache.jena.tdb2.store.nodetupletable;
 import java.util.Iterator;
 
 import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.graph.Node;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
@@ -64,6 +65,10 @@ public class NodeTupleTableWrapper implements NodeTupleTable
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> tuple)
     { return nodeTupleTable.find(tuple); }
 
+    @Override
+    public Iterator<LongBatch> findBatch(Tuple<NodeId> tuple)
+    { return nodeTupleTable.findBatch(tuple); }
+
     @Override
     public Iterator<Tuple<NodeId>> findAsNodeIds(Node... nodes)
     { return nodeTupleTable.findAsNodeIds(nodes); }
@@ -25,7 +25,10 @@ import org.apache.jena.atlas.lib.Closeable;
 import org.apache.jena.atlas.lib.Sync;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.dboe.base.buffer.LongBatch;
+import org.apache.jena.tdb2.lib.TupleLib;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
 
 public interface TupleIndex extends Sync, Closeable
 {
@@ -55,6 +58,14 @@ public interface TupleIndex extends Sync, Closeable
      */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> pattern);
 
+    /** Find all matching tuples, as batches of rows of encoded NodeIds
+     *  ({@link NodeIdFactory#encode}), each row in natural order.
+     *  The batch object may be reused; it is valid until the next call of {@code next()}.
+     */
+    public default Iterator<LongBatch> findBatch(Tuple<NodeId> pattern) {
+        return TupleLib.convertToBatches(find(pattern), getTupleLength());
+    }
+
     /** return an iterator of everything */
     public Iterator<Tuple<NodeId>> all();
 
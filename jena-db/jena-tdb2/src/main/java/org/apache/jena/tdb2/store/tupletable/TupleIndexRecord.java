@@ -23,6 +23,7 @@ import static org.apache.jena.tdb2.sys.SystemTDB.SizeOfNodeId;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.function.Predicate;
 
 import org.apache.jena.atlas.iterator.Iter;
@@ -31,6 +32,7 @@ import org.apache.jena.atlas.iterator.SingletonIterator;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.base.record.RecordMapper;
@@ -243,6 +245,131 @@ public class TupleIndexRecord extends TupleIndexBase
         return tuples;
     }
 
+    /** Find all matching tuples, as batches of encoded NodeIds, natural order.
+     *  Index leaves are decoded a whole leaf at a time; no per-tuple objects are created.
+     */
+    @Override
+    public Iterator<LongBatch> findBatch(Tuple<NodeId> patternNaturalOrder) {
+        Tuple<NodeId> pattern = tupleMap.map(patternNaturalOrder);
+        int numSlots = 0;
+        int leadingIdx = -2;
+        boolean leading = true;
+        Record minRec = factory.createKeyOnly();
+        Record maxRec = factory.createKeyOnly();
+        for ( int i = 0; i < pattern.len() ; i++ ) {
+            NodeId X = pattern.get(i);
+            if ( NodeId.isAny(X) ) {
+                leading = false;
+                continue;
+            }
+            numSlots++;
+            if ( leading ) {
+                leadingIdx = i;
+                NodeIdFactory.set(X, minRec.getKey(), i*SizeOfNodeId);
+                NodeIdFactory.set(X, maxRec.getKey(), i*SizeOfNodeId);
+            }
+        }
+
+        if ( numSlots == pattern.len() ) {
+            if ( ! index.contains(minRec) )
+                return new NullIterator<>();
+            LongBatch batch = new LongBatch(tupleLength, 1);
+            int idx = batch.reserve(1);
+            for ( int i = 0; i < tupleLength ; i++ )
+                batch.array()[idx+i] = NodeIdFactory.encode(patternNaturalOrder.get(i));
+            return new SingletonIterator<>(batch);
+        }
+
+        Iterator<LongBatch> batches;
+        if ( leadingIdx < 0 )
+            batches = index.iteratorBatch(null, null);
+        else {
+            NodeId X = pattern.get(leadingIdx);
+            NodeIdFactory.setNext(X, maxRec.getKey(), leadingIdx*SizeOfNodeId);
+            batches = index.iteratorBatch(minRec, maxRec);
+        }
+        // Slots to check when the index prefix does not cover all defined slots.
+        Tuple<NodeId> filter = ( leadingIdx < numSlots-1 ) ? patternNaturalOrder : null;
+        return new BatchToNaturalOrder(batches, tupleLength, tupleMap, filter);
+    }
+
+    /** Reorder index-order batches into natural order, optionally filtering rows. */
+    private static class BatchToNaturalOrder implements Iterator<LongBatch> {
+        private final Iterator<LongBatch> input;
+        private final LongBatch output;
+        private final int width;
+        // Natural order column i comes from index column columns[i].
+        private final int[] columns;
+        private final boolean[] check;
+        private final long[] values;
+        private boolean slot = false;
+
+        BatchToNaturalOrder(Iterator<LongBatch> input, int width, TupleMap tupleMap, Tuple<NodeId> filter) {
+            this.input = input;
+            this.width = width;
+            this.output = new LongBatch(width, 256);
+            this.columns = new int[width];
+            for ( int i = 0; i < width ; i++ )
+                columns[i] = ( tupleMap == null ) ? i : tupleMap.unmapIdx(i);
+            if ( filter == null ) {
+                this.check = null;
+                this.values = null;
+            } else {
+                this.check = new boolean[width];
+                this.values = new long[width];
+                for ( int i = 0; i < width ; i++ ) {
+                    NodeId n = filter.get(i);
+                    if ( ! NodeId.isAny(n) ) {
+                        check[i] = true;
+                        values[i] = NodeIdFactory.encode(n);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( slot )
+                return true;
+            while ( input.hasNext() ) {
+                LongBatch batch = input.next();
+                output.clear();
+                long[] in = batch.array();
+                int rows = batch.size();
+                for ( int r = 0; r < rows ; r++ ) {
+                    int base = r * width;
+                    if ( check != null && ! matches(in, base) )
+                        continue;
+                    int idx = output.reserve(1);
+                    long[] out = output.array();
+                    for ( int i = 0; i < width ; i++ )
+                        out[idx+i] = in[base+columns[i]];
+                }
+                if ( ! output.isEmpty() ) {
+                    slot = true;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matches(long[] in, int base) {
+            for ( int i = 0; i < width ; i++ ) {
+                if ( check[i] && in[base+columns[i]] != values[i] )
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public LongBatch next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException("TupleIndexRecord.findBatch");
+            slot = false;
+            return output;
+        }
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all()
     {
@@ -23,6 +23,7 @@ import java.util.Iterator;
 
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.tdb2.store.NodeId;
 
 public class TupleIndexWrapper implements TupleIndex
@@ -61,6 +62,11 @@ public class TupleIndexWrapper implements TupleIndex
         return index.find(pattern);
     }
 
+    @Override
+    public Iterator<LongBatch> findBatch(Tuple<NodeId> pattern) {
+        return index.findBatch(pattern);
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all() {
         return index.all();
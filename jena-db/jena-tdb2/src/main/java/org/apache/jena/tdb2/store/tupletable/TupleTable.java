@@ -20,14 +20,17 @@ package org.apache.jena.tdb2.store.tupletable;
 
 import static java.lang.String.format;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.Closeable;
 import org.apache.jena.atlas.lib.Sync;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.dboe.base.buffer.LongBatch;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.sys.SystemTDB;
@@ -43,6 +46,13 @@ public class TupleTable implements Sync, Closeable
     private final TupleIndex   scanAllIndex;   // Use this index if a complete scan is needed.
     private final int tupleLen;
     private boolean syncNeeded = false;
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    /** Told of tuples added to, or deleted from, the table. */
+    public interface ChangeListener {
+        public void added(Tuple<NodeId> tuple);
+        public void deleted(Tuple<NodeId> tuple);
+    }
 
     public TupleTable(int tupleLen, TupleIndex[] indexes)
     {
@@ -97,12 +107,19 @@ public class TupleTable implements Sync, Closeable
             ret = ret || f;
             syncNeeded = true;
         }
-        
+        if ( ret )
+            changeListeners.forEach(x -> x.added(t));
         return ret;
     }
 
     /** Insert tuples */
     public void addAll(List<Tuple<NodeId>> t) {
+        if ( !changeListeners.isEmpty() ) {
+            // Listeners are only told about tuples that were not already present.
+            List<Tuple<NodeId>> added = applyEach(t, true);
+            changeListeners.forEach(x -> added.forEach(x::added));
+            return;
+        }
         // Parallel.
         for ( int i = 0; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue;
@@ -123,11 +140,19 @@ public class TupleTable implements Sync, Closeable
             final boolean f = index.delete( t );
             ret = ret || f;
         }
+        if ( ret )
+            changeListeners.forEach(x -> x.deleted(t));
         return ret;
     }
 
     /** Delete tuples */
     public void deleteAll(List<Tuple<NodeId>> t) {
+        if ( !changeListeners.isEmpty() ) {
+            // Listeners are only told about tuples that were present.
+            List<Tuple<NodeId>> deleted = applyEach(t, false);
+            changeListeners.forEach(x -> deleted.forEach(x::deleted));
+            return;
+        }
         // Parallel.
         for ( int i = 0; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue;
@@ -136,24 +161,71 @@ public class TupleTable implements Sync, Closeable
         }
     }
 
+    /**
+     * Add or delete tuples one at a time in the first index, to find which ones
+     * change it, then apply those to the other indexes. Returns the tuples changed.
+     */
+    private List<Tuple<NodeId>> applyEach(List<Tuple<NodeId>> t, boolean add) {
+        List<Tuple<NodeId>> changed = new ArrayList<>(t.size());
+        boolean first = true;
+        for ( int i = 0; i < indexes.length ; i++ ) {
+            if ( indexes[i] == null ) continue;
+            if ( first ) {
+                for ( Tuple<NodeId> tuple : t ) {
+                    if ( add ? indexes[i].add(tuple) : indexes[i].delete(tuple) )
+                        changed.add(tuple);
+                }
+                first = false;
+            } else if ( add )
+                indexes[i].addAll(changed);
+            else
+                indexes[i].deleteAll(changed);
+            syncNeeded = true;
+        }
+        return changed;
+    }
+
     /** Find all matching tuples - a slot of NodeId.NodeIdAny means match any */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> pattern) {
         if ( tupleLen != pattern.len() )
             throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen));
+        if ( isAll(pattern) )
+            return scanAllIndex.all();
+        TupleIndex index = chooseIndex(pattern);
+        if ( index == null )
+            return Iter.nullIterator();
+        return index.find(pattern);
+    }
+
+    /** Find all matching tuples, as batches of encoded NodeIds - see {@link TupleIndex#findBatch} */
+    public Iterator<LongBatch> findBatch(Tuple<NodeId> pattern) {
+        if ( tupleLen != pattern.len() )
+            throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen));
+        if ( isAll(pattern) )
+            return scanAllIndex.findBatch(pattern);
+        TupleIndex index = chooseIndex(pattern);
+        if ( index == null )
+            return Iter.nullIterator();
+        return index.findBatch(pattern);
+    }
+
+    private boolean isAll(Tuple<NodeId> pattern) {
+        for ( int i = 0; i < tupleLen ; i++ ) {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                return false;
+        }
+        return true;
+    }
 
-        int numSlots = 0;
+    /** Choose the index for a pattern with at least one defined slot. Return null if the pattern can not match. */
+    private TupleIndex chooseIndex(Tuple<NodeId> pattern) {
         // Canonical form.
         for ( int i = 0; i < tupleLen ; i++ ) {
             NodeId x = pattern.get(i);
-            if ( ! NodeId.isAny(x) )
-                numSlots++;
             if ( NodeId.isDoesNotExist(x))
-                return Iter.nullIterator();
+                return null;
         }
 
-        if ( numSlots == 0 )
-            return scanAllIndex.all();
-
         int indexNumSlots = 0;
         TupleIndex index = null;
         for ( TupleIndex idx : indexes ) {
@@ -169,7 +241,7 @@ public class TupleTable implements Sync, Closeable
         if ( index == null )
             // No index at all.  Scan.
             index = indexes[0];
-        return index.find(pattern);
+        return index;
     }
 
     @Override
@@ -205,6 +277,16 @@ public class TupleTable implements Sync, Closeable
         return indexes[0].size();
     }
 
+    /** Add a listener for changes to this table */
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /** Remove a listener for changes to this table */
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
     /** Get i'th index */
     public TupleIndex getIndex(int i)                   { return indexes[i]; }
 
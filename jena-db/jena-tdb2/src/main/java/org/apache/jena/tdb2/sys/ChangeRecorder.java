@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.dboe.transaction.txn.TransactionListener;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.StoragePrefixesTDB;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+
+/**
+ * Record of the changes committed to a database, so they can be replayed onto a copy
+ * of it. Used by online compaction: the copy is made from a read transaction while
+ * writers continue, then the changes committed since are replayed.
+ * <p>
+ * Changes are kept as tuples of {@link NodeId NodeIds} of the source database. The
+ * changes of a write transaction are kept only if it commits. Beyond a threshold
+ * number of committed changes, they are appended to a temporary file.
+ */
+class ChangeRecorder implements TransactionListener {
+
+    /** Number of committed changes kept in memory before writing them to the spill file. */
+    static final int SpillThreshold = 100_000;
+
+    private enum Table { TRIPLES, QUADS, PREFIXES }
+
+    private static class Change {
+        final Table table;
+        final boolean add;
+        final Tuple<NodeId> tuple;
+        Change(Table table, boolean add, Tuple<NodeId> tuple) {
+            this.table = table;
+            this.add = add;
+            this.tuple = tuple;
+        }
+    }
+
+    private class Recorder implements TupleTable.ChangeListener {
+        private final Table table;
+        Recorder(Table table) { this.table = table; }
+        @Override public void added(Tuple<NodeId> tuple)   { writerChanges.add(new Change(table, true, tuple)); }
+        @Override public void deleted(Tuple<NodeId> tuple) { writerChanges.add(new Change(table, false, tuple)); }
+    }
+
+    private final DatasetGraphTDB dsg;
+    private final Recorder triples = new Recorder(Table.TRIPLES);
+    private final Recorder quads = new Recorder(Table.QUADS);
+    private final Recorder prefixes = new Recorder(Table.PREFIXES);
+
+    // Changes of the active write transaction. Only accessed by the writer.
+    private List<Change> writerChanges = new ArrayList<>();
+    // Committed changes not yet replayed, oldest first: those in the spill file, then
+    // those in memory. Guarded by "this".
+    private List<Change> committed = new ArrayList<>();
+    private Path spillFile = null;
+    private DataOutputStream spillOut = null;
+    private int size = 0;
+    private final Path spillDir;
+    private final int spillThreshold;
+
+    /** Record changes to {@code dsg}, using {@code spillDir} for temporary files. */
+    ChangeRecorder(DatasetGraphTDB dsg, Path spillDir) {
+        this(dsg, spillDir, SpillThreshold);
+    }
+
+    ChangeRecorder(DatasetGraphTDB dsg, Path spillDir, int spillThreshold) {
+        this.dsg = dsg;
+        this.spillDir = spillDir;
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * Start recording. This waits until there are no active transactions, so every
+     * write transaction that commits afterwards is recorded completely.
+     */
+    void start() {
+        TransactionCoordinator txnMgr = dsg.getTxnSystem().getTxnMgr();
+        txnMgr.modifyConfig(() -> {
+            txnMgr.addListener(this);
+            tupleTable(dsg, Table.TRIPLES).addChangeListener(triples);
+            tupleTable(dsg, Table.QUADS).addChangeListener(quads);
+            tupleTable(dsg, Table.PREFIXES).addChangeListener(prefixes);
+        });
+    }
+
+    /**
+     * Stop recording and discard any changes not replayed. The calling thread may
+     * hold exclusive mode on the database but other writers must not be blocked.
+     */
+    void stop() {
+        TransactionCoordinator txnMgr = dsg.getTxnSystem().getTxnMgr();
+        try {
+            txnMgr.modifyConfig(() -> {
+                tupleTable(dsg, Table.TRIPLES).removeChangeListener(triples);
+                tupleTable(dsg, Table.QUADS).removeChangeListener(quads);
+                tupleTable(dsg, Table.PREFIXES).removeChangeListener(prefixes);
+                txnMgr.removeListener(this);
+            });
+        } finally {
+            drain().delete();
+        }
+    }
+
+    /** Number of committed changes not yet replayed. */
+    synchronized int size() {
+        return size;
+    }
+
+    private synchronized Changes drain() {
+        Changes x = new Changes(spillFile, committed);
+        closeSpill();
+        spillFile = null;
+        committed = new ArrayList<>();
+        size = 0;
+        return x;
+    }
+
+    /** Apply the committed changes recorded so far to another database, in one transaction. */
+    void replay(DatasetGraphTDB dst) {
+        Changes changes = drain();
+        try {
+            if ( changes.isEmpty() )
+                return;
+            // Nodes are never removed from the node tables so any committed state can decode the changes.
+            Txn.executeRead(dsg, ()->{
+                Txn.executeWrite(dst, ()->changes.forEach(change->apply(change, dst)));
+            });
+        } finally {
+            changes.delete();
+        }
+    }
+
+    /** Changes taken for replay: the spill file, if any, then the in-memory changes. */
+    private static class Changes {
+        private final Path file;
+        private final List<Change> memory;
+
+        Changes(Path file, List<Change> memory) {
+            this.file = file;
+            this.memory = memory;
+        }
+
+        boolean isEmpty() {
+            return file == null && memory.isEmpty();
+        }
+
+        void forEach(Consumer<Change> action) {
+            if ( file != null ) {
+                try ( DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))) ) {
+                    for ( ;; ) {
+                        int header = in.read();
+                        if ( header < 0 )
+                            break;
+                        action.accept(readChange(header, in));
+                    }
+                } catch (IOException ex) {
+                    throw IOX.exception(ex);
+                }
+            }
+            memory.forEach(action);
+        }
+
+        void delete() {
+            if ( file != null )
+                IOX.run(()->Files.deleteIfExists(file));
+        }
+    }
+
+    // Spill file record: header byte (table ordinal and add flag), length byte, then the NodeIds.
+
+    private void spill() {
+        try {
+            if ( spillOut == null ) {
+                spillFile = Files.createTempFile(spillDir, "compact-", ".changes");
+                spillOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile)));
+            }
+            for ( Change change : committed )
+                writeChange(change, spillOut);
+            committed = new ArrayList<>();
+        } catch (IOException ex) {
+            throw IOX.exception(ex);
+        }
+    }
+
+    private void closeSpill() {
+        if ( spillOut == null )
+            return;
+        try {
+            spillOut.close();
+        } catch (IOException ex) {
+            throw IOX.exception(ex);
+        } finally {
+            spillOut = null;
+        }
+    }
+
+    private static void writeChange(Change change, DataOutputStream out) throws IOException {
+        out.write(change.table.ordinal() << 1 | (change.add ? 1 : 0));
+        out.write(change.tuple.len());
+        for ( int i = 0 ; i < change.tuple.len() ; i++ )
+            out.writeLong(NodeIdFactory.encode(change.tuple.get(i)));
+    }
+
+    private static Change readChange(int header, DataInputStream in) throws IOException {
+        Table table = Table.values()[header >> 1];
+        boolean add = ( header & 1 ) != 0;
+        int len = in.readUnsignedByte();
+        NodeId[] ids = new NodeId[len];
+        for ( int i = 0 ; i < len ; i++ )
+            ids[i] = NodeIdFactory.decode(in.readLong());
+        return new Change(table, add, TupleFactory.create(ids));
+    }
+
+    private void apply(Change change, DatasetGraphTDB dst) {
+        Tuple<NodeId> tuple = change.tuple;
+        NodeTable nodeTable = nodeTupleTable(dsg, change.table).getNodeTable();
+        Node[] nodes = new Node[tuple.len()];
+        for ( int i = 0 ; i < nodes.length ; i++ )
+            nodes[i] = nodeTable.getNodeForNodeId(tuple.get(i));
+        switch (change.table) {
+            case TRIPLES :
+            case QUADS : {
+                Quad quad = ( nodes.length == 3 )
+                    ? Quad.create(Quad.defaultGraphIRI, nodes[0], nodes[1], nodes[2])
+                    : Quad.create(nodes[0], nodes[1], nodes[2], nodes[3]);
+                if ( change.add )
+                    dst.add(quad);
+                else
+                    dst.delete(quad);
+                break;
+            }
+            case PREFIXES : {
+                NodeTupleTable prefixTable = nodeTupleTable(dst, Table.PREFIXES);
+                if ( change.add )
+                    prefixTable.addRow(nodes);
+                else
+                    prefixTable.deleteRow(nodes);
+                break;
+            }
+        }
+    }
+
+    private static NodeTupleTable nodeTupleTable(DatasetGraphTDB dsg, Table table) {
+        switch (table) {
+            case TRIPLES :  return dsg.getTripleTable().getNodeTupleTable();
+            case QUADS :    return dsg.getQuadTable().getNodeTupleTable();
+            case PREFIXES : return ((StoragePrefixesTDB)dsg.getStoragePrefixes()).getNodeTupleTable();
+        }
+        throw new IllegalArgumentException("Table: "+table);
+    }
+
+    private static TupleTable tupleTable(DatasetGraphTDB dsg, Table table) {
+        return nodeTupleTable(dsg, table).getTupleTable();
+    }
+
+    @Override
+    public void notifyCommitFinish(Transaction transaction) {
+        if ( ! transaction.isWriteTxn() || writerChanges.isEmpty() )
+            return;
+        synchronized(this) {
+            committed.addAll(writerChanges);
+            size += writerChanges.size();
+            if ( committed.size() > spillThreshold )
+                spill();
+        }
+        writerChanges = new ArrayList<>();
+    }
+
+    @Override
+    public void notifyAbortStart(Transaction transaction) {
+        if ( transaction.isWriteTxn() && ! writerChanges.isEmpty() )
+            writerChanges = new ArrayList<>();
+    }
+}
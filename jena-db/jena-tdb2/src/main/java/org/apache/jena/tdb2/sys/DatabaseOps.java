@@ -21,13 +21,16 @@ package org.apache.jena.tdb2.sys;
 import java.io.*;
 import java.nio.file.*;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.jena.atlas.RuntimeIOException;
 import org.apache.jena.atlas.io.IOX;
 import org.apache.jena.atlas.lib.DateTimeUtils;
+import org.apache.jena.atlas.lib.Lib;
 import org.apache.jena.atlas.lib.Pair;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.dboe.base.file.Location;
@@ -38,9 +41,11 @@ import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.system.Txn;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.solver.stats.CardinalityStats;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.slf4j.Logger;
@@ -224,11 +229,20 @@ public class DatabaseOps {
         }
     }
 
-    // XXX Later - switch in a recording dataset, not block writers, and reply after
-    // switch over before releasing the new dataset to the container.
-    // Maybe copy indexes and switch the DSG over (drop switchable).
+    // Catch-up rounds, while writers continue, before writers are blocked for the switch.
+    private static final int maxCatchUpRounds = 10;
+    // Number of outstanding changes at which to stop catching up and block writers.
+    private static final int catchUpThreshold = 10_000;
 
-    /** Copy the latest version from one location to another. */
+    /**
+     * Copy the latest version from one location to another.
+     * <p>
+     * The dataset stays writable while the copy is made from a read transaction, in
+     * batches of {@link SystemTDB#CompactionBatchSize} quads, at no more than
+     * {@link SystemTDB#CompactionRateLimit} quads a second. Changes committed meanwhile
+     * are recorded and replayed onto the copy. Writers are blocked only to replay the
+     * last changes and switch over.
+     */
     private static void compact(DatasetGraphSwitchable container, Location loc1, Location loc2) {
         if ( loc1.isMem() || loc2.isMem() )
             throw new TDBException("Compact involves a memory location: "+loc1+" : "+loc2);
@@ -252,19 +266,40 @@ public class DatabaseOps {
         TransactionalSystem txnSystem = dsgBase.getTxnSystem();
         TransactionCoordinator txnMgr = dsgBase.getTxnSystem().getTxnMgr();
 
-        // Stop update.  On exit there are no writers and none will start until switched over.
-        txnMgr.tryBlockWriters();
-        // txnMgr.begin(WRITE, false) will now bounce.
-
-        // Copy the latest generation.
         DatasetGraphTDB dsgCompact = StoreConnection.connectCreate(loc2).getDatasetGraphTDB();
-        CopyDSG.copy(dsgBase, dsgCompact);
+        // The new generation starts empty, so its statistics are kept up to date by
+        // the copy and are written as it commits. (The statistics file of the old
+        // generation can not be reused: it is in terms of the old NodeIds.)
+        CardinalityStats stats = CardinalityStats.get(dsgCompact);
+        if ( stats != null )
+            stats.setEmpty();
+
+        // Record changes from now on, then copy the latest generation while writers continue.
+        ChangeRecorder recorder = new ChangeRecorder(dsgBase, Path.of(loc1.getDirectoryPath()).getParent());
+        recorder.start();
+        boolean exclusive = false;
+        try {
+            copyOnline(dsgBase, dsgCompact);
+            for ( int i = 0 ; i < maxCatchUpRounds && recorder.size() > catchUpThreshold ; i++ )
+                recorder.replay(dsgCompact);
+            // Stop update. On exit there are no transactions and none will start until switched over.
+            // (Blocking writers then entering exclusive mode can deadlock with a writer waiting in begin.)
+            txnMgr.startExclusiveMode();
+            exclusive = true;
+            recorder.replay(dsgCompact);
+        } catch (RuntimeException ex) {
+            if ( exclusive )
+                txnMgr.finishExclusiveMode();
+            StoreConnection.release(loc2);
+            throw ex;
+        } finally {
+            // This thread may be in exclusive mode, which is reentrant.
+            recorder.stop();
+        }
 
         TransactionCoordinator txnMgr2 = dsgCompact.getTxnSystem().getTxnMgr();
         txnMgr2.startExclusiveMode();
 
-        txnMgr.startExclusiveMode();
-
         // No transactions on either database.
         // Switch.
         if ( ! container.change(dsgCurrent, dsgCompact) ) {
@@ -280,6 +315,35 @@ public class DatabaseOps {
         StoreConnection.release(dsgBase.getLocation());
     }
 
+    /** Copy a database from a read transaction, committing the copy in batches. */
+    private static void copyOnline(DatasetGraphTDB dsgSrc, DatasetGraphTDB dsgDst) {
+        int batchSize = Math.max(1, SystemTDB.CompactionBatchSize);
+        long rateLimit = SystemTDB.CompactionRateLimit;
+        Txn.executeRead(dsgSrc, ()->{
+            Iterator<Quad> iter = dsgSrc.find();
+            long startTime = System.nanoTime();
+            long count = 0;
+            while ( iter.hasNext() ) {
+                Txn.executeWrite(dsgDst, ()->{
+                    for ( int i = 0 ; i < batchSize && iter.hasNext() ; i++ )
+                        dsgDst.add(iter.next());
+                });
+                count += batchSize;
+                if ( rateLimit > 0 )
+                    throttle(startTime, count, rateLimit);
+            }
+            Txn.executeWrite(dsgDst, ()->CopyDSG.copyPrefixes(dsgSrc, dsgDst));
+        });
+    }
+
+    /** Sleep until at most {@code rateLimit} items per second have been processed. */
+    private static void throttle(long startTime, long count, long rateLimit) {
+        long dueNanos = startTime + TimeUnit.SECONDS.toNanos(count) / rateLimit;
+        long waitNanos = dueNanos - System.nanoTime();
+        if ( waitNanos > 0 )
+            Lib.sleep((int)TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
     /** Copy certain configuration files from {@code loc1} to {@code loc2}. */
     private static void copyFiles(Location loc1, Location loc2) {
         FileFilter copyFiles  = (pathname)->{
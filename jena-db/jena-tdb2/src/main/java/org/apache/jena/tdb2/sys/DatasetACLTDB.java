@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.jena.acl.DatasetACLMem;
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.atlas.lib.IRILib;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.sparql.graph.GraphFactory;
+
+/**
+ * A {@link DatasetACLMem} that keeps its permissions in a file of the database
+ * directory ({@link #ACLFilename}), so they survive restarts.
+ * <p>
+ * The file is not part of the dataset: SPARQL queries and updates, including
+ * {@code DROP ALL}, can neither see nor change it. Each permission is a triple
+ * {@code <urn:x-tdb:acl:user:USER> <urn:x-tdb:acl:OP> "GRAPH"} in N-Triples.
+ * A change writes a new file, replacing the old one atomically, and then applies
+ * the change to the in-memory sets, so the sets are always the committed permissions.
+ * An in-memory location has no file.
+ */
+public class DatasetACLTDB extends DatasetACLMem {
+    public static final String ACLFilename = "acl.nt";
+    private static final String NS = "urn:x-tdb:acl:";
+    private static final String USER_NS = NS + "user:";
+
+    private final Path file;
+
+    public DatasetACLTDB(Location location) {
+        this.file = location.isMem() ? null : Path.of(location.getPath(ACLFilename));
+        load();
+    }
+
+    private void load() {
+        if (file == null || !Files.exists(file))
+            return;
+        Graph graph = GraphFactory.createDefaultGraph();
+        RDFDataMgr.read(graph, file.toString(), Lang.NTRIPLES);
+        Map<String, Map<aclId, List<String>>> stored = new HashMap<>();
+        graph.find().forEachRemaining(t -> {
+            String user = userName(t.getSubject());
+            aclId id = operation(t.getPredicate());
+            if (user == null || id == null || !t.getObject().isLiteral())
+                return;
+            stored.computeIfAbsent(user, u -> new EnumMap<>(aclId.class))
+                  .computeIfAbsent(id, x -> new ArrayList<>())
+                  .add(t.getObject().getLiteralLexicalForm());
+        });
+        // In-memory only: these are already in the file.
+        stored.forEach((user, ops) -> ops.forEach((id, graphs) -> super.grant(user, id, graphs)));
+    }
+
+    @Override
+    public synchronized void grant(String user, aclId id, Collection<String> graphNames) {
+        store(graph -> graphNames.forEach(g -> graph.add(triple(user, id, g))));
+        super.grant(user, id, graphNames);
+    }
+
+    @Override
+    public synchronized void revoke(String user, aclId id, Collection<String> graphNames) {
+        store(graph -> graphNames.forEach(g -> graph.delete(triple(user, id, g))));
+        super.revoke(user, id, graphNames);
+    }
+
+    @Override
+    public synchronized void revokeAll(String user) {
+        store(graph -> graph.remove(userNode(user), Node.ANY, Node.ANY));
+        super.revokeAll(user);
+    }
+
+    /** Write the current permissions, changed by {@code change}, to the file. */
+    private void store(Consumer<Graph> change) {
+        if (file == null)
+            return;
+        Graph graph = GraphFactory.createDefaultGraph();
+        for (String user : getUsers()) {
+            for (aclId id : aclId.values())
+                permittedGraphs(id, user).forEach(g -> graph.add(triple(user, id, g)));
+        }
+        change.accept(graph);
+        Path tmp = file.resolveSibling(ACLFilename + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+                RDFDataMgr.write(out, graph, Lang.NTRIPLES);
+                out.getFD().sync();
+            }
+        } catch (IOException ex) {
+            throw IOX.exception(ex);
+        }
+        IOX.move(tmp, file);
+    }
+
+    private static Triple triple(String user, aclId id, String graphName) {
+        Node p = NodeFactory.createURI(NS + id.name());
+        Node o = NodeFactory.createLiteral(normalize(graphName));
+        return Triple.create(userNode(user), p, o);
+    }
+
+    private static Node userNode(String user) {
+        return NodeFactory.createURI(USER_NS + IRILib.encodeUriComponent(user));
+    }
+
+    private static String userName(Node n) {
+        if (!n.isURI() || !n.getURI().startsWith(USER_NS))
+            return null;
+        return IRILib.decodeHex(n.getURI().substring(USER_NS.length()));
+    }
+
+    private static aclId operation(Node n) {
+        if (!n.isURI() || !n.getURI().startsWith(NS))
+            return null;
+        try {
+            return aclId.valueOf(n.getURI().substring(NS.length()));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.apache.jena.dboe.base.file.ProcessFileLock;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.sys.SysDB;
 import org.apache.jena.dboe.sys.SystemIndex;
+import org.apache.jena.dboe.transaction.txn.TxnDurability;
 import org.apache.jena.query.ARQ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
@@ -158,12 +159,52 @@ public class SystemTDB
     /** Size of Node lookup miss cache. */
     public static final int NodeMissCacheSize       = 1000;
 
+    /** Size, in megabytes, of the off-heap NodeId to Node cache.
+     *  0 means the NodeId to Node cache is on the Java heap.
+     */
+    public static final int NodeId2NodeOffHeapCacheMB = intValue("NodeId2NodeOffHeapCacheMB", 0);
+
     /** Size of the delayed-write block cache (32 bit systems only). Per file. */
     public static final int BlockWriteCacheSize     = intValue("BlockWriteCacheSize", 1000);
 
     /** Size of read block cache (32 bit systems only). Per file. */
     public static final int BlockReadCacheSize      = intValue("BlockReadCacheSize", 5*1000);
 
+    // ---- Transactions
+
+    /** When committed write transactions are forced to disk. Applies to databases connected afterwards. */
+    public static TxnDurability CommitDurability = TxnDurability.SYNC;
+
+    /**
+     * For {@link TxnDurability#GROUP}, the longest, in milliseconds, that a commit waits for
+     * other commits to share its sync; for {@link TxnDurability#RELAXED}, the longest a commit
+     * stays unsynced.
+     */
+    public static long CommitMaxLatency = intValue("CommitMaxLatency", 2);
+
+    // ---- Compaction
+
+    /** Number of quads copied in each transaction on the new database during compaction. */
+    public static int CompactionBatchSize       = intValue("CompactionBatchSize", 100_000);
+
+    /** Maximum number of quads a second copied during compaction. 0 means no limit. */
+    public static long CompactionRateLimit      = intValue("CompactionRateLimit", 0);
+
+    // ---- Query execution
+
+    /**
+     * Minimum estimated number of matches of each of two triple patterns for them
+     * to be joined by a merge join of two index scans rather than by substitution.
+     * Negative means never use a merge join.
+     */
+    public static long MergeJoinMinCardinality  = 10_000;
+
+    /**
+     * Maximum ratio of the larger to the smaller estimated side of a merge join.
+     * Beyond this, probing the larger side once per row of the smaller side is cheaper.
+     */
+    public static double MergeJoinMaxRatio      = 32;
+
     // ---- Misc
 
     /** Default BGP optimizer */
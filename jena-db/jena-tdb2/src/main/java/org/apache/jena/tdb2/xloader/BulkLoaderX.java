@@ -41,6 +41,18 @@ public class BulkLoaderX {
      */
     public static boolean CompressSortIndexFiles = true;
 
+    /**
+     * Whether to build indexes with the external sort(1) program, one index at a
+     * time, rather than with the in-JVM parallel sort.
+     */
+    public static boolean SortProgramForIndexes = false;
+
+    /** Threads used to sort runs and build indexes with the in-JVM sort. */
+    public static int IndexBuildThreads = Runtime.getRuntime().availableProcessors();
+
+    /** Fraction of the heap used for sort buffers by the in-JVM index sort. */
+    public static double IndexSortMemoryFraction = 0.5;
+
     public static Thread async(Runnable action, String threadName) {
         Objects.requireNonNull(action);
         Objects.requireNonNull(threadName);
@@ -28,8 +28,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.lib.Hex;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
 import org.apache.jena.dboe.base.block.BlockMgr;
 import org.apache.jena.dboe.base.block.BlockMgrFactory;
@@ -57,7 +63,14 @@ import org.apache.jena.tdb2.xloader0.RecordsFromInput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** From a file of records, build a (packed) index */
+/**
+ * From a file of records, build (packed) indexes.
+ * <p>
+ * The index name may be a comma separated list. All the indexes for the same
+ * data file are built from one read of the file: rows are fed to a
+ * {@link SortRowsX} per index and, when the file has been read, the indexes are
+ * merged and packed in parallel.
+ */
 public class ProcIndexBuildX
 {
     // Sort and build.
@@ -83,11 +96,139 @@ public class ProcIndexBuildX
 
     public static long exec(String location, String indexName, XLoaderFiles loaderFiles) {
         DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(location);
-        long x = buildIndex(dsg, indexName,  loaderFiles);
+        List<String> indexNames = List.of(indexName.split(","));
+        long x = 0;
+        if ( BulkLoaderX.SortProgramForIndexes ) {
+            for ( String name : indexNames )
+                x += buildIndex(dsg, name, loaderFiles);
+        } else
+            x = buildIndexes(dsg, indexNames, loaderFiles);
         TDBInternal.expel(dsg);
         return x;
     }
 
+    /** Build indexes with the in-JVM sort. Returns the number of tuples read. */
+    private static long buildIndexes(DatasetGraph dsg, List<String> indexNames, XLoaderFiles loaderFiles) {
+        List<String> tripleIndexes = new ArrayList<>();
+        List<String> quadIndexes = new ArrayList<>();
+        for ( String name : indexNames ) {
+            if ( Arrays.asList(Names.tripleIndexes).contains(name) )
+                tripleIndexes.add(name);
+            else if ( Arrays.asList(Names.quadIndexes).contains(name) )
+                quadIndexes.add(name);
+            else
+                throw new TDBException("Index name '" + name + "' not recognized");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, BulkLoaderX.IndexBuildThreads));
+        try {
+            long count = 0;
+            if ( !tripleIndexes.isEmpty() )
+                count += sortBuildIndexes(dsg, loaderFiles.triplesFile, Names.primaryIndexTriples, tripleIndexes, loaderFiles, executor);
+            if ( !quadIndexes.isEmpty() )
+                count += sortBuildIndexes(dsg, loaderFiles.quadsFile, Names.primaryIndexQuads, quadIndexes, loaderFiles, executor);
+            return count;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long sortBuildIndexes(DatasetGraph dsg, String datafile, String primaryOrder, List<String> indexNames,
+                                         XLoaderFiles loaderFiles, ExecutorService executor) {
+        if ( isEmpty(datafile) )
+            return 0;
+        int width = primaryOrder.length();
+        long budget = (long)(Runtime.getRuntime().maxMemory() * BulkLoaderX.IndexSortMemoryFraction);
+        long rowBytes = (long)width * Long.BYTES * SortRowsX.InFlight * indexNames.size();
+        int runRows = (int)Math.max(10_000, Math.min(Integer.MAX_VALUE / width, budget / rowBytes));
+
+        Path tmpDir = Path.of(loaderFiles.TMPDIR);
+        SortRowsX[] sorters = new SortRowsX[indexNames.size()];
+        for ( int i = 0 ; i < sorters.length ; i++ ) {
+            String indexName = indexNames.get(i);
+            TupleMap colMap = TupleMap.create(primaryOrder, indexName);
+            int[] slot = new int[width];
+            for ( int j = 0 ; j < width ; j++ )
+                slot[j] = colMap.putSlotIdx(j);
+            sorters[i] = new SortRowsX(indexName, width, slot, tmpDir, runRows, executor);
+        }
+
+        try {
+            // One pass over the data file.
+            String label = String.join(",", indexNames);
+            ProgressMonitor monitor = ProgressMonitorOutput.create(LOG, label, BulkLoaderX.DataTick, BulkLoaderX.DataSuperTick);
+            monitor.start();
+            long count = readRows(datafile, width, row -> {
+                for ( SortRowsX sorter : sorters )
+                    sorter.add(row);
+                monitor.tick();
+            });
+            monitor.finish();
+
+            // Merge and pack.
+            int dftKeyLength = SystemTDB.SizeOfNodeId * width;
+            RecordFactory recordFactory = new RecordFactory(dftKeyLength, 0);
+            List<Future<Long>> builds = new ArrayList<>();
+            for ( int i = 0 ; i < sorters.length ; i++ ) {
+                SortRowsX sorter = sorters[i];
+                String indexName = indexNames.get(i);
+                builds.add(executor.submit(() -> packIndex(dsg, sorter.sorted(recordFactory), indexName)));
+            }
+            // Wait for all builds, so no sorter is in use when it is closed.
+            TDBException failure = null;
+            for ( Future<Long> f : builds ) {
+                try {
+                    f.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new TDBException("Interrupted", ex);
+                } catch (ExecutionException ex) {
+                    if ( failure == null )
+                        failure = new TDBException("Index build failed", ex.getCause());
+                }
+            }
+            if ( failure != null )
+                throw failure;
+            return count;
+        } finally {
+            // Remove any remaining run files.
+            for ( SortRowsX sorter : sorters )
+                sorter.close();
+        }
+    }
+
+    /** Read a data file of rows of hex longs. */
+    private static long readRows(String datafile, int width, Consumer<long[]> action) {
+        int rowLength = width * 16 + width;
+        byte[] buffer = new byte[rowLength * 1000];
+        long[] row = new long[width];
+        long count = 0;
+        // Handles .gz
+        try ( InputStream input = IO.openFile(datafile) ) {
+            for ( ;; ) {
+                int len = 0;
+                while ( len < buffer.length ) {
+                    int x = input.read(buffer, len, buffer.length - len);
+                    if ( x == -1 )
+                        break;
+                    len += x;
+                }
+                if ( len == 0 )
+                    return count;
+                if ( len % rowLength != 0 )
+                    throw new TDBException("Wrong length: " + len + " in " + datafile);
+                for ( int idx = 0 ; idx < len ; idx += rowLength ) {
+                    for ( int i = 0 ; i < width ; i++ )
+                        row[i] = Hex.getLong(buffer, idx + 17 * i);
+                    action.accept(row);
+                    count++;
+                }
+            }
+        } catch (IOException ex) {
+            IO.exception(ex);
+            return count;
+        }
+    }
+
     private static long buildIndex(DatasetGraph dsg, String indexName, XLoaderFiles loaderFiles) {
         long tickPoint = BulkLoaderX.DataTick;
         int superTick = BulkLoaderX.DataSuperTick;
@@ -193,6 +334,16 @@ public class ProcIndexBuildX
     }
 
     private static long indexBuilder(DatasetGraph dsg, InputStream input, String indexName) {
+        int tupleLength = indexName.length();
+        String primaryOrder = ( tupleLength == 3 ) ? Names.primaryIndexTriples : Names.primaryIndexQuads;
+        TupleMap colMap = TupleMap.create(primaryOrder, indexName);
+        int rowBlock = 1000;
+        Iterator<Record> iter = new RecordsFromInput(input, tupleLength, colMap, rowBlock);
+        return packIndex(dsg, iter, indexName);
+    }
+
+    /** Pack records, in index order, into the B+Tree files of an index. */
+    private static long packIndex(DatasetGraph dsg, Iterator<Record> iter, String indexName) {
         long tickPoint = BulkLoaderX.DataTick;
         int superTick = BulkLoaderX.DataSuperTick;
 
@@ -200,27 +351,18 @@ public class ProcIndexBuildX
         DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
         Location location = dsgtdb.getLocation();
 
-        int keyLength = SystemTDB.SizeOfNodeId * indexName.length();
-        int valueLength = 0;
-
-        // The name is the order.
-        String primary = indexName;
-
-        String primaryOrder;
         int dftKeyLength;
         int dftValueLength;
         int tupleLength = indexName.length();
 
         TupleIndex index;
         if ( tupleLength == 3 ) {
-            primaryOrder = Names.primaryIndexTriples;
             dftKeyLength = SystemTDB.LenIndexTripleRecord;
             dftValueLength = 0;
             // Find index.
             index = findIndex(dsgtdb.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes()
                              , indexName);
         } else if ( tupleLength == 4 ) {
-            primaryOrder = Names.primaryIndexQuads;
             dftKeyLength = SystemTDB.LenIndexQuadRecord;
             dftValueLength = 0;
             index = findIndex(dsgtdb.getQuadTable().getNodeTupleTable().getTupleTable().getIndexes()
@@ -229,8 +371,6 @@ public class ProcIndexBuildX
             throw new TDBException("Index name: " + indexName);
         }
 
-        TupleMap colMap = TupleMap.create(primaryOrder, indexName);
-
         int readCacheSize = 10;
         int writeCacheSize = 100;
 
@@ -248,8 +388,6 @@ public class ProcIndexBuildX
         BlockMgr blkMgrNodes = BlockMgrFactory.create(destination, Names.extBptTree, blockSizeNodes, readCacheSize, writeCacheSize);
         BlockMgr blkMgrRecords = BlockMgrFactory.create(destination, Names.extBptRecords, blockSizeRecords, readCacheSize, writeCacheSize);
 
-        int rowBlock = 1000;
-        Iterator<Record> iter = new RecordsFromInput(input, tupleLength, colMap, rowBlock);
         // ProgressMonitor.
         ProgressMonitor monitor = ProgressMonitorOutput.create(LOG, indexName, tickPoint, superTick);
         ProgressIterator<Record> iter2 = new ProgressIterator<>(iter, monitor);
@@ -0,0 +1,461 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.xloader;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.tdb2.TDBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * External merge sort of fixed width rows of longs, with duplicates removed.
+ * <p>
+ * Rows are collected into run buffers; a full buffer is sorted and written to a
+ * temporary file by a task on the executor while the caller carries on filling
+ * the next buffer. Buffers are reused; there are at most {@link #InFlight} per sorter.
+ * Run files are delta encoded and, if {@link BulkLoaderX#CompressSortIndexFiles},
+ * deflated.
+ * <p>
+ * {@link #sorted} merges the runs and returns the rows, in unsigned order, as
+ * records ready for packing into a B+Tree. A run file is deleted when it has been
+ * read; {@link #close} deletes any that remain if the sort fails or is abandoned.
+ */
+class SortRowsX {
+    private static final Logger LOG = LoggerFactory.getLogger(SortRowsX.class);
+
+    /** Run buffers per sorter. */
+    static final int InFlight = 2;
+
+    private final String label;
+    private final int width;
+    // Input column i goes to row slot[i].
+    private final int[] slot;
+    private final Path tmpDir;
+    private final int runRows;
+    private final ExecutorService executor;
+    private final BlockingQueue<long[]> free = new ArrayBlockingQueue<>(InFlight);
+    private int allocated = 0;
+
+    private long[] buffer;
+    private int rows = 0;
+    private final List<Future<Path>> runs = new ArrayList<>();
+    private final List<FileRunReader> readers = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    SortRowsX(String label, int width, int[] slot, Path tmpDir, int runRows, ExecutorService executor) {
+        this.label = label;
+        this.width = width;
+        this.slot = slot;
+        this.tmpDir = tmpDir;
+        this.runRows = runRows;
+        this.executor = executor;
+        this.buffer = newBuffer();
+    }
+
+    /** Add a row, in input column order. */
+    void add(long[] row) {
+        int base = rows * width;
+        for ( int i = 0 ; i < width ; i++ )
+            buffer[base + slot[i]] = row[i];
+        rows++;
+        if ( rows == runRows )
+            spill();
+    }
+
+    private void spill() {
+        final long[] buf = buffer;
+        final int n = rows;
+        final int idx = runs.size();
+        runs.add(executor.submit(() -> {
+            try {
+                // Closed before this task started: no file.
+                if ( closed )
+                    return null;
+                sort(buf, width, 0, n - 1);
+                return writeRun(buf, n, idx);
+            } finally {
+                free.add(buf);
+            }
+        }));
+        buffer = newBuffer();
+        rows = 0;
+    }
+
+    private long[] newBuffer() {
+        if ( allocated < InFlight ) {
+            allocated++;
+            return new long[runRows * width];
+        }
+        try {
+            return free.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TDBException("Interrupted", ex);
+        }
+    }
+
+    /** Finish input and return the sorted, distinct rows. */
+    synchronized Iterator<Record> sorted(RecordFactory recordFactory) {
+        // Last run stays in memory.
+        long[] last = buffer;
+        int lastRows = rows;
+        buffer = null;
+        sort(last, width, 0, lastRows - 1);
+
+        PriorityQueue<RunReader> queue = new PriorityQueue<>((r1, r2) -> compare(r1.row, 0, r2.row, 0, width));
+        for ( Future<Path> f : runs ) {
+            FileRunReader r = new FileRunReader(await(f), width);
+            readers.add(r);
+            if ( r.advance() )
+                queue.add(r);
+        }
+        RunReader mem = new MemRunReader(last, lastRows, width);
+        if ( mem.advance() )
+            queue.add(mem);
+        return new MergeIterator(queue, recordFactory);
+    }
+
+    /**
+     * Release the sorter: wait for runs being written, then close the run readers and
+     * delete all run files. Call after the sorted rows have been used, or on failure.
+     */
+    synchronized void close() {
+        closed = true;
+        buffer = null;
+        for ( FileRunReader r : readers )
+            r.release();
+        readers.clear();
+        for ( Future<Path> f : runs ) {
+            try {
+                Path path = f.get();
+                if ( path != null )
+                    Files.deleteIfExists(path);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException ex) {
+                // writeRun has removed its file.
+            } catch (IOException ex) {
+                LOG.warn("Failed to delete sort run file: "+ex.getMessage());
+            }
+        }
+        runs.clear();
+    }
+
+    private static Path await(Future<Path> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TDBException("Interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new TDBException("Sort run failed", ex.getCause());
+        }
+    }
+
+    private Path writeRun(long[] buf, int n, int idx) throws IOException {
+        Path path = Files.createTempFile(tmpDir, "sort-" + label + "-" + idx + "-", ".tmp");
+        try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(runOutput(path), 128 * 1024)) ) {
+            for ( int r = 0 ; r < n ; r++ ) {
+                int base = r * width;
+                int prev = base - width;
+                // Skip duplicates; delta encode from the first changed column.
+                int d = 0;
+                if ( r > 0 ) {
+                    while ( d < width && buf[base + d] == buf[prev + d] )
+                        d++;
+                    if ( d == width )
+                        continue;
+                }
+                out.writeByte(d);
+                writeVarLong(out, r == 0 ? buf[base + d] : buf[base + d] - buf[prev + d]);
+                for ( int i = d + 1 ; i < width ; i++ )
+                    writeVarLong(out, buf[base + i]);
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(path);
+            throw ex;
+        }
+        return path;
+    }
+
+    // The streams are given their own Deflater/Inflater so close does not end them.
+    // End them on close to release the native zlib memory of each run promptly.
+
+    private static OutputStream runOutput(Path path) throws IOException {
+        OutputStream out = Files.newOutputStream(path);
+        if ( BulkLoaderX.CompressSortIndexFiles ) {
+            out = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED), 64 * 1024) {
+                @Override
+                public void close() throws IOException {
+                    try { super.close(); }
+                    finally { def.end(); }
+                }
+            };
+        }
+        return out;
+    }
+
+    private static InputStream runInput(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if ( BulkLoaderX.CompressSortIndexFiles ) {
+            in = new InflaterInputStream(in, new Inflater(), 64 * 1024) {
+                @Override
+                public void close() throws IOException {
+                    try { super.close(); }
+                    finally { inf.end(); }
+                }
+            };
+        }
+        return in;
+    }
+
+    private static void writeVarLong(DataOutput out, long x) throws IOException {
+        while ( (x & ~0x7FL) != 0 ) {
+            out.writeByte((int)((x & 0x7F) | 0x80));
+            x >>>= 7;
+        }
+        out.writeByte((int)x);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long x = 0;
+        for ( int shift = 0 ; ; shift += 7 ) {
+            int b = in.readUnsignedByte();
+            x |= (long)(b & 0x7F) << shift;
+            if ( (b & 0x80) == 0 )
+                return x;
+        }
+    }
+
+    // ---- In-memory sort of rows in a flat array.
+
+    private static int compare(long[] a, int i, long[] b, int j, int width) {
+        for ( int k = 0 ; k < width ; k++ ) {
+            int x = Long.compareUnsigned(a[i + k], b[j + k]);
+            if ( x != 0 )
+                return x;
+        }
+        return 0;
+    }
+
+    private static void swap(long[] a, int r1, int r2, int width) {
+        int i = r1 * width;
+        int j = r2 * width;
+        for ( int k = 0 ; k < width ; k++ ) {
+            long t = a[i + k];
+            a[i + k] = a[j + k];
+            a[j + k] = t;
+        }
+    }
+
+    /** Quicksort rows lo..hi (inclusive). */
+    static void sort(long[] a, int width, int lo, int hi) {
+        while ( hi - lo > 16 ) {
+            int mid = (lo + hi) >>> 1;
+            // Median of three to lo.
+            if ( compare(a, mid * width, a, lo * width, width) < 0 )
+                swap(a, mid, lo, width);
+            if ( compare(a, hi * width, a, lo * width, width) < 0 )
+                swap(a, hi, lo, width);
+            if ( compare(a, hi * width, a, mid * width, width) < 0 )
+                swap(a, hi, mid, width);
+            swap(a, lo, mid, width);
+            int pivot = lo * width;
+            int i = lo + 1;
+            int j = hi;
+            for ( ;; ) {
+                while ( i <= j && compare(a, i * width, a, pivot, width) < 0 )
+                    i++;
+                while ( i <= j && compare(a, j * width, a, pivot, width) > 0 )
+                    j--;
+                if ( i >= j )
+                    break;
+                swap(a, i++, j--, width);
+            }
+            swap(a, lo, j, width);
+            // Recurse on the smaller part.
+            if ( j - lo < hi - j ) {
+                sort(a, width, lo, j - 1);
+                lo = j + 1;
+            } else {
+                sort(a, width, j + 1, hi);
+                hi = j - 1;
+            }
+        }
+        for ( int i = lo + 1 ; i <= hi ; i++ ) {
+            for ( int j = i ; j > lo && compare(a, j * width, a, (j - 1) * width, width) < 0 ; j-- )
+                swap(a, j, j - 1, width);
+        }
+    }
+
+    // ---- Merge
+
+    private static abstract class RunReader {
+        final long[] row;
+        RunReader(int width) { row = new long[width]; }
+        /** Move to the next row; false, and release resources, at the end. */
+        abstract boolean advance();
+    }
+
+    private static class MemRunReader extends RunReader {
+        private final long[] buf;
+        private final int n;
+        private int r = 0;
+
+        MemRunReader(long[] buf, int n, int width) {
+            super(width);
+            this.buf = buf;
+            this.n = n;
+        }
+
+        @Override
+        boolean advance() {
+            if ( r >= n )
+                return false;
+            System.arraycopy(buf, r * row.length, row, 0, row.length);
+            r++;
+            return true;
+        }
+    }
+
+    private static class FileRunReader extends RunReader {
+        private final Path path;
+        private DataInputStream in;
+
+        FileRunReader(Path path, int width) {
+            super(width);
+            this.path = path;
+            try {
+                in = new DataInputStream(new BufferedInputStream(runInput(path), 128 * 1024));
+            } catch (IOException ex) { IO.exception(ex); }
+        }
+
+        @Override
+        boolean advance() {
+            if ( in == null )
+                return false;
+            try {
+                int d = in.read();
+                if ( d < 0 ) {
+                    close();
+                    return false;
+                }
+                row[d] += readVarLong(in);
+                for ( int i = d + 1 ; i < row.length ; i++ )
+                    row[i] = readVarLong(in);
+                return true;
+            } catch (IOException ex) {
+                release();
+                IO.exception(ex);
+                return false;
+            }
+        }
+
+        private void close() throws IOException {
+            try {
+                if ( in != null )
+                    in.close();
+            } finally {
+                in = null;
+                Files.deleteIfExists(path);
+            }
+        }
+
+        /** Close and delete the file, logging any problem. */
+        void release() {
+            try {
+                close();
+            } catch (IOException ex) {
+                LOG.warn("Failed to delete sort run file: "+ex.getMessage());
+            }
+        }
+    }
+
+    private static class MergeIterator implements Iterator<Record> {
+        private final PriorityQueue<RunReader> queue;
+        private final RecordFactory recordFactory;
+        private final long[] last;
+        private boolean started = false;
+        private Record slot = null;
+
+        MergeIterator(PriorityQueue<RunReader> queue, RecordFactory recordFactory) {
+            this.queue = queue;
+            this.recordFactory = recordFactory;
+            this.last = new long[recordFactory.keyLength() / Long.BYTES];
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( slot != null )
+                return true;
+            while ( !queue.isEmpty() ) {
+                RunReader r = queue.poll();
+                boolean dup = started && compare(r.row, 0, last, 0, last.length) == 0;
+                if ( !dup ) {
+                    System.arraycopy(r.row, 0, last, 0, last.length);
+                    started = true;
+                    slot = toRecord(last);
+                }
+                if ( r.advance() )
+                    queue.add(r);
+                if ( slot != null )
+                    return true;
+            }
+            return false;
+        }
+
+        private Record toRecord(long[] row) {
+            Record record = recordFactory.create();
+            for ( int i = 0 ; i < row.length ; i++ )
+                Bytes.setLong(row[i], record.getKey(), i * Long.BYTES);
+            return record;
+        }
+
+        @Override
+        public Record next() {
+            if ( !hasNext() )
+                throw new NoSuchElementException();
+            Record r = slot;
+            slot = null;
+            return r;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.junit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.rules.ExternalResource;
+import org.junit.rules.TemporaryFolder;
+
+/** Support for TDB2 tests. */
+public class TL {
+    /**
+     * The items of an iterator, with the number of times each occurs, for comparing
+     * results where the order does not matter. The iterator is closed.
+     */
+    public static <X> Map<X, Integer> multiset(Iterator<X> iter) {
+        Map<X, Integer> counts = new HashMap<>();
+        try {
+            iter.forEachRemaining(x -> counts.merge(x, 1, Integer::sum));
+        } finally { Iter.close(iter); }
+        return counts;
+    }
+
+    /**
+     * Databases connected during a test, and a temporary folder for files and disk
+     * databases. The databases are expelled, and the folder deleted, after each test.
+     * <pre>
+     *    {@literal @}Rule public TL.Databases databases = new TL.Databases();
+     * </pre>
+     */
+    public static class Databases extends ExternalResource {
+        private final TemporaryFolder tmp = new TemporaryFolder();
+        private final List<DatasetGraph> datasets = new ArrayList<>();
+
+        @Override
+        protected void before() throws Throwable {
+            tmp.create();
+        }
+
+        @Override
+        protected void after() {
+            try {
+                datasets.forEach(TDBInternal::expel);
+                datasets.clear();
+            } finally {
+                tmp.delete();
+            }
+        }
+
+        /** Connect to a database; it is expelled after the test. */
+        public DatasetGraph connect(Location location) {
+            DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(location);
+            datasets.add(dsg);
+            return dsg;
+        }
+
+        /** The location of a new disk database. */
+        public Location newLocation() throws IOException {
+            return Location.create(newFolder().getAbsolutePath());
+        }
+
+        public File newFolder() throws IOException {
+            return tmp.newFolder();
+        }
+
+        public File newFile(String filename) throws IOException {
+            return tmp.newFile(filename);
+        }
+    }
+}
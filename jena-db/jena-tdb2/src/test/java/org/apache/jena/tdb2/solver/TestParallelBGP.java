@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.ParallelMorsels.WorkerScope;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class TestParallelBGP {
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+    private static final String queryDft = PREFIX+"SELECT * { ?s :p ?o . ?s :q ?x . ?s :p ?o2 }";
+    private static final String queryNamed = PREFIX+"SELECT * { GRAPH ?g { ?s :p ?o . ?s :q ?x . ?s :p ?o2 } }";
+
+    @Rule public TL.Databases databases = new TL.Databases();
+
+    private DatasetGraph dsg;
+
+    @Before public void before() {
+        dsg = databases.connect(Location.mem());
+        Txn.executeWrite(dsg, () -> {
+            for ( int i = 0 ; i < 2000 ; i++ ) {
+                dsg.add(SSE.parseQuad("(_ :s"+i+" :p "+(i % 7)+")"));
+                dsg.add(SSE.parseQuad("(_ :s"+i+" :q "+(i % 11)+")"));
+                dsg.add(SSE.parseQuad("(:g"+(i % 3)+" :s"+i+" :p "+(i % 7)+")"));
+                dsg.add(SSE.parseQuad("(:g"+(i % 3)+" :s"+(i / 2)+" :q "+(i % 11)+")"));
+            }
+        });
+    }
+
+    private QueryExec queryExec(String queryString, int threads, boolean unionDefaultGraph) {
+        return QueryExec.dataset(dsg).query(queryString)
+                .set(ARQ.parallelBGP, threads)
+                .set(TDB2.symUnionDefaultGraph, unionDefaultGraph)
+                .build();
+    }
+
+    private Map<Binding, Integer> results(String queryString, int threads, boolean unionDefaultGraph) {
+        try ( QueryExec qExec = queryExec(queryString, threads, unionDefaultGraph) ) {
+            return TL.multiset(qExec.select());
+        }
+    }
+
+    private TransactionCoordinator txnMgr() {
+        return TDBInternal.getDatasetGraphTDB(dsg).getTxnSystem().getTxnMgr();
+    }
+
+    private void testSameAsSerial(String queryString, boolean unionDefaultGraph) {
+        Map<Binding, Integer> expected = Txn.calculateRead(dsg, () -> results(queryString, 1, unionDefaultGraph));
+        assertFalse(expected.isEmpty());
+        for ( int threads : new int[] {2, 4} ) {
+            long beginRead = txnMgr().countBeginRead();
+            Txn.executeRead(dsg, () -> assertEquals(expected, results(queryString, threads, unionDefaultGraph)));
+            // The calling thread and at least one worker.
+            assertTrue(txnMgr().countBeginRead() - beginRead > 1);
+        }
+    }
+
+    @Test public void bgp_same_as_serial_1() { testSameAsSerial(queryDft, false); }
+
+    @Test public void bgp_same_as_serial_2() { testSameAsSerial(queryNamed, false); }
+
+    @Test public void bgp_same_as_serial_3() { testSameAsSerial(queryDft, true); }
+
+    @Test public void bgp_write_txn() {
+        // Write transactions are evaluated on one thread.
+        Map<Binding, Integer> expected = Txn.calculateRead(dsg, () -> results(queryDft, 1, false));
+        long beginRead = txnMgr().countBeginRead();
+        Txn.executeWrite(dsg, () -> assertEquals(expected, results(queryDft, 4, false)));
+        assertEquals(beginRead, txnMgr().countBeginRead());
+    }
+
+    @Test public void bgp_commit_before_worker_start() throws Exception {
+        Map<Binding, Integer> expected = Txn.calculateRead(dsg, () -> results(queryNamed, 1, false));
+        dsg.begin(TxnType.READ);
+        try {
+            WorkerScope scope = PatternMatchTDB2.workerScope(TDBInternal.getDatasetGraphTDB(dsg));
+            assertNotNull(scope);
+            try ( QueryExec qExec = queryExec(queryNamed, 4, false) ) {
+                RowSet rowSet = qExec.select();
+                // Commit on another thread.
+                Thread writer = new Thread(() -> Txn.executeWrite(dsg, () -> dsg.add(SSE.parseQuad("(:g0 :s0 :q 99)"))));
+                writer.start();
+                writer.join();
+                // A worker no longer sees the same data and declines.
+                List<Boolean> started = new ArrayList<>();
+                Thread worker = new Thread(() -> {
+                    boolean b = scope.start();
+                    started.add(b);
+                    if ( b )
+                        scope.finish();
+                });
+                worker.start();
+                worker.join();
+                assertEquals(List.of(false), started);
+                // The query still sees the data as it was when it started.
+                assertEquals(expected, TL.multiset(rowSet));
+            }
+        } finally {
+            dsg.end();
+        }
+        assertEquals(0, txnMgr().countActive());
+    }
+
+    @Test public void bgp_abort() throws Exception {
+        Txn.executeRead(dsg, () -> {
+            try ( QueryExec qExec = queryExec(queryDft, 4, false) ) {
+                RowSet rowSet = qExec.select();
+                for ( int i = 0 ; i < 100 ; i++ )
+                    rowSet.next();
+                qExec.abort();
+                try {
+                    Iter.consume(rowSet);
+                    fail("Expected QueryCancelledException");
+                } catch (QueryCancelledException ex) {}
+            }
+        });
+        // Worker transactions end.
+        long finish = System.currentTimeMillis() + 5000;
+        while ( txnMgr().countActive() != 0 && System.currentTimeMillis() < finish )
+            Thread.sleep(10);
+        assertEquals(0, txnMgr().countActive());
+        Txn.executeWrite(dsg, () -> dsg.add(SSE.parseQuad("(:g0 :s0 :q 99)")));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.Abortable;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.solver.stats.CardinalityStats;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class TestStageMergeJoin {
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+
+    @Rule public TL.Databases databases = new TL.Databases();
+
+    private DatasetGraph dsg;
+    private long minCardinality;
+
+    @Before public void before() {
+        minCardinality = SystemTDB.MergeJoinMinCardinality;
+        dsg = databases.connect(Location.mem());
+        Txn.executeWrite(dsg, () -> {
+            for ( int i = 0 ; i < 3000 ; i++ ) {
+                dsg.add(SSE.parseQuad("(_ :s"+i+" :p "+(i % 1000)+")"));
+                dsg.add(SSE.parseQuad("(_ :t"+i+" :q "+(i % 1500)+")"));
+                dsg.add(SSE.parseQuad("(:g :s"+i+" :p "+(i % 700)+")"));
+                dsg.add(SSE.parseQuad("(:g :t"+i+" :q "+(i % 900)+")"));
+            }
+            // Object used only by :q, and a shared subject.
+            dsg.add(SSE.parseQuad("(_ :t0 :q 5000)"));
+            dsg.add(SSE.parseQuad("(_ :s0 :q 0)"));
+        });
+    }
+
+    @After public void after() {
+        SystemTDB.MergeJoinMinCardinality = minCardinality;
+    }
+
+    private Map<Binding, Integer> results(String queryString) {
+        return Txn.calculateRead(dsg, () -> {
+            try ( QueryExec qExec = QueryExec.dataset(dsg).query(PREFIX+queryString).build() ) {
+                return TL.multiset(qExec.select());
+            }
+        });
+    }
+
+    private void testSameAsSubstitution(String queryString) {
+        SystemTDB.MergeJoinMinCardinality = -1;
+        Map<Binding, Integer> expected = results(queryString);
+        assertFalse(expected.isEmpty());
+        SystemTDB.MergeJoinMinCardinality = 10;
+        assertEquals(expected, results(queryString));
+    }
+
+    @Test public void merge_query_1() { testSameAsSubstitution("SELECT * { ?s :p ?o . ?t :q ?o }"); }
+
+    @Test public void merge_query_2() { testSameAsSubstitution("SELECT * { GRAPH :g { ?s :p ?o . ?t :q ?o } }"); }
+
+    @Test public void merge_query_3() { testSameAsSubstitution("SELECT * { ?s :p ?o . ?s :q ?o }"); }
+
+    @Test public void merge_query_4() { testSameAsSubstitution("SELECT * { ?s :p ?o . ?t :q ?o . ?t :q ?x }"); }
+
+    // Direct use of the merge join stage.
+
+    private static final Tuple<Node> pattern1 = TupleFactory.create3(Var.alloc("s"), SSE.parseNode(":p"), Var.alloc("o"));
+    private static final Tuple<Node> pattern2 = TupleFactory.create3(Var.alloc("t"), SSE.parseNode(":q"), Var.alloc("o"));
+
+    private Iterator<BindingNodeId> mergeStage(List<Abortable> killList) {
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+        NodeTupleTable ntt = dsgtdb.getTripleTable().getNodeTupleTable();
+        CardinalityStats stats = StageMergeJoin.stats(dsgtdb);
+        assertTrue(stats.isReady());
+        Iterator<BindingNodeId> input = Iter.singleton(new BindingNodeId());
+        return StageMergeJoin.access(ntt, input, pattern1, pattern2, stats, killList, new ExecutionContext(dsg));
+    }
+
+    private Map<Binding, Integer> substitution() {
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+        NodeTupleTable ntt = dsgtdb.getTripleTable().getNodeTupleTable();
+        ExecutionContext execCxt = new ExecutionContext(dsg);
+        Iterator<BindingNodeId> chain = Iter.singleton(new BindingNodeId());
+        chain = StageMatchTuple.access(ntt, chain, pattern1, null, false, execCxt);
+        chain = StageMatchTuple.access(ntt, chain, pattern2, null, false, execCxt);
+        return TL.multiset(SolverLibTDB.convertToNodes(chain, ntt.getNodeTable()));
+    }
+
+    @Test public void merge_stage() {
+        SystemTDB.MergeJoinMinCardinality = 10;
+        Txn.executeRead(dsg, () -> {
+            Map<Binding, Integer> expected = substitution();
+            assertEquals(6003, expected.values().stream().mapToInt(Integer::intValue).sum());
+            NodeTupleTable ntt = TDBInternal.getDatasetGraphTDB(dsg).getTripleTable().getNodeTupleTable();
+            Iterator<BindingNodeId> iter = mergeStage(new ArrayList<>());
+            assertEquals(expected, TL.multiset(SolverLibTDB.convertToNodes(iter, ntt.getNodeTable())));
+        });
+    }
+
+    @Test public void merge_stage_abort() {
+        SystemTDB.MergeJoinMinCardinality = 10;
+        Txn.executeRead(dsg, () -> {
+            List<Abortable> killList = new ArrayList<>();
+            Iterator<BindingNodeId> iter = mergeStage(killList);
+            for ( int i = 0 ; i < 10 ; i++ )
+                iter.next();
+            assertEquals(1, killList.size());
+            killList.forEach(Abortable::abort);
+            try {
+                Iter.consume(iter);
+                fail("Expected QueryCancelledException");
+            } catch (QueryCancelledException ex) {}
+        });
+    }
+
+    @Test public void merge_stage_abort_before_start() {
+        SystemTDB.MergeJoinMinCardinality = 10;
+        Txn.executeRead(dsg, () -> {
+            List<Abortable> killList = new ArrayList<>();
+            Iterator<BindingNodeId> iter = mergeStage(killList);
+            killList.forEach(Abortable::abort);
+            try {
+                iter.hasNext();
+                fail("Expected QueryCancelledException");
+            } catch (QueryCancelledException ex) {}
+        });
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.loader.DataLoader;
+import org.apache.jena.tdb2.loader.LoaderFactory;
+import org.apache.jena.tdb2.loader.base.LoaderOps;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class TestCardinalityStats {
+    @Rule public TL.Databases databases = new TL.Databases();
+
+    private static CardinalityStats stats(DatasetGraph dsg) {
+        CardinalityStats stats = CardinalityStats.get(TDBInternal.getDatasetGraphTDB(dsg));
+        assertNotNull(stats);
+        return stats;
+    }
+
+    private static void awaitReady(CardinalityStats stats) throws InterruptedException {
+        for ( int i = 0 ; i < 500 && !stats.isReady() ; i++ )
+            Thread.sleep(10);
+        assertTrue("Statistics not calculated", stats.isReady());
+    }
+
+    private static void add(DatasetGraph dsg, String... quads) {
+        Txn.executeWrite(dsg, ()->Arrays.stream(quads).forEach(q -> dsg.add(SSE.parseQuad(q))));
+    }
+
+    private static NodeId nodeId(DatasetGraph dsg, String node) {
+        return Txn.calculateRead(dsg, ()->TDBInternal.getNodeId(dsg, SSE.parseNode(node)));
+    }
+
+    @Test public void stats_commit() {
+        DatasetGraph dsg = databases.connect(Location.mem());
+        CardinalityStats stats = stats(dsg);
+        assertTrue(stats.isReady());
+        add(dsg, "(_ :s :p 1)", "(_ :s :p 2)", "(_ :s :q 1)", "(:g :s :p 3)");
+        assertEquals(4, stats.count());
+        assertEquals(3, stats.count(nodeId(dsg, ":p")));
+        assertEquals(2, stats.numPredicates());
+        Txn.executeWrite(dsg, ()->dsg.delete(SSE.parseQuad("(_ :s :q 1)")));
+        assertEquals(3, stats.count());
+        assertEquals(1, stats.numPredicates());
+        // Aborted changes are not counted.
+        dsg.begin();
+        dsg.add(SSE.parseQuad("(_ :s :q 2)"));
+        dsg.abort();
+        dsg.end();
+        assertEquals(3, stats.count());
+    }
+
+    @Test public void stats_addAll_duplicates() {
+        DatasetGraph dsg = databases.connect(Location.mem());
+        CardinalityStats stats = stats(dsg);
+        add(dsg, "(_ :s :p 1)");
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+        TupleTable table = dsgtdb.getTripleTable().getNodeTupleTable().getTupleTable();
+        Txn.executeWrite(dsg, ()->{
+            List<Tuple<NodeId>> tuples = new ArrayList<>();
+            table.find(anyTriple()).forEachRemaining(tuples::add);
+            assertEquals(1, tuples.size());
+            // Already present, twice.
+            tuples.add(tuples.get(0));
+            table.addAll(tuples);
+        });
+        assertEquals(1, stats.count());
+        Txn.executeWrite(dsg, ()->{
+            List<Tuple<NodeId>> tuples = new ArrayList<>();
+            table.find(anyTriple()).forEachRemaining(tuples::add);
+            tuples.add(tuples.get(0));
+            table.deleteAll(tuples);
+            table.deleteAll(tuples);
+        });
+        assertEquals(0, stats.count());
+    }
+
+    private static Tuple<NodeId> anyTriple() {
+        return TupleFactory.create3(NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny);
+    }
+
+    @Test public void stats_build_background() throws Exception {
+        Location location = databases.newLocation();
+        DatasetGraph dsg = databases.connect(location);
+        add(dsg, "(_ :s :p 1)", "(_ :s :p 2)", "(:g :s :q 1)");
+        Location storage = TDBInternal.getDatasetGraphTDB(dsg).getLocation();
+        TDBInternal.expel(dsg);
+        // No saved statistics.
+        new File(storage.getPath(CardinalityStats.StatsFilename)).delete();
+
+        DatasetGraph dsg2 = databases.connect(location);
+        CardinalityStats stats = stats(dsg2);
+        awaitReady(stats);
+        assertEquals(3, stats.count());
+        // Changes after the calculation are applied.
+        add(dsg2, "(_ :s :p 3)");
+        assertEquals(4, stats.count());
+        assertEquals(3, stats.count(nodeId(dsg2, ":p")));
+    }
+
+    @Test public void stats_bulk_load() throws Exception {
+        Location location = databases.newLocation();
+        DatasetGraph dsg = databases.connect(location);
+        CardinalityStats stats = stats(dsg);
+        awaitReady(stats);
+        add(dsg, "(_ :s :p 0)");
+        assertEquals(1, stats.count());
+
+        File data = databases.newFile("data.nt");
+        try ( PrintWriter out = new PrintWriter(data) ) {
+            for ( int i = 1 ; i <= 100 ; i++ )
+                out.printf("<http://example/s> <http://example/q> \"%d\" .%n", i);
+        }
+        DataLoader loader = LoaderFactory.phasedLoader(dsg, LoaderOps.outputToLog());
+        loader.startBulk();
+        loader.load(data.getAbsolutePath());
+        loader.finishBulk();
+        awaitReady(stats);
+        assertEquals(101, stats.count());
+        Node q = SSE.parseNode("<http://example/q>");
+        assertEquals(100, stats.count(Txn.calculateRead(dsg, ()->TDBInternal.getNodeId(dsg, q))));
+    }
+
+    @Test public void stats_invalidate() throws Exception {
+        DatasetGraph dsg = databases.connect(Location.mem());
+        CardinalityStats stats = stats(dsg);
+        add(dsg, "(_ :s :p 1)", "(_ :s :p 2)");
+        stats.invalidate();
+        awaitReady(stats);
+        assertEquals(2, stats.count());
+        assertEquals(2, stats.count(nodeId(dsg, ":p")));
+    }
+}
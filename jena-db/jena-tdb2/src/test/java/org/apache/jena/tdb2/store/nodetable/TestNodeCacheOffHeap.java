@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdType;
+import org.junit.Test;
+
+public class TestNodeCacheOffHeap {
+
+    private static NodeId nodeId(long i) {
+        return NodeIdFactory.createPtr(i);
+    }
+
+    private static Node node(long i) {
+        return NodeFactory.createURI("http://example/node/" + i);
+    }
+
+    @Test public void offheap_basic() {
+        NodeCacheOffHeap cache = new NodeCacheOffHeap(64 * 1024);
+        assertTrue(cache.isEmpty());
+        cache.put(nodeId(1), node(1));
+        cache.put(nodeId(2), NodeFactory.createLiteral("abc", "en"));
+        assertEquals(node(1), cache.getIfPresent(nodeId(1)));
+        assertEquals(NodeFactory.createLiteral("abc", "en"), cache.getIfPresent(nodeId(2)));
+        assertNull(cache.getIfPresent(nodeId(3)));
+        assertEquals(2, cache.size());
+        cache.remove(nodeId(1));
+        assertNull(cache.getIfPresent(nodeId(1)));
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertTrue(cache.isEmpty());
+        assertNull(cache.getIfPresent(nodeId(2)));
+    }
+
+    @Test public void offheap_not_ptr() {
+        NodeCacheOffHeap cache = new NodeCacheOffHeap(64 * 1024);
+        NodeId inline = NodeIdFactory.createValue(NodeIdType.XSD_INTEGER, 5);
+        cache.put(inline, NodeFactory.createLiteral("5"));
+        assertNull(cache.getIfPresent(inline));
+        assertTrue(cache.isEmpty());
+    }
+
+    // The ring fills before the index: the oldest records are overwritten.
+    @Test public void offheap_wrap_around() {
+        NodeCacheOffHeap cache = new NodeCacheOffHeap(64 * 1024);
+        int N = 20_000;
+        for ( int i = 0 ; i < N ; i++ )
+            cache.put(nodeId(i), node(i));
+        assertNull(cache.getIfPresent(nodeId(0)));
+        assertEquals(node(N - 1), cache.getIfPresent(nodeId(N - 1)));
+        checkFifo(cache, N);
+    }
+
+    // The index reaches its maximum size before the ring is full: the oldest
+    // records are evicted, not the whole cache.
+    @Test public void offheap_index_full() {
+        // 1K of index: 64 slots. Large records so that the ring holds more than that.
+        NodeCacheOffHeap cache = new NodeCacheOffHeap(4 * 1024);
+        int N = 1000;
+        for ( int i = 0 ; i < N ; i++ ) {
+            cache.put(nodeId(i), node(i));
+            // Everything just added is present.
+            assertEquals(node(i), cache.getIfPresent(nodeId(i)));
+            assertTrue(cache.size() <= 48);
+        }
+        assertTrue(cache.size() > 24);
+        checkFifo(cache, N);
+    }
+
+    /** Entries present are correct, and form a run ending at the last one added. */
+    private static void checkFifo(NodeCacheOffHeap cache, int N) {
+        boolean present = true;
+        int count = 0;
+        for ( int i = N - 1 ; i >= 0 ; i-- ) {
+            Node n = cache.getIfPresent(nodeId(i));
+            if ( n == null ) {
+                present = false;
+                continue;
+            }
+            assertTrue("Hole in cache at " + i, present);
+            assertEquals(node(i), n);
+            count++;
+        }
+        assertEquals(count, cache.size());
+    }
+
+    @Test public void offheap_record_too_large() {
+        NodeCacheOffHeap cache = new NodeCacheOffHeap(4 * 1024);
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < 2000 ; i++ )
+            sb.append('x');
+        cache.put(nodeId(1), NodeFactory.createLiteral(sb.toString()));
+        assertNull(cache.getIfPresent(nodeId(1)));
+    }
+
+    @Test public void offheap_concurrent() throws Exception {
+        NodeCacheOffHeap cache = new NodeCacheOffHeap(32 * 1024);
+        int N = 50_000;
+        int readers = 3;
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for ( int r = 0 ; r < readers ; r++ ) {
+            Thread t = new Thread(()->{
+                try {
+                    long i = 0;
+                    while ( !done.get() ) {
+                        long id = (i++ * 7919) % N;
+                        Node n = cache.getIfPresent(nodeId(id));
+                        if ( n != null && !n.equals(node(id)) )
+                            throw new AssertionError("Wrong node for " + id + ": " + n);
+                    }
+                } catch (Throwable ex) { error.compareAndSet(null, ex); }
+            });
+            threads.add(t);
+            t.start();
+        }
+        Thread writer = new Thread(()->{
+            try {
+                for ( int i = 0 ; i < N ; i++ ) {
+                    cache.put(nodeId(i), node(i));
+                    if ( i % 1000 == 0 )
+                        cache.remove(nodeId(i / 2));
+                }
+            } catch (Throwable ex) { error.compareAndSet(null, ex); }
+            finally { done.set(true); }
+        });
+        writer.start();
+        writer.join();
+        for ( Thread t : threads )
+            t.join();
+        if ( error.get() != null )
+            throw new AssertionError(error.get());
+        assertNotNull(cache.getIfPresent(nodeId(N - 1)));
+        assertFalse(cache.isEmpty());
+    }
+}
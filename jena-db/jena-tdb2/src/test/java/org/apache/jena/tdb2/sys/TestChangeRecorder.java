@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.solver.stats.CardinalityStats;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class TestChangeRecorder {
+    @Rule public TL.Databases databases = new TL.Databases();
+
+    private static Set<Quad> quads(DatasetGraph dsg) {
+        return Txn.calculateRead(dsg, ()->Iter.iter(dsg.find()).collect(Collectors.toSet()));
+    }
+
+    private static void writeChanges(DatasetGraph dsg, int from, int to) {
+        for ( int i = from ; i < to ; i++ ) {
+            int x = i;
+            Txn.executeWrite(dsg, ()->{
+                dsg.add(SSE.parseQuad("(:g :s :p "+x+")"));
+                dsg.add(SSE.parseQuad("(_ :s :q "+x+")"));
+                if ( x % 3 == 0 )
+                    dsg.delete(SSE.parseQuad("(_ :s :q "+x+")"));
+                dsg.prefixes().add("p"+x, "http://example/"+x+"#");
+            });
+        }
+    }
+
+    @Test public void replay_spilled() throws Exception {
+        File spillDir = databases.newFolder();
+        DatasetGraph src = databases.connect(databases.newLocation());
+        DatasetGraph dst = databases.connect(Location.mem());
+        Txn.executeWrite(src, ()->src.add(SSE.parseQuad("(_ :s :q 0)")));
+        Txn.executeWrite(dst, ()->dst.add(SSE.parseQuad("(_ :s :q 0)")));
+
+        ChangeRecorder recorder = new ChangeRecorder(TDBInternal.getDatasetGraphTDB(src), spillDir.toPath(), 5);
+        recorder.start();
+        try {
+            writeChanges(src, 0, 10);
+            // Not recorded.
+            src.begin(TxnType.WRITE);
+            src.add(SSE.parseQuad("(:g :s :p 'aborted')"));
+            src.abort();
+            src.end();
+            assertEquals(1, spillDir.list().length);
+            assertTrue(recorder.size() > 5);
+
+            recorder.replay(TDBInternal.getDatasetGraphTDB(dst));
+            assertEquals(0, recorder.size());
+            assertEquals(0, spillDir.list().length);
+
+            writeChanges(src, 10, 12);
+            recorder.replay(TDBInternal.getDatasetGraphTDB(dst));
+        } finally {
+            recorder.stop();
+        }
+        assertEquals(quads(src), quads(dst));
+        Txn.executeRead(src, ()->Txn.executeRead(dst, ()->
+            assertEquals(src.prefixes().getMapping(), dst.prefixes().getMapping())));
+        assertEquals(0, spillDir.list().length);
+    }
+
+    @Test public void stop_deletes_spill() throws Exception {
+        File spillDir = databases.newFolder();
+        DatasetGraph src = databases.connect(databases.newLocation());
+        ChangeRecorder recorder = new ChangeRecorder(TDBInternal.getDatasetGraphTDB(src), spillDir.toPath(), 5);
+        recorder.start();
+        writeChanges(src, 0, 10);
+        assertEquals(1, spillDir.list().length);
+        recorder.stop();
+        assertEquals(0, recorder.size());
+        assertEquals(0, spillDir.list().length);
+        // No longer recording.
+        writeChanges(src, 10, 12);
+        assertEquals(0, recorder.size());
+    }
+
+    @Test public void compact_keeps_stats() throws Exception {
+        DatasetGraph dsg = databases.connect(databases.newLocation());
+        writeChanges(dsg, 0, 20);
+        DatabaseMgr.compact(dsg, false);
+        DatasetGraphTDB dsgTDB = TDBInternal.getDatasetGraphTDB(dsg);
+        CardinalityStats stats = CardinalityStats.get(dsgTDB);
+        // Exact without a scan of the new generation.
+        assertTrue(stats.isReady());
+        assertEquals(quads(dsg).size(), stats.count());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.acl.DatasetACL;
+import org.apache.jena.acl.DatasetACL.aclId;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.sparql.exec.UpdateExec;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestDatasetACLTDB {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Location location;
+    private Dataset dataset;
+    private DatasetACLTDB acl;
+
+    @Before public void before() throws Exception {
+        location = Location.create(tmp.newFolder().getAbsolutePath());
+        connect();
+    }
+
+    @After public void after() {
+        TDBInternal.expel(dataset.asDatasetGraph());
+    }
+
+    private void connect() {
+        dataset = TDB2Factory.connectDatasetWithACL(location);
+        acl = (DatasetACLTDB)dataset.getContext().get(Symbol.create(DatasetACL.ACL_HANDLER_NAME));
+    }
+
+    private void reconnect() {
+        TDBInternal.expel(dataset.asDatasetGraph());
+        connect();
+    }
+
+    private void update(String request) {
+        update(request, null);
+    }
+
+    private void update(String request, String user) {
+        Context context = dataset.getContext().copy();
+        if ( user != null )
+            context.set(Symbol.create(DatasetACL.ACL_USER_NAME), user);
+        Txn.executeWrite(dataset, ()->UpdateExec.dataset(dataset.asDatasetGraph(), context).update(request, context).execute());
+    }
+
+    @Test public void acl_persists() {
+        acl.grant("alice", aclId.aiQuery, "http://example/g1");
+        acl.grant("alice", aclId.aiInsertData, DatasetACL.ACL_GRAPH_NAME_ALL);
+        acl.grant("bob", aclId.aiQuery, "http://example/g2");
+        acl.revoke("alice", aclId.aiQuery, "http://example/g1");
+        acl.revokeAll("bob");
+        reconnect();
+        assertFalse(acl.checkGraphBase(aclId.aiQuery, "http://example/g1", "alice"));
+        assertTrue(acl.checkGraphBase(aclId.aiInsertData, "http://example/g3", "alice"));
+        assertFalse(acl.checkGraphBase(aclId.aiQuery, "http://example/g2", "bob"));
+    }
+
+    @Test public void acl_shared() {
+        DatasetACL acl1 = acl;
+        Dataset ds = TDB2Factory.connectDatasetWithACL(location);
+        assertSame(acl1, ds.getContext().get(Symbol.create(DatasetACL.ACL_HANDLER_NAME)));
+    }
+
+    @Test public void acl_no_self_escalation() {
+        acl.grant("mallory", aclId.aiInsertData, DatasetACL.ACL_GRAPH_NAME_ALL);
+        long version = acl.getVersion();
+        update("INSERT DATA { GRAPH <urn:x-tdb:acl> { <urn:x-tdb:acl:user:mallory> <urn:x-tdb:acl:aiQuery> '$$ALL$$' } }", "mallory");
+        update("INSERT DATA { <urn:x-tdb:acl:user:mallory> <urn:x-tdb:acl:aiQuery> '$$ALL$$' }", "mallory");
+        assertEquals(version, acl.getVersion());
+        assertFalse(acl.checkGraphBase(aclId.aiQuery, "http://example/secret", "mallory"));
+        reconnect();
+        assertFalse(acl.checkGraphBase(aclId.aiQuery, "http://example/secret", "mallory"));
+    }
+
+    @Test public void acl_drop_all() {
+        acl.grant("alice", aclId.aiQuery, "http://example/g1");
+        update("INSERT DATA { GRAPH <http://example/g1> { <http://example/s> <http://example/p> 1 } }");
+        update("DROP ALL");
+        update("CLEAR ALL");
+        assertTrue(acl.checkGraphBase(aclId.aiQuery, "http://example/g1", "alice"));
+        reconnect();
+        assertTrue(acl.checkGraphBase(aclId.aiQuery, "http://example/g1", "alice"));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.xloader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.tdb2.TDBException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestSortRowsX {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final int width = 3;
+    private static final RecordFactory recordFactory = new RecordFactory(width * Long.BYTES, 0);
+    // Input column order to row order : input (a,b,c) is sorted as (c,a,b).
+    private static final int[] slot = {1, 2, 0};
+
+    private ExecutorService executor;
+    private boolean compress;
+
+    @Before public void before() {
+        executor = Executors.newFixedThreadPool(2);
+        compress = BulkLoaderX.CompressSortIndexFiles;
+    }
+
+    @After public void after() {
+        executor.shutdownNow();
+        BulkLoaderX.CompressSortIndexFiles = compress;
+    }
+
+    /** Rows with duplicates, and values that are negative as signed longs. */
+    private static List<long[]> data(int n) {
+        Random random = new Random(1234);
+        List<long[]> rows = new ArrayList<>();
+        for ( int i = 0 ; i < n ; i++ ) {
+            long[] row = { random.nextInt(20), random.nextInt(50) - 25, random.nextInt(4) == 0 ? Long.MIN_VALUE : random.nextInt(10) };
+            rows.add(row);
+            if ( i % 3 == 0 )
+                rows.add(row.clone());
+        }
+        return rows;
+    }
+
+    private static List<long[]> expected(List<long[]> rows) {
+        TreeSet<long[]> set = new TreeSet<>(TestSortRowsX::compareUnsigned);
+        for ( long[] row : rows ) {
+            long[] r = new long[width];
+            for ( int i = 0 ; i < width ; i++ )
+                r[slot[i]] = row[i];
+            set.add(r);
+        }
+        return new ArrayList<>(set);
+    }
+
+    private static int compareUnsigned(long[] a, long[] b) {
+        for ( int i = 0 ; i < a.length ; i++ ) {
+            int x = Long.compareUnsigned(a[i], b[i]);
+            if ( x != 0 )
+                return x;
+        }
+        return 0;
+    }
+
+    private static long[] row(Record record) {
+        long[] row = new long[width];
+        for ( int i = 0 ; i < width ; i++ )
+            row[i] = Bytes.getLong(record.getKey(), i * Long.BYTES);
+        return row;
+    }
+
+    private SortRowsX sorter(Path dir, int runRows, List<long[]> rows) {
+        SortRowsX sorter = new SortRowsX("test", width, slot, dir, runRows, executor);
+        rows.forEach(sorter::add);
+        return sorter;
+    }
+
+    private void testSort(int n, int runRows) throws Exception {
+        File dir = tmp.newFolder();
+        List<long[]> rows = data(n);
+        List<long[]> expected = expected(rows);
+        SortRowsX sorter = sorter(dir.toPath(), runRows, rows);
+        try {
+            Iterator<Record> iter = sorter.sorted(recordFactory);
+            List<long[]> actual = new ArrayList<>();
+            iter.forEachRemaining(r -> actual.add(row(r)));
+            assertEquals(expected.size(), actual.size());
+            for ( int i = 0 ; i < expected.size() ; i++ )
+                assertArrayEquals(expected.get(i), actual.get(i));
+            // Run files are deleted when read.
+            assertEquals(0, dir.list().length);
+        } finally {
+            sorter.close();
+        }
+    }
+
+    @Test public void sort_one_run() throws Exception {
+        testSort(500, 10_000);
+    }
+
+    @Test public void sort_runs() throws Exception {
+        // Runs, and a last run in memory.
+        testSort(5_000, 300);
+    }
+
+    @Test public void sort_runs_exact() throws Exception {
+        // The last run is empty.
+        testSort(3_000, 400);
+    }
+
+    @Test public void sort_runs_uncompressed() throws Exception {
+        BulkLoaderX.CompressSortIndexFiles = false;
+        testSort(5_000, 300);
+    }
+
+    @Test public void sort_empty() throws Exception {
+        testSort(0, 100);
+    }
+
+    @Test public void close_before_sorted() throws Exception {
+        File dir = tmp.newFolder();
+        SortRowsX sorter = sorter(dir.toPath(), 300, data(5_000));
+        sorter.close();
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test public void close_abandoned() throws Exception {
+        File dir = tmp.newFolder();
+        SortRowsX sorter = sorter(dir.toPath(), 300, data(5_000));
+        Iterator<Record> iter = sorter.sorted(recordFactory);
+        for ( int i = 0 ; i < 10 ; i++ )
+            iter.next();
+        assertTrue(dir.list().length > 0);
+        sorter.close();
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test public void run_failure() throws Exception {
+        File dir = tmp.newFolder();
+        Path missing = dir.toPath().resolve("missing");
+        SortRowsX sorter = sorter(missing, 300, data(5_000));
+        try {
+            sorter.sorted(recordFactory);
+            fail("Expected TDBException");
+        } catch (TDBException ex) {}
+        finally {
+            sorter.close();
+        }
+        assertEquals(Arrays.asList(), Arrays.asList(dir.list()));
+    }
+}
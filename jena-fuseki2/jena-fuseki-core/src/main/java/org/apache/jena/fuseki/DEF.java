@@ -32,6 +32,10 @@ public class DEF
 
     public static final AcceptList jsonOffer          = AcceptList.create(contentTypeJSON);
 
+    // Offer for the change-set returned by SPARQL Update
+    public static final AcceptList changeSetOffer     = AcceptList.create(contentTypeJSON,
+                                                                          contentTypeRDFThrift);
+
     public static final AcceptList constructOffer     = AcceptList.create(contentTypeTurtle,
                                                                           contentTypeTurtleAlt1,
                                                                           contentTypeNTriples,
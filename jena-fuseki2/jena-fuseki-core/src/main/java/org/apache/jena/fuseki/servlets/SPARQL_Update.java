@@ -33,35 +33,42 @@ import static org.apache.jena.riot.web.HttpNames.paramUsingNamedGraphURI;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.List;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 
+import org.apache.commons.lang3.StringUtils;
+
 import org.apache.jena.atlas.io.IO;
-import org.apache.jena.atlas.json.JsonArray;
-import org.apache.jena.atlas.json.JsonObject;
-import org.apache.jena.atlas.json.JsonValue;
 import org.apache.jena.atlas.lib.Bytes;
 import org.apache.jena.atlas.lib.StrUtils;
 import org.apache.jena.atlas.web.ContentType;
+import org.apache.jena.atlas.web.MediaType;
+import org.apache.jena.fuseki.DEF;
 import org.apache.jena.fuseki.Fuseki;
+import org.apache.jena.fuseki.system.ConNeg;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.irix.IRIx;
 import org.apache.jena.irix.IRIxResolver;
+import org.apache.jena.query.ARQ;
 import org.apache.jena.query.QueryBuildException;
 import org.apache.jena.query.QueryParseException;
 import org.apache.jena.query.Syntax;
 import org.apache.jena.riot.web.HttpNames;
 import org.apache.jena.shared.OperationDeniedException;
-import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
+import org.apache.jena.sparql.exec.UpdateExec;
+import org.apache.jena.sparql.modify.ChangeSetIO;
+import org.apache.jena.sparql.modify.ChangeSetSpool;
 import org.apache.jena.sparql.modify.UpdateResult;
 import org.apache.jena.sparql.modify.UsingList;
+import org.apache.jena.sparql.util.Context;
 import org.apache.jena.update.UpdateAction;
 import org.apache.jena.update.UpdateException;
 import org.apache.jena.update.UpdateFactory;
@@ -194,24 +201,53 @@ public class SPARQL_Update extends ActionService
             // Some kind of log message to show its an update.
             action.log.info(format("[%d] Update", action.id));
         }
-        List<UpdateResult> ret = execute(action, input);
-        
-        if (ret != null) {
-            final JsonObject jret  = new JsonObject();
-            for(final UpdateResult ur : ret ) {
-                appendUpdateResult("deleted", jret, ur.deletedTuples);
-                appendUpdateResult("updated", jret, ur.addedTuples);
-                   
+        // Changes are spooled (spilling to disk if large) and streamed out after commit.
+        ChangeSetSpool changes = new ChangeSetSpool(ARQ.getContext());
+        try {
+            Context cxt = ARQ.getContext().copy();
+            cxt.set(ARQ.updateChangeSetSink, changes);
+            List<UpdateResult> ret = execute(action, input, cxt);
+            if ( ret != null )
+                responseChangeSet(action, changes);
+            else
+                ServletOps.successNoContent(action);
+        } finally {
+            changes.close();
+        }
+    }
+
+    /**
+     * Write the change-set, as JSON or, if the client asks for it, RDF Thrift.
+     * @see ChangeSetIO
+     */
+    private static void responseChangeSet(HttpAction action, ChangeSetSpool changes) {
+        MediaType mt = ConNeg.chooseContentType(action.getRequest(), DEF.changeSetOffer, DEF.acceptJSON);
+        boolean thrift = mt != null && ChangeSetIO.contentTypeThrift.equals(mt.getContentTypeStr());
+        try {
+            ServletOutputStream out = action.getResponseOutputStream();
+            if ( thrift ) {
+                ResponseJson.setHttpResponse(action, ChangeSetIO.contentTypeThrift, null);
+                action.setResponseStatus(HttpSC.OK_200);
+                ChangeSetIO.writeThrift(out, changes.cleared().iterator(), changes.deleted(), changes.added());
+            } else {
+                String callback = ResponseOps.paramCallback(action.getRequest());
+                ResponseJson.setHttpResponse(action, ChangeSetIO.contentTypeJSON, charsetUTF8);
+                action.setResponseStatus(HttpSC.OK_200);
+                if ( callback != null ) {
+                    callback = StringUtils.replaceChars(callback, "\r", "");
+                    callback = StringUtils.replaceChars(callback, "\n", "");
+                    out.write(StrUtils.asUTF8bytes(callback));
+                    out.write('('); out.write('\n');
+                }
+                ChangeSetIO.writeJSON(out, changes.cleared().iterator(), changes.deleted(), changes.added());
+                if ( callback != null ) {
+                    out.write(')'); out.write('\n');
+                }
             }
-            final List<JsonObject> dummy = new ArrayList<>();
-            dummy.add(jret);
-            
-            ResponseJson.doResponseJson(action, dummy.iterator());
-            
-        } else {
-            ServletOps.successNoContent(action);
+            out.flush();
+        } catch (IOException ex) {
+            ServletOps.errorOccurred(ex);
         }
- 
     }
 
     private void executeForm(HttpAction action) {
@@ -231,6 +267,10 @@ public class SPARQL_Update extends ActionService
     }
 
     protected List<UpdateResult> execute(HttpAction action, InputStream input) {
+        return execute(action, input, null);
+    }
+
+    protected List<UpdateResult> execute(HttpAction action, InputStream input, Context context) {
         UsingList usingList = processProtocol(action.getRequest());
 
         // If the dsg is transactional, then we can parse and execute the update in a streaming fashion.
@@ -255,9 +295,9 @@ public class SPARQL_Update extends ActionService
         try {
             List<UpdateResult> ret;
             if (req == null )
-                ret = UpdateAction.parseExecute(usingList, action.getActiveDSG(), input, UpdateParseBase, Syntax.syntaxARQ);
+                ret = UpdateAction.parseExecute(usingList, action.getActiveDSG(), input, (Binding)null, UpdateParseBase, Syntax.syntaxARQ, context);
             else
-                ret = UpdateAction.execute(req, action.getActiveDSG());
+                ret = UpdateExec.dataset(action.getActiveDSG(), context).update(req).execute();
             action.commit();
             
             return ret;
@@ -342,32 +382,4 @@ public class SPARQL_Update extends ActionService
         }
 
     }
-    private void appendUpdateResult(final String name, final JsonObject tgt, final List<Quad> ql) {
-        if (ql == null || ql.size() == 0 )
-            return;
-        
-        JsonValue child = tgt.get(name);
-        if (child == null ) {
-            child  = new JsonArray();
-            tgt.put(name, child);
-        } 
-        
-        for(final Quad q : ql ) {
-            final JsonObject nepew = new JsonObject();
-            appendNode("graph", q.getGraph(), nepew);
-            appendNode("subject", q.getSubject(), nepew);
-            appendNode("predicate", q.getPredicate(), nepew);
-            appendNode("object", q.getObject(), nepew);
-            
-            child.getAsArray().add(nepew);
-            
-           
-        }
-        
-    }    
-    private void appendNode(final String name, final Node n, final JsonObject tgt) {
-        final String v = (n == null ? null : n.toString());
-        if (v != null)
-            tgt.put(name,v);
-    }
 }
@@ -354,15 +354,13 @@ public class RDFLinkHTTP implements RDFLink {
         }
         // Use the update string as provided if possible, otherwise serialize the update.
         String updateStringToSend = ( updateString != null ) ? updateString  : update.toString();
-        UpdateExecHTTP.newBuilder()
+        return UpdateExecHTTP.newBuilder()
             .endpoint(svcUpdate)
             .httpClient(httpClient)
             .updateString(updateStringToSend)
+            .context(getContext())
             .build()
             .execute();
-        
-        //TBD !!!!
-        return null;
     }
 
 //    /** Convert HTTP status codes to exceptions */
@@ -22,8 +22,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import org.apache.jena.acl.DatasetACL;
-import static org.apache.jena.acl.DatasetACL.DEF_GRAPH_NAME;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.StrUtils;
@@ -32,45 +30,32 @@ import org.apache.jena.atlas.lib.tuple.TupleFactory;
 import org.apache.jena.graph.Node;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
-import org.apache.jena.sparql.util.Context;
-import org.apache.jena.sparql.util.Symbol;
+import org.apache.jena.sparql.engine.QueryACL;
 import org.apache.jena.tdb.hadoop.store.NodeId;
 import org.apache.jena.tdb.hadoop.store.nodetable.NodeTable;
 import org.apache.jena.tdb.hadoop.store.nodetupletable.NodeTupleTable;
 
 class StageMatchTuple {
+    /**
+     * Graph access filter. Decisions come from the per-execution {@link QueryACL}
+     * and are keyed by the graph NodeId, so each graph is decoded and checked once
+     * per query rather than once per tuple.
+     */
     private static class ACLFilter implements Predicate<Tuple<NodeId>> {
-        private final static Symbol SYM_USR = Symbol.create(DatasetACL.ACL_USER_NAME);
-        private final static Symbol SYM_ACL = Symbol.create(DatasetACL.ACL_HANDLER_NAME);
-        
-        private final Context           ctx;
-        private final NodeTupleTable    nodeTupleTable;
-        
-        
-        public ACLFilter(Context c,NodeTupleTable ntt) {
-            ctx = c;
-            nodeTupleTable = ntt;
+        private final QueryACL          acl;
+        private final NodeTable         nodeTable;
+
+        ACLFilter(QueryACL acl, NodeTable nodeTable) {
+            this.acl = acl;
+            this.nodeTable = nodeTable;
         }
+
         @Override
         public boolean test(Tuple<NodeId> t) {
-            final DatasetACL acl = (DatasetACL) ctx.get(SYM_ACL);
-            final String     usrName = (String) ctx.get(SYM_USR);
-            
-            if (acl == null || usrName == null)
-                return true;
-            
-            String graphName = "";
-            
-            if (t.len() == 3)
-                graphName = DEF_GRAPH_NAME;
-            else { 
-                final Node nGraph = nodeTupleTable.getNodeTable().getNodeForNodeId(t.get(0));
-                graphName = nGraph.toString();
-            }
-            
-            return acl.checkGrapBase(DatasetACL.aclId.aiQuery, graphName, usrName);
+            if ( t.len() == 3 )
+                return acl.permitsDefaultGraph();
+            return acl.permits(t.get(0), nodeTable::getNodeForNodeId);
         }
-        
     }
 
     /* Entry point */
@@ -93,7 +78,8 @@ class StageMatchTuple {
             // Short cut - known unknown NodeId
             return Iter.nullIterator();
 
-        Iterator<Tuple<NodeId>> iterMatches = nodeTupleTable.find(TupleFactory.create(ids));
+        QueryACL acl = QueryACL.get(execCxt);
+        Iterator<Tuple<NodeId>> iterMatches = find(nodeTupleTable, ids, acl, anyGraph);
         if ( false ) {
             List<Tuple<NodeId>> x = Iter.toList(iterMatches);
             System.out.println(x);
@@ -104,11 +90,9 @@ class StageMatchTuple {
         if ( filter != null )
             iterMatches = Iter.filter(iterMatches, filter);
 
-        final Context ctx = execCxt.getContext();
-        
-        
-        iterMatches = Iter.filter(iterMatches, new ACLFilter(ctx, nodeTupleTable));
-        
+        if ( acl != null )
+            iterMatches = Iter.filter(iterMatches, new ACLFilter(acl, nodeTupleTable.getNodeTable()));
+
         // If we want to reduce to RDF semantics over quads,
         // we need to reduce the quads to unique triples.
         // We do that by having the graph slot as "any", then running
@@ -136,6 +120,30 @@ class StageMatchTuple {
         return Iter.iter(iterMatches).map(binder).removeNulls();
     }
 
+    /**
+     * Find the matching tuples. When the graph slot is open and the ACL restricts
+     * the user to a small set of graphs, each permitted graph is scanned on a
+     * G-leading index instead of scanning every graph and filtering afterwards.
+     */
+    private static Iterator<Tuple<NodeId>> find(NodeTupleTable nodeTupleTable, NodeId[] ids, QueryACL acl, boolean anyGraph) {
+        // Union graph matching relies on one scan of an index ending in G
+        // (see access) so it is left to post-filtering.
+        if ( acl != null && ids.length == 4 && !anyGraph && NodeId.isAny(ids[0]) ) {
+            NodeTable nodeTable = nodeTupleTable.getNodeTable();
+            List<NodeId> graphs = acl.permittedGraphKeys(nodeTupleTable, g -> {
+                NodeId gid = nodeTable.getNodeIdForNode(g);
+                return NodeId.isDoesNotExist(gid) ? null : gid;
+            });
+            if ( graphs != null )
+                return Iter.flatMap(graphs.iterator(), gid -> {
+                    NodeId[] graphIds = ids.clone();
+                    graphIds[0] = gid;
+                    return nodeTupleTable.find(TupleFactory.create(graphIds));
+                });
+        }
+        return nodeTupleTable.find(TupleFactory.create(ids));
+    }
+
     private static BindingNodeId tupleToBinding(BindingNodeId input, Tuple<NodeId> tuple, Var[] var) {
         // Reuseable BindingNodeId builder?
         BindingNodeId output = new BindingNodeId(input);